@@ -16,12 +16,39 @@
  */
 package org.lisapark.octopus.core.compiler;
 
+import com.google.common.collect.Lists;
 import org.lisapark.octopus.core.ProcessingModel;
 import org.lisapark.octopus.core.ValidationException;
+import org.lisapark.octopus.core.memory.Memory;
 import org.lisapark.octopus.core.memory.MemoryProvider;
+import org.lisapark.octopus.core.memory.budget.BudgetedMemoryProvider;
+import org.lisapark.octopus.core.memory.budget.MemoryBudgetExceededException;
+import org.lisapark.octopus.core.memory.heap.HeapMemoryProvider;
+import org.lisapark.octopus.core.processor.Processor;
 import org.lisapark.octopus.core.runtime.ProcessingRuntime;
+import org.lisapark.octopus.core.runtime.ProcessorContext;
+import org.lisapark.octopus.core.runtime.basic.BasicProcessorContext;
+import org.lisapark.octopus.core.runtime.ingest.IngestionSettings;
+import org.lisapark.octopus.core.runtime.metrics.JmxMetricsExporter;
+import org.lisapark.octopus.core.runtime.metrics.MetricsRegistry;
+import org.lisapark.octopus.core.runtime.metrics.NodeType;
+import org.lisapark.octopus.core.runtime.trace.TraceSettings;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
+import org.lisapark.octopus.core.sink.external.AsyncExternalSink;
+import org.lisapark.octopus.core.sink.external.AsyncSinkSettings;
+import org.lisapark.octopus.core.sink.external.BatchedExternalSink;
+import org.lisapark.octopus.core.sink.external.BatchingExternalSink;
+import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
+import org.lisapark.octopus.core.sink.external.ExternalSink;
+import org.lisapark.octopus.core.sink.external.SinkBatchSettings;
+import org.lisapark.octopus.core.source.external.CompiledExternalSource;
+import org.lisapark.octopus.core.source.external.ExternalSource;
 
+import java.io.Closeable;
 import java.io.PrintStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -35,13 +62,303 @@ import static com.google.common.base.Preconditions.checkArgument;
  */
 public abstract class Compiler {
 
+    private MemoryProvider memoryProvider = new HeapMemoryProvider();
+    private PrintStream standardOut = System.out;
+    private PrintStream standardError = System.err;
+
+    /**
+     * Null if the sources send their events straight into the engine
+     */
+    private IngestionSettings ingestionSettings;
+
+    /**
+     * Null if the sinks process their events in the engine thread
+     */
+    private AsyncSinkSettings asyncSinkSettings;
+
+    /**
+     * Null if the sinks write every event on its own
+     */
+    private SinkBatchSettings sinkBatchSettings;
+
+    private boolean exportMetricsOverJmx;
+
+    /**
+     * Null if no events are traced
+     */
+    private TraceSettings traceSettings;
+
     public abstract ProcessingRuntime compile(ProcessingModel model) throws ValidationException;
 
-    public abstract void setMemoryProvider(MemoryProvider memoryProvider);
+    /**
+     * Sets the provider the memories of the processors are created with. Memory is on the heap by default.
+     *
+     * @param memoryProvider of the processors
+     */
+    public synchronized void setMemoryProvider(MemoryProvider memoryProvider) {
+        checkArgument(memoryProvider != null, "memoryProvider cannot be null");
+        this.memoryProvider = memoryProvider;
+    }
+
+    public synchronized void setStandardOut(PrintStream standardOut) {
+        checkArgument(standardOut != null, "standardOut cannot be null");
+        this.standardOut = standardOut;
+    }
+
+    public synchronized void setStandardError(PrintStream standardError) {
+        checkArgument(standardError != null, "standardError cannot be null");
+        this.standardError = standardError;
+    }
+
+    /**
+     * Sets how the events of the external sources are queued before they go into the engine. Without settings, which
+     * is the default, the sources send their events straight into the engine.
+     *
+     * @param ingestionSettings settings or null to not queue events
+     */
+    public synchronized void setIngestionSettings(IngestionSettings ingestionSettings) {
+        this.ingestionSettings = ingestionSettings;
+    }
+
+    /**
+     * Sets how the events of the external sinks are queued so that the sinks process them off the engine thread.
+     * Without settings, which is the default, the sinks process their events in the engine thread.
+     *
+     * @param asyncSinkSettings settings or null to process events in the engine thread
+     */
+    public synchronized void setAsyncSinkSettings(AsyncSinkSettings asyncSinkSettings) {
+        this.asyncSinkSettings = asyncSinkSettings;
+    }
+
+    /**
+     * Sets how the external sinks that implement {@link BatchingExternalSink} collect events before they write them.
+     * Without settings, which is the default, every event is written on its own.
+     *
+     * @param sinkBatchSettings settings or null to write every event on its own
+     */
+    public synchronized void setSinkBatchSettings(SinkBatchSettings sinkBatchSettings) {
+        this.sinkBatchSettings = sinkBatchSettings;
+    }
+
+    /**
+     * Sets whether the metrics of the compiled runtimes are registered with the platform MBean server. They are not
+     * by default; {@link ProcessingRuntime#getMetrics()} works either way.
+     *
+     * @param exportMetricsOverJmx true to register the metrics
+     */
+    public synchronized void setExportMetricsOverJmx(boolean exportMetricsOverJmx) {
+        this.exportMetricsOverJmx = exportMetricsOverJmx;
+    }
+
+    /**
+     * Sets the fraction of the events of the sources whose way through the compiled runtimes is traced. No events
+     * are traced by default.
+     *
+     * @param traceSettings settings or null to not trace events
+     */
+    public synchronized void setTraceSettings(TraceSettings traceSettings) {
+        this.traceSettings = traceSettings;
+    }
+
+    protected synchronized MemoryProvider getMemoryProvider() {
+        return memoryProvider;
+    }
+
+    protected synchronized PrintStream getStandardOut() {
+        return standardOut;
+    }
+
+    protected synchronized PrintStream getStandardError() {
+        return standardError;
+    }
 
-    public abstract void setStandardOut(PrintStream standardOut);
+    protected synchronized IngestionSettings getIngestionSettings() {
+        return ingestionSettings;
+    }
+
+    protected synchronized AsyncSinkSettings getAsyncSinkSettings() {
+        return asyncSinkSettings;
+    }
+
+    protected synchronized SinkBatchSettings getSinkBatchSettings() {
+        return sinkBatchSettings;
+    }
 
-    public abstract void setStandardError(PrintStream standardErr);
+    /**
+     * Returns a new tracer for a compiled runtime, or null if no events are traced.
+     *
+     * @return tracer or null
+     */
+    protected synchronized Tracer newTracer() {
+        return (traceSettings != null) ? new Tracer(traceSettings) : null;
+    }
+
+    /**
+     * Compiles the model with the specified compiler after handing it the settings of this one. Compilers use this
+     * for the models they cannot compile themselves.
+     *
+     * @param compiler to compile the model with
+     * @param model    to compile
+     * @return runtime of the model
+     * @throws ValidationException if the model does not compile
+     */
+    protected synchronized ProcessingRuntime compileWith(Compiler compiler, ProcessingModel model)
+            throws ValidationException {
+        compiler.setMemoryProvider(memoryProvider);
+        compiler.setStandardOut(standardOut);
+        compiler.setStandardError(standardError);
+        compiler.setIngestionSettings(ingestionSettings);
+        compiler.setAsyncSinkSettings(asyncSinkSettings);
+        compiler.setSinkBatchSettings(sinkBatchSettings);
+        compiler.setExportMetricsOverJmx(exportMetricsOverJmx);
+        compiler.setTraceSettings(traceSettings);
+
+        return compiler.compile(model);
+    }
+
+    /**
+     * Compiles the external sources of a model, adding the errors of the sources that do not compile to the errors.
+     *
+     * @param externalSources of the model
+     * @param errors          of the compilation
+     * @return the sources that compiled
+     */
+    protected static Collection<CompiledExternalSource> compileExternalSources(Set<ExternalSource> externalSources,
+                                                                               List<String> errors) {
+        Collection<CompiledExternalSource> compiledSources = Lists.newLinkedList();
+
+        for (ExternalSource externalSource : externalSources) {
+            try {
+                compiledSources.add(externalSource.compile());
+            } catch (ValidationException e) {
+                errors.add(e.getLocalizedMessage());
+            }
+        }
+
+        return compiledSources;
+    }
+
+    /**
+     * Creates the memory of the processor and the context it is run with. Memory that has to be released is added to
+     * the resources. If the memory does not fit into the memory budget the error is added to the errors and null is
+     * returned.
+     *
+     * @param processor to create the context for
+     * @param resources of the runtime
+     * @param errors    of the compilation
+     * @return context of the processor or null
+     */
+    protected synchronized ProcessorContext createProcessorContext(Processor processor, List<Closeable> resources,
+                                                                   List<String> errors) {
+        Memory processorMemory;
+        try {
+            processorMemory = processor.createMemoryForProcessor(memoryProvider.forProcessor(processor.getId()));
+        } catch (MemoryBudgetExceededException e) {
+            errors.add(e.getLocalizedMessage());
+            return null;
+        }
+
+        if (processorMemory instanceof Closeable) {
+            resources.add((Closeable) processorMemory);
+        }
+
+        return newProcessorContext(processorMemory, standardOut, standardError);
+    }
+
+    /**
+     * Returns the context a processor is run with.
+     *
+     * @param processorMemory memory of the processor, null if it has none
+     * @param standardOut     of the processor
+     * @param standardError   of the processor
+     * @return processor context
+     */
+    public static ProcessorContext newProcessorContext(Memory processorMemory, PrintStream standardOut,
+                                                       PrintStream standardError) {
+        if (processorMemory != null) {
+            return new BasicProcessorContext(standardOut, standardError, processorMemory);
+        } else {
+            return new BasicProcessorContext(standardOut, standardError);
+        }
+    }
+
+    /**
+     * Creates the metrics for a runtime of the specified model with every source, processor and sink registered, in
+     * that order, so that the adaptors only have to look them up. If the memory provider is a
+     * {@link BudgetedMemoryProvider} the metrics include the memory of the processors.
+     *
+     * @param model being compiled
+     * @return metrics of the runtime
+     */
+    protected synchronized MetricsRegistry newMetricsRegistry(ProcessingModel model) {
+        MetricsRegistry metrics = new MetricsRegistry((memoryProvider instanceof BudgetedMemoryProvider)
+                ? (BudgetedMemoryProvider) memoryProvider : null);
+
+        for (ExternalSource source : model.getExternalSources()) {
+            metrics.register(source.getId(), source.getName(), NodeType.SOURCE);
+        }
+        for (Processor processor : model.getProcessors()) {
+            metrics.register(processor.getId(), processor.getName(), NodeType.PROCESSOR);
+        }
+        for (ExternalSink sink : model.getExternalSinks()) {
+            metrics.register(sink.getId(), sink.getName(), NodeType.SINK);
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Registers the metrics of the runtime over JMX if asked to. The exporter is added to the resources so that the
+     * metrics are unregistered when the runtime is shutdown.
+     *
+     * @param runtime   that was compiled
+     * @param model     the runtime was compiled from
+     * @param resources of the runtime
+     * @return the runtime
+     */
+    protected synchronized ProcessingRuntime exportMetrics(ProcessingRuntime runtime, ProcessingModel model,
+                                                           List<Closeable> resources) {
+        if (exportMetricsOverJmx) {
+            resources.add(new JmxMetricsExporter(runtime, model.getModelName()).register());
+        }
+
+        return runtime;
+    }
+
+    /**
+     * Wraps the compiled sink in a {@link BatchedExternalSink} and/or an {@link AsyncExternalSink}, depending on the
+     * specified settings. The wrappers are added to the resources that are closed when the runtime is shutdown.
+     *
+     * @param compiledSink  to wrap
+     * @param batchSettings batch settings or null
+     * @param asyncSettings async settings or null
+     * @param resources     of the runtime
+     * @return the sink the engine hands the events to
+     */
+    public static CompiledExternalSink decorateSink(CompiledExternalSink compiledSink,
+                                                    SinkBatchSettings batchSettings, AsyncSinkSettings asyncSettings,
+                                                    List<Closeable> resources) {
+        CompiledExternalSink decoratedSink = compiledSink;
+
+        BatchedExternalSink batchedSink = null;
+        if (batchSettings != null && compiledSink instanceof BatchingExternalSink) {
+            batchedSink = new BatchedExternalSink(compiledSink, batchSettings);
+            decoratedSink = batchedSink;
+        }
+
+        if (asyncSettings != null) {
+            AsyncExternalSink asyncSink = new AsyncExternalSink(decoratedSink, asyncSettings);
+            resources.add(asyncSink);
+            decoratedSink = asyncSink;
+        }
+
+        // closed after the async sink so that what is left in its queue still ends up in the last batch
+        if (batchedSink != null) {
+            resources.add(batchedSink);
+        }
+
+        return decoratedSink;
+    }
 
     // todo
 
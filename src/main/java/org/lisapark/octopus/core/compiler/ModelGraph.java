@@ -0,0 +1,232 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.compiler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.lisapark.octopus.core.Input;
+import org.lisapark.octopus.core.ProcessingModel;
+import org.lisapark.octopus.core.processor.Processor;
+import org.lisapark.octopus.core.processor.ProcessorInput;
+import org.lisapark.octopus.core.processor.ProcessorJoin;
+import org.lisapark.octopus.core.sink.external.ExternalSink;
+import org.lisapark.octopus.core.source.Source;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A {@link ModelGraph} is the graph of a {@link ProcessingModel}; it knows for every source, i.e. external source or
+ * processor, which processors and sinks consume its events. {@link Compiler}s use it to analyse the model before
+ * creating the runtime.
+ * <p/>
+ * Note that nodes are identified by their {@link Source#getId()} since the sources connected to inputs are copies of
+ * the model's nodes.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class ModelGraph {
+
+    private final Map<UUID, List<Processor>> processorsBySourceId = Maps.newHashMap();
+    private final Map<UUID, List<ExternalSink>> sinksBySourceId = Maps.newHashMap();
+    private final List<Processor> processors;
+
+    public ModelGraph(ProcessingModel model) {
+        checkArgument(model != null, "model cannot be null");
+        this.processors = ImmutableList.copyOf(model.getProcessors());
+
+        for (Processor<?> processor : processors) {
+            for (ProcessorInput input : processor.getInputs()) {
+                if (input.getSource() != null) {
+                    consumersOf(processorsBySourceId, input.getSource().getId()).add(processor);
+                }
+            }
+        }
+
+        for (ExternalSink sink : model.getExternalSinks()) {
+            for (Input input : sink.getInputs()) {
+                if (input.getSource() != null) {
+                    consumersOf(sinksBySourceId, input.getSource().getId()).add(sink);
+                }
+            }
+        }
+    }
+
+    private static <T> List<T> consumersOf(Map<UUID, List<T>> consumersBySourceId, UUID sourceId) {
+        List<T> consumers = consumersBySourceId.get(sourceId);
+
+        if (consumers == null) {
+            consumers = Lists.newArrayList();
+            consumersBySourceId.put(sourceId, consumers);
+        }
+
+        return consumers;
+    }
+
+    /**
+     * Returns the processors that have at least one input connected to the source with the specified id.
+     *
+     * @param sourceId of source
+     * @return consuming processors
+     */
+    public List<Processor> getProcessorsConsuming(UUID sourceId) {
+        List<Processor> processors = processorsBySourceId.get(sourceId);
+
+        return (processors == null) ? Collections.<Processor>emptyList() : ImmutableList.copyOf(processors);
+    }
+
+    /**
+     * Returns the sinks that have at least one input connected to the source with the specified id.
+     *
+     * @param sourceId of source
+     * @return consuming sinks
+     */
+    public List<ExternalSink> getSinksConsuming(UUID sourceId) {
+        List<ExternalSink> sinks = sinksBySourceId.get(sourceId);
+
+        return (sinks == null) ? Collections.<ExternalSink>emptyList() : ImmutableList.copyOf(sinks);
+    }
+
+    /**
+     * Returns the processors of the model ordered such that every processor comes after all the processors it
+     * consumes events from, or null if the processors form a cycle.
+     *
+     * @return processors in topological order or null
+     */
+    public List<Processor> getProcessorsInTopologicalOrder() {
+        Map<UUID, Integer> numberOfProcessorInputs = Maps.newHashMap();
+        for (Processor<?> processor : processors) {
+            numberOfProcessorInputs.put(processor.getId(), 0);
+        }
+        for (Processor<?> processor : processors) {
+            for (Processor consumer : getProcessorsConsuming(processor.getId())) {
+                numberOfProcessorInputs.put(consumer.getId(), numberOfProcessorInputs.get(consumer.getId()) + 1);
+            }
+        }
+
+        LinkedList<Processor> ready = Lists.newLinkedList();
+        for (Processor<?> processor : processors) {
+            if (numberOfProcessorInputs.get(processor.getId()) == 0) {
+                ready.add(processor);
+            }
+        }
+
+        List<Processor> ordered = Lists.newArrayListWithCapacity(processors.size());
+        while (!ready.isEmpty()) {
+            Processor<?> processor = ready.removeFirst();
+            ordered.add(processor);
+
+            for (Processor consumer : getProcessorsConsuming(processor.getId())) {
+                int remaining = numberOfProcessorInputs.get(consumer.getId()) - 1;
+                numberOfProcessorInputs.put(consumer.getId(), remaining);
+
+                if (remaining == 0) {
+                    ready.add(consumer);
+                }
+            }
+        }
+
+        return (ordered.size() == processors.size()) ? ordered : null;
+    }
+
+    /**
+     * Returns the names of the attributes that are read downstream of the source with the specified id, or null if
+     * all of them may be read.
+     * <p/>
+     * Since a processor's output carries along the attributes of its input events, an attribute of a source is
+     * needed if any processor reads it through an input, the window of an input, a join or
+     * {@link Processor#getReadAttributeNames()}, or if it is needed downstream of any processor consuming the source.
+     * Sinks only read the attributes they declare in consumedAttributesBySinkId; a sink that is missing from the map,
+     * or mapped to null, reads all attributes.
+     *
+     * @param sourceId                   of source
+     * @param consumedAttributesBySinkId attributes read by each sink
+     * @return attribute names or null for all attributes
+     */
+    public Set<String> getRequiredAttributeNames(UUID sourceId, Map<UUID, Set<String>> consumedAttributesBySinkId) {
+        return requiredAttributeNames(sourceId, consumedAttributesBySinkId, Maps.<UUID, Set<String>>newHashMap(),
+                Sets.<UUID>newHashSet());
+    }
+
+    private Set<String> requiredAttributeNames(UUID sourceId, Map<UUID, Set<String>> consumedAttributesBySinkId,
+                                               Map<UUID, Set<String>> requiredBySourceId, Set<UUID> visiting) {
+        if (requiredBySourceId.containsKey(sourceId)) {
+            return requiredBySourceId.get(sourceId);
+        }
+        if (!visiting.add(sourceId)) {
+            // there is a cycle in the model, so we cannot tell what is needed
+            return null;
+        }
+
+        Set<String> required = Sets.newHashSet();
+
+        for (ExternalSink sink : getSinksConsuming(sourceId)) {
+            Set<String> consumed = consumedAttributesBySinkId.get(sink.getId());
+
+            if (consumed == null) {
+                required = null;
+                break;
+            }
+            required.addAll(consumed);
+        }
+
+        if (required != null) {
+            for (Processor<?> processor : getProcessorsConsuming(sourceId)) {
+                for (ProcessorInput input : processor.getInputs()) {
+                    if (input.getSource() != null && input.getSource().getId().equals(sourceId)) {
+                        if (input.getSourceAttributeName() != null) {
+                            required.add(input.getSourceAttributeName());
+                        }
+                        if (input.getWindowSpec().getKeyAttributeName() != null) {
+                            required.add(input.getWindowSpec().getKeyAttributeName());
+                        }
+                    }
+                }
+                required.addAll(processor.getReadAttributeNames());
+                for (ProcessorJoin join : processor.getJoins()) {
+                    if (join.getFirstInputAttributeName() != null) {
+                        required.add(join.getFirstInputAttributeName());
+                    }
+                    if (join.getSecondInputAttributeName() != null) {
+                        required.add(join.getSecondInputAttributeName());
+                    }
+                }
+
+                Set<String> requiredDownstream = requiredAttributeNames(processor.getId(), consumedAttributesBySinkId,
+                        requiredBySourceId, visiting);
+                if (requiredDownstream == null) {
+                    required = null;
+                    break;
+                }
+                required.addAll(requiredDownstream);
+            }
+        }
+
+        visiting.remove(sourceId);
+        requiredBySourceId.put(sourceId, required);
+
+        return required;
+    }
+}
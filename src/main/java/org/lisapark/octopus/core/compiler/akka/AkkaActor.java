@@ -0,0 +1,169 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.compiler.akka;
+
+import org.lisapark.octopus.core.Input;
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.runtime.akka.ActorDispatcher;
+import org.lisapark.octopus.core.runtime.basic.LatestEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An {@link AkkaActor} is a processor or sink of a model compiled by the {@link AkkaCompiler}. Events are put into
+ * its bounded mailbox with {@link #tell(int[], Event)} and processed one at a time on a thread of the
+ * {@link ActorDispatcher}, so the processor or sink itself never sees two threads at once.
+ * <p/>
+ * Like the Esper statements, the actor keeps the {@link LatestEvents} of its inputs and only fires once every input
+ * has seen an event.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+abstract class AkkaActor implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(AkkaActor.class);
+
+    /**
+     * Maximum number of messages processed before the thread is given to another actor
+     */
+    private static final int THROUGHPUT = 64;
+
+    private final BlockingQueue<Message> mailbox;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ActorDispatcher dispatcher;
+    private final PrintStream standardError;
+
+    /**
+     * Latest event of each input, only ever updated on the thread processing the mailbox
+     */
+    final LatestEvents latestEvents;
+
+    AkkaActor(List<? extends Input> inputs, int mailboxCapacity, ActorDispatcher dispatcher, PrintStream standardError) {
+        this.mailbox = new ArrayBlockingQueue<Message>(mailboxCapacity);
+        this.dispatcher = dispatcher;
+        this.standardError = standardError;
+        this.latestEvents = new LatestEvents(inputs);
+    }
+
+    /**
+     * Returns the indexes of the inputs that are connected to the source with the specified id.
+     *
+     * @param sourceId of source
+     * @return input indexes
+     */
+    int[] getInputIndexesForSource(UUID sourceId) {
+        return latestEvents.getInputIndexesForSource(sourceId);
+    }
+
+    /**
+     * Puts the event for the specified inputs into the mailbox of this actor, waiting for room if the mailbox is
+     * full.
+     *
+     * @param inputIndexes the event arrived on
+     * @param event        that arrived
+     */
+    void tell(int[] inputIndexes, Event event) {
+        dispatcher.messageSent();
+
+        try {
+            mailbox.put(new Message(inputIndexes, event));
+        } catch (InterruptedException e) {
+            dispatcher.messageProcessed();
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            dispatcher.execute(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (int i = 0; i < THROUGHPUT; ++i) {
+                Message message = mailbox.poll();
+                if (message == null) {
+                    break;
+                }
+
+                try {
+                    Map<Integer, Event> eventsByInputId = eventsFor(message.inputIndexes, message.event);
+
+                    if (eventsByInputId != null) {
+                        receive(eventsByInputId);
+                    }
+                } catch (RuntimeException e) {
+                    // an actor has no caller to throw to, so all we can do is report it and carry on
+                    standardError.println(e.getLocalizedMessage());
+                    e.printStackTrace(standardError);
+
+                    LOG.error(String.format("Exception while processing event in actor [%s]", this), e);
+                } finally {
+                    dispatcher.messageProcessed();
+                }
+            }
+        } finally {
+            scheduled.set(false);
+
+            // messages may have arrived after the last poll but before the flag was cleared
+            if (!mailbox.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * Returns what {@link #receive(Map)} is called with for an event, or null if it is not called. By default these
+     * are the latest events of all inputs once every input has seen an event.
+     *
+     * @param inputIndexes the event arrived on
+     * @param event        that arrived
+     * @return events by input id or null
+     */
+    Map<Integer, Event> eventsFor(int[] inputIndexes, Event event) {
+        return latestEvents.update(inputIndexes, event);
+    }
+
+    /**
+     * Called on a thread of the dispatcher with the result of {@link #eventsFor(int[], Event)}, one call at a time.
+     *
+     * @param eventsByInputId events by input id
+     */
+    abstract void receive(Map<Integer, Event> eventsByInputId);
+
+    private static class Message {
+        private final int[] inputIndexes;
+        private final Event event;
+
+        Message(int[] inputIndexes, Event event) {
+            this.inputIndexes = inputIndexes;
+            this.event = event;
+        }
+    }
+}
@@ -16,91 +16,67 @@
  */
 package org.lisapark.octopus.core.compiler.akka;
 
-import com.espertech.esper.client.Configuration;
-import com.espertech.esper.client.EPAdministrator;
-import com.espertech.esper.client.EPException;
-import com.espertech.esper.client.EPRuntime;
-import com.espertech.esper.client.EPServiceProvider;
-import com.espertech.esper.client.EPServiceProviderManager;
-import com.espertech.esper.client.EPStatement;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import org.lisapark.octopus.core.Input;
+import com.google.common.collect.Sets;
 import org.lisapark.octopus.core.ProcessingModel;
 import org.lisapark.octopus.core.ValidationException;
-import org.lisapark.octopus.core.memory.Memory;
-import org.lisapark.octopus.core.memory.MemoryProvider;
-import org.lisapark.octopus.core.memory.heap.HeapMemoryProvider;
+import org.lisapark.octopus.core.compiler.ModelGraph;
+import org.lisapark.octopus.core.compiler.esper.EsperCompiler;
 import org.lisapark.octopus.core.processor.CompiledProcessor;
 import org.lisapark.octopus.core.processor.Processor;
-import org.lisapark.octopus.core.processor.ProcessorInput;
 import org.lisapark.octopus.core.runtime.ProcessingRuntime;
+import org.lisapark.octopus.core.runtime.metrics.MetricsRegistry;
+import org.lisapark.octopus.core.runtime.metrics.NodeMetrics;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
+import org.lisapark.octopus.core.runtime.basic.RuntimeResources;
 import org.lisapark.octopus.core.runtime.ProcessorContext;
-import org.lisapark.octopus.core.runtime.basic.BasicProcessorContext;
+import org.lisapark.octopus.core.runtime.akka.ActorDispatcher;
+import org.lisapark.octopus.core.runtime.akka.AkkaRuntime;
 import org.lisapark.octopus.core.runtime.basic.BasicSinkContext;
-import org.lisapark.octopus.core.runtime.esper.EsperRuntime;
+import org.lisapark.octopus.core.runtime.direct.EventRoute;
 import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
 import org.lisapark.octopus.core.sink.external.ExternalSink;
 import org.lisapark.octopus.core.source.external.CompiledExternalSource;
 import org.lisapark.octopus.core.source.external.ExternalSource;
-import org.lisapark.octopus.util.esper.EsperUtils;
 
-import java.io.PrintStream;
+import java.io.Closeable;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 /**
+ * The {@link AkkaCompiler} compiles a {@link ProcessingModel} into actors: every processor and sink gets a bounded
+ * mailbox and processes its events one at a time on a pool of threads shared by all the actors of the model. Events
+ * are passed between actors as messages, so independent branches of a model run on different threads and a source
+ * only blocks when the mailbox of one of its consumers is full.
+ * <p/>
+ * Models whose processors form a cycle are compiled by the {@link EsperCompiler} instead since a cycle of bounded
+ * mailboxes can dead lock.
+ <p/>
+ * The traces of sampled events end at the mailboxes of the consumers of their source, since the actors process the
+ * events on threads the trace does not follow.
+ *
  * @author dave sinclair(david.sinclair@lisa-park.com)
  */
 public class AkkaCompiler extends org.lisapark.octopus.core.compiler.Compiler {
-
-    private MemoryProvider memoryProvider = new HeapMemoryProvider();
-    private PrintStream standardOut = System.out;
-    private PrintStream standardError = System.err;
-
-    @Override
-    public synchronized void setMemoryProvider(MemoryProvider memoryProvider) {
-        checkArgument(memoryProvider != null, "memoryProvider cannot be null");
-        this.memoryProvider = memoryProvider;
-    }
-
-    @Override
-    public synchronized void setStandardOut(PrintStream standardOut) {
-        checkArgument(standardOut != null, "standardOut cannot be null");
-        this.standardOut = standardOut;
-    }
-
-    @Override
-    public synchronized void setStandardError(PrintStream stadardError) {
-        checkArgument(stadardError != null, "standardError cannot be null");
-        this.standardError = stadardError;
-    }
-
-    void registerEventTypesForModel(Configuration configuration, ProcessingModel model) {
-        // register all of the model source event types
-        for (ExternalSource externalSource : model.getExternalSources()) {
-            Map<String, Object> eventDefinition = externalSource.getOutput().getEventDefinition();
-
-            configuration.addEventType(
-                    EsperUtils.getEventNameForSource(externalSource),
-                    eventDefinition
-            );
-        }
-
-        for (Processor processor : model.getProcessors()) {
-
-            Map<String, Object> eventDefinition = processor.getOutput().getEventDefinition();
-
-            configuration.addEventType(
-                    EsperUtils.getEventNameForSource(processor),
-                    eventDefinition
-            );
-        }
+    private static final int DEFAULT_MAILBOX_CAPACITY = 1024;
+
+    private int mailboxCapacity = DEFAULT_MAILBOX_CAPACITY;
+
+    /**
+     * Sets the number of events that fit into the mailbox of each processor and sink.
+     *
+     * @param mailboxCapacity of the actors
+     */
+    public synchronized void setMailboxCapacity(int mailboxCapacity) {
+        checkArgument(mailboxCapacity > 0, "mailboxCapacity has to be greater than zero");
+        this.mailboxCapacity = mailboxCapacity;
     }
 
     @Override
@@ -114,186 +90,150 @@ public class AkkaCompiler extends org.lisapark.octopus.core.compiler.Compiler {
             );
         }
 
-        // create a new Esper Configuration
-        Configuration configuration = new Configuration();
-
-        registerEventTypesForModel(configuration, model);
+        ModelGraph graph = new ModelGraph(model);
+        List<Processor> orderedProcessors = graph.getProcessorsInTopologicalOrder();
 
-        EPServiceProvider epService = EPServiceProviderManager.getProvider(model.getModelName(), configuration);
-        epService.initialize();
+        if (!canCompileToActors(orderedProcessors)) {
+            return compileWith(new EsperCompiler(), model);
+        }
 
         List<String> errors = Lists.newLinkedList();
 
         Collection<CompiledExternalSource> compiledSources = compileExternalSources(model.getExternalSources(), errors);
-        compileProcessors(epService, model.getProcessors(), errors);
-        compileSinks(epService, model.getExternalSinks(), errors);
 
-        if (errors.size() > 0) {
-            throw new ValidationException(Joiner.on('\n').join(errors));
-        }
+        int numberOfActors = Math.max(1, model.getProcessors().size() + model.getExternalSinks().size());
+        ActorDispatcher dispatcher = new ActorDispatcher(model.getModelName(), numberOfActors);
 
-        return new EsperRuntime(epService, compiledSources, standardOut, standardError);
-    }
+        // memories and sinks that need to be released when the runtime is shutdown
+        List<Closeable> resources = Lists.newArrayList();
 
-    private void compileSinks(EPServiceProvider epService, Set<ExternalSink> externalSinks, List<String> errors) {
-        EPAdministrator admin = epService.getEPAdministrator();
-        EPRuntime runtime = epService.getEPRuntime();
+        MetricsRegistry metrics = newMetricsRegistry(model);
+        Tracer tracer = newTracer();
 
-        for (ExternalSink externalSink : externalSinks) {
-            try {
-                CompiledExternalSink compiledExternalSink = externalSink.compile();
+        Map<UUID, AkkaActor> actorsById = Maps.newHashMap();
+        Map<UUID, Set<String>> consumedAttributesBySinkId = compileSinks(
+                model.getExternalSinks(), dispatcher, actorsById, metrics, resources, errors
+        );
 
-                String statement = getStatementForCompiledSink(compiledExternalSink);
-                EPStatement stmt = admin.createEPL(statement);
+        // the processors are compiled from the last to the first so that the consumers of a processor always exist
+        // when its output route is created
+        for (Processor processor : Lists.reverse(orderedProcessors)) {
+            ProcessorContext ctx = createProcessorContext(processor, resources, errors);
+            if (ctx == null) {
+                continue;
+            }
 
-                AkkaExternalSinkAdaptor runner = new AkkaExternalSinkAdaptor(
-                        compiledExternalSink, new BasicSinkContext(standardOut, standardError), runtime
+            try {
+                CompiledProcessor<?> compiledProcessor = processor.compile();
+
+                // only pass along the attributes someone downstream is going to read
+                Set<String> projectedAttributeNames = graph.getRequiredAttributeNames(
+                        processor.getId(), consumedAttributesBySinkId
                 );
-                stmt.setSubscriber(runner);
-            } catch (ValidationException e) {
-                errors.add(e.getLocalizedMessage());
 
-            } catch (EPException e) {
+                actorsById.put(processor.getId(), new AkkaProcessorAdaptor(
+                        compiledProcessor, ctx, projectedAttributeNames,
+                        createRoute(processor.getId(), graph, actorsById, metrics, null),
+                        metrics.getNodeMetrics(processor.getId()), mailboxCapacity, dispatcher
+                ));
+            } catch (ValidationException e) {
                 errors.add(e.getLocalizedMessage());
             }
         }
-    }
-
-    private Collection<CompiledProcessor<?>> compileProcessors(EPServiceProvider epService, Collection<Processor> processors, List<String> errors) {
-        EPAdministrator admin = epService.getEPAdministrator();
-        EPRuntime runtime = epService.getEPRuntime();
 
-        Collection<CompiledProcessor<?>> compiledProcessors = Lists.newLinkedList();
-
-        for (Processor processor : processors) {
-            Memory processorMemory = processor.createMemoryForProcessor(memoryProvider);
+        if (errors.size() > 0) {
+            dispatcher.shutdown();
+            RuntimeResources.closeAll(resources);
+            throw new ValidationException(Joiner.on('\n').join(errors));
+        }
 
-            try {
-                CompiledProcessor<?> compiledProcessor = processor.compile();
-                String statement = getStatementForCompiledProcessor(compiledProcessor);
+        Map<UUID, EventRoute> routesBySourceId = Maps.newHashMap();
+        for (ExternalSource externalSource : model.getExternalSources()) {
+            EventRoute route = createRoute(externalSource.getId(), graph, actorsById, metrics, tracer);
 
-                EPStatement stmt = admin.createEPL(statement);
+            if (route != null) {
+                routesBySourceId.put(externalSource.getId(), route);
+            }
+        }
 
-                ProcessorContext ctx;
-                if (processorMemory != null) {
-                    ctx = new BasicProcessorContext(standardOut, standardError, processorMemory);
-                } else {
-                    ctx = new BasicProcessorContext(standardOut, standardError);
-                }
+        AkkaRuntime runtime = new AkkaRuntime(compiledSources, routesBySourceId, resources, getIngestionSettings(),
+                metrics, tracer, dispatcher, getStandardError());
 
-                AkkaProcessorAdaptor runner = new AkkaProcessorAdaptor(compiledProcessor, ctx, runtime);
-                stmt.addListener(runner);
+        return exportMetrics(runtime, model, resources);
+    }
 
-                compiledProcessors.add(compiledProcessor);
-            } catch (ValidationException e) {
-                errors.add(e.getLocalizedMessage());
+    /**
+     * Returns true if the model can be run as actors. The processors need to form a DAG and only look at the latest
+     * events of their inputs, as there is no engine to keep windows and evaluate joins.
+     */
+    private boolean canCompileToActors(List<Processor> orderedProcessors) {
+        if (orderedProcessors == null) {
+            return false;
+        }
 
-            } catch (EPException e) {
-                errors.add(e.getLocalizedMessage());
+        for (Processor processor : orderedProcessors) {
+            if (!processor.usesLatestEventsOnly()) {
+                return false;
             }
         }
 
-        return compiledProcessors;
+        return true;
     }
 
-    private Collection<CompiledExternalSource> compileExternalSources(Set<ExternalSource> externalSources, List<String> errors) {
-        Collection<CompiledExternalSource> compiledSources = Lists.newLinkedList();
+    private Map<UUID, Set<String>> compileSinks(Set<ExternalSink> externalSinks, ActorDispatcher dispatcher,
+                                                Map<UUID, AkkaActor> actorsById, MetricsRegistry metrics,
+                                                List<Closeable> resources, List<String> errors) {
+        Map<UUID, Set<String>> consumedAttributesBySinkId = Maps.newHashMap();
 
-        for (ExternalSource externalSource : externalSources) {
+        for (ExternalSink externalSink : externalSinks) {
             try {
-                compiledSources.add(externalSource.compile());
+                CompiledExternalSink compiledExternalSink = decorateSink(
+                        externalSink.compile(), getSinkBatchSettings(), getAsyncSinkSettings(), resources
+                );
+
+                actorsById.put(externalSink.getId(), new AkkaExternalSinkAdaptor(
+                        compiledExternalSink, new BasicSinkContext(getStandardOut(), getStandardError()),
+                        metrics.getNodeMetrics(externalSink.getId()), mailboxCapacity, dispatcher
+                ));
+                consumedAttributesBySinkId.put(externalSink.getId(), compiledExternalSink.getConsumedAttributeNames());
             } catch (ValidationException e) {
                 errors.add(e.getLocalizedMessage());
             }
         }
 
-        return compiledSources;
+        return consumedAttributesBySinkId;
     }
 
-    String getStatementForCompiledProcessor(CompiledProcessor<?> compiledProcessor) {
-        // get inputs
-        StringBuilder selectClause = new StringBuilder();
-        StringBuilder fromClause = new StringBuilder();
-        
-        String processorName = compiledProcessor.getId().toString();
-
-        List<ProcessorInput> inputs = compiledProcessor.getInputs();
-
-        Map<ProcessorInput, String> inputToAlias = Maps.newHashMap();
-        int aliasIndex = 0;
-        for (ProcessorInput input : inputs) {
-            if (selectClause.length() > 0) {
-                selectClause.append(", ");
-                fromClause.append(", ");
-            }
-
-            String inputName = EsperUtils.getEventNameForSource(input.getSource());
-
-            String aliasName = "_" + aliasIndex++;
-            inputToAlias.put(input, aliasName);
-
-            selectClause.append(aliasName).append(".* as ").append(aliasName).append("_properties");
-//            fromClause.append(inputName).append(".win:time(10 sec) as ").append(aliasName);
-//            fromClause.append(inputName).append(".std:lastevent() as ").append(aliasName);
-            fromClause.append(inputName).append(".win:length(1) as ").append(aliasName);
+    /**
+     * Creates the route for the events of the source with the specified id, or returns null if nothing consumes
+     * them. The consumers of the source need to be in actorsById already. Only the routes of the external sources get
+     * the tracer, the routes of the processors are called on the threads of the actors, which trace no events.
+     */
+    private EventRoute createRoute(UUID sourceId, ModelGraph graph, Map<UUID, AkkaActor> actorsById,
+                                   MetricsRegistry metrics, Tracer tracer) {
+        Set<UUID> consumerIds = Sets.newLinkedHashSet();
+        for (Processor processor : graph.getProcessorsConsuming(sourceId)) {
+            consumerIds.add(processor.getId());
         }
-        
-//        selectClause.append(", current_timestamp");
-
-        StringBuilder whereClause = new StringBuilder();
-        
-//        List<ProcessorJoin> joins = compiledProcessor.getJoins();
-//        for (ProcessorJoin join : joins) {
-//            // some joins aren't required as they are on the same input
-////            if (join.isRequired()) {
-//                String firstAlias = inputToAlias.get(join.getFirstInput());
-//                String secondAlias = inputToAlias.get(join.getSecondInput());
-//
-//                if (whereClause.length() > 0) {
-//                    whereClause.append("AND ");
-//                }
-//
-//                whereClause.append(firstAlias)
-////                        .append('.').append(join.getFirstInputAttributeName())
-//                        ;
-//                whereClause.append(".coinsides(");
-//                whereClause.append(secondAlias)
-////                        .append('.').append(join.getSecondInputAttributeName())
-//                        ;
-//                whereClause.append(")");
-////            }
-//        }
-
-        if (whereClause.length() == 0) {
-            return String.format("SELECT  %s FROM %s", selectClause, fromClause);
-        } else {
-            return String.format("SELECT  %s FROM %s WHERE %s", selectClause, fromClause, whereClause);
+        for (ExternalSink sink : graph.getSinksConsuming(sourceId)) {
+            consumerIds.add(sink.getId());
         }
-    }
 
-    String getStatementForCompiledSink(CompiledExternalSink compiledExternalSink) {
-        // get inputs_
-        StringBuilder selectClause = new StringBuilder();
-        StringBuilder fromClause = new StringBuilder();
+        List<AkkaActor> actors = Lists.newArrayList();
+        List<int[]> inputIndexes = Lists.newArrayList();
+        List<NodeMetrics> actorMetrics = Lists.newArrayList();
 
-        List<? extends Input> inputs = compiledExternalSink.getInputs();
+        for (UUID consumerId : consumerIds) {
+            AkkaActor actor = actorsById.get(consumerId);
 
-        // todo join inputs
-
-        int aliasIndex = 0;
-        for (Input input : inputs) {
-            if (selectClause.length() > 0) {
-                selectClause.append(", ");
-                fromClause.append(", ");
+            // the actor is missing if it did not compile
+            if (actor != null) {
+                actors.add(actor);
+                inputIndexes.add(actor.getInputIndexesForSource(sourceId));
+                actorMetrics.add(metrics.getNodeMetrics(consumerId));
             }
-
-            String inputName = EsperUtils.getEventNameForSource(input.getSource());
-
-            String aliasName = "_" + aliasIndex++;
-            selectClause.append(aliasName).append(".*");
-            fromClause.append(inputName).append(".win:length(1) as ").append(aliasName);
         }
 
-        return String.format("SELECT %s FROM %s", selectClause, fromClause);
+        return actors.isEmpty() ? null : new AkkaEventRoute(actors, inputIndexes, actorMetrics, tracer);
     }
 }
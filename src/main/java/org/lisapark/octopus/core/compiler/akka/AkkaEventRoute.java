@@ -0,0 +1,60 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.compiler.akka;
+
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.runtime.direct.EventRoute;
+import org.lisapark.octopus.core.runtime.metrics.NodeMetrics;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
+
+import java.util.List;
+
+/**
+ * {@link EventRoute} that puts the event into the mailbox of every consuming {@link AkkaActor}. A traced event
+ * records a hop for every actor once it is in its mailbox; the actors process it on other threads, so the consumers
+ * further down never show up in the trace.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+class AkkaEventRoute implements EventRoute {
+    private final AkkaActor[] actors;
+    private final int[][] inputIndexes;
+    private final NodeMetrics[] metrics;
+    private final Tracer tracer;
+
+    /**
+     * @param metrics of the actors, in the same order
+     * @param tracer  to record the actors in the traces of sampled events, may be null
+     */
+    AkkaEventRoute(List<AkkaActor> actors, List<int[]> inputIndexes, List<NodeMetrics> metrics, Tracer tracer) {
+        this.actors = actors.toArray(new AkkaActor[actors.size()]);
+        this.inputIndexes = inputIndexes.toArray(new int[inputIndexes.size()][]);
+        this.metrics = metrics.toArray(new NodeMetrics[metrics.size()]);
+        this.tracer = tracer;
+    }
+
+    @Override
+    public void routeEvent(Event event) {
+        for (int i = 0; i < actors.length; ++i) {
+            actors[i].tell(inputIndexes[i], event);
+
+            if (tracer != null) {
+                tracer.hop(metrics[i]);
+            }
+        }
+    }
+}
@@ -16,58 +16,55 @@
  */
 package org.lisapark.octopus.core.compiler.akka;
 
-import org.lisapark.octopus.core.compiler.esper.*;
-import com.espertech.esper.client.EPRuntime;
-import com.google.common.collect.Maps;
-import org.lisapark.octopus.core.Input;
 import org.lisapark.octopus.core.event.Event;
 import org.lisapark.octopus.core.runtime.SinkContext;
+import org.lisapark.octopus.core.runtime.akka.ActorDispatcher;
+import org.lisapark.octopus.core.runtime.metrics.NodeMetrics;
 import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
-import org.lisapark.octopus.util.Pair;
-import org.lisapark.octopus.util.esper.EsperUtils;
+import org.lisapark.octopus.core.sink.external.SinkInputMode;
 
-import java.util.Arrays;
 import java.util.Map;
 
 /**
+ * {@link AkkaActor} for a {@link CompiledExternalSink}.
+ *
  * @author dave sinclair(david.sinclair@lisa-park.com)
  */
-class AkkaExternalSinkAdaptor {
+class AkkaExternalSinkAdaptor extends AkkaActor {
     private final CompiledExternalSink externalSink;
-    private final Pair<String, Integer>[] sourceIdToInputId;
-
     private final SinkContext ctx;
-    private final EPRuntime runtime;
+    private final boolean mergingInputs;
+    private final NodeMetrics metrics;
 
-    @SuppressWarnings("unchecked")
-    AkkaExternalSinkAdaptor(CompiledExternalSink externalSink, SinkContext ctx, EPRuntime runtime) {
+    AkkaExternalSinkAdaptor(CompiledExternalSink externalSink, SinkContext ctx, NodeMetrics metrics,
+                            int mailboxCapacity, ActorDispatcher dispatcher) {
+        super(externalSink.getInputs(), mailboxCapacity, dispatcher, ctx.getStandardError());
         this.externalSink = externalSink;
         this.ctx = ctx;
-        this.runtime = runtime;
-
-        this.sourceIdToInputId = (Pair<String, Integer>[]) new Pair[externalSink.getInputs().size()];
-
-        int index = 0;
-        for (Input input : externalSink.getInputs()) {
-            String sourceId = EsperUtils.getEventNameForSource(input.getSource());
-            Integer inputId = input.getId();
-            sourceIdToInputId[index++] = Pair.newInstance(sourceId, inputId);
-        }
+        this.mergingInputs = externalSink.getInputMode() == SinkInputMode.MERGE;
+        this.metrics = metrics;
     }
 
-    Pair<String, Integer>[] getSourceIdToInputId() {
-        return Arrays.copyOf(sourceIdToInputId, sourceIdToInputId.length);
+    @Override
+    Map<Integer, Event> eventsFor(int[] inputIndexes, Event event) {
+        return mergingInputs ? latestEvents.eventByInputIds(inputIndexes, event) : super.eventsFor(inputIndexes, event);
     }
 
-    public void update(Map<String, Object> eventFromInput_1) {
-        Event event = new Event(eventFromInput_1);
-        Map<Integer, Event> eventsByInputId = Maps.newHashMapWithExpectedSize(1);
-        eventsByInputId.put(sourceIdToInputId[0].getSecond(), event);
-
-        externalSink.processEvent(ctx, eventsByInputId);
+    @Override
+    void receive(Map<Integer, Event> eventsByInputId) {
+        long start = System.nanoTime();
+        try {
+            externalSink.processEvent(ctx, eventsByInputId);
+        } catch (RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        } finally {
+            metrics.recordEvent(System.nanoTime() - start);
+        }
     }
 
-    public void update(Event eventFromInput_1, Event eventFromInput_2) {
-        // todo multiple inputs for sinks?
+    @Override
+    public String toString() {
+        return "AkkaExternalSinkAdaptor{sink=" + externalSink.getId() + '}';
     }
 }
@@ -0,0 +1,214 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.compiler.direct;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.lisapark.octopus.core.ProcessingModel;
+import org.lisapark.octopus.core.ValidationException;
+import org.lisapark.octopus.core.compiler.ModelGraph;
+import org.lisapark.octopus.core.compiler.esper.EsperCompiler;
+import org.lisapark.octopus.core.processor.CompiledProcessor;
+import org.lisapark.octopus.core.processor.Processor;
+import org.lisapark.octopus.core.runtime.ProcessingRuntime;
+import org.lisapark.octopus.core.runtime.metrics.MetricsRegistry;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
+import org.lisapark.octopus.core.runtime.basic.RuntimeResources;
+import org.lisapark.octopus.core.runtime.ProcessorContext;
+import org.lisapark.octopus.core.runtime.basic.BasicSinkContext;
+import org.lisapark.octopus.core.runtime.direct.DirectRuntime;
+import org.lisapark.octopus.core.runtime.direct.EventRoute;
+import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
+import org.lisapark.octopus.core.sink.external.ExternalSink;
+import org.lisapark.octopus.core.source.external.CompiledExternalSource;
+import org.lisapark.octopus.core.source.external.ExternalSource;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The {@link DirectCompiler} compiles a {@link ProcessingModel} into a call graph: an event sent from a source
+ * calls the {@link CompiledProcessor#processEvent} of the consuming processors, whose outputs call the next
+ * processors and finally {@link CompiledExternalSink#processEvent}, all in the thread of the source and without
+ * going through an event processing engine.
+ * <p/>
+ * A processor sees the latest event of each of its inputs, which is exactly what the statements created by the
+ * {@link EsperCompiler} give it. Models the call graph cannot run, i.e. models with cycles, are compiled by the
+ * {@link EsperCompiler} instead.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class DirectCompiler extends org.lisapark.octopus.core.compiler.Compiler {
+
+    @Override
+    public synchronized ProcessingRuntime compile(ProcessingModel model) throws ValidationException {
+        checkArgument(model != null, "model cannot be null");
+
+        // ensure we have at least one source
+        if (model.getExternalSources().isEmpty()) {
+            throw new ValidationException(
+                    String.format("The model '%s' must have at least one source configured.", model.getModelName())
+            );
+        }
+
+        ModelGraph graph = new ModelGraph(model);
+        List<Processor> orderedProcessors = graph.getProcessorsInTopologicalOrder();
+
+        if (!canCompileDirectly(orderedProcessors)) {
+            return compileWith(new EsperCompiler(), model);
+        }
+
+        List<String> errors = Lists.newLinkedList();
+
+        Collection<CompiledExternalSource> compiledSources = compileExternalSources(model.getExternalSources(), errors);
+
+        // memories and sinks that need to be released when the runtime is shutdown
+        List<Closeable> resources = Lists.newArrayList();
+
+        MetricsRegistry metrics = newMetricsRegistry(model);
+        Tracer tracer = newTracer();
+
+        Map<UUID, DirectNode> nodesById = Maps.newHashMap();
+        Map<UUID, Set<String>> consumedAttributesBySinkId = compileSinks(model.getExternalSinks(), nodesById, metrics,
+                tracer, resources, errors);
+
+        // the processors are compiled from the last to the first so that the consumers of a processor always exist
+        // when its output route is created
+        for (Processor processor : Lists.reverse(orderedProcessors)) {
+            ProcessorContext ctx = createProcessorContext(processor, resources, errors);
+            if (ctx == null) {
+                continue;
+            }
+
+            try {
+                CompiledProcessor<?> compiledProcessor = processor.compile();
+
+                // only pass along the attributes someone downstream is going to read
+                Set<String> projectedAttributeNames = graph.getRequiredAttributeNames(
+                        processor.getId(), consumedAttributesBySinkId
+                );
+
+                nodesById.put(processor.getId(), new DirectProcessorNode(
+                        compiledProcessor, ctx, projectedAttributeNames,
+                        createRoute(processor.getId(), graph, nodesById),
+                        metrics.getNodeMetrics(processor.getId()), tracer
+                ));
+            } catch (ValidationException e) {
+                errors.add(e.getLocalizedMessage());
+            }
+        }
+
+        if (errors.size() > 0) {
+            RuntimeResources.closeAll(resources);
+            throw new ValidationException(Joiner.on('\n').join(errors));
+        }
+
+        Map<UUID, EventRoute> routesBySourceId = Maps.newHashMap();
+        for (ExternalSource externalSource : model.getExternalSources()) {
+            EventRoute route = createRoute(externalSource.getId(), graph, nodesById);
+
+            if (route != null) {
+                routesBySourceId.put(externalSource.getId(), route);
+            }
+        }
+
+        DirectRuntime runtime = new DirectRuntime(compiledSources, routesBySourceId, resources, getIngestionSettings(),
+                metrics, tracer, getStandardError());
+
+        return exportMetrics(runtime, model, resources);
+    }
+
+    /**
+     * Returns true if the model can be run as a call graph. The processors need to form a DAG, otherwise an event
+     * could travel around forever, and only look at the latest events of their inputs, as there is no engine to keep
+     * windows and evaluate joins.
+     */
+    private boolean canCompileDirectly(List<Processor> orderedProcessors) {
+        if (orderedProcessors == null) {
+            return false;
+        }
+
+        for (Processor processor : orderedProcessors) {
+            if (!processor.usesLatestEventsOnly()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private Map<UUID, Set<String>> compileSinks(Set<ExternalSink> externalSinks, Map<UUID, DirectNode> nodesById,
+                                                MetricsRegistry metrics, Tracer tracer,
+                                                List<Closeable> resources, List<String> errors) {
+        Map<UUID, Set<String>> consumedAttributesBySinkId = Maps.newHashMap();
+
+        for (ExternalSink externalSink : externalSinks) {
+            try {
+                CompiledExternalSink compiledExternalSink = decorateSink(
+                        externalSink.compile(), getSinkBatchSettings(), getAsyncSinkSettings(), resources
+                );
+
+                nodesById.put(externalSink.getId(), new DirectSinkNode(
+                        compiledExternalSink, new BasicSinkContext(getStandardOut(), getStandardError()),
+                        metrics.getNodeMetrics(externalSink.getId()), tracer
+                ));
+                consumedAttributesBySinkId.put(externalSink.getId(), compiledExternalSink.getConsumedAttributeNames());
+            } catch (ValidationException e) {
+                errors.add(e.getLocalizedMessage());
+            }
+        }
+
+        return consumedAttributesBySinkId;
+    }
+
+    /**
+     * Creates the route for the events of the source with the specified id, or returns null if nothing consumes
+     * them. The consumers of the source need to be in nodesById already.
+     */
+    private EventRoute createRoute(UUID sourceId, ModelGraph graph, Map<UUID, DirectNode> nodesById) {
+        Set<UUID> consumerIds = Sets.newLinkedHashSet();
+        for (Processor processor : graph.getProcessorsConsuming(sourceId)) {
+            consumerIds.add(processor.getId());
+        }
+        for (ExternalSink sink : graph.getSinksConsuming(sourceId)) {
+            consumerIds.add(sink.getId());
+        }
+
+        List<DirectNode> nodes = Lists.newArrayList();
+        List<int[]> inputIndexes = Lists.newArrayList();
+
+        for (UUID consumerId : consumerIds) {
+            DirectNode node = nodesById.get(consumerId);
+
+            // the node is missing if it did not compile
+            if (node != null) {
+                nodes.add(node);
+                inputIndexes.add(node.getInputIndexesForSource(sourceId));
+            }
+        }
+
+        return nodes.isEmpty() ? null : new DirectEventRoute(nodes, inputIndexes);
+    }
+}
@@ -0,0 +1,60 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.compiler.direct;
+
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.runtime.direct.EventRoute;
+
+import java.util.List;
+
+/**
+ * {@link EventRoute} that calls every consuming {@link DirectNode} in turn.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+class DirectEventRoute implements EventRoute {
+    private final DirectNode[] nodes;
+    private final int[][] inputIndexes;
+
+    DirectEventRoute(List<DirectNode> nodes, List<int[]> inputIndexes) {
+        this.nodes = nodes.toArray(new DirectNode[nodes.size()]);
+        this.inputIndexes = inputIndexes.toArray(new int[inputIndexes.size()][]);
+    }
+
+    @Override
+    public void routeEvent(Event event) {
+        if (nodes.length == 1) {
+            Object result = nodes[0].process(inputIndexes[0], event);
+            if (result != null) {
+                nodes[0].dispatch(result);
+            }
+
+        } else {
+            // every consumer processes the event before any results are passed on
+            Object[] results = new Object[nodes.length];
+            for (int i = 0; i < nodes.length; ++i) {
+                results[i] = nodes[i].process(inputIndexes[i], event);
+            }
+
+            for (int i = 0; i < nodes.length; ++i) {
+                if (results[i] != null) {
+                    nodes[i].dispatch(results[i]);
+                }
+            }
+        }
+    }
+}
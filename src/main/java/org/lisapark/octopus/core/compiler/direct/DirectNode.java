@@ -0,0 +1,73 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.compiler.direct;
+
+import org.lisapark.octopus.core.Input;
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.runtime.basic.LatestEvents;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A {@link DirectNode} is a processor or sink of a model compiled by the {@link DirectCompiler}. It keeps the
+ * {@link LatestEvents} of its inputs and fires as soon as every input has seen an event.
+ * <p/>
+ * Like Esper, an event is first processed by all of its consumers before any of their results are passed on, so a
+ * processor consuming both a source and something derived from that source sees the new source event together with
+ * the previous derived event first.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+abstract class DirectNode {
+    /**
+     * Latest event of each input; subclasses have to hold the lock of this node to update it
+     */
+    final LatestEvents latestEvents;
+
+    DirectNode(List<? extends Input> inputs) {
+        this.latestEvents = new LatestEvents(inputs);
+    }
+
+    /**
+     * Returns the indexes of the inputs that are connected to the source with the specified id.
+     *
+     * @param sourceId of source
+     * @return input indexes
+     */
+    int[] getInputIndexesForSource(UUID sourceId) {
+        return latestEvents.getInputIndexesForSource(sourceId);
+    }
+
+    /**
+     * Called with an event from a source connected to the specified inputs of this node. Returns what has to be
+     * passed to {@link #dispatch(Object)} once all the consumers of the event were processed, or null if there is
+     * nothing to dispatch.
+     *
+     * @param inputIndexes the event arrived on
+     * @param event        that arrived
+     * @return result to dispatch or null
+     */
+    abstract Object process(int[] inputIndexes, Event event);
+
+    /**
+     * Passes on the result of {@link #process(int[], Event)}.
+     *
+     * @param result of processing an event
+     */
+    abstract void dispatch(Object result);
+}
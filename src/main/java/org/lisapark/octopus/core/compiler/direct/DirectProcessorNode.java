@@ -0,0 +1,109 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.compiler.direct;
+
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.event.LayeredEvent;
+import org.lisapark.octopus.core.processor.CompiledProcessor;
+import org.lisapark.octopus.core.runtime.ProcessorContext;
+import org.lisapark.octopus.core.runtime.metrics.NodeMetrics;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
+import org.lisapark.octopus.core.runtime.direct.EventRoute;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link DirectNode} for a {@link CompiledProcessor}. The output event is passed on to the route of the processor
+ * without holding the lock of this node, so a slow consumer does not hold up other threads using this processor.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+class DirectProcessorNode extends DirectNode {
+    private final CompiledProcessor processor;
+    private final ProcessorContext ctx;
+    private final String outputAttributeName;
+    private final Set<String> projectedAttributeNames;
+    private final EventRoute outputRoute;
+    private final NodeMetrics metrics;
+    private final Tracer tracer;
+
+    /**
+     * @param processor               to run
+     * @param ctx                     for the processor
+     * @param projectedAttributeNames attributes of the output event, or null to keep all of them
+     * @param outputRoute             for the output events, or null if nothing consumes them
+     * @param metrics                 of the processor
+     * @param tracer                  to record the processor in the traces of sampled events, may be null
+     */
+    DirectProcessorNode(CompiledProcessor<?> processor, ProcessorContext<?> ctx, Set<String> projectedAttributeNames,
+                        EventRoute outputRoute, NodeMetrics metrics, Tracer tracer) {
+        super(processor.getInputs());
+        this.processor = processor;
+        this.ctx = ctx;
+        this.outputAttributeName = processor.getOutput().getAttributeName();
+        this.projectedAttributeNames = projectedAttributeNames;
+        this.outputRoute = outputRoute;
+        this.metrics = metrics;
+        this.tracer = tracer;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object process(int[] inputIndexes, Event event) {
+        Map<Integer, Event> eventsByInputId;
+        Object output;
+
+        synchronized (this) {
+            eventsByInputId = latestEvents.update(inputIndexes, event);
+            if (eventsByInputId == null) {
+                return null;
+            }
+
+            if (tracer != null) {
+                tracer.hop(metrics);
+            }
+
+            long start = System.nanoTime();
+            try {
+                output = processor.processEvent(ctx, eventsByInputId);
+            } catch (RuntimeException e) {
+                metrics.recordError();
+                throw e;
+            } finally {
+                metrics.recordEvent(System.nanoTime() - start);
+            }
+        }
+
+        if (output == null || outputAttributeName == null || outputRoute == null) {
+            return null;
+        }
+
+        Event outputEvent = new LayeredEvent(outputAttributeName, output, eventsByInputId.values());
+        if (projectedAttributeNames != null) {
+            outputEvent = outputEvent.project(projectedAttributeNames);
+        }
+        metrics.recordOutput();
+
+        return outputEvent;
+    }
+
+    @Override
+    void dispatch(Object outputEvent) {
+        outputRoute.routeEvent((Event) outputEvent);
+    }
+}
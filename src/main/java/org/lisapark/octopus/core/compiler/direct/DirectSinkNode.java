@@ -0,0 +1,79 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.compiler.direct;
+
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.runtime.SinkContext;
+import org.lisapark.octopus.core.runtime.metrics.NodeMetrics;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
+import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
+import org.lisapark.octopus.core.sink.external.SinkInputMode;
+
+import java.util.Map;
+
+/**
+ * {@link DirectNode} for a {@link CompiledExternalSink}.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+class DirectSinkNode extends DirectNode {
+    private final CompiledExternalSink externalSink;
+    private final SinkContext ctx;
+    private final boolean mergingInputs;
+    private final NodeMetrics metrics;
+    private final Tracer tracer;
+
+    /**
+     * @param externalSink to run
+     * @param ctx          for the sink
+     * @param metrics      of the sink
+     * @param tracer       to record the sink in the traces of sampled events, may be null
+     */
+    DirectSinkNode(CompiledExternalSink externalSink, SinkContext ctx, NodeMetrics metrics, Tracer tracer) {
+        super(externalSink.getInputs());
+        this.externalSink = externalSink;
+        this.ctx = ctx;
+        this.mergingInputs = externalSink.getInputMode() == SinkInputMode.MERGE;
+        this.metrics = metrics;
+        this.tracer = tracer;
+    }
+
+    @Override
+    synchronized Object process(int[] inputIndexes, Event event) {
+        return mergingInputs
+                ? latestEvents.eventByInputIds(inputIndexes, event)
+                : latestEvents.update(inputIndexes, event);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void dispatch(Object eventsByInputId) {
+        if (tracer != null) {
+            tracer.hop(metrics);
+        }
+
+        long start = System.nanoTime();
+        try {
+            externalSink.processEvent(ctx, (Map<Integer, Event>) eventsByInputId);
+        } catch (RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        } finally {
+            metrics.recordEvent(System.nanoTime() - start);
+        }
+    }
+}
@@ -17,41 +17,36 @@
 package org.lisapark.octopus.core.compiler.esper;
 
 import com.espertech.esper.client.Configuration;
-import com.espertech.esper.client.EPAdministrator;
-import com.espertech.esper.client.EPException;
-import com.espertech.esper.client.EPRuntime;
 import com.espertech.esper.client.EPServiceProvider;
 import com.espertech.esper.client.EPServiceProviderManager;
-import com.espertech.esper.client.EPStatement;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.lisapark.octopus.core.Input;
 import org.lisapark.octopus.core.ProcessingModel;
 import org.lisapark.octopus.core.ValidationException;
-import org.lisapark.octopus.core.memory.Memory;
-import org.lisapark.octopus.core.memory.MemoryProvider;
-import org.lisapark.octopus.core.memory.heap.HeapMemoryProvider;
 import org.lisapark.octopus.core.processor.CompiledProcessor;
 import org.lisapark.octopus.core.processor.Processor;
 import org.lisapark.octopus.core.processor.ProcessorInput;
 import org.lisapark.octopus.core.processor.ProcessorJoin;
+import org.lisapark.octopus.core.processor.WindowSpec;
 import org.lisapark.octopus.core.runtime.ProcessingRuntime;
-import org.lisapark.octopus.core.runtime.ProcessorContext;
-import org.lisapark.octopus.core.runtime.basic.BasicProcessorContext;
-import org.lisapark.octopus.core.runtime.basic.BasicSinkContext;
+import org.lisapark.octopus.core.runtime.metrics.MetricsRegistry;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
+import org.lisapark.octopus.core.runtime.basic.RuntimeResources;
 import org.lisapark.octopus.core.runtime.esper.EsperRuntime;
+import org.lisapark.octopus.core.runtime.esper.EsperRuntimeSettings;
 import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
-import org.lisapark.octopus.core.sink.external.ExternalSink;
 import org.lisapark.octopus.core.source.external.CompiledExternalSource;
 import org.lisapark.octopus.core.source.external.ExternalSource;
 import org.lisapark.octopus.util.esper.EsperUtils;
+import org.lisapark.octopus.util.esper.EventNameRegistry;
 
-import java.io.PrintStream;
+import java.io.Closeable;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -60,35 +55,13 @@ import static com.google.common.base.Preconditions.checkArgument;
  */
 public class EsperCompiler extends org.lisapark.octopus.core.compiler.Compiler {
 
-    private MemoryProvider memoryProvider = new HeapMemoryProvider();
-    private PrintStream standardOut = System.out;
-    private PrintStream standardError = System.err;
-
-    @Override
-    public synchronized void setMemoryProvider(MemoryProvider memoryProvider) {
-        checkArgument(memoryProvider != null, "memoryProvider cannot be null");
-        this.memoryProvider = memoryProvider;
-    }
-
-    @Override
-    public synchronized void setStandardOut(PrintStream standardOut) {
-        checkArgument(standardOut != null, "standardOut cannot be null");
-        this.standardOut = standardOut;
-    }
-
-    @Override
-    public synchronized void setStandardError(PrintStream stadardError) {
-        checkArgument(stadardError != null, "standardError cannot be null");
-        this.standardError = stadardError;
-    }
-
-    void registerEventTypesForModel(Configuration configuration, ProcessingModel model) {
+    void registerEventTypesForModel(Configuration configuration, ProcessingModel model, EventNameRegistry eventNames) {
         // register all of the model source event types
         for (ExternalSource externalSource : model.getExternalSources()) {
             Map<String, Object> eventDefinition = externalSource.getOutput().getEventDefinition();
 
             configuration.addEventType(
-                    EsperUtils.getEventNameForSource(externalSource),
+                    eventNames.getEventName(externalSource),
                     eventDefinition
             );
         }
@@ -98,7 +71,7 @@ public class EsperCompiler extends org.lisapark.octopus.core.compiler.Compiler {
             Map<String, Object> eventDefinition = processor.getOutput().getEventDefinition();
 
             configuration.addEventType(
-                    EsperUtils.getEventNameForSource(processor),
+                    eventNames.getEventName(processor),
                     eventDefinition
             );
         }
@@ -118,7 +91,9 @@ public class EsperCompiler extends org.lisapark.octopus.core.compiler.Compiler {
         // create a new Esper Configuration
         Configuration configuration = new Configuration();
 
-        registerEventTypesForModel(configuration, model);
+        // every source and processor gets its event name once, up front
+        EventNameRegistry eventNames = new EventNameRegistry();
+        registerEventTypesForModel(configuration, model, eventNames);
 
         EPServiceProvider epService = EPServiceProviderManager.getProvider(model.getModelName(), configuration);
         epService.initialize();
@@ -126,92 +101,37 @@ public class EsperCompiler extends org.lisapark.octopus.core.compiler.Compiler {
         List<String> errors = Lists.newLinkedList();
 
         Collection<CompiledExternalSource> compiledSources = compileExternalSources(model.getExternalSources(), errors);
-        compileProcessors(epService, model.getProcessors(), errors);
-        compileSinks(epService, model.getExternalSinks(), errors);
-
-        if (errors.size() > 0) {
-            throw new ValidationException(Joiner.on('\n').join(errors));
-        }
-
-        return new EsperRuntime(epService, compiledSources, standardOut, standardError);
-    }
-
-    private void compileSinks(EPServiceProvider epService, Set<ExternalSink> externalSinks, List<String> errors) {
-        EPAdministrator admin = epService.getEPAdministrator();
-        EPRuntime runtime = epService.getEPRuntime();
-
-        for (ExternalSink externalSink : externalSinks) {
-            try {
-                CompiledExternalSink compiledExternalSink = externalSink.compile();
-
-                String statement = getStatementForCompiledSink(compiledExternalSink);
-                EPStatement stmt = admin.createEPL(statement);
-
-                EsperExternalSinkAdaptor runner = new EsperExternalSinkAdaptor(
-                        compiledExternalSink, new BasicSinkContext(standardOut, standardError), runtime
-                );
-                stmt.setSubscriber(runner);
-            } catch (ValidationException e) {
-                errors.add(e.getLocalizedMessage());
-
-            } catch (EPException e) {
-                errors.add(e.getLocalizedMessage());
-            }
-        }
-    }
-
-    private Collection<CompiledProcessor<?>> compileProcessors(EPServiceProvider epService, Collection<Processor> processors, List<String> errors) {
-        EPAdministrator admin = epService.getEPAdministrator();
-        EPRuntime runtime = epService.getEPRuntime();
-
-        Collection<CompiledProcessor<?>> compiledProcessors = Lists.newLinkedList();
-
-        for (Processor processor : processors) {
-            Memory processorMemory = processor.createMemoryForProcessor(memoryProvider);
-
-            try {
-                CompiledProcessor<?> compiledProcessor = processor.compile();
-                String statement = getStatementForCompiledProcessor(compiledProcessor);
 
-                EPStatement stmt = admin.createEPL(statement);
+        // memories and sinks that need to be released when the runtime is shutdown, which a redeploy changes while
+        // the runtime is running
+        List<Closeable> resources = new CopyOnWriteArrayList<Closeable>();
 
-                ProcessorContext ctx;
-                if (processorMemory != null) {
-                    ctx = new BasicProcessorContext(standardOut, standardError, processorMemory);
-                } else {
-                    ctx = new BasicProcessorContext(standardOut, standardError);
-                }
-
-                EsperProcessorAdaptor runner = new EsperProcessorAdaptor(compiledProcessor, ctx, runtime);
-                stmt.addListener(runner);
-
-                compiledProcessors.add(compiledProcessor);
-            } catch (ValidationException e) {
-                errors.add(e.getLocalizedMessage());
-
-            } catch (EPException e) {
-                errors.add(e.getLocalizedMessage());
-            }
-        }
-
-        return compiledProcessors;
-    }
+        MetricsRegistry metrics = newMetricsRegistry(model);
+        Tracer tracer = newTracer();
 
-    private Collection<CompiledExternalSource> compileExternalSources(Set<ExternalSource> externalSources, List<String> errors) {
-        Collection<CompiledExternalSource> compiledSources = Lists.newLinkedList();
+        EsperDeployment deployment = new EsperDeployment(epService, eventNames, metrics, tracer, getMemoryProvider(),
+                getStandardOut(), getStandardError(), getSinkBatchSettings(), getAsyncSinkSettings(), resources);
+        deployment.deploy(model, errors);
 
-        for (ExternalSource externalSource : externalSources) {
-            try {
-                compiledSources.add(externalSource.compile());
-            } catch (ValidationException e) {
-                errors.add(e.getLocalizedMessage());
-            }
+        if (errors.size() > 0) {
+            RuntimeResources.closeAll(resources);
+            throw new ValidationException(Joiner.on('\n').join(errors));
         }
 
-        return compiledSources;
+        EsperRuntimeSettings settings = EsperRuntimeSettings.builder()
+                .resources(resources)
+                .ingestionSettings(getIngestionSettings())
+                .metrics(metrics)
+                .tracer(tracer)
+                .redeployer(deployment)
+                .build();
+        EsperRuntime runtime = new EsperRuntime(epService, compiledSources, eventNames, settings, getStandardOut(),
+                getStandardError());
+
+        return exportMetrics(runtime, model, resources);
     }
 
-    String getStatementForCompiledProcessor(CompiledProcessor<?> compiledProcessor) {
+    static String getStatementForCompiledProcessor(CompiledProcessor<?> compiledProcessor) {
         // get inputs
         StringBuilder selectClause = new StringBuilder();
         StringBuilder fromClause = new StringBuilder();
@@ -234,36 +154,28 @@ public class EsperCompiler extends org.lisapark.octopus.core.compiler.Compiler {
             inputToAlias.put(input, aliasName);
 
             selectClause.append(aliasName).append(".* as ").append(aliasName).append("_properties");
-//            fromClause.append(inputName).append(".win:time(10 sec) as ").append(aliasName);
-//            fromClause.append(inputName).append(".std:lastevent() as ").append(aliasName);
-            fromClause.append(inputName).append(".win:length(1) as ").append(aliasName);
+            fromClause.append(inputName).append('.').append(getViewForWindow(input.getWindowSpec()))
+                    .append(" as ").append(aliasName);
         }
-        
-//        selectClause.append(", current_timestamp");
 
         StringBuilder whereClause = new StringBuilder();
-        
-//        List<ProcessorJoin> joins = compiledProcessor.getJoins();
-//        for (ProcessorJoin join : joins) {
-//            // some joins aren't required as they are on the same input
-////            if (join.isRequired()) {
-//                String firstAlias = inputToAlias.get(join.getFirstInput());
-//                String secondAlias = inputToAlias.get(join.getSecondInput());
-//
-//                if (whereClause.length() > 0) {
-//                    whereClause.append("AND ");
-//                }
-//
-//                whereClause.append(firstAlias)
-////                        .append('.').append(join.getFirstInputAttributeName())
-//                        ;
-//                whereClause.append(".coinsides(");
-//                whereClause.append(secondAlias)
-////                        .append('.').append(join.getSecondInputAttributeName())
-//                        ;
-//                whereClause.append(")");
-////            }
-//        }
+
+        List<ProcessorJoin> joins = compiledProcessor.getJoins();
+        for (ProcessorJoin join : joins) {
+            // some joins aren't required as they are on the same input, the others are only conditions when keyed
+            if (join.isRequired() && join.isKeyed()) {
+                String firstAlias = inputToAlias.get(join.getFirstInput());
+                String secondAlias = inputToAlias.get(join.getSecondInput());
+
+                if (whereClause.length() > 0) {
+                    whereClause.append(" AND ");
+                }
+
+                whereClause.append(firstAlias).append('.').append(join.getFirstInputAttributeName());
+                whereClause.append(" = ");
+                whereClause.append(secondAlias).append('.').append(join.getSecondInputAttributeName());
+            }
+        }
 
         if (whereClause.length() == 0) {
             return String.format("SELECT  %s FROM %s", selectClause, fromClause);
@@ -272,15 +184,35 @@ public class EsperCompiler extends org.lisapark.octopus.core.compiler.Compiler {
         }
     }
 
-    String getStatementForCompiledSink(CompiledExternalSink compiledExternalSink) {
+    /**
+     * Returns the Esper view that keeps the events of the specified window.
+     *
+     * @param window of an input
+     * @return view expression
+     */
+    static String getViewForWindow(WindowSpec window) {
+        switch (window.getType()) {
+            case TIME:
+                return String.format("win:time(%d msec)", window.getSize());
+
+            case TIME_BATCH:
+                return String.format("win:time_batch(%d msec)", window.getSize());
+
+            case UNIQUE:
+                return String.format("std:unique(%s)", window.getKeyAttributeName());
+
+            default:
+                return String.format("win:length(%d)", window.getSize());
+        }
+    }
+
+    static String getStatementForCompiledSink(CompiledExternalSink compiledExternalSink) {
         // get inputs_
         StringBuilder selectClause = new StringBuilder();
         StringBuilder fromClause = new StringBuilder();
 
         List<? extends Input> inputs = compiledExternalSink.getInputs();
 
-        // todo join inputs
-
         int aliasIndex = 0;
         for (Input input : inputs) {
             if (selectClause.length() > 0) {
@@ -290,11 +222,20 @@ public class EsperCompiler extends org.lisapark.octopus.core.compiler.Compiler {
 
             String inputName = EsperUtils.getEventNameForSource(input.getSource());
 
-            String aliasName = "_" + aliasIndex++;
+            String aliasName = EsperExternalSinkAdaptor.getAliasForInput(aliasIndex);
             selectClause.append(aliasName).append(".*");
+            if (inputs.size() > 1) {
+                // the events of joined inputs are kept in their own columns so the adaptor can tell them apart
+                selectClause.append(" as ").append(aliasName);
+            }
             fromClause.append(inputName).append(".win:length(1) as ").append(aliasName);
+            aliasIndex++;
         }
 
         return String.format("SELECT %s FROM %s", selectClause, fromClause);
     }
+
+    static String getStatementForMergedSinkInput(String sourceId) {
+        return String.format("SELECT * FROM %s", sourceId);
+    }
 }
@@ -0,0 +1,629 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.compiler.esper;
+
+import com.espertech.esper.client.ConfigurationOperations;
+import com.espertech.esper.client.EPAdministrator;
+import com.espertech.esper.client.EPException;
+import com.espertech.esper.client.EPServiceProvider;
+import com.espertech.esper.client.EPStatement;
+import com.espertech.esper.core.EPServiceProviderSPI;
+import com.espertech.esper.util.ManagedReadWriteLock;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.lisapark.octopus.core.Input;
+import org.lisapark.octopus.core.Node;
+import org.lisapark.octopus.core.ProcessingModel;
+import org.lisapark.octopus.core.ValidationException;
+import org.lisapark.octopus.core.compiler.ModelGraph;
+import org.lisapark.octopus.core.memory.Memory;
+import org.lisapark.octopus.core.memory.MemoryProvider;
+import org.lisapark.octopus.core.memory.budget.BudgetedMemoryProvider;
+import org.lisapark.octopus.core.memory.budget.MemoryBudgetExceededException;
+import org.lisapark.octopus.core.memory.retained.RetainingMemoryProvider;
+import org.lisapark.octopus.core.parameter.Parameter;
+import org.lisapark.octopus.core.processor.CompiledProcessor;
+import org.lisapark.octopus.core.processor.Processor;
+import org.lisapark.octopus.core.processor.ProcessorInput;
+import org.lisapark.octopus.core.processor.ProcessorJoin;
+import org.lisapark.octopus.core.runtime.ProcessorContext;
+import org.lisapark.octopus.core.runtime.basic.BasicSinkContext;
+import org.lisapark.octopus.core.runtime.basic.RuntimeResources;
+import org.lisapark.octopus.core.runtime.esper.ModelRedeployer;
+import org.lisapark.octopus.core.runtime.metrics.MetricsRegistry;
+import org.lisapark.octopus.core.runtime.metrics.NodeType;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
+import org.lisapark.octopus.core.sink.external.AsyncSinkSettings;
+import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
+import org.lisapark.octopus.core.sink.external.ExternalSink;
+import org.lisapark.octopus.core.sink.external.SinkBatchSettings;
+import org.lisapark.octopus.core.sink.external.SinkInputMode;
+import org.lisapark.octopus.core.source.external.ExternalSource;
+import org.lisapark.octopus.util.esper.EventNameRegistry;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * The statements, adaptors and memories the {@link EsperCompiler} created for the processors and sinks of a model
+ * in an {@link EPServiceProvider}. Every node is deployed together with a definition of everything that goes into
+ * its statements and adaptor, so a changed version of the model can be deployed by only replacing the nodes whose
+ * definition is different.
+ * <p/>
+ * A redeploy first compiles the new and changed nodes and creates their memories, then swaps the statements while
+ * holding the engine's event processing lock, so no event sees half of the old and half of the new model. Sources
+ * are not redeployed; they have to stay the same as they keep sending events throughout.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+class EsperDeployment implements ModelRedeployer {
+
+    private static final Comparator<Parameter> BY_ID = new Comparator<Parameter>() {
+        @Override
+        public int compare(Parameter parameter, Parameter otherParameter) {
+            return (parameter.getId() < otherParameter.getId()) ? -1 :
+                    (parameter.getId() == otherParameter.getId()) ? 0 : 1;
+        }
+    };
+
+    private final EPServiceProvider epService;
+    private final EventNameRegistry eventNames;
+    private final MetricsRegistry metrics;
+    private final Tracer tracer;
+    private final MemoryProvider memoryProvider;
+
+    /**
+     * The memory provider if it charges the processors for their memory, null otherwise
+     */
+    private final BudgetedMemoryProvider memoryBudget;
+
+    private final PrintStream standardOut;
+    private final PrintStream standardError;
+    private final SinkBatchSettings sinkBatchSettings;
+    private final AsyncSinkSettings asyncSinkSettings;
+
+    /**
+     * Resources of the runtime, which hold the memories and resources of every deployed node
+     */
+    private final List<Closeable> resources;
+
+    private final Map<UUID, DeployedNode> nodesById = Maps.newLinkedHashMap();
+
+    /**
+     * Definitions of the sources of the deployed model
+     */
+    private final Map<UUID, String> sourceDefinitionsById = Maps.newHashMap();
+
+    EsperDeployment(EPServiceProvider epService, EventNameRegistry eventNames, MetricsRegistry metrics, Tracer tracer,
+                    MemoryProvider memoryProvider, PrintStream standardOut, PrintStream standardError,
+                    SinkBatchSettings sinkBatchSettings, AsyncSinkSettings asyncSinkSettings,
+                    List<Closeable> resources) {
+        this.epService = epService;
+        this.eventNames = eventNames;
+        this.metrics = metrics;
+        this.tracer = tracer;
+        this.memoryProvider = memoryProvider;
+        this.memoryBudget = (memoryProvider instanceof BudgetedMemoryProvider)
+                ? (BudgetedMemoryProvider) memoryProvider : null;
+        this.standardOut = standardOut;
+        this.standardError = standardError;
+        this.sinkBatchSettings = sinkBatchSettings;
+        this.asyncSinkSettings = asyncSinkSettings;
+        this.resources = resources;
+    }
+
+    /**
+     * Deploys every processor and sink of the specified model; the compiler calls this before the runtime starts.
+     *
+     * @param model  to deploy
+     * @param errors to add problems with the model to; nothing is deployed if there are any, including those that
+     *               were already there
+     */
+    synchronized void deploy(ProcessingModel model, List<String> errors) {
+        for (ExternalSource source : model.getExternalSources()) {
+            sourceDefinitionsById.put(source.getId(), getDefinition(source));
+        }
+
+        deployChanges(model, errors);
+    }
+
+    @Override
+    public synchronized void redeploy(ProcessingModel model) throws ValidationException {
+        List<String> errors = Lists.newLinkedList();
+
+        Map<UUID, String> sourceDefinitions = Maps.newHashMap();
+        for (ExternalSource source : model.getExternalSources()) {
+            sourceDefinitions.put(source.getId(), getDefinition(source));
+        }
+        if (!sourceDefinitions.equals(sourceDefinitionsById)) {
+            errors.add(String.format("The sources of the model '%s' cannot change while it is running.",
+                    model.getModelName()));
+        }
+
+        if (errors.isEmpty()) {
+            deployChanges(model, errors);
+        }
+
+        if (errors.size() > 0) {
+            throw new ValidationException(Joiner.on('\n').join(errors));
+        }
+    }
+
+    private void deployChanges(ProcessingModel model, List<String> errors) {
+        // the sinks are prepared first as they tell us what attributes the processors need to pass along
+        List<DeployedNode> sinks = Lists.newArrayList();
+        Map<UUID, Set<String>> consumedAttributesBySinkId = Maps.newHashMap();
+        for (ExternalSink sink : model.getExternalSinks()) {
+            DeployedNode node = prepareSink(sink, errors);
+
+            if (node != null) {
+                sinks.add(node);
+                consumedAttributesBySinkId.put(sink.getId(), node.consumedAttributeNames);
+            }
+        }
+
+        ModelGraph graph = new ModelGraph(model);
+        List<DeployedNode> processors = Lists.newArrayList();
+        for (Processor processor : model.getProcessors()) {
+            DeployedNode node = prepareProcessor(processor, graph, consumedAttributesBySinkId, errors);
+
+            if (node != null) {
+                processors.add(node);
+            }
+        }
+
+        List<DeployedNode> nodes = Lists.newArrayList(processors);
+        nodes.addAll(sinks);
+
+        // closing a sink may wait for its queue to drain, so it is done once events are processed again
+        List<Closeable> releasedResources = Lists.newArrayList();
+        if (errors.isEmpty()) {
+            ManagedReadWriteLock eventProcessingLock = getEventProcessingLock();
+
+            // no events are processed until the nodes are swapped
+            eventProcessingLock.acquireWriteLock();
+            try {
+                swap(model, nodes, releasedResources, errors);
+            } finally {
+                eventProcessingLock.releaseWriteLock();
+            }
+        } else {
+            discard(nodes, releasedResources);
+        }
+
+        RuntimeResources.closeAll(releasedResources);
+    }
+
+    private ManagedReadWriteLock getEventProcessingLock() {
+        return ((EPServiceProviderSPI) epService).getServicesContext().getEventProcessingRWLock();
+    }
+
+    /**
+     * Returns the sink ready to be deployed, the deployed sink if it did not change, or null if it cannot be
+     * compiled.
+     */
+    private DeployedNode prepareSink(ExternalSink sink, List<String> errors) {
+        DeployedNode deployedNode = nodesById.get(sink.getId());
+        DeployedNode node = null;
+
+        try {
+            CompiledExternalSink compiledSink = sink.compile();
+            boolean mergingInputs = compiledSink.getInputs().size() > 1
+                    && compiledSink.getInputMode() == SinkInputMode.MERGE;
+
+            List<String> statements = Lists.newArrayList();
+            if (mergingInputs) {
+                // every source gets its own statement so that its events reach the sink without being joined
+                Set<String> sourceIds = Sets.newLinkedHashSet();
+                for (Input input : compiledSink.getInputs()) {
+                    sourceIds.add(eventNames.getEventName(input.getSource()));
+                }
+                for (String sourceId : sourceIds) {
+                    statements.add(EsperCompiler.getStatementForMergedSinkInput(sourceId));
+                }
+            } else {
+                statements.add(EsperCompiler.getStatementForCompiledSink(compiledSink));
+            }
+
+            String definition = getDefinition(sink, statements, compiledSink.getInputMode());
+            if (deployedNode != null && deployedNode.definition.equals(definition)) {
+                return deployedNode;
+            }
+
+            node = new DeployedNode(sink.getId(), definition);
+            node.statements = statements;
+
+            // only sinks that are going to be deployed are decorated, as that may start threads
+            CompiledExternalSink decoratedSink = EsperCompiler.decorateSink(
+                    compiledSink, sinkBatchSettings, asyncSinkSettings, node.resources
+            );
+            node.consumedAttributeNames = decoratedSink.getConsumedAttributeNames();
+
+            EsperExternalSinkAdaptor runner = new EsperExternalSinkAdaptor(
+                    decoratedSink, new BasicSinkContext(standardOut, standardError), epService.getEPRuntime(),
+                    eventNames, metrics.register(sink.getId(), sink.getName(), NodeType.SINK), tracer
+            );
+
+            node.subscribers = Lists.newArrayList();
+            if (mergingInputs) {
+                for (String sourceId : runner.getSourceIds()) {
+                    node.subscribers.add(runner.newSubscriberForSource(sourceId));
+                }
+            } else {
+                node.subscribers.add(runner);
+            }
+
+            return node;
+        } catch (ValidationException e) {
+            errors.add(e.getLocalizedMessage());
+            return null;
+
+        } catch (RuntimeException e) {
+            errors.add(String.format("Sink '%s' could not be deployed: %s", sink.getName(), e.getLocalizedMessage()));
+            discard(node);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the processor ready to be deployed, the deployed processor if it did not change, or null if it cannot
+     * be compiled. A changed processor gets the memory it had if it asks for the same kind of window.
+     */
+    private DeployedNode prepareProcessor(Processor processor, ModelGraph graph,
+                                          Map<UUID, Set<String>> consumedAttributesBySinkId, List<String> errors) {
+        DeployedNode deployedNode = nodesById.get(processor.getId());
+        DeployedNode node = null;
+
+        try {
+            CompiledProcessor<?> compiledProcessor = processor.compile();
+            String statement = EsperCompiler.getStatementForCompiledProcessor(compiledProcessor);
+
+            // only pass along the attributes someone downstream is going to read
+            Set<String> projectedAttributeNames = graph.getRequiredAttributeNames(
+                    processor.getId(), consumedAttributesBySinkId
+            );
+
+            String definition = getDefinition(processor, statement, projectedAttributeNames);
+            if (deployedNode != null && deployedNode.definition.equals(definition)) {
+                return deployedNode;
+            }
+
+            node = new DeployedNode(processor.getId(), definition);
+            node.statements = Collections.singletonList(statement);
+            node.eventDefinition = processor.getOutput().getEventDefinition();
+            node.processorClass = processor.getClass();
+
+            RetainingMemoryProvider processorMemoryProvider;
+            if (deployedNode != null && deployedNode.processorClass == processor.getClass()) {
+                processorMemoryProvider = new RetainingMemoryProvider(
+                        memoryProvider, processor.getId(), deployedNode.window, deployedNode.memory
+                );
+            } else {
+                processorMemoryProvider = new RetainingMemoryProvider(memoryProvider, processor.getId(), null, null);
+            }
+
+            Memory processorMemory = processor.createMemoryForProcessor(processorMemoryProvider);
+            node.memory = processorMemory;
+            node.window = processorMemoryProvider.getWindow();
+            node.memoryRetained = processorMemoryProvider.isRetained();
+            node.memoryBytes = (memoryBudget != null) ? memoryBudget.getAllocatedBytes(processor.getId()) : 0;
+
+            ProcessorContext ctx = EsperCompiler.newProcessorContext(processorMemory, standardOut, standardError);
+
+            node.subscribers = Collections.<Object>singletonList(new EsperProcessorAdaptor(
+                    compiledProcessor, ctx, epService.getEPRuntime(), eventNames, projectedAttributeNames,
+                    !processor.usesLatestEventsOnly(),
+                    metrics.register(processor.getId(), processor.getName(), NodeType.PROCESSOR), tracer
+            ));
+
+            return node;
+        } catch (MemoryBudgetExceededException e) {
+            errors.add(e.getLocalizedMessage());
+            discard(node);
+            return null;
+
+        } catch (ValidationException e) {
+            errors.add(e.getLocalizedMessage());
+            discard(node);
+            return null;
+
+        } catch (RuntimeException e) {
+            errors.add(String.format("Processor '%s' could not be deployed: %s", processor.getName(),
+                    e.getLocalizedMessage()));
+            discard(node);
+            return null;
+        }
+    }
+
+    /**
+     * Creates the statements of the new and changed nodes and destroys those of the nodes they replace. If a
+     * statement cannot be created the new statements are destroyed again and the deployed nodes stay as they are.
+     * Called while holding the event processing lock; the resources to close are added to the released resources.
+     */
+    private void swap(ProcessingModel model, List<DeployedNode> nodes, List<Closeable> releasedResources,
+                      List<String> errors) {
+        EPAdministrator admin = epService.getEPAdministrator();
+        ConfigurationOperations configuration = admin.getConfiguration();
+        List<DeployedNode> changedNodes = Lists.newArrayList();
+
+        try {
+            // the statements of the consumers of a new processor need its event type
+            for (DeployedNode node : nodes) {
+                if (node.eventDefinition != null && !node.deployed) {
+                    String eventName = eventNames.getEventName(node.id);
+                    DeployedNode deployedNode = nodesById.get(node.id);
+
+                    if (deployedNode == null && !configuration.isEventTypeExists(eventName)) {
+                        configuration.addEventType(eventName, node.eventDefinition);
+
+                    } else if (deployedNode != null && !deployedNode.eventDefinition.equals(node.eventDefinition)) {
+                        configuration.updateMapEventType(eventName, node.eventDefinition);
+                    }
+                }
+            }
+
+            for (DeployedNode node : nodes) {
+                if (!node.deployed) {
+                    changedNodes.add(node);
+                    node.createStatements(admin);
+                }
+            }
+        } catch (EPException e) {
+            errors.add(e.getLocalizedMessage());
+            discard(nodes, releasedResources);
+            return;
+        }
+
+        Map<UUID, DeployedNode> nodesToRemove = Maps.newHashMap(nodesById);
+        for (DeployedNode node : nodes) {
+            nodesToRemove.remove(node.id);
+        }
+
+        for (DeployedNode node : changedNodes) {
+            node.deployed = true;
+
+            DeployedNode replacedNode = nodesById.put(node.id, node);
+            if (replacedNode != null) {
+                undeploy(replacedNode, node.memoryRetained, releasedResources);
+            }
+
+            resources.addAll(node.resources);
+            if (node.memory instanceof Closeable && !node.memoryRetained) {
+                resources.add((Closeable) node.memory);
+            }
+        }
+
+        for (DeployedNode node : nodesToRemove.values()) {
+            nodesById.remove(node.id);
+            undeploy(node, false, releasedResources);
+            metrics.unregister(node.id);
+
+            // a processor added again later may have a different output, which must not meet the old event type
+            if (node.eventDefinition != null) {
+                String eventName = eventNames.getEventName(node.id);
+                if (configuration.getEventTypeNameUsedBy(eventName).isEmpty()) {
+                    configuration.removeEventType(eventName, false);
+                }
+            }
+
+            if (memoryBudget != null && node.processorClass != null) {
+                memoryBudget.release(node.id);
+            }
+        }
+
+        // the deployed nodes are kept in the order of the model, which is the order they were created in
+        Map<UUID, DeployedNode> deployedNodesById = Maps.newLinkedHashMap();
+        for (Processor processor : model.getProcessors()) {
+            deployedNodesById.put(processor.getId(), nodesById.get(processor.getId()));
+        }
+        for (ExternalSink sink : model.getExternalSinks()) {
+            deployedNodesById.put(sink.getId(), nodesById.get(sink.getId()));
+        }
+        nodesById.clear();
+        nodesById.putAll(deployedNodesById);
+    }
+
+    /**
+     * Destroys the statements of a node that is replaced or removed and adds its resources to the released
+     * resources, including its memory unless the node replacing it took the memory over.
+     */
+    private void undeploy(DeployedNode node, boolean memoryTakenOver, List<Closeable> releasedResources) {
+        node.destroyStatements();
+
+        resources.removeAll(node.resources);
+        releasedResources.addAll(node.resources);
+
+        // the memory of the node replacing it may be waiting for the memory to be closed to take its file over
+        if (!memoryTakenOver) {
+            resources.remove(node.memory);
+            node.closeMemory();
+        }
+    }
+
+    /**
+     * Destroys what was created for nodes that are not going to be deployed and adds their resources to the
+     * released resources. A processor is charged for the memory of the deployed version again, or nothing if there
+     * is none, since creating its new memory released that charge.
+     */
+    private void discard(List<DeployedNode> nodes, List<Closeable> releasedResources) {
+        for (DeployedNode node : nodes) {
+            if (!node.deployed) {
+                node.destroyStatements();
+                node.releaseResources(node.memoryRetained, releasedResources);
+
+                DeployedNode deployedNode = nodesById.get(node.id);
+                if (deployedNode == null) {
+                    metrics.unregister(node.id);
+                }
+
+                if (memoryBudget != null && node.processorClass != null && !node.memoryRetained) {
+                    memoryBudget.recharge(node.id, (deployedNode != null) ? deployedNode.memoryBytes : 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases what was created for a node that could not be prepared, if it got as far as being created.
+     */
+    private void discard(DeployedNode node) {
+        if (node != null) {
+            List<Closeable> releasedResources = Lists.newArrayList();
+            discard(Collections.singletonList(node), releasedResources);
+
+            RuntimeResources.closeAll(releasedResources);
+        }
+    }
+
+    private String getDefinition(ExternalSource source) {
+        StringBuilder definition = new StringBuilder(source.getClass().getName());
+        appendParameters(definition, source);
+        definition.append("\noutput ").append(new TreeMap<String, Object>(source.getOutput().getEventDefinition()));
+
+        return definition.toString();
+    }
+
+    private String getDefinition(ExternalSink sink, List<String> statements, SinkInputMode inputMode) {
+        StringBuilder definition = new StringBuilder(sink.getClass().getName());
+        for (String statement : statements) {
+            definition.append('\n').append(statement);
+        }
+        appendParameters(definition, sink);
+        definition.append("\nmode ").append(inputMode);
+
+        return definition.toString();
+    }
+
+    private String getDefinition(Processor<?> processor, String statement, Set<String> projectedAttributeNames) {
+        StringBuilder definition = new StringBuilder(processor.getClass().getName());
+        definition.append('\n').append(statement);
+        appendParameters(definition, processor);
+
+        for (ProcessorInput input : processor.getInputs()) {
+            definition.append("\ninput ").append(input.getId()).append('=').append(input.getSourceAttributeName());
+        }
+        for (ProcessorJoin join : processor.getJoins()) {
+            definition.append("\njoin ").append(join.getFirstInputAttributeName())
+                    .append('=').append(join.getSecondInputAttributeName());
+        }
+
+        definition.append("\noutput ").append(new TreeMap<String, Object>(processor.getOutput().getEventDefinition()));
+        definition.append("\nprojection ").append(
+                (projectedAttributeNames != null) ? new TreeSet<String>(projectedAttributeNames) : "all"
+        );
+
+        return definition.toString();
+    }
+
+    private void appendParameters(StringBuilder definition, Node node) {
+        List<Parameter> parameters = Lists.newArrayList(node.getParameters());
+        Collections.sort(parameters, BY_ID);
+
+        for (Parameter parameter : parameters) {
+            definition.append("\nparameter ").append(parameter.getId()).append('=').append(parameter.getValue());
+        }
+    }
+
+    /**
+     * A processor or sink with the statements and subscribers that run it.
+     */
+    private static class DeployedNode {
+        final UUID id;
+        final String definition;
+
+        List<String> statements;
+
+        /**
+         * Listener of the statement of a processor, subscribers of the statements of a sink
+         */
+        List<Object> subscribers;
+
+        List<EPStatement> createdStatements = Lists.newArrayList();
+        boolean deployed;
+
+        /**
+         * Resources of a sink, like the queue of an asynchronous sink
+         */
+        final List<Closeable> resources = Lists.newArrayList();
+        Set<String> consumedAttributeNames;
+
+        Class<?> processorClass;
+        Map<String, Object> eventDefinition;
+        Memory memory;
+        String window;
+        boolean memoryRetained;
+
+        /**
+         * What the processor was charged for its memory, 0 if the memory is not budgeted
+         */
+        long memoryBytes;
+
+        DeployedNode(UUID id, String definition) {
+            this.id = id;
+            this.definition = definition;
+        }
+
+        void createStatements(EPAdministrator admin) {
+            for (int i = 0; i < statements.size(); ++i) {
+                EPStatement stmt = admin.createEPL(statements.get(i));
+                createdStatements.add(stmt);
+
+                Object subscriber = subscribers.get(i);
+                if (subscriber instanceof EsperProcessorAdaptor) {
+                    stmt.addListener((EsperProcessorAdaptor) subscriber);
+                } else {
+                    stmt.setSubscriber(subscriber);
+                }
+            }
+        }
+
+        void destroyStatements() {
+            for (EPStatement stmt : createdStatements) {
+                stmt.destroy();
+            }
+            createdStatements.clear();
+        }
+
+        void closeMemory() {
+            if (memory instanceof Closeable) {
+                RuntimeResources.closeAll(Collections.singletonList((Closeable) memory));
+            }
+        }
+
+        /**
+         * Adds the resources of the node to the specified resources to close, and its memory unless the node
+         * replacing it took it over.
+         */
+        void releaseResources(boolean memoryTakenOver, List<Closeable> releasedResources) {
+            releasedResources.addAll(resources);
+
+            if (memory instanceof Closeable && !memoryTakenOver) {
+                releasedResources.add((Closeable) memory);
+            }
+        }
+    }
+}
@@ -18,17 +18,25 @@ package org.lisapark.octopus.core.compiler.esper;
 
 import com.espertech.esper.client.EPRuntime;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.lisapark.octopus.core.Input;
 import org.lisapark.octopus.core.event.Event;
 import org.lisapark.octopus.core.runtime.SinkContext;
+import org.lisapark.octopus.core.runtime.metrics.NodeMetrics;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
 import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
 import org.lisapark.octopus.util.Pair;
-import org.lisapark.octopus.util.esper.EsperUtils;
+import org.lisapark.octopus.util.esper.EventNameRegistry;
 
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Set;
 
 /**
+ * Subscriber of the statements of a {@link CompiledExternalSink}. A sink with one input, or one that joins its
+ * inputs, has a single statement whose rows are passed to {@link #update(Map)}. A sink that merges its inputs has a
+ * statement per source, each with its own subscriber from {@link #newSubscriberForSource(String)}.
+ *
  * @author dave sinclair(david.sinclair@lisa-park.com)
  */
 class EsperExternalSinkAdaptor {
@@ -37,36 +45,135 @@ class EsperExternalSinkAdaptor {
 
     private final SinkContext ctx;
     private final EPRuntime runtime;
+    private final NodeMetrics metrics;
+    private final Tracer tracer;
 
     @SuppressWarnings("unchecked")
-    EsperExternalSinkAdaptor(CompiledExternalSink externalSink, SinkContext ctx, EPRuntime runtime) {
+    EsperExternalSinkAdaptor(CompiledExternalSink externalSink, SinkContext ctx, EPRuntime runtime,
+                             EventNameRegistry eventNames, NodeMetrics metrics, Tracer tracer) {
         this.externalSink = externalSink;
         this.ctx = ctx;
         this.runtime = runtime;
+        this.metrics = metrics;
+        this.tracer = tracer;
 
         this.sourceIdToInputId = (Pair<String, Integer>[]) new Pair[externalSink.getInputs().size()];
 
         int index = 0;
         for (Input input : externalSink.getInputs()) {
-            String sourceId = EsperUtils.getEventNameForSource(input.getSource());
+            String sourceId = eventNames.getEventName(input.getSource());
             Integer inputId = input.getId();
             sourceIdToInputId[index++] = Pair.newInstance(sourceId, inputId);
         }
     }
 
+    /**
+     * Returns the alias of the stream of the input at the specified index in the statement of a sink. The rows of a
+     * sink that joins its inputs hold the event of each input under this alias.
+     *
+     * @param inputIndex index of the input
+     * @return stream alias
+     */
+    static String getAliasForInput(int inputIndex) {
+        return "_" + inputIndex;
+    }
+
     Pair<String, Integer>[] getSourceIdToInputId() {
         return Arrays.copyOf(sourceIdToInputId, sourceIdToInputId.length);
     }
 
-    public void update(Map<String, Object> eventFromInput_1) {
-        Event event = new Event(eventFromInput_1);
-        Map<Integer, Event> eventsByInputId = Maps.newHashMapWithExpectedSize(1);
-        eventsByInputId.put(sourceIdToInputId[0].getSecond(), event);
+    /**
+     * Returns the distinct ids of the sources of the inputs in the order of the inputs.
+     *
+     * @return source ids
+     */
+    Set<String> getSourceIds() {
+        Set<String> sourceIds = Sets.newLinkedHashSet();
+        for (Pair<String, Integer> sourceIdAndInputId : sourceIdToInputId) {
+            sourceIds.add(sourceIdAndInputId.getFirst());
+        }
+
+        return sourceIds;
+    }
+
+    /**
+     * Returns the subscriber for the statement that selects the events of the specified source for a sink that merges
+     * its inputs. The events are passed to the sink for all inputs connected to the source.
+     *
+     * @param sourceId of the source
+     * @return subscriber
+     */
+    SourceSubscriber newSubscriberForSource(String sourceId) {
+        int count = 0;
+        for (Pair<String, Integer> sourceIdAndInputId : sourceIdToInputId) {
+            if (sourceIdAndInputId.getFirst().equals(sourceId)) {
+                count++;
+            }
+        }
+
+        Integer[] inputIds = new Integer[count];
+        int index = 0;
+        for (Pair<String, Integer> sourceIdAndInputId : sourceIdToInputId) {
+            if (sourceIdAndInputId.getFirst().equals(sourceId)) {
+                inputIds[index++] = sourceIdAndInputId.getSecond();
+            }
+        }
+
+        return new SourceSubscriber(inputIds);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void update(Map<String, Object> row) {
+        Map<Integer, Event> eventsByInputId = Maps.newHashMapWithExpectedSize(sourceIdToInputId.length);
+
+        if (sourceIdToInputId.length == 1) {
+            eventsByInputId.put(sourceIdToInputId[0].getSecond(), Event.fromData(row));
+
+        } else {
+            // the events of the joined inputs are in the columns of their stream aliases
+            for (int index = 0; index < sourceIdToInputId.length; ++index) {
+                Map<String, Object> eventFromInput = (Map<String, Object>) row.get(getAliasForInput(index));
+                eventsByInputId.put(sourceIdToInputId[index].getSecond(), Event.fromData(eventFromInput));
+            }
+        }
+
+        processEvent(eventsByInputId);
+    }
+
+    private void processEvent(Map<Integer, Event> eventsByInputId) {
+        if (tracer != null) {
+            tracer.hop(metrics);
+        }
 
-        externalSink.processEvent(ctx, eventsByInputId);
+        long start = System.nanoTime();
+        try {
+            externalSink.processEvent(ctx, eventsByInputId);
+        } catch (RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        } finally {
+            metrics.recordEvent(System.nanoTime() - start);
+        }
     }
 
-    public void update(Event eventFromInput_1, Event eventFromInput_2) {
-        // todo multiple inputs for sinks?
+    /**
+     * Subscriber of the statement of a single source of a sink that merges its inputs.
+     */
+    class SourceSubscriber {
+        private final Integer[] inputIds;
+
+        SourceSubscriber(Integer[] inputIds) {
+            this.inputIds = inputIds;
+        }
+
+        public void update(Map<String, Object> eventFromSource) {
+            Event event = Event.fromData(eventFromSource);
+            Map<Integer, Event> eventsByInputId = Maps.newHashMapWithExpectedSize(inputIds.length);
+            for (Integer inputId : inputIds) {
+                eventsByInputId.put(inputId, event);
+            }
+
+            processEvent(eventsByInputId);
+        }
     }
 }
@@ -22,15 +22,19 @@ import com.espertech.esper.client.UpdateListener;
 import com.espertech.esper.event.map.MapEventBean;
 import com.google.common.collect.Maps;
 import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.event.LayeredEvent;
 import org.lisapark.octopus.core.processor.CompiledProcessor;
 import org.lisapark.octopus.core.processor.ProcessorInput;
 import org.lisapark.octopus.core.processor.ProcessorJoin;
 import org.lisapark.octopus.core.runtime.ProcessorContext;
+import org.lisapark.octopus.core.runtime.metrics.NodeMetrics;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
 import org.lisapark.octopus.util.Pair;
-import org.lisapark.octopus.util.esper.EsperUtils;
+import org.lisapark.octopus.util.esper.EventNameRegistry;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author dave sinclair(david.sinclair@lisa-park.com)
@@ -40,47 +44,98 @@ class EsperProcessorAdaptor implements UpdateListener {
     private final Pair<String, ProcessorInput>[] sourceIdToInput;
     private final String outputAttributeName;
     private final String outputEventId;
+    private final Set<String> projectedAttributeNames;
+    private final boolean processAllRows;
+    private final NodeMetrics metrics;
+    private final Tracer tracer;
 
     private final ProcessorContext ctx;
     private final EPRuntime runtime;
 
+    /**
+     * Creates an adaptor whose output events only carry the specified attributes. This is used when the compiler
+     * knows that nothing downstream of the processor will read the other attributes of its input events.
+     *
+     * @param processor               to run
+     * @param ctx                     for the processor
+     * @param runtime                 to send output events to
+     * @param eventNames              of the model
+     * @param projectedAttributeNames attributes of the output event, or null to keep all of them
+     * @param processAllRows          true to process every row of an update, false to only process the first one as
+     *                                a processor that looks at the latest events has always done
+     * @param metrics                 of the processor
+     * @param tracer                  to record the processor in the traces of sampled events, may be null
+     */
     @SuppressWarnings("unchecked")
-    EsperProcessorAdaptor(CompiledProcessor<?> processor, ProcessorContext<?> ctx, EPRuntime runtime) {
-        
+    EsperProcessorAdaptor(CompiledProcessor<?> processor, ProcessorContext<?> ctx, EPRuntime runtime,
+                          EventNameRegistry eventNames, Set<String> projectedAttributeNames,
+                          boolean processAllRows, NodeMetrics metrics, Tracer tracer) {
+
         this.processor = processor;
         this.ctx = ctx;
         this.runtime = runtime;
+        this.projectedAttributeNames = projectedAttributeNames;
+        this.processAllRows = processAllRows;
+        this.metrics = metrics;
+        this.tracer = tracer;
 
         this.sourceIdToInput = (Pair<String, ProcessorInput>[]) new Pair[processor.getInputs().size()];
 
         int index = 0;
         for (ProcessorInput input : processor.getInputs()) {
-            String sourceId = EsperUtils.getEventNameForSource(input.getSource());
+            String sourceId = eventNames.getEventName(input.getSource());
             sourceIdToInput[index++] = Pair.newInstance(sourceId, input);
         }
 
         outputAttributeName = processor.getOutput().getAttributeName();
-        outputEventId = EsperUtils.getEventNameForProcessor(processor);
+        outputEventId = eventNames.getEventName(processor.getId());
     }
 
     @Override
     public void update(EventBean[] newEvents, EventBean[] oldEvents) {
         if (isMapEvent(newEvents)) {
-            MapEventBean mapEvent = (MapEventBean) newEvents[0];
+            if (processAllRows) {
+                // windows larger than the latest event produce a row for every combination of events that joins
+                for (EventBean newEvent : newEvents) {
+                    processMapEvent((MapEventBean) newEvent);
+                }
+            } else {
+                processMapEvent((MapEventBean) newEvents[0]);
+            }
+        }
+    }
 
-            Map<Integer, Event> eventsByInputId = eventsByInputIdsFromMapEvent(mapEvent);
+    @SuppressWarnings("unchecked")
+    private void processMapEvent(MapEventBean mapEvent) {
+        Map<Integer, Event> eventsByInputId = eventsByInputIdsFromMapEvent(mapEvent);
 
-            @SuppressWarnings("unchecked")
-            Object output = processor.processEvent(ctx, eventsByInputId);
+        if (tracer != null) {
+            tracer.hop(metrics);
+        }
 
-            if (output != null && outputAttributeName != null) {
-                // todo create new event based on old event - what about name collisions??
+        // only the processor itself is timed, not the processing of its output further down the model
+        long start = System.nanoTime();
+        Object output;
+        try {
+            output = processor.processEvent(ctx, eventsByInputId);
+        } catch (RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        } finally {
+            metrics.recordEvent(System.nanoTime() - start);
+        }
 
-                Event outputEvent = new Event(outputAttributeName, output);
-                outputEvent = outputEvent.unionWith(eventsByInputId.values());
+        if (output != null && outputAttributeName != null) {
+            // todo create new event based on old event - what about name collisions??
 
-                runtime.sendEvent(outputEvent.getData(), outputEventId);
+            // the output shares the input events instead of copying all of their attributes
+            Event outputEvent = new LayeredEvent(outputAttributeName, output, eventsByInputId.values());
+            if (projectedAttributeNames != null) {
+                outputEvent = outputEvent.project(projectedAttributeNames);
             }
+
+            metrics.recordOutput();
+            runtime.sendEvent(outputEvent.getData(), outputEventId);
         }
     }
 
@@ -106,7 +161,8 @@ class EsperProcessorAdaptor implements UpdateListener {
 
             if (input != null) {
                 // put the event for the input
-                eventsByInputId.put(input.getId(), new Event(mapEventBean.getProperties()));
+                Event event = Event.fromData(mapEventBean.getProperties());
+                eventsByInputId.put(input.getId(), event);
 
                 // if the input is part of a join, BUT the join is not required we need to put the SAME event in for the
                 // other side of the join
@@ -114,7 +170,7 @@ class EsperProcessorAdaptor implements UpdateListener {
                 if (join != null && !join.isRequired()) {
                     ProcessorInput otherInput = join.getOtherInput(input);
 
-                    eventsByInputId.put(otherInput.getId(), new Event(mapEventBean.getProperties()));
+                    eventsByInputId.put(otherInput.getId(), event);
                 }
             }
         }
@@ -0,0 +1,441 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.event;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An {@link Event} whose values are stored by slot in arrays laid out by a {@link CompiledEventType}, instead of
+ * in a {@link Map}. Sources that produce many events of the same {@link EventType} should compile the type once and
+ * create their events with {@link CompiledEventType#newEvent()}.
+ * <p/>
+ * Numeric and boolean values are kept unboxed, and whether a slot holds a value at all is tracked in a separate
+ * bitmap. The primitive accessors, e.g. {@link #getDouble(int)} and {@link #setDouble(int, double)}, therefore never
+ * allocate; only {@link #get(int)} and the {@link #getData()} view box values, and only when they are asked for.
+ * <p/>
+ * Note that a {@link CompiledEvent} is only meant to be modified by the source creating it, i.e. before it is sent
+ * to the {@link org.lisapark.octopus.core.runtime.ProcessingRuntime}.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class CompiledEvent extends Event {
+
+    private final CompiledEventType type;
+
+    private final long[] longs;
+    private final double[] doubles;
+    private final Object[] objects;
+
+    /**
+     * Bit per slot that is set if the slot is null. All slots start out as null.
+     */
+    private final long[] nulls;
+
+    /**
+     * Lazily created {@link Map} view over the slots
+     */
+    private SlotData data;
+
+    CompiledEvent(CompiledEventType type) {
+        this.type = type;
+        this.longs = new long[type.getNumberOfLongs()];
+        this.doubles = new double[type.getNumberOfDoubles()];
+        this.objects = new Object[type.getNumberOfObjects()];
+
+        int numberOfSlots = type.getNumberOfSlots();
+        this.nulls = new long[(numberOfSlots + 63) >>> 6];
+        for (int slot = 0; slot < numberOfSlots; ++slot) {
+            nulls[slot >>> 6] |= 1L << slot;
+        }
+    }
+
+    public CompiledEventType getType() {
+        return type;
+    }
+
+    public boolean isNull(int slot) {
+        return (nulls[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    public CompiledEvent setNull(int slot) {
+        type.checkSlot(slot);
+        nulls[slot >>> 6] |= 1L << slot;
+
+        if (type.getStorageKindAt(slot) == CompiledEventType.OBJECT_STORAGE) {
+            objects[type.getStorageIndexAt(slot)] = null;
+        }
+
+        return this;
+    }
+
+    private void setNotNull(int slot) {
+        nulls[slot >>> 6] &= ~(1L << slot);
+    }
+
+    /**
+     * Returns the value of the specified slot boxed as the type of its attribute, or null if the slot is null.
+     *
+     * @param slot of value
+     * @return value or null
+     */
+    public Object get(int slot) {
+        if (isNull(slot)) {
+            return null;
+        }
+
+        Class attributeType = type.getAttributeTypeAt(slot);
+        int index = type.getStorageIndexAt(slot);
+
+        switch (type.getStorageKindAt(slot)) {
+            case CompiledEventType.LONG_STORAGE:
+                long longValue = longs[index];
+
+                if (attributeType == Integer.class) {
+                    return (int) longValue;
+                } else if (attributeType == Short.class) {
+                    return (short) longValue;
+                } else if (attributeType == Boolean.class) {
+                    return longValue != 0;
+                } else {
+                    return longValue;
+                }
+
+            case CompiledEventType.DOUBLE_STORAGE:
+                double doubleValue = doubles[index];
+
+                if (attributeType == Float.class) {
+                    return (float) doubleValue;
+                } else {
+                    return doubleValue;
+                }
+
+            default:
+                return objects[index];
+        }
+    }
+
+    /**
+     * Sets the value of the specified slot. Numeric and boolean values are unboxed into the primitive storage of the
+     * slot; a null value is the same as calling {@link #setNull(int)}.
+     *
+     * @param slot  to set
+     * @param value to set
+     * @return this event
+     */
+    public CompiledEvent set(int slot, Object value) {
+        if (value == null) {
+            return setNull(slot);
+        }
+
+        type.checkSlot(slot);
+        int index = type.getStorageIndexAt(slot);
+
+        switch (type.getStorageKindAt(slot)) {
+            case CompiledEventType.LONG_STORAGE:
+                if (value instanceof Boolean) {
+                    longs[index] = ((Boolean) value) ? 1L : 0L;
+                } else {
+                    longs[index] = ((Number) value).longValue();
+                }
+                break;
+
+            case CompiledEventType.DOUBLE_STORAGE:
+                doubles[index] = ((Number) value).doubleValue();
+                break;
+
+            default:
+                objects[index] = value;
+        }
+        setNotNull(slot);
+
+        return this;
+    }
+
+    /**
+     * Returns the value of the specified numeric slot as a double, or 0 if the slot is null.
+     *
+     * @param slot of value
+     * @return value
+     */
+    public double getDouble(int slot) {
+        if (isNull(slot)) {
+            return 0D;
+        }
+
+        int index = type.getStorageIndexAt(slot);
+
+        switch (type.getStorageKindAt(slot)) {
+            case CompiledEventType.LONG_STORAGE:
+                return longs[index];
+
+            case CompiledEventType.DOUBLE_STORAGE:
+                return doubles[index];
+
+            default:
+                return ((Number) objects[index]).doubleValue();
+        }
+    }
+
+    public float getFloat(int slot) {
+        return (float) getDouble(slot);
+    }
+
+    /**
+     * Returns the value of the specified numeric or boolean slot as a long, or 0 if the slot is null. Booleans are
+     * returned as 1 for true and 0 for false.
+     *
+     * @param slot of value
+     * @return value
+     */
+    public long getLong(int slot) {
+        if (isNull(slot)) {
+            return 0L;
+        }
+
+        int index = type.getStorageIndexAt(slot);
+
+        switch (type.getStorageKindAt(slot)) {
+            case CompiledEventType.LONG_STORAGE:
+                return longs[index];
+
+            case CompiledEventType.DOUBLE_STORAGE:
+                return (long) doubles[index];
+
+            default:
+                return ((Number) objects[index]).longValue();
+        }
+    }
+
+    public int getInt(int slot) {
+        return (int) getLong(slot);
+    }
+
+    /**
+     * Returns the value of the specified boolean slot, or false if the slot is null.
+     *
+     * @param slot of value
+     * @return value
+     */
+    public boolean getBoolean(int slot) {
+        if (isNull(slot)) {
+            return false;
+        }
+
+        if (type.getStorageKindAt(slot) == CompiledEventType.OBJECT_STORAGE) {
+            return (Boolean) objects[type.getStorageIndexAt(slot)];
+        } else {
+            return getLong(slot) != 0;
+        }
+    }
+
+    public CompiledEvent setDouble(int slot, double value) {
+        type.checkSlot(slot);
+        int index = type.getStorageIndexAt(slot);
+
+        switch (type.getStorageKindAt(slot)) {
+            case CompiledEventType.LONG_STORAGE:
+                longs[index] = (long) value;
+                break;
+
+            case CompiledEventType.DOUBLE_STORAGE:
+                doubles[index] = value;
+                break;
+
+            default:
+                objects[index] = value;
+        }
+        setNotNull(slot);
+
+        return this;
+    }
+
+    public CompiledEvent setFloat(int slot, float value) {
+        return setDouble(slot, value);
+    }
+
+    public CompiledEvent setLong(int slot, long value) {
+        type.checkSlot(slot);
+        int index = type.getStorageIndexAt(slot);
+
+        switch (type.getStorageKindAt(slot)) {
+            case CompiledEventType.LONG_STORAGE:
+                longs[index] = value;
+                break;
+
+            case CompiledEventType.DOUBLE_STORAGE:
+                doubles[index] = value;
+                break;
+
+            default:
+                objects[index] = value;
+        }
+        setNotNull(slot);
+
+        return this;
+    }
+
+    public CompiledEvent setInt(int slot, int value) {
+        return setLong(slot, value);
+    }
+
+    public CompiledEvent setBoolean(int slot, boolean value) {
+        type.checkSlot(slot);
+
+        if (type.getStorageKindAt(slot) == CompiledEventType.OBJECT_STORAGE) {
+            objects[type.getStorageIndexAt(slot)] = value;
+        } else {
+            setLong(slot, value ? 1L : 0L);
+        }
+        setNotNull(slot);
+
+        return this;
+    }
+
+    @Override
+    protected boolean containsAttribute(String attributeName) {
+        return type.slotOf(attributeName) > -1;
+    }
+
+    @Override
+    protected Object getAttribute(String attributeName) {
+        int slot = type.slotOf(attributeName);
+
+        return (slot > -1) ? get(slot) : null;
+    }
+
+    @Override
+    public double getAttributeAsDouble(String attributeName, double valueIfNull) {
+        int slot = type.slotOf(attributeName);
+
+        return (slot > -1 && !isNull(slot)) ? getDouble(slot) : valueIfNull;
+    }
+
+    @Override
+    public float getAttributeAsFloat(String attributeName, float valueIfNull) {
+        int slot = type.slotOf(attributeName);
+
+        return (slot > -1 && !isNull(slot)) ? getFloat(slot) : valueIfNull;
+    }
+
+    @Override
+    public long getAttributeAsLong(String attributeName, long valueIfNull) {
+        int slot = type.slotOf(attributeName);
+
+        return (slot > -1 && !isNull(slot)) ? getLong(slot) : valueIfNull;
+    }
+
+    @Override
+    public int getAttributeAsInteger(String attributeName, int valueIfNull) {
+        int slot = type.slotOf(attributeName);
+
+        return (slot > -1 && !isNull(slot)) ? getInt(slot) : valueIfNull;
+    }
+
+    @Override
+    public boolean getAttributeAsBoolean(String attributeName, boolean valueIfNull) {
+        int slot = type.slotOf(attributeName);
+
+        return (slot > -1 && !isNull(slot)) ? getBoolean(slot) : valueIfNull;
+    }
+
+    /**
+     * Returns a read only {@link Map} view of this event. The view reflects the slots of this event; use the setters to
+     * change them.
+     *
+     * @return map view of event
+     */
+    @Override
+    public Map<String, Object> getData() {
+        if (data == null) {
+            data = new SlotData(this);
+        }
+        return data;
+    }
+
+    /**
+     * {@link Map} view of the slots of a {@link CompiledEvent}
+     */
+    static class SlotData extends DataView {
+        private final CompiledEvent event;
+
+        SlotData(CompiledEvent event) {
+            super(event);
+            this.event = event;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return (key instanceof String) && event.type.slotOf((String) key) > -1;
+        }
+
+        @Override
+        public int size() {
+            return event.type.getNumberOfSlots();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new SlotIterator(event);
+                }
+
+                @Override
+                public int size() {
+                    return event.type.getNumberOfSlots();
+                }
+            };
+        }
+    }
+
+    static class SlotIterator implements Iterator<Map.Entry<String, Object>> {
+        private final CompiledEvent event;
+        private int slot;
+
+        SlotIterator(CompiledEvent event) {
+            this.event = event;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < event.type.getNumberOfSlots();
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            String attributeName = event.type.getAttributeNameAt(slot);
+            Object value = event.get(slot++);
+
+            return new AbstractMap.SimpleImmutableEntry<String, Object>(attributeName, value);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Remove not supported");
+        }
+    }
+}
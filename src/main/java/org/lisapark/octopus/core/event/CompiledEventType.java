@@ -0,0 +1,161 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.event;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A {@link CompiledEventType} is an immutable "snapshot" of an {@link EventType} that assigns every attribute a
+ * fixed slot. {@link CompiledEvent}s created from it store their values by slot instead of by name, so the layout
+ * only has to be worked out once, i.e. when a source or processor is started, instead of for every event.
+ * <p/>
+ * Callers that read or write the same attributes over and over should resolve the slot once with
+ * {@link #slotOf(String)} and use the slot based accessors of {@link CompiledEvent}.
+ * <p/>
+ * Numeric and boolean attributes are not stored as objects. Each slot is backed by one of three kinds of storage;
+ * {@link #LONG_STORAGE} for {@link Short}, {@link Integer}, {@link Long} and {@link Boolean} attributes,
+ * {@link #DOUBLE_STORAGE} for {@link Float} and {@link Double} attributes and {@link #OBJECT_STORAGE} for everything
+ * else. This allows the primitive accessors of {@link CompiledEvent} to read and write values without boxing them.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ * @see EventType#compile()
+ */
+public class CompiledEventType {
+
+    static final int LONG_STORAGE = 0;
+    static final int DOUBLE_STORAGE = 1;
+    static final int OBJECT_STORAGE = 2;
+
+    private final String[] attributeNames;
+    private final Class[] attributeTypes;
+    private final Map<String, Integer> slotsByName;
+
+    /**
+     * The kind of storage for each slot, i.e. one of {@link #LONG_STORAGE}, {@link #DOUBLE_STORAGE} or
+     * {@link #OBJECT_STORAGE}
+     */
+    private final int[] storageKinds;
+
+    /**
+     * The index of each slot within the storage of its kind
+     */
+    private final int[] storageIndexes;
+
+    private int numberOfLongs;
+    private int numberOfDoubles;
+    private int numberOfObjects;
+
+    CompiledEventType(List<Attribute> attributes) {
+        int numberOfAttributes = attributes.size();
+
+        this.attributeNames = new String[numberOfAttributes];
+        this.attributeTypes = new Class[numberOfAttributes];
+        this.slotsByName = Maps.newHashMapWithExpectedSize(numberOfAttributes);
+        this.storageKinds = new int[numberOfAttributes];
+        this.storageIndexes = new int[numberOfAttributes];
+
+        for (int slot = 0; slot < numberOfAttributes; ++slot) {
+            Attribute attribute = attributes.get(slot);
+
+            attributeNames[slot] = attribute.getName();
+            attributeTypes[slot] = attribute.getType();
+            slotsByName.put(attribute.getName(), slot);
+
+            Class type = attribute.getType();
+            if (type == Short.class || type == Integer.class || type == Long.class || type == Boolean.class) {
+                storageKinds[slot] = LONG_STORAGE;
+                storageIndexes[slot] = numberOfLongs++;
+
+            } else if (type == Float.class || type == Double.class) {
+                storageKinds[slot] = DOUBLE_STORAGE;
+                storageIndexes[slot] = numberOfDoubles++;
+
+            } else {
+                storageKinds[slot] = OBJECT_STORAGE;
+                storageIndexes[slot] = numberOfObjects++;
+            }
+        }
+    }
+
+    public int getNumberOfSlots() {
+        return attributeNames.length;
+    }
+
+    /**
+     * Returns the slot of the attribute with the specified name, or -1 if there is no such attribute.
+     *
+     * @param attributeName to get slot for
+     * @return slot or -1
+     */
+    public int slotOf(String attributeName) {
+        Integer slot = slotsByName.get(attributeName);
+
+        return (slot != null) ? slot : -1;
+    }
+
+    public String getAttributeNameAt(int slot) {
+        return attributeNames[slot];
+    }
+
+    public Class getAttributeTypeAt(int slot) {
+        return attributeTypes[slot];
+    }
+
+    int getStorageKindAt(int slot) {
+        return storageKinds[slot];
+    }
+
+    int getStorageIndexAt(int slot) {
+        return storageIndexes[slot];
+    }
+
+    int getNumberOfLongs() {
+        return numberOfLongs;
+    }
+
+    int getNumberOfDoubles() {
+        return numberOfDoubles;
+    }
+
+    int getNumberOfObjects() {
+        return numberOfObjects;
+    }
+
+    /**
+     * Returns a new {@link CompiledEvent} of this type with all slots set to null.
+     *
+     * @return new event
+     */
+    public CompiledEvent newEvent() {
+        return new CompiledEvent(this);
+    }
+
+    void checkSlot(int slot) {
+        checkArgument(slot > -1 && slot < attributeNames.length, "slot is out of range");
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).add("attributeNames", attributeNames).toString();
+    }
+}
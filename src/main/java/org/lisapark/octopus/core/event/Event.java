@@ -19,6 +19,7 @@ package org.lisapark.octopus.core.event;
 import com.google.common.collect.Maps;
 import org.lisapark.octopus.core.Persistable;
 
+import java.util.AbstractMap;
 import java.util.Collection;
 import java.util.Map;
 
@@ -27,38 +28,108 @@ import java.util.Map;
  */
 @Persistable
 public class Event {
-    private final Map<String, Object> data = Maps.newHashMap();
+    private final Map<String, Object> data;
 
     public Event(String attributeName, Object value) {
+        this.data = Maps.newHashMap();
         data.put(attributeName, value);
     }
 
     public Event(Map<String, Object> data) {
-        this.data.putAll(data);
+        this.data = Maps.newHashMap(data);
     }
 
-    public Event unionWith(Event event) {
-        Map<String, Object> newData = Maps.newHashMap(data);
-        newData.putAll(event.getData());
+    private Event(Map<String, Object> data, boolean copy) {
+        this.data = copy ? Maps.newHashMap(data) : data;
+    }
+
+    /**
+     * Constructor for subclasses that keep their attribute values in their own storage instead of a map. Subclasses
+     * using this constructor have to override {@link #getData()}, {@link #containsAttribute(String)} and
+     * {@link #getAttribute(String)}.
+     */
+    protected Event() {
+        this.data = null;
+    }
 
-        return new Event(newData);
+    /**
+     * Returns the union of this event and the specified event, with the attributes of the specified event taking
+     * precedence. The returned event shares both events instead of copying their attributes.
+     *
+     * @param event to union with
+     * @return union of events
+     * @see LayeredEvent
+     */
+    public Event unionWith(Event event) {
+        return new LayeredEvent(null, null, new Event[]{this, event});
     }
 
+    /**
+     * Returns the union of this event and the specified events, with the attributes of later events taking
+     * precedence over earlier ones and over this event. The returned event shares all the events instead of copying
+     * their attributes.
+     *
+     * @param events to union with
+     * @return union of events
+     * @see LayeredEvent
+     */
     public Event unionWith(Collection<Event> events) {
-        Map<String, Object> newData = Maps.newHashMap(data);
+        Event[] layers = new Event[events.size() + 1];
+        layers[0] = this;
+
+        int index = 1;
         for (Event event : events) {
-            newData.putAll(event.getData());
+            layers[index++] = event;
+        }
+
+        return new LayeredEvent(null, null, layers);
+    }
+
+    /**
+     * Returns a new event containing only those of the specified attributes that are part of this event. The new
+     * event copies the values, so it no longer references this event or any events it is layered on.
+     *
+     * @param attributeNames to keep
+     * @return projected event
+     */
+    public Event project(Collection<String> attributeNames) {
+        Map<String, Object> projectedData = Maps.newHashMapWithExpectedSize(attributeNames.size());
+
+        for (String attributeName : attributeNames) {
+            if (containsAttribute(attributeName)) {
+                projectedData.put(attributeName, getAttribute(attributeName));
+            }
         }
 
-        return new Event(newData);
+        return new Event(projectedData, false);
     }
 
     public Map<String, Object> getData() {
         return data;
     }
 
+    /**
+     * Returns true if this event contains the specified attribute, even if its value is null.
+     *
+     * @param attributeName to check
+     * @return true if the attribute is part of this event
+     */
+    protected boolean containsAttribute(String attributeName) {
+        return data.containsKey(attributeName);
+    }
+
+    /**
+     * Returns the raw value of the specified attribute, or null if this event does not contain it.
+     *
+     * @param attributeName of value
+     * @return value or null
+     */
+    protected Object getAttribute(String attributeName) {
+        return data.get(attributeName);
+    }
+
     public Integer getAttributeAsInteger(String attributeName) {
-        Object value = data.get(attributeName);
+        Object value = getAttribute(attributeName);
 
         if (value != null) {
             return ((Number) value).intValue();
@@ -68,7 +139,7 @@ public class Event {
     }
 
     public Short getAttributeAsShort(String attributeName) {
-        Object value = data.get(attributeName);
+        Object value = getAttribute(attributeName);
 
         if (value != null) {
             return ((Number) value).shortValue();
@@ -78,7 +149,7 @@ public class Event {
     }
 
     public Long getAttributeAsLong(String attributeName) {
-        Object value = data.get(attributeName);
+        Object value = getAttribute(attributeName);
 
         if (value != null) {
             return ((Number) value).longValue();
@@ -88,7 +159,7 @@ public class Event {
     }
 
     public Float getAttributeAsFloat(String attributeName) {
-        Object value = data.get(attributeName);
+        Object value = getAttribute(attributeName);
 
         if (value != null) {
             return ((Number) value).floatValue();
@@ -98,7 +169,7 @@ public class Event {
     }
 
     public Double getAttributeAsDouble(String attributeName) {
-        Object value = data.get(attributeName);
+        Object value = getAttribute(attributeName);
 
         if (value != null) {
             return ((Number) value).doubleValue();
@@ -108,17 +179,110 @@ public class Event {
     }
 
     public String getAttributeAsString(String attributeName) {
-        return (String) data.get(attributeName);
+        return (String) getAttribute(attributeName);
     }
 
     public Boolean getAttributeAsBoolean(String attributeName) {
-        return (Boolean) data.get(attributeName);
+        return (Boolean) getAttribute(attributeName);
+    }
+
+    /**
+     * Returns the value of the specified numeric attribute as a double, or valueIfNull if this event does not contain
+     * a value for it. Subclasses that store their values unboxed override this, and the other primitive accessors,
+     * so that reading a value does not allocate. Processors pass {@link Double#NaN} as valueIfNull to read a missing
+     * value without unboxing a {@link Double}, which means a value that is NaN is treated as missing.
+     *
+     * @param attributeName of value
+     * @param valueIfNull   returned if there is no value
+     * @return value or valueIfNull
+     */
+    public double getAttributeAsDouble(String attributeName, double valueIfNull) {
+        Object value = getAttribute(attributeName);
+
+        return (value != null) ? ((Number) value).doubleValue() : valueIfNull;
+    }
+
+    public float getAttributeAsFloat(String attributeName, float valueIfNull) {
+        Object value = getAttribute(attributeName);
+
+        return (value != null) ? ((Number) value).floatValue() : valueIfNull;
+    }
+
+    public long getAttributeAsLong(String attributeName, long valueIfNull) {
+        Object value = getAttribute(attributeName);
+
+        return (value != null) ? ((Number) value).longValue() : valueIfNull;
+    }
+
+    public int getAttributeAsInteger(String attributeName, int valueIfNull) {
+        Object value = getAttribute(attributeName);
+
+        return (value != null) ? ((Number) value).intValue() : valueIfNull;
+    }
+
+    public boolean getAttributeAsBoolean(String attributeName, boolean valueIfNull) {
+        Object value = getAttribute(attributeName);
+
+        return (value != null) ? (Boolean) value : valueIfNull;
     }
 
     @Override
     public String toString() {
         return "Event{" +
-                "data=" + data +
+                "data=" + getData() +
                 '}';
     }
+
+    /**
+     * Returns a new event with a copy of the attributes of the specified event. Unlike the event passed in, the
+     * {@link #getData()} of the copy can be modified.
+     *
+     * @param event to copy
+     * @return copy of event
+     */
+    public static Event copyOf(Event event) {
+        return new Event(event.getData());
+    }
+
+    /**
+     * Returns the {@link Event} for the specified data. If the data is the {@link #getData()} view of an event that
+     * does not store its values in a map, that event is returned as is, otherwise a new {@link Event} with a copy of
+     * the data is created.
+     * <p/>
+     * This is used when the data of an event has made a round trip through the underlying processing engine, in
+     * order to avoid copying the attributes again. The returned event may therefore be shared by all consumers of a
+     * stream; code that needs to modify it has to modify a {@link #copyOf(Event)} instead.
+     *
+     * @param data of event
+     * @return event for data
+     */
+    public static Event fromData(Map<String, Object> data) {
+        if (data instanceof DataView) {
+            return ((DataView) data).getEvent();
+        } else {
+            return new Event(data);
+        }
+    }
+
+    /**
+     * Base class for the {@link Map} returned by {@link #getData()} for events that do not store their values in a
+     * map. The view keeps a reference to its event so {@link Event#fromData(java.util.Map)} can hand the original
+     * event back instead of copying it. Since that event is shared, the view is read only.
+     */
+    protected abstract static class DataView extends AbstractMap<String, Object> {
+        private final Event event;
+
+        protected DataView(Event event) {
+            this.event = event;
+        }
+
+        public Event getEvent() {
+            return event;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return (key instanceof String) ? event.getAttribute((String) key) : null;
+        }
+    }
 }
@@ -17,12 +17,16 @@
 package org.lisapark.octopus.core.event;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.lisapark.octopus.core.Copyable;
 import org.lisapark.octopus.core.Persistable;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +44,11 @@ public class EventType implements Copyable {
 
     private final List<Attribute> attributes = Lists.newArrayList();
 
+    /**
+     * Lazily built, immutable views of the {@link #attributes}; null whenever the list of attributes changes.
+     */
+    private transient volatile AttributeIndex index;
+
     public EventType() {
     }
 
@@ -60,10 +69,21 @@ public class EventType implements Copyable {
     public void removeAttributeAt(int index) {
         checkArgument(index > -1 && index < attributes.size(), "index is out of range");
         attributes.remove(index);
+        this.index = null;
     }
 
     public int indexOfAttribute(Attribute attribute) {
         checkArgument(attribute != null, "attribute cannot be null");
+        String name = attribute.getName();
+
+        if (name != null) {
+            int candidateIndex = indexOfAttributeWithName(name);
+
+            if (candidateIndex > -1 && attributes.get(candidateIndex).equals(attribute)) {
+                return candidateIndex;
+            }
+        }
+
         int index = -1;
 
         for (int i = 0; i < attributes.size(); ++i) {
@@ -84,59 +104,126 @@ public class EventType implements Copyable {
 
     public EventType addAttribute(Attribute attribute) {
         attributes.add(attribute);
+        this.index = null;
 
         return this;
     }
 
     public EventType removeAllAttributes() {
         attributes.clear();
+        this.index = null;
 
         return this;
     }
 
     public EventType removeAttribute(Attribute attribute) {
         attributes.remove(attribute);
+        this.index = null;
 
         return this;
     }
 
     public Attribute getAttributeByName(String name) {
-        Attribute attr = null;
+        int attributeIndex = indexOfAttributeWithName(name);
 
-        for (Attribute candidateAttr : attributes) {
-            if (name.equals(candidateAttr.getName())) {
-                attr = candidateAttr;
-                break;
+        return (attributeIndex > -1) ? attributes.get(attributeIndex) : null;
+    }
+
+    /**
+     * Returns the index of the attribute with the specified name, or -1 if there is no such attribute.
+     *
+     * @param name of attribute
+     * @return index of attribute or -1
+     */
+    public int indexOfAttributeWithName(String name) {
+        Integer attributeIndex = getIndex().indexesByName.get(name);
+
+        if (attributeIndex != null && name.equals(attributes.get(attributeIndex).getName())) {
+            return attributeIndex;
+        }
+
+        // attributes are mutable, so one may have been renamed since the index was built
+        for (int i = 0; i < attributes.size(); ++i) {
+            if (name.equals(attributes.get(i).getName())) {
+                this.index = null;
+                return i;
             }
         }
 
-        return attr;
+        if (attributeIndex != null) {
+            this.index = null;
+        }
+
+        return -1;
     }
 
     public boolean containsAttribute(Attribute attribute) {
         return attributes.contains(attribute);
     }
 
+    /**
+     * Returns an immutable view of the attributes of this type. The view is shared between calls until the
+     * attributes of this type are added or removed, so it is cheap to call this for every event.
+     *
+     * @return attributes of this type
+     */
     public List<Attribute> getAttributes() {
-        return ImmutableList.copyOf(attributes);
+        return getIndex().attributes;
     }
 
+    /**
+     * Returns the attribute names mapped to their types. The returned map is immutable and shared between calls.
+     *
+     * @return event definition
+     */
     public Map<String, Object> getEventDefinition() {
-        Map<String, Object> definition = Maps.newHashMap();
+        return getCurrentIndex().eventDefinition;
+    }
+
+    /**
+     * Returns the attribute names in the order of the attributes. The returned collection is immutable and shared
+     * between calls.
+     *
+     * @return attribute names
+     */
+    public Collection<String> getAttributeNames() {
+        return getCurrentIndex().attributeNames;
+    }
+
+    private AttributeIndex getIndex() {
+        AttributeIndex current = index;
 
-        for (Attribute attribute : attributes) {
-            definition.put(attribute.getName(), attribute.getType());
+        if (current == null) {
+            current = new AttributeIndex(attributes);
+            index = current;
         }
 
-        return definition;
+        return current;
     }
 
-    public Collection<String> getAttributeNames() {
-        Collection<String> attributeNames = Lists.newLinkedList();
-        for (Attribute attribute : attributes) {
-            attributeNames.add(attribute.getName());
+    /**
+     * Returns the {@link AttributeIndex} after making sure none of the attributes was renamed or changed type since
+     * it was built.
+     */
+    private AttributeIndex getCurrentIndex() {
+        AttributeIndex current = getIndex();
+
+        if (!current.isCurrent()) {
+            current = new AttributeIndex(attributes);
+            index = current;
         }
-        return attributeNames;
+
+        return current;
+    }
+
+    /**
+     * Compiles this event type into a {@link CompiledEventType} that assigns each of the current attributes a
+     * fixed slot. Note that the compiled type is a "snapshot" and does not reflect later changes to this type.
+     *
+     * @return compiled event type
+     */
+    public CompiledEventType compile() {
+        return new CompiledEventType(attributes);
     }
 
     @Override
@@ -148,4 +235,54 @@ public class EventType implements Copyable {
     public EventType copyOf() {
         return new EventType(this);
     }
+
+    /**
+     * Immutable snapshot of the attributes of an {@link EventType}, their names and types.
+     */
+    private static class AttributeIndex {
+        private final ImmutableList<Attribute> attributes;
+        private final String[] names;
+        private final Class[] types;
+        private final Map<String, Integer> indexesByName;
+        private final ImmutableMap<String, Object> eventDefinition;
+        private final ImmutableList<String> attributeNames;
+
+        AttributeIndex(List<Attribute> attributes) {
+            this.attributes = ImmutableList.copyOf(attributes);
+            this.names = new String[attributes.size()];
+            this.types = new Class[attributes.size()];
+            this.indexesByName = Maps.newHashMapWithExpectedSize(attributes.size());
+
+            Map<String, Object> definition = Maps.newHashMap();
+            for (int i = 0; i < names.length; ++i) {
+                Attribute attribute = attributes.get(i);
+                names[i] = attribute.getName();
+                types[i] = attribute.getType();
+
+                if (names[i] != null) {
+                    if (!indexesByName.containsKey(names[i])) {
+                        indexesByName.put(names[i], i);
+                    }
+                    if (types[i] != null) {
+                        definition.put(names[i], types[i]);
+                    }
+                }
+            }
+
+            this.eventDefinition = ImmutableMap.copyOf(definition);
+            this.attributeNames = ImmutableList.copyOf(Iterables.filter(Arrays.asList(names), Predicates.notNull()));
+        }
+
+        boolean isCurrent() {
+            for (int i = 0; i < names.length; ++i) {
+                Attribute attribute = attributes.get(i);
+
+                if (!Objects.equal(names[i], attribute.getName()) || types[i] != attribute.getType()) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
 }
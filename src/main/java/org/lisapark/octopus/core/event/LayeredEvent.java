@@ -0,0 +1,239 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.event;
+
+import com.google.common.collect.Maps;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link LayeredEvent} is the union of one or more parent {@link Event}s, plus optionally one attribute of its own,
+ * that shares the parents instead of copying their attributes. Attributes are looked up from the last parent to the
+ * first, and the event's own attribute is only used if none of the parents contains an attribute with the same name.
+ * This is the same precedence a {@link Map#putAll(java.util.Map)} of the parents over the own attribute would give.
+ * <p/>
+ * Layering keeps the cost of producing a processor output independent of the number of upstream attributes. The
+ * attributes are only flattened into a single map the first time something needs all of them, e.g. a sink iterating
+ * over {@link #getData()}.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class LayeredEvent extends Event {
+
+    /**
+     * Events deeper than this are flattened when they are layered again, so lookups never have to walk more than
+     * this many layers.
+     */
+    static final int MAXIMUM_DEPTH = 16;
+
+    private final String attributeName;
+    private final Object attributeValue;
+    private final Event[] parents;
+    private final int depth;
+
+    private LayeredData data;
+
+    /**
+     * Lazily created map with all attributes of this event; once it exists it is the only source of values
+     */
+    private volatile Map<String, Object> flattenedData;
+
+    public LayeredEvent(String attributeName, Object attributeValue, Collection<Event> parents) {
+        this(attributeName, attributeValue, parents.toArray(new Event[parents.size()]));
+    }
+
+    LayeredEvent(String attributeName, Object attributeValue, Event[] parents) {
+        this.attributeName = attributeName;
+        this.attributeValue = attributeValue;
+
+        int maximumParentDepth = 0;
+        for (int i = 0; i < parents.length; ++i) {
+            Event parent = parents[i];
+
+            if (depthOf(parent) >= MAXIMUM_DEPTH) {
+                parent = new Event(parent.getData());
+                parents[i] = parent;
+            }
+            maximumParentDepth = Math.max(maximumParentDepth, depthOf(parent));
+        }
+
+        this.parents = parents;
+        this.depth = maximumParentDepth + 1;
+    }
+
+    private static int depthOf(Event event) {
+        return (event instanceof LayeredEvent) ? ((LayeredEvent) event).depth : 0;
+    }
+
+    @Override
+    protected boolean containsAttribute(String attributeName) {
+        Map<String, Object> flattened = flattenedData;
+        if (flattened != null) {
+            return flattened.containsKey(attributeName);
+        }
+
+        for (int i = parents.length - 1; i > -1; --i) {
+            if (parents[i].containsAttribute(attributeName)) {
+                return true;
+            }
+        }
+
+        return attributeName.equals(this.attributeName);
+    }
+
+    /**
+     * Returns the parent that the specified attribute is taken from, this event if it is its own attribute, or null
+     * if no layer contains the attribute. Must only be called before the event has been flattened.
+     *
+     * @param attributeName to look up
+     * @return layer containing the attribute or null
+     */
+    private Event layerOf(String attributeName) {
+        for (int i = parents.length - 1; i > -1; --i) {
+            Event parent = parents[i];
+
+            if (parent.containsAttribute(attributeName)) {
+                return parent;
+            }
+        }
+
+        return attributeName.equals(this.attributeName) ? this : null;
+    }
+
+    @Override
+    protected Object getAttribute(String attributeName) {
+        Map<String, Object> flattened = flattenedData;
+        if (flattened != null) {
+            return flattened.get(attributeName);
+        }
+
+        Event layer = layerOf(attributeName);
+        if (layer == this) {
+            return attributeValue;
+        }
+
+        return (layer != null) ? layer.getAttribute(attributeName) : null;
+    }
+
+    @Override
+    public double getAttributeAsDouble(String attributeName, double valueIfNull) {
+        Event layer = (flattenedData == null) ? layerOf(attributeName) : this;
+
+        if (layer == this || layer == null) {
+            return super.getAttributeAsDouble(attributeName, valueIfNull);
+        }
+        return layer.getAttributeAsDouble(attributeName, valueIfNull);
+    }
+
+    @Override
+    public float getAttributeAsFloat(String attributeName, float valueIfNull) {
+        Event layer = (flattenedData == null) ? layerOf(attributeName) : this;
+
+        if (layer == this || layer == null) {
+            return super.getAttributeAsFloat(attributeName, valueIfNull);
+        }
+        return layer.getAttributeAsFloat(attributeName, valueIfNull);
+    }
+
+    @Override
+    public long getAttributeAsLong(String attributeName, long valueIfNull) {
+        Event layer = (flattenedData == null) ? layerOf(attributeName) : this;
+
+        if (layer == this || layer == null) {
+            return super.getAttributeAsLong(attributeName, valueIfNull);
+        }
+        return layer.getAttributeAsLong(attributeName, valueIfNull);
+    }
+
+    @Override
+    public int getAttributeAsInteger(String attributeName, int valueIfNull) {
+        Event layer = (flattenedData == null) ? layerOf(attributeName) : this;
+
+        if (layer == this || layer == null) {
+            return super.getAttributeAsInteger(attributeName, valueIfNull);
+        }
+        return layer.getAttributeAsInteger(attributeName, valueIfNull);
+    }
+
+    @Override
+    public boolean getAttributeAsBoolean(String attributeName, boolean valueIfNull) {
+        Event layer = (flattenedData == null) ? layerOf(attributeName) : this;
+
+        if (layer == this || layer == null) {
+            return super.getAttributeAsBoolean(attributeName, valueIfNull);
+        }
+        return layer.getAttributeAsBoolean(attributeName, valueIfNull);
+    }
+
+    /**
+     * Returns a read only {@link Map} view of this event. Single attribute lookups on the view go through the layers;
+     * anything that needs all the attributes flattens the layers into a map first.
+     *
+     * @return map view of event
+     */
+    @Override
+    public Map<String, Object> getData() {
+        if (data == null) {
+            data = new LayeredData(this);
+        }
+        return data;
+    }
+
+    Map<String, Object> flatten() {
+        Map<String, Object> flattened = flattenedData;
+
+        if (flattened == null) {
+            flattened = Maps.newHashMap();
+
+            if (attributeName != null) {
+                flattened.put(attributeName, attributeValue);
+            }
+            for (Event parent : parents) {
+                flattened.putAll(parent.getData());
+            }
+
+            flattenedData = flattened;
+        }
+
+        return flattened;
+    }
+
+    /**
+     * {@link Map} view of a {@link LayeredEvent}
+     */
+    static class LayeredData extends DataView {
+        private final LayeredEvent event;
+
+        LayeredData(LayeredEvent event) {
+            super(event);
+            this.event = event;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return (key instanceof String) && event.containsAttribute((String) key);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return Collections.unmodifiableMap(event.flatten()).entrySet();
+        }
+    }
+}
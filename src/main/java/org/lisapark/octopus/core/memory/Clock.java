@@ -0,0 +1,34 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory;
+
+/**
+ * A {@link Clock} tells time windows what time it is, which lets them be driven by something other than the system
+ * time, like the timestamps of replayed events.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ * @see MemoryProvider#createDoubleTimeWindow(long, java.util.concurrent.TimeUnit, int, Clock)
+ */
+public interface Clock {
+
+    /**
+     * Returns the current time in milliseconds.
+     *
+     * @return current time
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,63 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory;
+
+/**
+ * A {@link DoubleMemory} is a {@link Memory} of primitive doubles. Values are kept in the order they were added and
+ * can be read by index, from the oldest at 0 to the newest at {@code size() - 1}, or with a {@link DoubleVisitor};
+ * neither boxes or allocates. {@link #values()} is only there for compatibility and does allocate.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public interface DoubleMemory extends Memory<Double> {
+
+    void add(double value);
+
+    /**
+     * Returns the number of values in this memory.
+     *
+     * @return number of values
+     */
+    int size();
+
+    /**
+     * Returns the maximum number of values this memory keeps.
+     * Time windows return the maximumEntries they were created with, even though they usually hold fewer values.
+     *
+     * @return capacity
+     */
+    int capacity();
+
+    /**
+     * Returns the value at the specified index, where 0 is the oldest value.
+     *
+     * @param index of value
+     * @return value
+     */
+    double get(int index);
+
+    double getOldest();
+
+    double getNewest();
+
+    /**
+     * Calls the visitor for every value from the oldest to the newest.
+     *
+     * @param visitor to call
+     */
+    void visit(DoubleVisitor visitor);
+}
@@ -0,0 +1,70 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory;
+
+import org.lisapark.octopus.util.Pair;
+
+/**
+ * A {@link DoublePairMemory} is a {@link Memory} of pairs of primitive doubles, e.g. the two series of a regression.
+ * Pairs are kept in the order they were added and can be read by index, from the oldest at 0 to the newest at
+ * {@code size() - 1}, or with a {@link DoublePairVisitor}; neither boxes or allocates. {@link #values()} is only there
+ * for compatibility and does allocate.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public interface DoublePairMemory extends Memory<Pair<Double, Double>> {
+
+    void add(double first, double second);
+
+    /**
+     * Returns the number of pairs in this memory.
+     *
+     * @return number of pairs
+     */
+    int size();
+
+    /**
+     * Returns the maximum number of pairs this memory keeps.
+     * Time windows return the maximumEntries they were created with, even though they usually hold fewer pairs.
+     *
+     * @return capacity
+     */
+    int capacity();
+
+    /**
+     * Returns the first value of the pair at the specified index, where 0 is the oldest pair.
+     *
+     * @param index of pair
+     * @return first value
+     */
+    double getFirst(int index);
+
+    /**
+     * Returns the second value of the pair at the specified index, where 0 is the oldest pair.
+     *
+     * @param index of pair
+     * @return second value
+     */
+    double getSecond(int index);
+
+    /**
+     * Calls the visitor for every pair from the oldest to the newest.
+     *
+     * @param visitor to call
+     */
+    void visit(DoublePairVisitor visitor);
+}
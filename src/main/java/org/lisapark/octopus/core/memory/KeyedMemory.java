@@ -0,0 +1,61 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory;
+
+/**
+ * A {@link KeyedMemory} partitions a {@link Memory} by key, usually the value of an attribute, so a single processor
+ * can keep a window per stock symbol or per actor. Each key gets its own partition, created on first use by a
+ * {@link PartitionFactory}. The number of live keys is bounded; the least recently used keys are dropped first.
+ * <p/>
+ * Values cannot be added to the keyed memory itself, they are added to the partition returned by
+ * {@link #getMemoryForKey(Object)}. {@link #values()} returns the values of all partitions.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ * @see MemoryProvider#createKeyedMemory(int, long, java.util.concurrent.TimeUnit, Clock, KeyedMemory.PartitionFactory)
+ */
+public interface KeyedMemory<T, M extends Memory<T>> extends Memory<T> {
+
+    /**
+     * Returns the partition for the specified key, creating it if this is the first time the key is used or its
+     * partition was dropped.
+     *
+     * @param key of the partition, may be null
+     * @return partition
+     */
+    M getMemoryForKey(Object key);
+
+    /**
+     * Returns the number of keys that currently have a partition.
+     *
+     * @return number of keys
+     */
+    int getNumberOfKeys();
+
+    /**
+     * Creates the partition of a key.
+     */
+    public static interface PartitionFactory<M> {
+
+        /**
+         * Creates a new partition using the specified provider.
+         *
+         * @param memoryProvider to create the partition with
+         * @return new partition
+         */
+        M createPartition(MemoryProvider memoryProvider);
+    }
+}
@@ -16,6 +16,9 @@
  */
 package org.lisapark.octopus.core.memory;
 
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
 /**
  * A {@link MemoryProvider} is used by {@link org.lisapark.octopus.core.processor.Processor}s that need temporary
  *
@@ -23,5 +26,71 @@ package org.lisapark.octopus.core.memory;
  */
 public interface MemoryProvider {
 
+    /**
+     * Returns the provider to create the memory of the processor with the specified id. Providers that keep the
+     * memory of a processor across runs use the id to find it again, the others simply return themselves.
+     *
+     * @param processorId id of the processor the memory is for
+     * @return provider for the processor's memory
+     */
+    MemoryProvider forProcessor(UUID processorId);
+
     <T> Memory<T> createCircularBuffer(int bufferSize);
+
+    /**
+     * Creates a circular buffer of primitive doubles that keeps the last bufferSize values.
+     *
+     * @param bufferSize maximum number of values
+     * @return new buffer
+     */
+    DoubleMemory createDoubleCircularBuffer(int bufferSize);
+
+    /**
+     * Creates a circular buffer of pairs of primitive doubles that keeps the last bufferSize pairs.
+     *
+     * @param bufferSize maximum number of pairs
+     * @return new buffer
+     */
+    DoublePairMemory createDoublePairCircularBuffer(int bufferSize);
+
+    /**
+     * Creates a time window of primitive doubles that keeps the values added during the last duration, according to
+     * the specified clock, but never more than the last maximumEntries values.
+     *
+     * @param duration       how long values are kept
+     * @param unit           of the duration
+     * @param maximumEntries maximum number of values
+     * @param clock          used to timestamp and expire values
+     * @return new time window
+     */
+    DoubleMemory createDoubleTimeWindow(long duration, TimeUnit unit, int maximumEntries, Clock clock);
+
+    /**
+     * Creates a time window of pairs of primitive doubles that keeps the pairs added during the last duration,
+     * according to the specified clock, but never more than the last maximumEntries pairs.
+     *
+     * @param duration       how long pairs are kept
+     * @param unit           of the duration
+     * @param maximumEntries maximum number of pairs
+     * @param clock          used to timestamp and expire pairs
+     * @return new time window
+     */
+    DoublePairMemory createDoublePairTimeWindow(long duration, TimeUnit unit, int maximumEntries, Clock clock);
+
+    /**
+     * Creates a memory that is partitioned by key with at most maximumKeys partitions. The least recently used
+     * partition is dropped when there are too many and partitions that have not been used for the idle timeout are
+     * dropped as well.
+     *
+     * @param maximumKeys      maximum number of partitions
+     * @param idleTimeout      time after which an unused partition is dropped, 0 to only drop partitions when there
+     *                         are too many
+     * @param unit             of the idle timeout
+     * @param clock            used to tell how long a partition has been idle
+     * @param partitionFactory creates the partition of a new key
+     * @return new keyed memory
+     */
+    <T, M extends Memory<T>> KeyedMemory<T, M> createKeyedMemory(
+            int maximumKeys, long idleTimeout, TimeUnit unit, Clock clock,
+            KeyedMemory.PartitionFactory<M> partitionFactory);
 }
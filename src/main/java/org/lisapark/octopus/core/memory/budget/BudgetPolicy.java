@@ -0,0 +1,35 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.budget;
+
+/**
+ * What a {@link BudgetedMemoryProvider} does with memory that does not fit in the budget.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public enum BudgetPolicy {
+    /**
+     * The memory is not created and compiling the model fails.
+     */
+    REJECT,
+
+    /**
+     * The memory is made as large as what is left of the budget allows, e.g. a window of 1,000,000 values becomes a
+     * window of the last 10,000. Only if not even that fits is it rejected.
+     */
+    DEGRADE
+}
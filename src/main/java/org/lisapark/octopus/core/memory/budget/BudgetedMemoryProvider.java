@@ -0,0 +1,348 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.budget;
+
+import com.google.common.collect.Maps;
+import org.lisapark.octopus.core.memory.Clock;
+import org.lisapark.octopus.core.memory.DoubleMemory;
+import org.lisapark.octopus.core.memory.DoublePairMemory;
+import org.lisapark.octopus.core.memory.KeyedMemory;
+import org.lisapark.octopus.core.memory.Memory;
+import org.lisapark.octopus.core.memory.MemoryProvider;
+import org.lisapark.octopus.core.memory.heap.HeapMemoryProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@link MemoryProvider} that keeps track of how many bytes the memory of each processor takes and that holds them
+ * to a budget. The memory itself is created by another provider. Memory that does not fit in what is left of the
+ * budget is rejected with a {@link MemoryBudgetExceededException}, or made smaller, depending on the
+ * {@link BudgetPolicy}. Since memory is created when a model is compiled, a model that is too large fails to compile
+ * instead of running the JVM out of memory.
+ * <p/>
+ * Every model should be compiled with its own provider, which makes the budget a budget per model. Compiling a
+ * processor again replaces what it was charged before. The sizes are estimates of the values held. Time windows are
+ * charged for their maximum number of entries, since they grow with the rate of events, and degrading lowers it
+ * just like it lowers the size of a circular buffer. Keyed memories are charged for the maximum number of keys.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class BudgetedMemoryProvider implements MemoryProvider {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BudgetedMemoryProvider.class);
+
+    static final int DOUBLE_BYTES = 8;
+    static final int DOUBLE_PAIR_BYTES = 16;
+
+    /**
+     * A reference to a boxed value in an object buffer
+     */
+    static final int OBJECT_BYTES = 24;
+
+    static final int TIMESTAMP_BYTES = 8;
+
+    private final MemoryProvider delegate;
+    private final long budget;
+    private final BudgetPolicy policy;
+
+    /**
+     * Bytes charged to each processor, memory created outside of {@link #forProcessor(UUID)} is charged to null
+     */
+    private final Map<UUID, Long> allocatedBytesByProcessorId = Maps.newHashMap();
+    private long allocatedBytes;
+
+    public BudgetedMemoryProvider(MemoryProvider delegate, long budget, BudgetPolicy policy) {
+        checkArgument(delegate != null, "delegate cannot be null");
+        checkArgument(budget > 0, "budget has to be greater than zero");
+        checkArgument(policy != null, "policy cannot be null");
+        this.delegate = delegate;
+        this.budget = budget;
+        this.policy = policy;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public BudgetPolicy getPolicy() {
+        return policy;
+    }
+
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public synchronized long getRemainingBytes() {
+        return budget - allocatedBytes;
+    }
+
+    /**
+     * Returns the number of bytes charged to each processor. Memory that was not created for a processor is under
+     * the null key.
+     *
+     * @return copy of the bytes by processor id
+     */
+    public synchronized Map<UUID, Long> getAllocatedBytesByProcessorId() {
+        return Collections.unmodifiableMap(Maps.newHashMap(allocatedBytesByProcessorId));
+    }
+
+    /**
+     * Returns what the processor with the specified id was charged for its memory, or 0 if nothing.
+     *
+     * @param processorId of processor
+     * @return number of bytes
+     */
+    public synchronized long getAllocatedBytes(UUID processorId) {
+        Long bytes = allocatedBytesByProcessorId.get(processorId);
+
+        return (bytes != null) ? bytes : 0;
+    }
+
+    /**
+     * Gives back to the budget what the processor with the specified id was charged, for when the processor is no
+     * longer running.
+     *
+     * @param processorId of processor
+     */
+    public synchronized void release(UUID processorId) {
+        Long bytes = allocatedBytesByProcessorId.remove(processorId);
+
+        if (bytes != null) {
+            allocatedBytes -= bytes;
+        }
+    }
+
+    /**
+     * Charges the processor with the specified id the specified number of bytes instead of what it is charged now,
+     * for when the memory it was charged for before is kept after all. The bytes are not checked against the budget
+     * since the memory already exists.
+     *
+     * @param processorId of processor
+     * @param bytes       the memory that is kept was charged
+     */
+    public synchronized void recharge(UUID processorId, long bytes) {
+        checkArgument(bytes >= 0, "bytes cannot be negative");
+        release(processorId);
+
+        if (bytes > 0) {
+            add(processorId, bytes);
+        }
+    }
+
+    /**
+     * Returns a provider that charges the memory it creates to the processor with the specified id. Anything the
+     * processor was charged before is released first, since its memory is being created again.
+     */
+    @Override
+    public MemoryProvider forProcessor(UUID processorId) {
+        checkArgument(processorId != null, "processorId cannot be null");
+        release(processorId);
+
+        return new ProcessorMemoryProvider(processorId, delegate.forProcessor(processorId));
+    }
+
+    @Override
+    public <T> Memory<T> createCircularBuffer(int bufferSize) {
+        return createCircularBuffer(null, delegate, bufferSize);
+    }
+
+    @Override
+    public DoubleMemory createDoubleCircularBuffer(int bufferSize) {
+        return createDoubleCircularBuffer(null, delegate, bufferSize);
+    }
+
+    @Override
+    public DoublePairMemory createDoublePairCircularBuffer(int bufferSize) {
+        return createDoublePairCircularBuffer(null, delegate, bufferSize);
+    }
+
+    @Override
+    public DoubleMemory createDoubleTimeWindow(long duration, TimeUnit unit, int maximumEntries, Clock clock) {
+        return createDoubleTimeWindow(null, delegate, duration, unit, maximumEntries, clock);
+    }
+
+    @Override
+    public DoublePairMemory createDoublePairTimeWindow(long duration, TimeUnit unit, int maximumEntries,
+                                                       Clock clock) {
+        return createDoublePairTimeWindow(null, delegate, duration, unit, maximumEntries, clock);
+    }
+
+    @Override
+    public <T, M extends Memory<T>> KeyedMemory<T, M> createKeyedMemory(
+            int maximumKeys, long idleTimeout, TimeUnit unit, Clock clock,
+            KeyedMemory.PartitionFactory<M> partitionFactory) {
+        return createKeyedMemory(null, delegate, maximumKeys, idleTimeout, unit, clock, partitionFactory);
+    }
+
+    private <T> Memory<T> createCircularBuffer(UUID processorId, MemoryProvider provider, int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+
+        return provider.createCircularBuffer(charge(processorId, bufferSize, OBJECT_BYTES));
+    }
+
+    private DoubleMemory createDoubleCircularBuffer(UUID processorId, MemoryProvider provider, int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+
+        return provider.createDoubleCircularBuffer(charge(processorId, bufferSize, DOUBLE_BYTES));
+    }
+
+    private DoublePairMemory createDoublePairCircularBuffer(UUID processorId, MemoryProvider provider, int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+
+        return provider.createDoublePairCircularBuffer(charge(processorId, bufferSize, DOUBLE_PAIR_BYTES));
+    }
+
+    private DoubleMemory createDoubleTimeWindow(UUID processorId, MemoryProvider provider, long duration,
+                                                TimeUnit unit, int maximumEntries, Clock clock) {
+        checkArgument(maximumEntries > 0, "maximumEntries has to be greater than zero");
+
+        return provider.createDoubleTimeWindow(duration, unit,
+                charge(processorId, maximumEntries, TIMESTAMP_BYTES + DOUBLE_BYTES), clock);
+    }
+
+    private DoublePairMemory createDoublePairTimeWindow(UUID processorId, MemoryProvider provider, long duration,
+                                                        TimeUnit unit, int maximumEntries, Clock clock) {
+        checkArgument(maximumEntries > 0, "maximumEntries has to be greater than zero");
+
+        return provider.createDoublePairTimeWindow(duration, unit,
+                charge(processorId, maximumEntries, TIMESTAMP_BYTES + DOUBLE_PAIR_BYTES), clock);
+    }
+
+    /**
+     * Keyed memories are charged for the maximum number of keys times the size of a partition, which is found by
+     * creating one partition on the heap. Degrading lowers the maximum number of keys.
+     */
+    private <T, M extends Memory<T>> KeyedMemory<T, M> createKeyedMemory(
+            UUID processorId, MemoryProvider provider, int maximumKeys, long idleTimeout, TimeUnit unit, Clock clock,
+            KeyedMemory.PartitionFactory<M> partitionFactory) {
+        checkArgument(maximumKeys > 0, "maximumKeys has to be greater than zero");
+        checkArgument(partitionFactory != null, "partitionFactory cannot be null");
+
+        BudgetedMemoryProvider sizingProvider = new BudgetedMemoryProvider(
+                new HeapMemoryProvider(), Long.MAX_VALUE, BudgetPolicy.REJECT
+        );
+        partitionFactory.createPartition(sizingProvider);
+        long partitionBytes = Math.max(1, sizingProvider.getAllocatedBytes());
+
+        int keys = charge(processorId, maximumKeys, partitionBytes);
+
+        // the partitions are created at runtime and have already been paid for, so they do not go through the budget
+        return provider.createKeyedMemory(keys, idleTimeout, unit, clock, partitionFactory);
+    }
+
+    /**
+     * Charges the processor for the specified number of entries, or fewer if degrading, and returns the number of
+     * entries that were charged.
+     */
+    private synchronized int charge(UUID processorId, int entries, long bytesPerEntry) {
+        long bytes = entries * bytesPerEntry;
+        long remaining = budget - allocatedBytes;
+
+        if (bytes > remaining) {
+            int entriesThatFit = (int) Math.min(entries, remaining / bytesPerEntry);
+
+            if (policy == BudgetPolicy.REJECT || entriesThatFit < 1) {
+                throw exceeded(processorId, bytes, remaining);
+            }
+
+            LOG.warn(String.format("Memory of processor %s reduced from %d to %d entries to fit the budget of %d bytes",
+                    processorId, entries, entriesThatFit, budget));
+
+            entries = entriesThatFit;
+            bytes = entries * bytesPerEntry;
+        }
+
+        add(processorId, bytes);
+
+        return entries;
+    }
+
+    private void add(UUID processorId, long bytes) {
+        Long charged = allocatedBytesByProcessorId.get(processorId);
+        allocatedBytesByProcessorId.put(processorId, (charged != null) ? charged + bytes : bytes);
+        allocatedBytes += bytes;
+    }
+
+    private MemoryBudgetExceededException exceeded(UUID processorId, long bytes, long remaining) {
+        return new MemoryBudgetExceededException(String.format(
+                "Memory of processor %s needs %d bytes but only %d bytes of the budget of %d bytes are left",
+                processorId, bytes, remaining, budget
+        ));
+    }
+
+    /**
+     * Creates the memory of a single processor and charges it to that processor.
+     */
+    private class ProcessorMemoryProvider implements MemoryProvider {
+        private final UUID processorId;
+        private final MemoryProvider processorDelegate;
+
+        ProcessorMemoryProvider(UUID processorId, MemoryProvider processorDelegate) {
+            this.processorId = processorId;
+            this.processorDelegate = processorDelegate;
+        }
+
+        @Override
+        public MemoryProvider forProcessor(UUID processorId) {
+            return BudgetedMemoryProvider.this.forProcessor(processorId);
+        }
+
+        @Override
+        public <T> Memory<T> createCircularBuffer(int bufferSize) {
+            return BudgetedMemoryProvider.this.createCircularBuffer(processorId, processorDelegate, bufferSize);
+        }
+
+        @Override
+        public DoubleMemory createDoubleCircularBuffer(int bufferSize) {
+            return BudgetedMemoryProvider.this.createDoubleCircularBuffer(processorId, processorDelegate, bufferSize);
+        }
+
+        @Override
+        public DoublePairMemory createDoublePairCircularBuffer(int bufferSize) {
+            return BudgetedMemoryProvider.this.createDoublePairCircularBuffer(processorId, processorDelegate,
+                    bufferSize);
+        }
+
+        @Override
+        public DoubleMemory createDoubleTimeWindow(long duration, TimeUnit unit, int maximumEntries, Clock clock) {
+            return BudgetedMemoryProvider.this.createDoubleTimeWindow(processorId, processorDelegate, duration, unit,
+                    maximumEntries, clock);
+        }
+
+        @Override
+        public DoublePairMemory createDoublePairTimeWindow(long duration, TimeUnit unit, int maximumEntries,
+                                                           Clock clock) {
+            return BudgetedMemoryProvider.this.createDoublePairTimeWindow(processorId, processorDelegate, duration,
+                    unit, maximumEntries, clock);
+        }
+
+        @Override
+        public <T, M extends Memory<T>> KeyedMemory<T, M> createKeyedMemory(
+                int maximumKeys, long idleTimeout, TimeUnit unit, Clock clock,
+                KeyedMemory.PartitionFactory<M> partitionFactory) {
+            return BudgetedMemoryProvider.this.createKeyedMemory(processorId, processorDelegate, maximumKeys,
+                    idleTimeout, unit, clock, partitionFactory);
+        }
+    }
+}
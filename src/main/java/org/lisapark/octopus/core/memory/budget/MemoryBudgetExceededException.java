@@ -0,0 +1,34 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.budget;
+
+/**
+ * Thrown by a {@link BudgetedMemoryProvider} when the memory of a processor does not fit in what is left of the
+ * budget. The compilers report it as a compile error of the model.
+ * <p/>
+ * This is unchecked since it is thrown through
+ * {@link org.lisapark.octopus.core.processor.Processor#createMemoryForProcessor}.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class MemoryBudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public MemoryBudgetExceededException(String message) {
+        super(message);
+    }
+}
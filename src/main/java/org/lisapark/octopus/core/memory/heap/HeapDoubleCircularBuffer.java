@@ -0,0 +1,124 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.heap;
+
+import com.google.common.collect.Lists;
+import org.lisapark.octopus.core.memory.DoubleMemory;
+import org.lisapark.octopus.core.memory.DoubleVisitor;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * {@link DoubleMemory} backed by a double array.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class HeapDoubleCircularBuffer implements DoubleMemory {
+
+    private final double[] buffer;
+
+    /**
+     * Index the next value is written to, which is also the index of the oldest value once the buffer is full
+     */
+    private int currentIndex;
+    private int size;
+
+    public HeapDoubleCircularBuffer(int n) {
+        buffer = new double[n];
+    }
+
+    @Override
+    public void add(double value) {
+        buffer[currentIndex] = value;
+
+        currentIndex = (currentIndex + 1) % buffer.length;
+        if (size < buffer.length) {
+            size++;
+        }
+    }
+
+    @Override
+    public void add(Double value) {
+        if (value != null) {
+            add(value.doubleValue());
+        }
+    }
+
+    @Override
+    public boolean remove(Double value) {
+        throw new UnsupportedOperationException("Remove not supported");
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return buffer.length;
+    }
+
+    @Override
+    public double get(int index) {
+        checkElementIndex(index, size);
+
+        return buffer[(currentIndex - size + index + buffer.length) % buffer.length];
+    }
+
+    @Override
+    public double getOldest() {
+        if (size == 0) {
+            throw new NoSuchElementException("Memory is empty");
+        }
+
+        return get(0);
+    }
+
+    @Override
+    public double getNewest() {
+        if (size == 0) {
+            throw new NoSuchElementException("Memory is empty");
+        }
+
+        return get(size - 1);
+    }
+
+    @Override
+    public void visit(DoubleVisitor visitor) {
+        int index = (currentIndex - size + buffer.length) % buffer.length;
+
+        for (int i = 0; i < size; ++i) {
+            visitor.visit(buffer[index]);
+            index = (index + 1) % buffer.length;
+        }
+    }
+
+    @Override
+    public Collection<Double> values() {
+        Collection<Double> values = Lists.newArrayListWithCapacity(size);
+
+        for (int i = 0; i < size; ++i) {
+            values.add(get(i));
+        }
+
+        return values;
+    }
+}
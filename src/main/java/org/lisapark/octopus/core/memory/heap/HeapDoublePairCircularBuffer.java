@@ -0,0 +1,121 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.heap;
+
+import com.google.common.collect.Lists;
+import org.lisapark.octopus.core.memory.DoublePairMemory;
+import org.lisapark.octopus.core.memory.DoublePairVisitor;
+import org.lisapark.octopus.util.Pair;
+
+import java.util.Collection;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * {@link DoublePairMemory} backed by two double arrays.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class HeapDoublePairCircularBuffer implements DoublePairMemory {
+
+    private final double[] firstBuffer;
+    private final double[] secondBuffer;
+
+    /**
+     * Index the next pair is written to, which is also the index of the oldest pair once the buffer is full
+     */
+    private int currentIndex;
+    private int size;
+
+    public HeapDoublePairCircularBuffer(int n) {
+        firstBuffer = new double[n];
+        secondBuffer = new double[n];
+    }
+
+    @Override
+    public void add(double first, double second) {
+        firstBuffer[currentIndex] = first;
+        secondBuffer[currentIndex] = second;
+
+        currentIndex = (currentIndex + 1) % firstBuffer.length;
+        if (size < firstBuffer.length) {
+            size++;
+        }
+    }
+
+    @Override
+    public void add(Pair<Double, Double> value) {
+        if (value != null && value.getFirst() != null && value.getSecond() != null) {
+            add(value.getFirst(), value.getSecond());
+        }
+    }
+
+    @Override
+    public boolean remove(Pair<Double, Double> value) {
+        throw new UnsupportedOperationException("Remove not supported");
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return firstBuffer.length;
+    }
+
+    @Override
+    public double getFirst(int index) {
+        checkElementIndex(index, size);
+
+        return firstBuffer[bufferIndexOf(index)];
+    }
+
+    @Override
+    public double getSecond(int index) {
+        checkElementIndex(index, size);
+
+        return secondBuffer[bufferIndexOf(index)];
+    }
+
+    private int bufferIndexOf(int index) {
+        return (currentIndex - size + index + firstBuffer.length) % firstBuffer.length;
+    }
+
+    @Override
+    public void visit(DoublePairVisitor visitor) {
+        int index = bufferIndexOf(0);
+
+        for (int i = 0; i < size; ++i) {
+            visitor.visit(firstBuffer[index], secondBuffer[index]);
+            index = (index + 1) % firstBuffer.length;
+        }
+    }
+
+    @Override
+    public Collection<Pair<Double, Double>> values() {
+        Collection<Pair<Double, Double>> values = Lists.newArrayListWithCapacity(size);
+
+        for (int i = 0; i < size; ++i) {
+            int index = bufferIndexOf(i);
+            values.add(new Pair<Double, Double>(firstBuffer[index], secondBuffer[index]));
+        }
+
+        return values;
+    }
+}
@@ -16,8 +16,16 @@
  */
 package org.lisapark.octopus.core.memory.heap;
 
+import org.lisapark.octopus.core.memory.Clock;
+import org.lisapark.octopus.core.memory.DoubleMemory;
+import org.lisapark.octopus.core.memory.DoublePairMemory;
+import org.lisapark.octopus.core.memory.KeyedMemory;
 import org.lisapark.octopus.core.memory.Memory;
 import org.lisapark.octopus.core.memory.MemoryProvider;
+import org.lisapark.octopus.core.memory.keyed.LruKeyedMemory;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -25,10 +33,47 @@ import static com.google.common.base.Preconditions.checkArgument;
  * @author dave sinclair(david.sinclair@lisa-park.com)
  */
 public class HeapMemoryProvider implements MemoryProvider {
+    @Override
+    public MemoryProvider forProcessor(UUID processorId) {
+        return this;
+    }
+
     @Override
     public <T> Memory<T> createCircularBuffer(int bufferSize) {
         checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
 
         return new HeapCircularBuffer<T>(bufferSize);
     }
+
+    @Override
+    public DoubleMemory createDoubleCircularBuffer(int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+
+        return new HeapDoubleCircularBuffer(bufferSize);
+    }
+
+    @Override
+    public DoublePairMemory createDoublePairCircularBuffer(int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+
+        return new HeapDoublePairCircularBuffer(bufferSize);
+    }
+
+    @Override
+    public DoubleMemory createDoubleTimeWindow(long duration, TimeUnit unit, int maximumEntries, Clock clock) {
+        return new HeapDoubleTimeWindow(duration, unit, maximumEntries, clock);
+    }
+
+    @Override
+    public DoublePairMemory createDoublePairTimeWindow(long duration, TimeUnit unit, int maximumEntries,
+                                                       Clock clock) {
+        return new HeapDoublePairTimeWindow(duration, unit, maximumEntries, clock);
+    }
+
+    @Override
+    public <T, M extends Memory<T>> KeyedMemory<T, M> createKeyedMemory(
+            int maximumKeys, long idleTimeout, TimeUnit unit, Clock clock,
+            KeyedMemory.PartitionFactory<M> partitionFactory) {
+        return new LruKeyedMemory<T, M>(maximumKeys, idleTimeout, unit, clock, this, partitionFactory);
+    }
 }
@@ -0,0 +1,158 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.heap;
+
+import org.lisapark.octopus.core.memory.Clock;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Base class of the time windows on the heap. The entries, each made up of width doubles, are kept in a growable
+ * circular deque together with the time they were added. Since the timestamps only ever go up, the expired entries
+ * are always at the head of the deque and expiring them costs O(1) amortized per entry, no matter how fast entries
+ * are added. The deque never grows beyond the maximum number of entries; once it is full, adding an entry drops the
+ * oldest one even if it has not expired yet.
+ * <p/>
+ * Entries expire when an entry is added or the size is read, so the indexes stay valid between a call to
+ * {@link #size()} and the calls that read the entries.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+abstract class HeapTimeWindow {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long durationMillis;
+    private final int maximumEntries;
+    private final Clock clock;
+    private final int width;
+
+    private long[] timestamps;
+    private double[] values;
+
+    /**
+     * Index of the oldest entry
+     */
+    private int head;
+    private int size;
+
+    /**
+     * Last timestamp handed out, a clock going backwards is treated as standing still
+     */
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    HeapTimeWindow(long duration, TimeUnit unit, int maximumEntries, Clock clock, int width) {
+        checkArgument(duration > 0, "duration has to be greater than zero");
+        checkArgument(unit != null, "unit cannot be null");
+        checkArgument(maximumEntries > 0, "maximumEntries has to be greater than zero");
+        checkArgument(clock != null, "clock cannot be null");
+        this.durationMillis = unit.toMillis(duration);
+        this.maximumEntries = maximumEntries;
+        this.clock = clock;
+        this.width = width;
+
+        int initialCapacity = Math.min(INITIAL_CAPACITY, maximumEntries);
+        this.timestamps = new long[initialCapacity];
+        this.values = new double[initialCapacity * width];
+    }
+
+    /**
+     * Makes room for a new entry that is stamped with the current time and returns its slot. The values of the
+     * entry are written with {@link #set(int, int, double)}.
+     */
+    final int nextSlot() {
+        long now = Math.max(clock.currentTimeMillis(), lastTimestamp);
+        lastTimestamp = now;
+
+        expire(now);
+
+        if (size == maximumEntries) {
+            head = (head + 1) % timestamps.length;
+            size--;
+        } else if (size == timestamps.length) {
+            grow();
+        }
+
+        int slot = (head + size) % timestamps.length;
+        timestamps[slot] = now;
+        size++;
+
+        return slot;
+    }
+
+    final void set(int slot, int component, double value) {
+        values[slot * width + component] = value;
+    }
+
+    /**
+     * Returns the specified component of the entry at the specified index where 0 is the oldest entry.
+     */
+    final double get(int index, int component) {
+        return values[((head + index) % timestamps.length) * width + component];
+    }
+
+    private void expire(long now) {
+        long cutoff = now - durationMillis;
+
+        while (size > 0 && timestamps[head] <= cutoff) {
+            head = (head + 1) % timestamps.length;
+            size--;
+        }
+    }
+
+    private void grow() {
+        int capacity = timestamps.length;
+        int newCapacity = (int) Math.min(capacity * 2L, maximumEntries);
+        long[] newTimestamps = new long[newCapacity];
+        double[] newValues = new double[newCapacity * width];
+
+        for (int i = 0; i < size; ++i) {
+            int slot = (head + i) % capacity;
+            newTimestamps[i] = timestamps[slot];
+            System.arraycopy(values, slot * width, newValues, i * width, width);
+        }
+
+        timestamps = newTimestamps;
+        values = newValues;
+        head = 0;
+    }
+
+    /**
+     * Returns the number of entries without expiring any, which is what the indexes are checked against.
+     */
+    final int entries() {
+        return size;
+    }
+
+    /**
+     * Returns the number of entries added during the last duration.
+     */
+    public final int size() {
+        expire(Math.max(clock.currentTimeMillis(), lastTimestamp));
+
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     */
+    public final int capacity() {
+        return maximumEntries;
+    }
+}
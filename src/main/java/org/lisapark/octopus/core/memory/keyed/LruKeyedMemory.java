@@ -0,0 +1,216 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.keyed;
+
+import com.google.common.collect.Lists;
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.googlecode.concurrentlinkedhashmap.EvictionListener;
+import org.lisapark.octopus.core.memory.Clock;
+import org.lisapark.octopus.core.memory.KeyedMemory;
+import org.lisapark.octopus.core.memory.Memory;
+import org.lisapark.octopus.core.memory.MemoryProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@link KeyedMemory} that keeps its partitions in a {@link ConcurrentLinkedHashMap}. When there are more than the
+ * maximum number of keys the least recently used one is evicted. Partitions that have not been used for the idle
+ * timeout are removed as well; the least recently used partitions are checked a few at a time every quarter of the
+ * timeout, so looking up a partition stays O(1) amortized no matter how many keys there are.
+ * <p/>
+ * Partitions that are {@link Closeable}, like off heap memories, are closed when they are dropped and when this
+ * memory is closed.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class LruKeyedMemory<T, M extends Memory<T>> implements KeyedMemory<T, M>, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LruKeyedMemory.class);
+
+    /**
+     * Stands in for the null key since the map does not allow null keys
+     */
+    private static final Object NULL_KEY = new Object();
+
+    /**
+     * Number of least recently used partitions that are checked at a time when sweeping idle partitions
+     */
+    private static final int SWEEP_BATCH_SIZE = 64;
+
+    private final ConcurrentLinkedHashMap<Object, Partition<M>> partitionsByKey;
+    private final long idleTimeoutMillis;
+    private final Clock clock;
+    private final MemoryProvider partitionProvider;
+    private final PartitionFactory<M> partitionFactory;
+
+    private volatile long nextSweepTime;
+
+    /**
+     * @param maximumKeys       maximum number of partitions that are kept
+     * @param idleTimeout       time after which an unused partition is removed, 0 to keep partitions until evicted
+     * @param unit              of the idle timeout
+     * @param clock             used to tell how long a partition has been idle
+     * @param partitionProvider provider the partitions are created with
+     * @param partitionFactory  creates the partition of a new key
+     */
+    public LruKeyedMemory(int maximumKeys, long idleTimeout, TimeUnit unit, Clock clock,
+                          MemoryProvider partitionProvider, PartitionFactory<M> partitionFactory) {
+        checkArgument(maximumKeys > 0, "maximumKeys has to be greater than zero");
+        checkArgument(idleTimeout >= 0, "idleTimeout cannot be negative");
+        checkArgument(unit != null, "unit cannot be null");
+        checkArgument(clock != null, "clock cannot be null");
+        checkArgument(partitionProvider != null, "partitionProvider cannot be null");
+        checkArgument(partitionFactory != null, "partitionFactory cannot be null");
+        this.idleTimeoutMillis = unit.toMillis(idleTimeout);
+        this.clock = clock;
+        this.partitionProvider = partitionProvider;
+        this.partitionFactory = partitionFactory;
+
+        this.partitionsByKey = new ConcurrentLinkedHashMap.Builder<Object, Partition<M>>()
+                .maximumWeightedCapacity(maximumKeys)
+                .listener(new EvictionListener<Object, Partition<M>>() {
+                    @Override
+                    public void onEviction(Object key, Partition<M> partition) {
+                        closePartition(partition);
+                    }
+                })
+                .build();
+        this.nextSweepTime = clock.currentTimeMillis() + idleTimeoutMillis;
+    }
+
+    @Override
+    public M getMemoryForKey(Object key) {
+        Object mapKey = (key != null) ? key : NULL_KEY;
+        long now = clock.currentTimeMillis();
+
+        Partition<M> partition = partitionsByKey.get(mapKey);
+        if (partition == null) {
+            Partition<M> newPartition = new Partition<M>(partitionFactory.createPartition(partitionProvider));
+            partition = partitionsByKey.putIfAbsent(mapKey, newPartition);
+
+            if (partition == null) {
+                partition = newPartition;
+            } else {
+                closePartition(newPartition);
+            }
+        }
+        partition.lastAccessTime = now;
+
+        if (idleTimeoutMillis > 0 && now >= nextSweepTime) {
+            nextSweepTime = now + Math.max(1, idleTimeoutMillis / 4);
+            removeIdlePartitions(now);
+        }
+
+        return partition.memory;
+    }
+
+    /**
+     * Removes the partitions that have been idle for longer than the timeout, starting with the least recently used
+     * ones and stopping at the first batch that has a partition that is still in use.
+     */
+    private void removeIdlePartitions(long now) {
+        long cutoff = now - idleTimeoutMillis;
+        boolean allIdle = true;
+
+        while (allIdle && !partitionsByKey.isEmpty()) {
+            Map<Object, Partition<M>> leastRecentlyUsed = partitionsByKey.ascendingMapWithLimit(SWEEP_BATCH_SIZE);
+
+            for (Map.Entry<Object, Partition<M>> entry : leastRecentlyUsed.entrySet()) {
+                Partition<M> partition = entry.getValue();
+
+                if (partition.lastAccessTime <= cutoff) {
+                    if (partitionsByKey.remove(entry.getKey(), partition)) {
+                        closePartition(partition);
+                    }
+                } else {
+                    allIdle = false;
+                }
+            }
+
+            if (leastRecentlyUsed.size() < SWEEP_BATCH_SIZE) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public int getNumberOfKeys() {
+        return partitionsByKey.size();
+    }
+
+    @Override
+    public void add(T value) {
+        throw new UnsupportedOperationException("Values have to be added to the memory of a key");
+    }
+
+    @Override
+    public boolean remove(T value) {
+        throw new UnsupportedOperationException("Remove not supported");
+    }
+
+    @Override
+    public Collection<T> values() {
+        Collection<T> values = Lists.newArrayList();
+
+        for (Partition<M> partition : partitionsByKey.values()) {
+            values.addAll(partition.memory.values());
+        }
+
+        return values;
+    }
+
+    /**
+     * Removes all the partitions, closing the ones that are {@link Closeable}.
+     */
+    @Override
+    public void close() {
+        for (Object key : partitionsByKey.keySet()) {
+            Partition<M> partition = partitionsByKey.remove(key);
+
+            if (partition != null) {
+                closePartition(partition);
+            }
+        }
+    }
+
+    private static void closePartition(Partition<?> partition) {
+        if (partition.memory instanceof Closeable) {
+            try {
+                ((Closeable) partition.memory).close();
+            } catch (IOException e) {
+                LOG.warn("Problem closing memory partition", e);
+            }
+        }
+    }
+
+    private static class Partition<M> {
+        private final M memory;
+        private volatile long lastAccessTime;
+
+        Partition(M memory) {
+            this.memory = memory;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.mapped;
+
+import org.lisapark.octopus.core.memory.offheap.DirectBuffers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Base class of the circular buffers that live in a memory mapped file. Every entry of the buffer is made up of
+ * width doubles. The file starts with a header that holds the position of the buffer, so the buffer carries on where
+ * it left off when the file is mapped again.
+ * <p/>
+ * If the capacity changed since the file was written the newest entries that still fit are kept. A file that is not
+ * a buffer of the same width is overwritten.
+ * <p/>
+ * A buffer can be created on a file that another buffer of this process still maps, for when a running processor gets
+ * a new window. It waits for that buffer to be closed and then maps the file with the entries it left.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+abstract class MappedCircularBuffer implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedCircularBuffer.class);
+
+    private static final int MAGIC = 0x4F435450;
+    private static final int VERSION = 1;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int WIDTH_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int CURRENT_INDEX_OFFSET = 16;
+    private static final int SIZE_OFFSET = 20;
+    private static final int HEADER_SIZE = 24;
+
+    private final File file;
+    private final int width;
+    private final int capacity;
+
+    /**
+     * Index the next entry is written to, which is also the index of the oldest entry once the buffer is full
+     */
+    private int currentIndex;
+    private int size;
+
+    private RandomAccessFile randomAccessFile;
+    private FileLock lock;
+    private MappedByteBuffer mappedBuffer;
+    private DoubleBuffer data;
+
+    /**
+     * Buffer this buffer is waiting for to close the file, null if this buffer does not wait for one
+     */
+    private MappedCircularBuffer predecessor;
+
+    /**
+     * Buffer that maps the file once this buffer is closed, null if there is none
+     */
+    private MappedCircularBuffer successor;
+    private boolean closed;
+
+    MappedCircularBuffer(File file, int width, int capacity) {
+        this(file, width, capacity, null);
+    }
+
+    /**
+     * @param predecessor buffer that maps the file until it is closed, or null if the file can be mapped right away
+     */
+    MappedCircularBuffer(File file, int width, int capacity, MappedCircularBuffer predecessor) {
+        checkArgument(file != null, "file cannot be null");
+        checkArgument(width > 0, "width has to be greater than zero");
+        checkArgument(capacity > 0, "capacity has to be greater than zero");
+        checkArgument(capacity <= (Integer.MAX_VALUE - HEADER_SIZE) / (8 * width), "capacity is too large");
+        this.file = file;
+        this.width = width;
+        this.capacity = capacity;
+
+        this.predecessor = predecessor;
+        if (predecessor == null || !predecessor.handOverTo(this)) {
+            this.predecessor = null;
+            map();
+        }
+    }
+
+    private void map() {
+        boolean opened = false;
+        try {
+            open();
+            opened = true;
+
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Could not map memory file %s", file), e);
+
+        } finally {
+            if (!opened) {
+                closeFile();
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        FileChannel channel = randomAccessFile.getChannel();
+
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        checkState(lock != null, "Memory file %s is in use by another runtime", file);
+
+        double[] restored = readEntries(channel);
+
+        long length = HEADER_SIZE + 8L * width * capacity;
+        randomAccessFile.setLength(length);
+        mappedBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+
+        mappedBuffer.putInt(MAGIC_OFFSET, MAGIC);
+        mappedBuffer.putInt(VERSION_OFFSET, VERSION);
+        mappedBuffer.putInt(WIDTH_OFFSET, width);
+        mappedBuffer.putInt(CAPACITY_OFFSET, capacity);
+
+        mappedBuffer.position(HEADER_SIZE);
+        data = mappedBuffer.slice().asDoubleBuffer();
+
+        // the restored entries are written back from the start of the buffer, oldest first
+        data.put(restored);
+        size = restored.length / width;
+        currentIndex = size % capacity;
+        storePosition();
+    }
+
+    /**
+     * Reads the newest entries that fit into this buffer from the existing file, oldest first.
+     */
+    private double[] readEntries(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return new double[0];
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+
+        int storedCapacity = header.getInt(CAPACITY_OFFSET);
+        int storedIndex = header.getInt(CURRENT_INDEX_OFFSET);
+        int storedSize = header.getInt(SIZE_OFFSET);
+
+        boolean valid = header.getInt(MAGIC_OFFSET) == MAGIC
+                && header.getInt(VERSION_OFFSET) == VERSION
+                && header.getInt(WIDTH_OFFSET) == width
+                && storedCapacity > 0
+                && storedIndex >= 0 && storedIndex < storedCapacity
+                && storedSize >= 0 && storedSize <= storedCapacity
+                && channel.size() >= HEADER_SIZE + 8L * width * storedCapacity;
+
+        if (!valid) {
+            LOG.warn("Memory file {} does not contain a buffer that can be restored, starting empty", file);
+            return new double[0];
+        }
+
+        ByteBuffer storedData = ByteBuffer.allocate(8 * width * storedCapacity);
+        readFully(channel, storedData, HEADER_SIZE);
+        DoubleBuffer storedValues = storedData.asDoubleBuffer();
+
+        int entries = Math.min(storedSize, capacity);
+        double[] restored = new double[entries * width];
+
+        for (int i = 0; i < entries; ++i) {
+            int storedEntry = (storedIndex - entries + i + storedCapacity) % storedCapacity;
+
+            for (int component = 0; component < width; ++component) {
+                restored[i * width + component] = storedValues.get(storedEntry * width + component);
+            }
+        }
+
+        return restored;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+
+            if (read < 0) {
+                throw new IOException("Unexpected end of memory file");
+            }
+        }
+        buffer.flip();
+    }
+
+    private void storePosition() {
+        mappedBuffer.putInt(CURRENT_INDEX_OFFSET, currentIndex);
+        mappedBuffer.putInt(SIZE_OFFSET, size);
+    }
+
+    private DoubleBuffer data() {
+        if (data == null) {
+            throw new IllegalStateException(closed ? "Memory has been released" :
+                    String.format("Memory file %s is still mapped by the memory it replaces", file));
+        }
+        return data;
+    }
+
+    /**
+     * Writes the value of the specified component of the next entry. Once all the components are written the entry
+     * is added with {@link #advance()}.
+     */
+    final void putNext(int component, double value) {
+        data().put(currentIndex * width + component, value);
+    }
+
+    final void advance() {
+        currentIndex = (currentIndex + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+        storePosition();
+    }
+
+    /**
+     * Returns the specified component of the entry at the specified index where 0 is the oldest entry.
+     */
+    final double get(int index, int component) {
+        return data().get(((currentIndex - size + index + capacity) % capacity) * width + component);
+    }
+
+    public final int size() {
+        return size;
+    }
+
+    public final int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the buffer that maps the file, which is this buffer or the one it waits for, or null if neither does.
+     */
+    synchronized MappedCircularBuffer getMappingBuffer() {
+        if (mappedBuffer != null) {
+            return this;
+        }
+
+        return (predecessor != null) ? predecessor.getMappingBuffer() : null;
+    }
+
+    /**
+     * Makes the specified buffer map the file once this buffer is closed. Returns false if this buffer does not map
+     * the file anymore.
+     */
+    private synchronized boolean handOverTo(MappedCircularBuffer nextBuffer) {
+        if (mappedBuffer == null) {
+            return false;
+        }
+        checkState(successor == null, "Memory file %s is already being handed over", file);
+        successor = nextBuffer;
+
+        return true;
+    }
+
+    private synchronized void cancelHandOver(MappedCircularBuffer nextBuffer) {
+        if (successor == nextBuffer) {
+            successor = null;
+        }
+    }
+
+    private synchronized void takeOver() {
+        predecessor = null;
+
+        if (!closed) {
+            map();
+        }
+    }
+
+    /**
+     * Writes the buffer to the file and unmaps it, handing the file over to the buffer waiting for it. The buffer
+     * cannot be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        MappedCircularBuffer previousBuffer;
+        MappedCircularBuffer nextBuffer;
+
+        synchronized (this) {
+            closed = true;
+
+            if (mappedBuffer != null) {
+                mappedBuffer.force();
+                DirectBuffers.release(mappedBuffer);
+                mappedBuffer = null;
+                data = null;
+            }
+
+            closeFile();
+
+            previousBuffer = predecessor;
+            nextBuffer = successor;
+            successor = null;
+        }
+
+        if (previousBuffer != null) {
+            previousBuffer.cancelHandOver(this);
+        }
+        if (nextBuffer != null) {
+            nextBuffer.takeOver();
+        }
+    }
+
+    private void closeFile() {
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+        } catch (IOException e) {
+            LOG.warn("Problem releasing lock of memory file " + file, e);
+        }
+        lock = null;
+
+        try {
+            if (randomAccessFile != null) {
+                randomAccessFile.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Problem closing memory file " + file, e);
+        }
+        randomAccessFile = null;
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
@@ -0,0 +1,107 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.mapped;
+
+import com.google.common.collect.Lists;
+import org.lisapark.octopus.core.memory.DoubleMemory;
+import org.lisapark.octopus.core.memory.DoubleVisitor;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * {@link DoubleMemory} that lives in a memory mapped file, so the values survive a restart of the process.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class MappedDoubleCircularBuffer extends MappedCircularBuffer implements DoubleMemory {
+
+    public MappedDoubleCircularBuffer(File file, int n) {
+        super(file, 1, n);
+    }
+
+    MappedDoubleCircularBuffer(File file, int n, MappedCircularBuffer predecessor) {
+        super(file, 1, n, predecessor);
+    }
+
+    @Override
+    public void add(double value) {
+        putNext(0, value);
+        advance();
+    }
+
+    @Override
+    public void add(Double value) {
+        if (value != null) {
+            add(value.doubleValue());
+        }
+    }
+
+    @Override
+    public boolean remove(Double value) {
+        throw new UnsupportedOperationException("Remove not supported");
+    }
+
+    @Override
+    public double get(int index) {
+        checkElementIndex(index, size());
+
+        return get(index, 0);
+    }
+
+    @Override
+    public double getOldest() {
+        if (size() == 0) {
+            throw new NoSuchElementException("Memory is empty");
+        }
+
+        return get(0, 0);
+    }
+
+    @Override
+    public double getNewest() {
+        if (size() == 0) {
+            throw new NoSuchElementException("Memory is empty");
+        }
+
+        return get(size() - 1, 0);
+    }
+
+    @Override
+    public void visit(DoubleVisitor visitor) {
+        int size = size();
+
+        for (int i = 0; i < size; ++i) {
+            visitor.visit(get(i, 0));
+        }
+    }
+
+    @Override
+    public Collection<Double> values() {
+        int size = size();
+        Collection<Double> values = Lists.newArrayListWithCapacity(size);
+
+        for (int i = 0; i < size; ++i) {
+            values.add(get(i, 0));
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,97 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.mapped;
+
+import com.google.common.collect.Lists;
+import org.lisapark.octopus.core.memory.DoublePairMemory;
+import org.lisapark.octopus.core.memory.DoublePairVisitor;
+import org.lisapark.octopus.util.Pair;
+
+import java.io.File;
+import java.util.Collection;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * {@link DoublePairMemory} that lives in a memory mapped file, so the pairs survive a restart of the process.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class MappedDoublePairCircularBuffer extends MappedCircularBuffer implements DoublePairMemory {
+
+    public MappedDoublePairCircularBuffer(File file, int n) {
+        super(file, 2, n);
+    }
+
+    MappedDoublePairCircularBuffer(File file, int n, MappedCircularBuffer predecessor) {
+        super(file, 2, n, predecessor);
+    }
+
+    @Override
+    public void add(double first, double second) {
+        putNext(0, first);
+        putNext(1, second);
+        advance();
+    }
+
+    @Override
+    public void add(Pair<Double, Double> value) {
+        if (value != null && value.getFirst() != null && value.getSecond() != null) {
+            add(value.getFirst(), value.getSecond());
+        }
+    }
+
+    @Override
+    public boolean remove(Pair<Double, Double> value) {
+        throw new UnsupportedOperationException("Remove not supported");
+    }
+
+    @Override
+    public double getFirst(int index) {
+        checkElementIndex(index, size());
+
+        return get(index, 0);
+    }
+
+    @Override
+    public double getSecond(int index) {
+        checkElementIndex(index, size());
+
+        return get(index, 1);
+    }
+
+    @Override
+    public void visit(DoublePairVisitor visitor) {
+        int size = size();
+
+        for (int i = 0; i < size; ++i) {
+            visitor.visit(get(i, 0), get(i, 1));
+        }
+    }
+
+    @Override
+    public Collection<Pair<Double, Double>> values() {
+        int size = size();
+        Collection<Pair<Double, Double>> values = Lists.newArrayListWithCapacity(size);
+
+        for (int i = 0; i < size; ++i) {
+            values.add(new Pair<Double, Double>(get(i, 0), get(i, 1)));
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,203 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.mapped;
+
+import com.google.common.collect.Maps;
+import org.lisapark.octopus.core.memory.Clock;
+import org.lisapark.octopus.core.memory.DoubleMemory;
+import org.lisapark.octopus.core.memory.DoublePairMemory;
+import org.lisapark.octopus.core.memory.KeyedMemory;
+import org.lisapark.octopus.core.memory.Memory;
+import org.lisapark.octopus.core.memory.MemoryProvider;
+import org.lisapark.octopus.core.memory.heap.HeapCircularBuffer;
+import org.lisapark.octopus.core.memory.heap.HeapDoubleCircularBuffer;
+import org.lisapark.octopus.core.memory.heap.HeapDoublePairCircularBuffer;
+import org.lisapark.octopus.core.memory.heap.HeapDoublePairTimeWindow;
+import org.lisapark.octopus.core.memory.heap.HeapDoubleTimeWindow;
+import org.lisapark.octopus.core.memory.keyed.LruKeyedMemory;
+
+import java.io.File;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@link MemoryProvider} that keeps the numeric memory of every processor in a memory mapped file in a directory.
+ * The files are named after the id of the processor, so when a model is run again its processors pick up the windows
+ * they had instead of starting empty. The memories are {@link java.io.Closeable} and are written and unmapped by the
+ * runtime when it shuts down.
+ * <p/>
+ * Only memory created through {@link #forProcessor(java.util.UUID)} is persisted, everything else, including circular
+ * buffers of arbitrary objects, is created on the heap.
+ * <p/>
+ * The memory of a processor that is created again while its old memory is still open, as when a running model is
+ * redeployed with a new window, takes the file over once the old memory is closed.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class MappedMemoryProvider implements MemoryProvider {
+
+    private final File directory;
+
+    /**
+     * Buffer last created on each file
+     */
+    private final Map<File, MappedCircularBuffer> buffersByFile = Maps.newHashMap();
+
+    public MappedMemoryProvider(File directory) {
+        checkArgument(directory != null, "directory cannot be null");
+        checkArgument(directory.isDirectory() || directory.mkdirs(), "Could not create directory %s", directory);
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public MemoryProvider forProcessor(UUID processorId) {
+        checkArgument(processorId != null, "processorId cannot be null");
+
+        return new ProcessorMemoryProvider(processorId);
+    }
+
+    @Override
+    public <T> Memory<T> createCircularBuffer(int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+
+        return new HeapCircularBuffer<T>(bufferSize);
+    }
+
+    @Override
+    public DoubleMemory createDoubleCircularBuffer(int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+
+        return new HeapDoubleCircularBuffer(bufferSize);
+    }
+
+    @Override
+    public DoublePairMemory createDoublePairCircularBuffer(int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+
+        return new HeapDoublePairCircularBuffer(bufferSize);
+    }
+
+    /**
+     * Time windows only hold recent events, so they are not persisted and are kept on the heap.
+     */
+    @Override
+    public DoubleMemory createDoubleTimeWindow(long duration, TimeUnit unit, int maximumEntries, Clock clock) {
+        return new HeapDoubleTimeWindow(duration, unit, maximumEntries, clock);
+    }
+
+    @Override
+    public DoublePairMemory createDoublePairTimeWindow(long duration, TimeUnit unit, int maximumEntries,
+                                                       Clock clock) {
+        return new HeapDoublePairTimeWindow(duration, unit, maximumEntries, clock);
+    }
+
+    /**
+     * Keys come and go, so keyed memories are not persisted. The partitions are created with this provider, which
+     * keeps them on the heap.
+     */
+    @Override
+    public <T, M extends Memory<T>> KeyedMemory<T, M> createKeyedMemory(
+            int maximumKeys, long idleTimeout, TimeUnit unit, Clock clock,
+            KeyedMemory.PartitionFactory<M> partitionFactory) {
+        return new LruKeyedMemory<T, M>(maximumKeys, idleTimeout, unit, clock, this, partitionFactory);
+    }
+
+    private synchronized DoubleMemory createMappedDoubleCircularBuffer(File file, int bufferSize) {
+        MappedDoubleCircularBuffer buffer = new MappedDoubleCircularBuffer(file, bufferSize, getMappingBuffer(file));
+        buffersByFile.put(file, buffer);
+
+        return buffer;
+    }
+
+    private synchronized DoublePairMemory createMappedDoublePairCircularBuffer(File file, int bufferSize) {
+        MappedDoublePairCircularBuffer buffer = new MappedDoublePairCircularBuffer(
+                file, bufferSize, getMappingBuffer(file)
+        );
+        buffersByFile.put(file, buffer);
+
+        return buffer;
+    }
+
+    /**
+     * Returns the buffer that maps the specified file, or null if none does.
+     */
+    private MappedCircularBuffer getMappingBuffer(File file) {
+        MappedCircularBuffer buffer = buffersByFile.get(file);
+
+        return (buffer != null) ? buffer.getMappingBuffer() : null;
+    }
+
+    /**
+     * Creates the memory of a single processor in files named after its id.
+     */
+    private class ProcessorMemoryProvider implements MemoryProvider {
+        private final UUID processorId;
+
+        ProcessorMemoryProvider(UUID processorId) {
+            this.processorId = processorId;
+        }
+
+        @Override
+        public MemoryProvider forProcessor(UUID processorId) {
+            return MappedMemoryProvider.this.forProcessor(processorId);
+        }
+
+        @Override
+        public <T> Memory<T> createCircularBuffer(int bufferSize) {
+            return MappedMemoryProvider.this.createCircularBuffer(bufferSize);
+        }
+
+        @Override
+        public DoubleMemory createDoubleCircularBuffer(int bufferSize) {
+            checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+
+            return createMappedDoubleCircularBuffer(new File(directory, processorId + ".double"), bufferSize);
+        }
+
+        @Override
+        public DoublePairMemory createDoublePairCircularBuffer(int bufferSize) {
+            checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+
+            return createMappedDoublePairCircularBuffer(new File(directory, processorId + ".pair"), bufferSize);
+        }
+
+        @Override
+        public DoubleMemory createDoubleTimeWindow(long duration, TimeUnit unit, int maximumEntries, Clock clock) {
+            return MappedMemoryProvider.this.createDoubleTimeWindow(duration, unit, maximumEntries, clock);
+        }
+
+        @Override
+        public DoublePairMemory createDoublePairTimeWindow(long duration, TimeUnit unit, int maximumEntries,
+                                                           Clock clock) {
+            return MappedMemoryProvider.this.createDoublePairTimeWindow(duration, unit, maximumEntries, clock);
+        }
+
+        @Override
+        public <T, M extends Memory<T>> KeyedMemory<T, M> createKeyedMemory(
+                int maximumKeys, long idleTimeout, TimeUnit unit, Clock clock,
+                KeyedMemory.PartitionFactory<M> partitionFactory) {
+            return MappedMemoryProvider.this.createKeyedMemory(maximumKeys, idleTimeout, unit, clock, partitionFactory);
+        }
+    }
+}
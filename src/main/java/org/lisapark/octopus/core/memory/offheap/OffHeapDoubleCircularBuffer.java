@@ -0,0 +1,152 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.offheap;
+
+import com.google.common.collect.Lists;
+import org.lisapark.octopus.core.memory.DoubleMemory;
+import org.lisapark.octopus.core.memory.DoubleVisitor;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * {@link DoubleMemory} backed by a direct {@link ByteBuffer}, so the values are not on the heap. The buffer is
+ * released by {@link #close()}.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class OffHeapDoubleCircularBuffer implements DoubleMemory, Closeable {
+
+    private ByteBuffer byteBuffer;
+    private DoubleBuffer buffer;
+    private final int capacity;
+
+    /**
+     * Index the next value is written to, which is also the index of the oldest value once the buffer is full
+     */
+    private int currentIndex;
+    private int size;
+
+    public OffHeapDoubleCircularBuffer(int n) {
+        this.capacity = n;
+        this.byteBuffer = ByteBuffer.allocateDirect(n * 8).order(ByteOrder.nativeOrder());
+        this.buffer = byteBuffer.asDoubleBuffer();
+    }
+
+    private DoubleBuffer buffer() {
+        checkState(buffer != null, "Memory has been released");
+        return buffer;
+    }
+
+    @Override
+    public void add(double value) {
+        buffer().put(currentIndex, value);
+
+        currentIndex = (currentIndex + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    @Override
+    public void add(Double value) {
+        if (value != null) {
+            add(value.doubleValue());
+        }
+    }
+
+    @Override
+    public boolean remove(Double value) {
+        throw new UnsupportedOperationException("Remove not supported");
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public double get(int index) {
+        checkElementIndex(index, size);
+
+        return buffer().get((currentIndex - size + index + capacity) % capacity);
+    }
+
+    @Override
+    public double getOldest() {
+        if (size == 0) {
+            throw new NoSuchElementException("Memory is empty");
+        }
+
+        return get(0);
+    }
+
+    @Override
+    public double getNewest() {
+        if (size == 0) {
+            throw new NoSuchElementException("Memory is empty");
+        }
+
+        return get(size - 1);
+    }
+
+    @Override
+    public void visit(DoubleVisitor visitor) {
+        DoubleBuffer values = buffer();
+        int index = (currentIndex - size + capacity) % capacity;
+
+        for (int i = 0; i < size; ++i) {
+            visitor.visit(values.get(index));
+            index = (index + 1) % capacity;
+        }
+    }
+
+    @Override
+    public Collection<Double> values() {
+        Collection<Double> values = Lists.newArrayListWithCapacity(size);
+
+        for (int i = 0; i < size; ++i) {
+            values.add(get(i));
+        }
+
+        return values;
+    }
+
+    /**
+     * Frees the memory of this buffer. The buffer cannot be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        ByteBuffer released = byteBuffer;
+        byteBuffer = null;
+        buffer = null;
+
+        DirectBuffers.release(released);
+    }
+}
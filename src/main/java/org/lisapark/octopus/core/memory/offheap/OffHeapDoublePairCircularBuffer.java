@@ -0,0 +1,147 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.offheap;
+
+import com.google.common.collect.Lists;
+import org.lisapark.octopus.core.memory.DoublePairMemory;
+import org.lisapark.octopus.core.memory.DoublePairVisitor;
+import org.lisapark.octopus.util.Pair;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Collection;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * {@link DoublePairMemory} backed by a direct {@link ByteBuffer}, so the pairs are not on the heap. The two values
+ * of a pair are stored next to each other. The buffer is released by {@link #close()}.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class OffHeapDoublePairCircularBuffer implements DoublePairMemory, Closeable {
+
+    private ByteBuffer byteBuffer;
+    private DoubleBuffer buffer;
+    private final int capacity;
+
+    /**
+     * Index the next pair is written to, which is also the index of the oldest pair once the buffer is full
+     */
+    private int currentIndex;
+    private int size;
+
+    public OffHeapDoublePairCircularBuffer(int n) {
+        this.capacity = n;
+        this.byteBuffer = ByteBuffer.allocateDirect(n * 16).order(ByteOrder.nativeOrder());
+        this.buffer = byteBuffer.asDoubleBuffer();
+    }
+
+    private DoubleBuffer buffer() {
+        checkState(buffer != null, "Memory has been released");
+        return buffer;
+    }
+
+    @Override
+    public void add(double first, double second) {
+        DoubleBuffer values = buffer();
+        values.put(2 * currentIndex, first);
+        values.put(2 * currentIndex + 1, second);
+
+        currentIndex = (currentIndex + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    @Override
+    public void add(Pair<Double, Double> value) {
+        if (value != null && value.getFirst() != null && value.getSecond() != null) {
+            add(value.getFirst(), value.getSecond());
+        }
+    }
+
+    @Override
+    public boolean remove(Pair<Double, Double> value) {
+        throw new UnsupportedOperationException("Remove not supported");
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public double getFirst(int index) {
+        checkElementIndex(index, size);
+
+        return buffer().get(2 * bufferIndexOf(index));
+    }
+
+    @Override
+    public double getSecond(int index) {
+        checkElementIndex(index, size);
+
+        return buffer().get(2 * bufferIndexOf(index) + 1);
+    }
+
+    private int bufferIndexOf(int index) {
+        return (currentIndex - size + index + capacity) % capacity;
+    }
+
+    @Override
+    public void visit(DoublePairVisitor visitor) {
+        DoubleBuffer values = buffer();
+        int index = bufferIndexOf(0);
+
+        for (int i = 0; i < size; ++i) {
+            visitor.visit(values.get(2 * index), values.get(2 * index + 1));
+            index = (index + 1) % capacity;
+        }
+    }
+
+    @Override
+    public Collection<Pair<Double, Double>> values() {
+        Collection<Pair<Double, Double>> values = Lists.newArrayListWithCapacity(size);
+
+        for (int i = 0; i < size; ++i) {
+            values.add(new Pair<Double, Double>(getFirst(i), getSecond(i)));
+        }
+
+        return values;
+    }
+
+    /**
+     * Frees the memory of this buffer. The buffer cannot be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        ByteBuffer released = byteBuffer;
+        byteBuffer = null;
+        buffer = null;
+
+        DirectBuffers.release(released);
+    }
+}
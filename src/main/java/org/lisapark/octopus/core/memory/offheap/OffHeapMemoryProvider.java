@@ -0,0 +1,97 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.offheap;
+
+import org.lisapark.octopus.core.memory.Clock;
+import org.lisapark.octopus.core.memory.DoubleMemory;
+import org.lisapark.octopus.core.memory.DoublePairMemory;
+import org.lisapark.octopus.core.memory.KeyedMemory;
+import org.lisapark.octopus.core.memory.Memory;
+import org.lisapark.octopus.core.memory.MemoryProvider;
+import org.lisapark.octopus.core.memory.heap.HeapCircularBuffer;
+import org.lisapark.octopus.core.memory.heap.HeapDoublePairTimeWindow;
+import org.lisapark.octopus.core.memory.heap.HeapDoubleTimeWindow;
+import org.lisapark.octopus.core.memory.keyed.LruKeyedMemory;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@link MemoryProvider} that keeps numeric memories in direct buffers outside of the heap, so large windows do not
+ * add to the work of the garbage collector. The memories are {@link java.io.Closeable} and are released by the
+ * runtime when it shuts down.
+ * <p/>
+ * Circular buffers of arbitrary objects cannot live outside the heap and are created on the heap.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class OffHeapMemoryProvider implements MemoryProvider {
+    @Override
+    public MemoryProvider forProcessor(UUID processorId) {
+        return this;
+    }
+
+    @Override
+    public <T> Memory<T> createCircularBuffer(int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+
+        return new HeapCircularBuffer<T>(bufferSize);
+    }
+
+    @Override
+    public DoubleMemory createDoubleCircularBuffer(int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+        checkArgument(bufferSize <= Integer.MAX_VALUE / 8, "bufferSize is too large");
+
+        return new OffHeapDoubleCircularBuffer(bufferSize);
+    }
+
+    @Override
+    public DoublePairMemory createDoublePairCircularBuffer(int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+        checkArgument(bufferSize <= Integer.MAX_VALUE / 16, "bufferSize is too large");
+
+        return new OffHeapDoublePairCircularBuffer(bufferSize);
+    }
+
+    /**
+     * Time windows grow and shrink with the rate of events, so they are kept on the heap.
+     */
+    @Override
+    public DoubleMemory createDoubleTimeWindow(long duration, TimeUnit unit, int maximumEntries, Clock clock) {
+        return new HeapDoubleTimeWindow(duration, unit, maximumEntries, clock);
+    }
+
+    @Override
+    public DoublePairMemory createDoublePairTimeWindow(long duration, TimeUnit unit, int maximumEntries,
+                                                       Clock clock) {
+        return new HeapDoublePairTimeWindow(duration, unit, maximumEntries, clock);
+    }
+
+    /**
+     * The partitions are created with this provider, so they are off heap as well and are released when they are
+     * dropped.
+     */
+    @Override
+    public <T, M extends Memory<T>> KeyedMemory<T, M> createKeyedMemory(
+            int maximumKeys, long idleTimeout, TimeUnit unit, Clock clock,
+            KeyedMemory.PartitionFactory<M> partitionFactory) {
+        return new LruKeyedMemory<T, M>(maximumKeys, idleTimeout, unit, clock, this, partitionFactory);
+    }
+}
@@ -0,0 +1,171 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.memory.retained;
+
+import org.lisapark.octopus.core.memory.Clock;
+import org.lisapark.octopus.core.memory.DoubleMemory;
+import org.lisapark.octopus.core.memory.DoublePairMemory;
+import org.lisapark.octopus.core.memory.KeyedMemory;
+import org.lisapark.octopus.core.memory.Memory;
+import org.lisapark.octopus.core.memory.MemoryProvider;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@link MemoryProvider} for a processor that is being replaced by a changed version of itself in a running model.
+ * If the new version asks for the same kind of window as the memory the old version had, it gets that very memory
+ * back and carries on where the old version stopped; otherwise the memory is created by the wrapped provider for the
+ * processor. The wrapped provider is only asked for the memory of the processor when memory is created, as a
+ * {@link org.lisapark.octopus.core.memory.budget.BudgetedMemoryProvider} releases what the processor was charged then.
+ * <p/>
+ * Keyed memories are always created anew since the windows of their partitions cannot be compared.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class RetainingMemoryProvider implements MemoryProvider {
+
+    private final MemoryProvider memoryProvider;
+    private final UUID processorId;
+    private final String retainedWindow;
+    private final Memory<?> retainedMemory;
+
+    /**
+     * Provider of the processor, null until memory is created
+     */
+    private MemoryProvider processorMemoryProvider;
+
+    private String window;
+    private boolean retained;
+
+    /**
+     * @param memoryProvider provider to create memory for the processor with
+     * @param processorId    of processor
+     * @param retainedWindow window of the memory the old version had, or null if it had none
+     * @param retainedMemory memory of the old version, or null if it had none
+     */
+    public RetainingMemoryProvider(MemoryProvider memoryProvider, UUID processorId, String retainedWindow,
+                                   Memory<?> retainedMemory) {
+        checkArgument(memoryProvider != null, "memoryProvider cannot be null");
+        checkArgument(processorId != null, "processorId cannot be null");
+        this.memoryProvider = memoryProvider;
+        this.processorId = processorId;
+        this.retainedWindow = retainedWindow;
+        this.retainedMemory = retainedMemory;
+    }
+
+    /**
+     * Returns the kind of window of the memory that was handed out, or null if none was or it was a keyed memory.
+     *
+     * @return description of the window
+     */
+    public String getWindow() {
+        return window;
+    }
+
+    /**
+     * Returns true if the memory of the old version was handed out again.
+     *
+     * @return true if retained
+     */
+    public boolean isRetained() {
+        return retained;
+    }
+
+    @Override
+    public MemoryProvider forProcessor(UUID processorId) {
+        return memoryProvider.forProcessor(processorId);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Memory<T> createCircularBuffer(int bufferSize) {
+        if (retain(String.format("circularBuffer(%d)", bufferSize))) {
+            return (Memory<T>) retainedMemory;
+        }
+
+        return getProcessorMemoryProvider().createCircularBuffer(bufferSize);
+    }
+
+    @Override
+    public DoubleMemory createDoubleCircularBuffer(int bufferSize) {
+        if (retain(String.format("doubleCircularBuffer(%d)", bufferSize))) {
+            return (DoubleMemory) retainedMemory;
+        }
+
+        return getProcessorMemoryProvider().createDoubleCircularBuffer(bufferSize);
+    }
+
+    @Override
+    public DoublePairMemory createDoublePairCircularBuffer(int bufferSize) {
+        if (retain(String.format("doublePairCircularBuffer(%d)", bufferSize))) {
+            return (DoublePairMemory) retainedMemory;
+        }
+
+        return getProcessorMemoryProvider().createDoublePairCircularBuffer(bufferSize);
+    }
+
+    @Override
+    public DoubleMemory createDoubleTimeWindow(long duration, TimeUnit unit, int maximumEntries, Clock clock) {
+        if (retain(String.format("doubleTimeWindow(%d ns, %d, %s)", unit.toNanos(duration), maximumEntries,
+                clock.getClass().getName()))) {
+            return (DoubleMemory) retainedMemory;
+        }
+
+        return getProcessorMemoryProvider().createDoubleTimeWindow(duration, unit, maximumEntries, clock);
+    }
+
+    @Override
+    public DoublePairMemory createDoublePairTimeWindow(long duration, TimeUnit unit, int maximumEntries,
+                                                       Clock clock) {
+        if (retain(String.format("doublePairTimeWindow(%d ns, %d, %s)", unit.toNanos(duration), maximumEntries,
+                clock.getClass().getName()))) {
+            return (DoublePairMemory) retainedMemory;
+        }
+
+        return getProcessorMemoryProvider().createDoublePairTimeWindow(duration, unit, maximumEntries, clock);
+    }
+
+    @Override
+    public <T, M extends Memory<T>> KeyedMemory<T, M> createKeyedMemory(
+            int maximumKeys, long idleTimeout, TimeUnit unit, Clock clock,
+            KeyedMemory.PartitionFactory<M> partitionFactory) {
+        window = null;
+
+        return getProcessorMemoryProvider().createKeyedMemory(maximumKeys, idleTimeout, unit, clock, partitionFactory);
+    }
+
+    private MemoryProvider getProcessorMemoryProvider() {
+        if (processorMemoryProvider == null) {
+            processorMemoryProvider = memoryProvider.forProcessor(processorId);
+        }
+
+        return processorMemoryProvider;
+    }
+
+    /**
+     * Records the window that is asked for and returns true if the retained memory has the same one.
+     */
+    private boolean retain(String requestedWindow) {
+        window = requestedWindow;
+        retained = retainedMemory != null && requestedWindow.equals(retainedWindow);
+
+        return retained;
+    }
+}
@@ -30,7 +30,9 @@ import org.lisapark.octopus.core.parameter.Parameter;
 import org.lisapark.octopus.core.sink.Sink;
 import org.lisapark.octopus.core.source.Source;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -119,7 +121,9 @@ public abstract class Processor<MEMORY_TYPE> extends AbstractNode implements Sou
                 // note that this copy HAS to happen after the secondInput has been copied
                 secondInputAttr = secondInput.getSource().getOutput().getAttributeByName(joinToCopy.getSecondInputAttributeName());
             }
-            this.addJoin(new ProcessorJoin(firstInput, firstInputAttr, secondInput, secondInputAttr));
+            ProcessorJoin join = new ProcessorJoin(firstInput, firstInputAttr, secondInput, secondInputAttr);
+            join.setKeyed(joinToCopy.isKeyed());
+            this.addJoin(join);
         }
         this.setOutput(copyFromProcessor.getOutput().copyOf());
     }
@@ -187,6 +191,27 @@ public abstract class Processor<MEMORY_TYPE> extends AbstractNode implements Sou
         return ImmutableList.copyOf(joins);
     }
 
+    /**
+     * Returns true if every input of this processor only looks at the latest event of its source and none of its
+     * joins is keyed. Only such a processor can be run without an engine that keeps windows and evaluates joins.
+     *
+     * @return true if only the latest events are used
+     */
+    public boolean usesLatestEventsOnly() {
+        for (ProcessorInput input : inputs) {
+            if (!input.getWindowSpec().isLatestEvent()) {
+                return false;
+            }
+        }
+        for (ProcessorJoin join : joins) {
+            if (join.isKeyed() && join.isRequired()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * This method will check whether the source and attribute are in use on the any of the {@link #getInputs()} of
      * this processor.
@@ -283,4 +308,14 @@ public abstract class Processor<MEMORY_TYPE> extends AbstractNode implements Sou
     public Memory<MEMORY_TYPE> createMemoryForProcessor(MemoryProvider memoryProvider) {
         return null;
     }
+
+    /**
+     * Returns the names of the attributes this processor reads from its input events besides the source attributes
+     * of its inputs and joins, like an attribute it groups by. The compilers make sure these are passed along to it.
+     *
+     * @return attribute names
+     */
+    public Set<String> getReadAttributeNames() {
+        return Collections.emptySet();
+    }
 }
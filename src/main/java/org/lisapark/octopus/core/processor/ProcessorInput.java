@@ -32,8 +32,14 @@ public class ProcessorInput<T> extends Input<T> {
 
     private Attribute sourceAttribute;
 
+    /**
+     * Null for inputs that were saved before windows existed, which only look at the latest event
+     */
+    private WindowSpec windowSpec;
+
     private ProcessorInput(Builder<T> builder) {
         super(builder.id, builder.name, builder.description, builder.type);
+        this.windowSpec = builder.windowSpec;
     }
 
     private ProcessorInput(ProcessorInput<T> copyFromInput) {
@@ -42,6 +48,24 @@ public class ProcessorInput<T> extends Input<T> {
         if (copyFromInput.sourceAttribute != null) {
             this.sourceAttribute = (copyFromInput.sourceAttribute == null) ? null : copyFromInput.sourceAttribute.copyOf();
         }
+        this.windowSpec = copyFromInput.windowSpec;
+    }
+
+    /**
+     * Returns the events of the source this input looks at, which is {@link WindowSpec#LATEST_EVENT} unless
+     * another window has been set.
+     *
+     * @return window of this input
+     */
+    public WindowSpec getWindowSpec() {
+        return (windowSpec != null) ? windowSpec : WindowSpec.LATEST_EVENT;
+    }
+
+    public ProcessorInput<T> setWindowSpec(WindowSpec windowSpec) {
+        checkArgument(windowSpec != null, "windowSpec cannot be null");
+        this.windowSpec = windowSpec;
+
+        return this;
     }
 
     public Attribute getSourceAttribute() {
@@ -164,6 +188,15 @@ public class ProcessorInput<T> extends Input<T> {
         if (this.sourceAttribute == null) {
             throw new ValidationException(String.format("Please set the source attribute for input '%s'", getName()));
         }
+
+        WindowSpec window = getWindowSpec();
+        if (window.getType() == WindowSpec.Type.UNIQUE &&
+                getSource().getOutput().getAttributeByName(window.getKeyAttributeName()) == null) {
+            throw new ValidationException(
+                    String.format("Source of input '%s' does not contain the window attribute '%s'",
+                            getName(), window.getKeyAttributeName())
+            );
+        }
     }
 
     public static Builder<String> stringInputWithId(int id) {
@@ -203,6 +236,7 @@ public class ProcessorInput<T> extends Input<T> {
         private String description;
         private final int id;
         private final Class<T> type;
+        private WindowSpec windowSpec;
 
         private Builder(int id, Class<T> type) {
             this.id = id;
@@ -219,6 +253,11 @@ public class ProcessorInput<T> extends Input<T> {
             return this;
         }
 
+        public Builder<T> windowSpec(WindowSpec windowSpec) {
+            this.windowSpec = windowSpec;
+            return this;
+        }
+
         public ProcessorInput<T> build() {
             return new ProcessorInput<T>(this);
         }
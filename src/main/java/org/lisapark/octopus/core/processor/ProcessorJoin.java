@@ -34,6 +34,11 @@ public class ProcessorJoin implements Validatable {
     private Attribute firstInputAttribute;
     private Attribute secondInputAttribute;
 
+    /**
+     * True if the join attributes of the inputs have to be equal for their events to be joined
+     */
+    private boolean keyed;
+
     ProcessorJoin(ProcessorInput firstInput, ProcessorInput secondInput) {
         this.firstInput = firstInput;
         this.secondInput = secondInput;
@@ -70,6 +75,20 @@ public class ProcessorJoin implements Validatable {
         return secondInputAttribute != null ? secondInputAttribute.getName() : null;
     }
 
+    /**
+     * Returns true if the events of the two inputs are only joined when their join attributes are equal. Otherwise the
+     * latest events of the inputs are combined whatever the values of their attributes.
+     *
+     * @return true for an equi-join on the join attributes
+     */
+    public boolean isKeyed() {
+        return keyed;
+    }
+
+    public void setKeyed(boolean keyed) {
+        this.keyed = keyed;
+    }
+
     private void clear() {
         firstInputAttribute = null;
         secondInputAttribute = null;
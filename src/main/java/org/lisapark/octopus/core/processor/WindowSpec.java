@@ -0,0 +1,155 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.processor;
+
+import org.lisapark.octopus.core.Persistable;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A {@link WindowSpec} says which events of its source a {@link ProcessorInput} looks at. By default an input only
+ * looks at the latest event of its source; the other windows are kept by the engine, which hands the processor every
+ * combination of the events in the windows of its inputs that satisfies its joins.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+@Persistable
+public class WindowSpec {
+
+    public enum Type {
+        /**
+         * The last number of events
+         */
+        LENGTH,
+
+        /**
+         * The events of the last amount of time
+         */
+        TIME,
+
+        /**
+         * The events of consecutive, non overlapping periods of time, released at the end of each period
+         */
+        TIME_BATCH,
+
+        /**
+         * The latest event for every value of an attribute
+         */
+        UNIQUE
+    }
+
+    /**
+     * The default window of an input
+     */
+    public static final WindowSpec LATEST_EVENT = new WindowSpec(Type.LENGTH, 1, null);
+
+    private final Type type;
+    private final long size;
+    private final String keyAttributeName;
+
+    private WindowSpec(Type type, long size, String keyAttributeName) {
+        this.type = type;
+        this.size = size;
+        this.keyAttributeName = keyAttributeName;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the number of events of a {@link Type#LENGTH} window, or the milliseconds of a {@link Type#TIME} or
+     * {@link Type#TIME_BATCH} window.
+     *
+     * @return size of window
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the attribute of a {@link Type#UNIQUE} window, null for the other windows.
+     *
+     * @return key attribute name
+     */
+    public String getKeyAttributeName() {
+        return keyAttributeName;
+    }
+
+    public boolean isLatestEvent() {
+        return type == Type.LENGTH && size == 1;
+    }
+
+    public static WindowSpec length(int numberOfEvents) {
+        checkArgument(numberOfEvents > 0, "numberOfEvents has to be greater than zero");
+        return new WindowSpec(Type.LENGTH, numberOfEvents, null);
+    }
+
+    public static WindowSpec time(long duration, TimeUnit unit) {
+        checkArgument(unit != null, "unit cannot be null");
+        checkArgument(unit.toMillis(duration) > 0, "duration has to be at least one millisecond");
+        return new WindowSpec(Type.TIME, unit.toMillis(duration), null);
+    }
+
+    public static WindowSpec timeBatch(long duration, TimeUnit unit) {
+        checkArgument(unit != null, "unit cannot be null");
+        checkArgument(unit.toMillis(duration) > 0, "duration has to be at least one millisecond");
+        return new WindowSpec(Type.TIME_BATCH, unit.toMillis(duration), null);
+    }
+
+    public static WindowSpec unique(String keyAttributeName) {
+        checkArgument(keyAttributeName != null, "keyAttributeName cannot be null");
+        return new WindowSpec(Type.UNIQUE, 0, keyAttributeName);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        WindowSpec that = (WindowSpec) o;
+
+        if (size != that.size || type != that.type) {
+            return false;
+        }
+
+        return keyAttributeName != null ? keyAttributeName.equals(that.keyAttributeName) : that.keyAttributeName == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = type.hashCode();
+        result = 31 * result + (int) (size ^ (size >>> 32));
+        result = 31 * result + (keyAttributeName != null ? keyAttributeName.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "WindowSpec{" +
+                "type=" + type +
+                ", size=" + size +
+                ", keyAttributeName='" + keyAttributeName + '\'' +
+                '}';
+    }
+}
@@ -165,12 +165,12 @@ public class CrossUnder extends Processor<Pair> {
             Event firstEvent = eventsByInputId.get(FIRST_INPUT_ID);
             Event secondEvent = eventsByInputId.get(SECOND_INPUT_ID);
 
-            Double firstOperand = firstEvent.getAttributeAsDouble(firstAttributeName);
-            Double secondOperand = secondEvent.getAttributeAsDouble(secondAttributeName);
+            double firstOperand = firstEvent.getAttributeAsDouble(firstAttributeName, Double.NaN);
+            double secondOperand = secondEvent.getAttributeAsDouble(secondAttributeName, Double.NaN);
             
             Double retValue = 0D;
             
-            if (firstOperand != null && secondOperand != null) {
+            if (!Double.isNaN(firstOperand) && !Double.isNaN(secondOperand)) {
                 
                 Memory<Pair> processorMemory = ctx.getProcessorMemory();
                 
@@ -18,7 +18,6 @@ package org.lisapark.octopus.core.processor.impl;
 
 import com.google.common.collect.Maps;
 import com.google.gson.Gson;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -27,6 +26,7 @@ import org.apache.commons.math3.stat.regression.SimpleRegression;
 import org.lisapark.octopus.ProgrammerException;
 import org.lisapark.octopus.core.ValidationException;
 import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.memory.DoubleMemory;
 import org.lisapark.octopus.core.memory.Memory;
 import org.lisapark.octopus.core.memory.MemoryProvider;
 import org.lisapark.octopus.core.parameter.Constraints;
@@ -190,7 +190,7 @@ public class ForecastSRM extends Processor<Double> {
      */
     @Override
     public Memory<Double> createMemoryForProcessor(MemoryProvider memoryProvider) {
-        return memoryProvider.createCircularBuffer(getWindowLength());
+        return memoryProvider.createDoubleCircularBuffer(getWindowLength());
     }
     
     @Override
@@ -309,30 +309,25 @@ public class ForecastSRM extends Processor<Double> {
             Event event = events.get(INPUT_FIELD_NAME_PARAM_ID);
 
 //            Double firstOperand = firstEvent.getAttributeAsDouble(firstAttributeName);
-            Double secondOperand = event.getAttributeAsDouble(dataFieldName);
+            double secondOperand = event.getAttributeAsDouble(dataFieldName, Double.NaN);
             
 //            Map<String, Object> retMap = Maps.newHashMap();
             String json = null;
             
-            if (secondOperand != null) {
+            if (!Double.isNaN(secondOperand)) {
                 
-                Memory<Double> processorMemory = ctx.getProcessorMemory();
-                
-                Double newValue = new Double(secondOperand);
-                processorMemory.add(newValue);
+                DoubleMemory processorMemory = (DoubleMemory) ctx.getProcessorMemory();
+                processorMemory.add(secondOperand);
                
                 int arraySize = forecastSRM.getWindowLength(); 
 
-                final Collection<Double> memoryItems = processorMemory.values();
-                
                 SimpleRegression simpleRegression = new SimpleRegression();
                
-                if (memoryItems.size() >= arraySize) {
+                if (processorMemory.size() >= arraySize) {
 
-                    int i = 0;
-                    for (Double memoryItem : memoryItems) {
-                        simpleRegression.addData(i, memoryItem);
-                        i++;
+                    // the index is the position in time, oldest first
+                    for (int i = 0; i < processorMemory.size(); ++i) {
+                        simpleRegression.addData(i, processorMemory.get(i));
                     }
                     
                     simpleRegression.regress();
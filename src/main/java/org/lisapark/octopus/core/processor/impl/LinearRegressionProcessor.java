@@ -17,16 +17,18 @@
 package org.lisapark.octopus.core.processor.impl;
 
 import com.google.common.collect.Maps;
-import java.util.Collection;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 import org.lisapark.octopus.ProgrammerException;
 import org.lisapark.octopus.core.ValidationException;
 import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.memory.DoublePairMemory;
 import org.lisapark.octopus.core.memory.Memory;
 import org.lisapark.octopus.core.memory.MemoryProvider;
+import org.lisapark.octopus.core.memory.SystemClock;
 import org.lisapark.octopus.core.parameter.Constraints;
 import org.lisapark.octopus.core.parameter.Parameter;
 import org.lisapark.octopus.core.processor.CompiledProcessor;
@@ -48,6 +50,10 @@ public class LinearRegressionProcessor extends Processor<Pair<Double, Double>> {
     private static final String DEFAULT_NAME = "LinearRegression";
     private static final String DEFAULT_DESCRIPTION = "Calculate parameters for Linear Regressional Model for two series ";
     private static final String DEFAULT_WINDOW_LENGTH_DESCRIPTION = "Number of data points to consider when performing the calculations.";
+    private static final String DEFAULT_WINDOW_DURATION_DESCRIPTION = "Number of seconds of data points to consider" +
+            " when performing the calculations, 0 to use the time-window length instead.";
+    private static final String DEFAULT_MAXIMUM_WINDOW_ENTRIES_DESCRIPTION = "Maximum number of data points kept in" +
+            " the time window, the oldest are dropped first.";
     private static final String DEFAULT_OUTPUT_DESCRIPTION = "Result is two parameters: " + 
             "intercept and slope";
 
@@ -60,6 +66,10 @@ public class LinearRegressionProcessor extends Processor<Pair<Double, Double>> {
     
     private static final int A_COEFFICIENT_NAME_PARAM_ID    = 4; 
     private static final int B_COEFFICIENT_NAME_PARAM_ID    = 5;
+    private static final int WINDOW_DURATION_PARAMETER_ID   = 6;
+    private static final int MAXIMUM_WINDOW_ENTRIES_PARAMETER_ID = 7;
+
+    private static final int DEFAULT_MAXIMUM_WINDOW_ENTRIES = 10000;
     
     private static final String A_COEFFICIENT_NAME          = "Intercept name: ";
     private static final String B_COEFFICIENT_NAME          = "Slope name: ";
@@ -87,6 +97,36 @@ public class LinearRegressionProcessor extends Processor<Pair<Double, Double>> {
     public void setWindowLength(int windowLength) throws ValidationException {
         getParameter(WINDOW_LENGTH_PARAMETER_ID).setValue(windowLength);
     }
+
+    /**
+     * Returns the duration of the time window in seconds, or 0 if the last {@link #getWindowLength()} pairs are used
+     * instead.
+     */
+    public int getWindowDuration() {
+        Parameter parameter = getParameter(WINDOW_DURATION_PARAMETER_ID);
+
+        // processors saved before there were time windows do not have the parameter
+        return (parameter != null) ? parameter.getValueAsInteger() : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setWindowDuration(int windowDuration) throws ValidationException {
+        getParameter(WINDOW_DURATION_PARAMETER_ID).setValue(windowDuration);
+    }
+
+    /**
+     * Returns the maximum number of pairs kept in the time window, which bounds its memory however fast events arrive.
+     */
+    public int getMaximumWindowEntries() {
+        Parameter parameter = getParameter(MAXIMUM_WINDOW_ENTRIES_PARAMETER_ID);
+
+        return (parameter != null) ? parameter.getValueAsInteger() : DEFAULT_MAXIMUM_WINDOW_ENTRIES;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setMaximumWindowEntries(int maximumWindowEntries) throws ValidationException {
+        getParameter(MAXIMUM_WINDOW_ENTRIES_PARAMETER_ID).setValue(maximumWindowEntries);
+    }
     
     
     /**
@@ -142,14 +182,22 @@ public class LinearRegressionProcessor extends Processor<Pair<Double, Double>> {
     /**
      * {@link LinearRegressionProcessor}s need memory to store the prior events that will be used 
      * to calculate parameters for Linear Regression. We
-     * used a {@link MemoryProvider#createCircularBuffer(int)} to store this data.
+     * used a {@link MemoryProvider#createDoublePairCircularBuffer(int)} or, if there is a window duration, a
+     * {@link MemoryProvider#createDoublePairTimeWindow(long, TimeUnit, int, org.lisapark.octopus.core.memory.Clock)}
+     * to store this data.
      *
      * @param memoryProvider used to create LinearRegressionProcessor's memory
-     * @return circular buffer
+     * @return circular buffer or time window
      */
     @Override
     public Memory<Pair<Double, Double>> createMemoryForProcessor(MemoryProvider memoryProvider) {
-        return memoryProvider.createCircularBuffer(getWindowLength());
+        int windowDuration = getWindowDuration();
+        if (windowDuration > 0) {
+            return memoryProvider.createDoublePairTimeWindow(windowDuration, TimeUnit.SECONDS,
+                    getMaximumWindowEntries(), SystemClock.INSTANCE);
+        }
+
+        return memoryProvider.createDoublePairCircularBuffer(getWindowLength());
     }
     
     @Override
@@ -178,6 +226,20 @@ public class LinearRegressionProcessor extends Processor<Pair<Double, Double>> {
                         defaultValue(10).required(true).
                         constraint(Constraints.integerConstraintWithMinimumAndMessage(1, "Sample size, should be greater than 0."))
         );
+
+        regression.addParameter(
+                Parameter.integerParameterWithIdAndName(WINDOW_DURATION_PARAMETER_ID, "Time window (seconds)").
+                        description(DEFAULT_WINDOW_DURATION_DESCRIPTION).
+                        defaultValue(0).
+                        constraint(Constraints.integerConstraintWithMinimumAndMessage(0, "Time window cannot be negative."))
+        );
+
+        regression.addParameter(
+                Parameter.integerParameterWithIdAndName(MAXIMUM_WINDOW_ENTRIES_PARAMETER_ID, "Maximum time window entries").
+                        description(DEFAULT_MAXIMUM_WINDOW_ENTRIES_DESCRIPTION).
+                        defaultValue(DEFAULT_MAXIMUM_WINDOW_ENTRIES).
+                        constraint(Constraints.integerConstraintWithMinimumAndMessage(1, "Maximum time window entries should be greater than 0."))
+        );
         
         regression.addParameter(
                 Parameter.stringParameterWithIdAndName(A_COEFFICIENT_NAME_PARAM_ID, A_COEFFICIENT_NAME).
@@ -236,31 +298,26 @@ public class LinearRegressionProcessor extends Processor<Pair<Double, Double>> {
             Event firstEvent = eventsByInputId.get(FIRST_INPUT_ID);
             Event secondEvent = eventsByInputId.get(SECOND_INPUT_ID);
 
-            Double firstOperand = firstEvent.getAttributeAsDouble(firstAttributeName);
-            Double secondOperand = secondEvent.getAttributeAsDouble(secondAttributeName);
+            double firstOperand = firstEvent.getAttributeAsDouble(firstAttributeName, Double.NaN);
+            double secondOperand = secondEvent.getAttributeAsDouble(secondAttributeName, Double.NaN);
             
             Map<String, Object> retMap = Maps.newHashMap();
             
-            if (firstOperand != null && secondOperand != null) {
-                
-                Memory<Pair<Double, Double>> processorMemory = ctx.getProcessorMemory();
+            if (!Double.isNaN(firstOperand) && !Double.isNaN(secondOperand)) {
                 
-                Pair<Double, Double> newPair = new Pair<Double, Double>(firstOperand, secondOperand);
-                processorMemory.add(newPair);
+                DoublePairMemory processorMemory = (DoublePairMemory) ctx.getProcessorMemory();
+                processorMemory.add(firstOperand, secondOperand);
                
-                int arraySize = regression.getWindowLength(); 
-                double[] first = new double[arraySize];
-                double[] second = new double[arraySize];
+                // a time window regresses whatever it holds, as long as that makes a line
+                int arraySize = (regression.getWindowDuration() > 0) ? 2 : regression.getWindowLength();
+                int size = processorMemory.size();
 
-                final Collection<Pair<Double, Double>> memoryItems = processorMemory.values();
-                
                 SimpleRegression simpleRegression = new SimpleRegression();
                
-                if (memoryItems.size() >= arraySize) {
+                if (size >= arraySize) {
 
-                    int i = 0;
-                    for (Pair<Double, Double> memoryItem : memoryItems) {
-                        simpleRegression.addData(memoryItem.getFirst(), memoryItem.getSecond());
+                    for (int i = 0; i < size; ++i) {
+                        simpleRegression.addData(processorMemory.getFirst(i), processorMemory.getSecond(i));
                     }
                     
                     simpleRegression.regress();
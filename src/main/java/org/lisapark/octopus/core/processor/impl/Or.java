@@ -141,11 +141,8 @@ public class Or extends Processor<Void> {
             Event firstEvent = eventsByInputId.get(FIRST_INPUT_ID);
             Event secondEvent = eventsByInputId.get(SECOND_INPUT_ID);
 
-            Boolean firstOperand = firstEvent.getAttributeAsBoolean(firstAttributeName);
-            Boolean secondOperand = secondEvent.getAttributeAsBoolean(secondAttributeName);
-
-            firstOperand = (firstOperand == null) ? false : firstOperand;
-            secondOperand = (secondOperand == null) ? false : secondOperand;
+            boolean firstOperand = firstEvent.getAttributeAsBoolean(firstAttributeName, false);
+            boolean secondOperand = secondEvent.getAttributeAsBoolean(secondAttributeName, false);
 
             return firstOperand || secondOperand;
         }
@@ -16,15 +16,17 @@
  */
 package org.lisapark.octopus.core.processor.impl;
 
-import java.util.Collection;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
 import org.lisapark.octopus.ProgrammerException;
 import org.lisapark.octopus.core.ValidationException;
 import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.memory.DoublePairMemory;
 import org.lisapark.octopus.core.memory.Memory;
 import org.lisapark.octopus.core.memory.MemoryProvider;
+import org.lisapark.octopus.core.memory.SystemClock;
 import org.lisapark.octopus.core.parameter.Constraints;
 import org.lisapark.octopus.core.parameter.Parameter;
 import org.lisapark.octopus.core.processor.CompiledProcessor;
@@ -50,6 +52,10 @@ public class PearsonsCorrelationProcessor extends Processor<Pair<Double, Double>
     private static final String DEFAULT_NAME = "PearsonCorrelation";
     private static final String DEFAULT_DESCRIPTION = "Pearson Correlation. ";
     private static final String DEFAULT_WINDOW_LENGTH_DESCRIPTION = "Time window, size of the arrays should be the same for both sequences.";
+    private static final String DEFAULT_WINDOW_DURATION_DESCRIPTION = "Number of seconds of data points to consider" +
+            " when performing the correlation, 0 to use the time window length instead.";
+    private static final String DEFAULT_MAXIMUM_WINDOW_ENTRIES_DESCRIPTION = "Maximum number of data points kept in" +
+            " the time window, the oldest are dropped first.";
     private static final String DEFAULT_OUTPUT_DESCRIPTION = "Pearson correlation coefficient.";
 
     /**
@@ -58,6 +64,10 @@ public class PearsonsCorrelationProcessor extends Processor<Pair<Double, Double>
     private static final int FIRST_INPUT_ID = 1;
     private static final int SECOND_INPUT_ID = 2;
     private static final int WINDOW_LENGTH_PARAMETER_ID = 3;
+    private static final int WINDOW_DURATION_PARAMETER_ID = 4;
+    private static final int MAXIMUM_WINDOW_ENTRIES_PARAMETER_ID = 5;
+
+    private static final int DEFAULT_MAXIMUM_WINDOW_ENTRIES = 10000;
     
     private static final int OUTPUT_ID = 1;
     
@@ -83,6 +93,36 @@ public class PearsonsCorrelationProcessor extends Processor<Pair<Double, Double>
     public void setWindowLength(int windowLength) throws ValidationException {
         getParameter(WINDOW_LENGTH_PARAMETER_ID).setValue(windowLength);
     }
+
+    /**
+     * Returns the duration of the time window in seconds, or 0 if the last {@link #getWindowLength()} pairs are used
+     * instead.
+     */
+    public int getWindowDuration() {
+        Parameter parameter = getParameter(WINDOW_DURATION_PARAMETER_ID);
+
+        // processors saved before there were time windows do not have the parameter
+        return (parameter != null) ? parameter.getValueAsInteger() : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setWindowDuration(int windowDuration) throws ValidationException {
+        getParameter(WINDOW_DURATION_PARAMETER_ID).setValue(windowDuration);
+    }
+
+    /**
+     * Returns the maximum number of pairs kept in the time window, which bounds its memory however fast events arrive.
+     */
+    public int getMaximumWindowEntries() {
+        Parameter parameter = getParameter(MAXIMUM_WINDOW_ENTRIES_PARAMETER_ID);
+
+        return (parameter != null) ? parameter.getValueAsInteger() : DEFAULT_MAXIMUM_WINDOW_ENTRIES;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setMaximumWindowEntries(int maximumWindowEntries) throws ValidationException {
+        getParameter(MAXIMUM_WINDOW_ENTRIES_PARAMETER_ID).setValue(maximumWindowEntries);
+    }
     
     public ProcessorInput getFirstInput() {
         // there are two inputs for pearsonsCorrelationProcessor
@@ -107,14 +147,22 @@ public class PearsonsCorrelationProcessor extends Processor<Pair<Double, Double>
     /**
      * {@link Correlation}s need memory to store the prior events that will be used 
      * to calculate Pearsons correlation. We
-     * used a {@link MemoryProvider#createCircularBuffer(int)} to store this data.
+     * used a {@link MemoryProvider#createDoublePairCircularBuffer(int)} or, if there is a window duration, a
+     * {@link MemoryProvider#createDoublePairTimeWindow(long, TimeUnit, int, org.lisapark.octopus.core.memory.Clock)}
+     * to store this data.
      *
      * @param memoryProvider used to create Correlation's memory
-     * @return circular buffer
+     * @return circular buffer or time window
      */
     @Override
     public Memory<Pair<Double, Double>> createMemoryForProcessor(MemoryProvider memoryProvider) {
-        return memoryProvider.createCircularBuffer(getWindowLength());
+        int windowDuration = getWindowDuration();
+        if (windowDuration > 0) {
+            return memoryProvider.createDoublePairTimeWindow(windowDuration, TimeUnit.SECONDS,
+                    getMaximumWindowEntries(), SystemClock.INSTANCE);
+        }
+
+        return memoryProvider.createDoublePairCircularBuffer(getWindowLength());
     }
     
     @Override
@@ -144,6 +192,20 @@ public class PearsonsCorrelationProcessor extends Processor<Pair<Double, Double>
                         constraint(Constraints.integerConstraintWithMinimumAndMessage(1, "Time window should be greater than 0."))
         );
 
+        correlation.addParameter(
+                Parameter.integerParameterWithIdAndName(WINDOW_DURATION_PARAMETER_ID, "Time window (seconds)").
+                        description(DEFAULT_WINDOW_DURATION_DESCRIPTION).
+                        defaultValue(0).
+                        constraint(Constraints.integerConstraintWithMinimumAndMessage(0, "Time window cannot be negative."))
+        );
+
+        correlation.addParameter(
+                Parameter.integerParameterWithIdAndName(MAXIMUM_WINDOW_ENTRIES_PARAMETER_ID, "Maximum time window entries").
+                        description(DEFAULT_MAXIMUM_WINDOW_ENTRIES_DESCRIPTION).
+                        defaultValue(DEFAULT_MAXIMUM_WINDOW_ENTRIES).
+                        constraint(Constraints.integerConstraintWithMinimumAndMessage(1, "Maximum time window entries should be greater than 0."))
+        );
+
         // two double inputs
         ProcessorInput<Double> firstInput = ProcessorInput.doubleInputWithId(FIRST_INPUT_ID).name("Sequence 1").description("Sequence 1.").build();
         correlation.addInput(firstInput);
@@ -183,31 +245,28 @@ public class PearsonsCorrelationProcessor extends Processor<Pair<Double, Double>
             Event firstEvent = eventsByInputId.get(FIRST_INPUT_ID);
             Event secondEvent = eventsByInputId.get(SECOND_INPUT_ID);
 
-            Double firstOperand = firstEvent.getAttributeAsDouble(firstAttributeName);
-            Double secondOperand = secondEvent.getAttributeAsDouble(secondAttributeName);
+            double firstOperand = firstEvent.getAttributeAsDouble(firstAttributeName, Double.NaN);
+            double secondOperand = secondEvent.getAttributeAsDouble(secondAttributeName, Double.NaN);
             
             Double retValue = null;
             
-            if (firstOperand != null && secondOperand != null) {
-                
-                Memory<Pair<Double, Double>> processorMemory = ctx.getProcessorMemory();
+            if (!Double.isNaN(firstOperand) && !Double.isNaN(secondOperand)) {
                 
-                Pair<Double, Double> newPair = new Pair<Double, Double>(firstOperand, secondOperand);
-                processorMemory.add(newPair);
+                DoublePairMemory processorMemory = (DoublePairMemory) ctx.getProcessorMemory();
+                processorMemory.add(firstOperand, secondOperand);
                
-                int arraySize = correlation.getWindowLength(); 
-                double[] first = new double[arraySize];
-                double[] second = new double[arraySize];
+                // a time window correlates whatever it holds, as long as there are two pairs
+                int minimumSize = (correlation.getWindowDuration() > 0) ? 2 : correlation.getWindowLength();
+                int arraySize = processorMemory.size();
 
-                final Collection<Pair<Double, Double>> memoryItems = processorMemory.values();
-               
-                if (memoryItems.size() >= arraySize) {
+                if (arraySize >= minimumSize) {
+                    // PearsonsCorrelation needs arrays, so these are the only allocations left
+                    double[] first = new double[arraySize];
+                    double[] second = new double[arraySize];
 
-                    int i = 0;
-                    for (Pair<Double, Double> memoryItem : memoryItems) {
-                        first[i] = memoryItem.getFirst();
-                        second[i] = memoryItem.getSecond();
-                        i++;
+                    for (int i = 0; i < arraySize; ++i) {
+                        first[i] = processorMemory.getFirst(i);
+                        second[i] = processorMemory.getSecond(i);
                     }
                     
                     retValue = new PearsonsCorrelation().correlation(first, second);
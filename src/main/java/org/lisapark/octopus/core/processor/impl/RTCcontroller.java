@@ -203,7 +203,6 @@ public class RTCcontroller extends Processor<Void> {
 
             String modelNameList = rtc.getModelNameList();
             String[] modelList = modelNameList.split(",");
-            String modelField = rtc.getModelNameField();
 
             try {
                 // create a thread for each URI
@@ -238,8 +237,6 @@ public class RTCcontroller extends Processor<Void> {
                     thread.join();
                 }
 
-                startEvent.getData().put(modelField, modelNameList);
-
                 done = true;
 
             } catch (IllegalStateException ex) {
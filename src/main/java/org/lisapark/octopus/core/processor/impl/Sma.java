@@ -22,15 +22,20 @@ import org.lisapark.octopus.core.Output;
 import org.lisapark.octopus.core.Persistable;
 import org.lisapark.octopus.core.ValidationException;
 import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.memory.DoubleMemory;
+import org.lisapark.octopus.core.memory.KeyedMemory;
 import org.lisapark.octopus.core.memory.Memory;
 import org.lisapark.octopus.core.memory.MemoryProvider;
+import org.lisapark.octopus.core.memory.SystemClock;
 import org.lisapark.octopus.core.parameter.Constraints;
 import org.lisapark.octopus.core.parameter.Parameter;
 import org.lisapark.octopus.core.runtime.ProcessorContext;
 
-import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import org.lisapark.octopus.core.processor.CompiledProcessor;
 import org.lisapark.octopus.core.processor.Processor;
 import org.lisapark.octopus.core.processor.ProcessorInput;
@@ -52,6 +57,16 @@ public class Sma extends Processor<Double> {
     private static final String DEFAULT_NAME = "SMA";
     private static final String DEFAULT_DESCRIPTION = "Simple Moving Average";
     private static final String DEFAULT_WINDOW_LENGTH_DESCRIPTION = "Number of data points to consider when performing the average.";
+    private static final String DEFAULT_WINDOW_DURATION_DESCRIPTION = "Number of seconds of data points to consider" +
+            " when performing the average, 0 to use the window length instead.";
+    private static final String DEFAULT_MAXIMUM_WINDOW_ENTRIES_DESCRIPTION = "Maximum number of data points kept in" +
+            " the time window, the oldest are dropped first.";
+    private static final String DEFAULT_GROUP_BY_DESCRIPTION = "Attribute to keep a separate average for each value" +
+            " of, leave empty for a single average.";
+    private static final String DEFAULT_MAXIMUM_GROUPS_DESCRIPTION = "Maximum number of groups that are averaged," +
+            " the least recently seen groups are dropped first.";
+    private static final String DEFAULT_GROUP_IDLE_TIMEOUT_DESCRIPTION = "Number of seconds after which a group that" +
+            " has not been seen is dropped, 0 to keep it until there are too many groups.";
     private static final String DEFAULT_INPUT_DESCRIPTION = "This is the attribute from the connected source that the" +
             " SMA will be averaging.";
     private static final String DEFAULT_OUTPUT_DESCRIPTION = "This is the name of the output attribute that the" +
@@ -71,6 +86,23 @@ public class Sma extends Processor<Double> {
      */
     private static final int WINDOW_LENGTH_PARAMETER_ID = 1;
 
+    /**
+     * When this parameter is greater than zero the values of the last so many seconds are averaged instead of the
+     * last window length values.
+     */
+    private static final int WINDOW_DURATION_PARAMETER_ID = 2;
+
+    /**
+     * When there is a group by attribute a separate average is kept for each of its values
+     */
+    private static final int GROUP_BY_PARAMETER_ID = 3;
+    private static final int MAXIMUM_GROUPS_PARAMETER_ID = 4;
+    private static final int GROUP_IDLE_TIMEOUT_PARAMETER_ID = 5;
+    private static final int MAXIMUM_WINDOW_ENTRIES_PARAMETER_ID = 6;
+
+    private static final int DEFAULT_MAXIMUM_GROUPS = 10000;
+    private static final int DEFAULT_MAXIMUM_WINDOW_ENTRIES = 10000;
+
     /**
      * Sma takes a single input
      */
@@ -98,6 +130,73 @@ public class Sma extends Processor<Double> {
         getParameter(WINDOW_LENGTH_PARAMETER_ID).setValue(windowLength);
     }
 
+    /**
+     * Returns the duration of the time window in seconds, or 0 if the last {@link #getWindowLength()} values are used
+     * instead.
+     */
+    public int getWindowDuration() {
+        Parameter parameter = getParameter(WINDOW_DURATION_PARAMETER_ID);
+
+        // processors saved before there were time windows do not have the parameter
+        return (parameter != null) ? parameter.getValueAsInteger() : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setWindowDuration(int windowDuration) throws ValidationException {
+        getParameter(WINDOW_DURATION_PARAMETER_ID).setValue(windowDuration);
+    }
+
+    /**
+     * Returns the maximum number of values kept in the time window, which bounds its memory however fast events arrive.
+     */
+    public int getMaximumWindowEntries() {
+        Parameter parameter = getParameter(MAXIMUM_WINDOW_ENTRIES_PARAMETER_ID);
+
+        return (parameter != null) ? parameter.getValueAsInteger() : DEFAULT_MAXIMUM_WINDOW_ENTRIES;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setMaximumWindowEntries(int maximumWindowEntries) throws ValidationException {
+        getParameter(MAXIMUM_WINDOW_ENTRIES_PARAMETER_ID).setValue(maximumWindowEntries);
+    }
+
+    /**
+     * Returns the name of the attribute to keep a separate average for each value of, or null for a single average.
+     */
+    public String getGroupByAttributeName() {
+        Parameter parameter = getParameter(GROUP_BY_PARAMETER_ID);
+        String attributeName = (parameter != null) ? parameter.getValueAsString() : null;
+
+        return (attributeName != null && attributeName.trim().length() > 0) ? attributeName.trim() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setGroupByAttributeName(String groupByAttributeName) throws ValidationException {
+        getParameter(GROUP_BY_PARAMETER_ID).setValue(groupByAttributeName);
+    }
+
+    public int getMaximumGroups() {
+        Parameter parameter = getParameter(MAXIMUM_GROUPS_PARAMETER_ID);
+
+        return (parameter != null) ? parameter.getValueAsInteger() : DEFAULT_MAXIMUM_GROUPS;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setMaximumGroups(int maximumGroups) throws ValidationException {
+        getParameter(MAXIMUM_GROUPS_PARAMETER_ID).setValue(maximumGroups);
+    }
+
+    public int getGroupIdleTimeout() {
+        Parameter parameter = getParameter(GROUP_IDLE_TIMEOUT_PARAMETER_ID);
+
+        return (parameter != null) ? parameter.getValueAsInteger() : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setGroupIdleTimeout(int groupIdleTimeout) throws ValidationException {
+        getParameter(GROUP_IDLE_TIMEOUT_PARAMETER_ID).setValue(groupIdleTimeout);
+    }
+
     public ProcessorInput getInput() {
         // there is only one input for an Sma
         return getInputs().get(0);
@@ -115,14 +214,49 @@ public class Sma extends Processor<Double> {
 
     /**
      * {@link Sma}s need memory to store the prior events that will be used to calculate the average based on. We
-     * used a {@link MemoryProvider#createCircularBuffer(int)} to store this data.
+     * used a {@link MemoryProvider#createDoubleCircularBuffer(int)} or, if there is a window duration, a
+     * {@link MemoryProvider#createDoubleTimeWindow(long, TimeUnit, int, org.lisapark.octopus.core.memory.Clock)}
+     * to store this data. If there is a group by attribute there is a window for every group in a
+     * {@link MemoryProvider#createKeyedMemory keyed memory}.
      *
      * @param memoryProvider used to create sma's memory
-     * @return circular buffer
+     * @return circular buffer, time window or keyed memory
      */
     @Override
     public Memory<Double> createMemoryForProcessor(MemoryProvider memoryProvider) {
-        return memoryProvider.createCircularBuffer(getWindowLength());
+        if (getGroupByAttributeName() != null) {
+            return memoryProvider.createKeyedMemory(
+                    getMaximumGroups(), getGroupIdleTimeout(), TimeUnit.SECONDS, SystemClock.INSTANCE,
+                    new KeyedMemory.PartitionFactory<DoubleMemory>() {
+                        @Override
+                        public DoubleMemory createPartition(MemoryProvider memoryProvider) {
+                            return createWindow(memoryProvider);
+                        }
+                    }
+            );
+        }
+
+        return createWindow(memoryProvider);
+    }
+
+    private DoubleMemory createWindow(MemoryProvider memoryProvider) {
+        int windowDuration = getWindowDuration();
+        if (windowDuration > 0) {
+            return memoryProvider.createDoubleTimeWindow(windowDuration, TimeUnit.SECONDS, getMaximumWindowEntries(),
+                    SystemClock.INSTANCE);
+        }
+
+        return memoryProvider.createDoubleCircularBuffer(getWindowLength());
+    }
+
+    @Override
+    public Set<String> getReadAttributeNames() {
+        String groupByAttributeName = getGroupByAttributeName();
+        if (groupByAttributeName == null) {
+            return super.getReadAttributeNames();
+        }
+
+        return Collections.singleton(groupByAttributeName);
     }
 
     /**
@@ -150,7 +284,7 @@ public class Sma extends Processor<Double> {
         UUID processorId = UUID.randomUUID();
         Sma sma = new Sma(processorId, DEFAULT_NAME, DEFAULT_DESCRIPTION);
 
-        // sma only has window length paramater
+        // sma has the window length and duration paramaters
         sma.addParameter(
                 Parameter.integerParameterWithIdAndName(WINDOW_LENGTH_PARAMETER_ID, "Time window").
                         description(DEFAULT_WINDOW_LENGTH_DESCRIPTION).
@@ -158,6 +292,40 @@ public class Sma extends Processor<Double> {
                         constraint(Constraints.integerConstraintWithMinimumAndMessage(1, "Time window should be greater than 1."))
         );
 
+        sma.addParameter(
+                Parameter.integerParameterWithIdAndName(WINDOW_DURATION_PARAMETER_ID, "Time window (seconds)").
+                        description(DEFAULT_WINDOW_DURATION_DESCRIPTION).
+                        defaultValue(0).
+                        constraint(Constraints.integerConstraintWithMinimumAndMessage(0, "Time window cannot be negative."))
+        );
+
+        sma.addParameter(
+                Parameter.integerParameterWithIdAndName(MAXIMUM_WINDOW_ENTRIES_PARAMETER_ID, "Maximum time window entries").
+                        description(DEFAULT_MAXIMUM_WINDOW_ENTRIES_DESCRIPTION).
+                        defaultValue(DEFAULT_MAXIMUM_WINDOW_ENTRIES).
+                        constraint(Constraints.integerConstraintWithMinimumAndMessage(1, "Maximum time window entries should be greater than 0."))
+        );
+
+        // optionally an average per group
+        sma.addParameter(
+                Parameter.stringParameterWithIdAndName(GROUP_BY_PARAMETER_ID, "Group by").
+                        description(DEFAULT_GROUP_BY_DESCRIPTION)
+        );
+
+        sma.addParameter(
+                Parameter.integerParameterWithIdAndName(MAXIMUM_GROUPS_PARAMETER_ID, "Maximum groups").
+                        description(DEFAULT_MAXIMUM_GROUPS_DESCRIPTION).
+                        defaultValue(DEFAULT_MAXIMUM_GROUPS).
+                        constraint(Constraints.integerConstraintWithMinimumAndMessage(1, "Maximum groups should be greater than 0."))
+        );
+
+        sma.addParameter(
+                Parameter.integerParameterWithIdAndName(GROUP_IDLE_TIMEOUT_PARAMETER_ID, "Group idle timeout (seconds)").
+                        description(DEFAULT_GROUP_IDLE_TIMEOUT_DESCRIPTION).
+                        defaultValue(0).
+                        constraint(Constraints.integerConstraintWithMinimumAndMessage(0, "Group idle timeout cannot be negative."))
+        );
+
         // only a single double input
         sma.addInput(
                 ProcessorInput.doubleInputWithId(INPUT_ID).name("Input").description(DEFAULT_INPUT_DESCRIPTION)
@@ -180,10 +348,12 @@ public class Sma extends Processor<Double> {
      */
     static class CompiledSma extends CompiledProcessor<Double> {
         private final String inputAttributeName;
+        private final String groupByAttributeName;
 
         protected CompiledSma(Sma sma) {
             super(sma);
             this.inputAttributeName = sma.getInput().getSourceAttributeName();
+            this.groupByAttributeName = sma.getGroupByAttributeName();
         }
 
         @Override
@@ -191,24 +361,28 @@ public class Sma extends Processor<Double> {
             // sma only has a single event
             Event event = eventsByInputId.get(INPUT_ID);
 
-            Double newItem = event.getAttributeAsDouble(inputAttributeName);
-
-            if (newItem == null) {
-                newItem = 0D;
-            }
-            Memory<Double> processorMemory = ctx.getProcessorMemory();
+            double newItem = event.getAttributeAsDouble(inputAttributeName, 0D);
+            DoubleMemory processorMemory = getWindow(ctx, event);
             processorMemory.add(newItem);
 
             double total = 0;
-            long numberItems = 0;
-            final Collection<Double> memoryItems = processorMemory.values();
+            int numberItems = processorMemory.size();
 
-            for (Double memoryItem : memoryItems) {
-                total += memoryItem;
-                numberItems++;
+            for (int i = 0; i < numberItems; ++i) {
+                total += processorMemory.get(i);
             }
 
             return total / numberItems;
         }
+
+        @SuppressWarnings("unchecked")
+        private DoubleMemory getWindow(ProcessorContext<Double> ctx, Event event) {
+            if (groupByAttributeName == null) {
+                return (DoubleMemory) ctx.getProcessorMemory();
+            }
+
+            KeyedMemory<Double, DoubleMemory> groups = (KeyedMemory<Double, DoubleMemory>) ctx.getProcessorMemory();
+            return groups.getMemoryForKey(event.getData().get(groupByAttributeName));
+        }
     }
 }
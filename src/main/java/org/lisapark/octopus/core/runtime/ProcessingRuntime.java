@@ -17,8 +17,11 @@
 package org.lisapark.octopus.core.runtime;
 
 import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.runtime.metrics.MetricsSnapshot;
 import org.lisapark.octopus.core.source.Source;
 
+import java.util.List;
+
 /**
  * @author dave sinclair(david.sinclair@lisa-park.com)
  */
@@ -28,4 +31,22 @@ public interface ProcessingRuntime {
     void shutdown();
 
     void sendEventFromSource(Event event, Source source);
+
+    /**
+     * Sends all of the specified events from the source in order. This is equivalent to calling
+     * {@link #sendEventFromSource(Event, Source)} for each event, but lets the runtime do the per source work only
+     * once, so sources that read many events at a time should prefer it.
+     *
+     * @param events to send
+     * @param source of events
+     */
+    void sendEventsFromSource(List<Event> events, Source source);
+
+    /**
+     * Returns the event counts and processing times of the sources, processors and sinks of this runtime together
+     * with the depths of its queues.
+     *
+     * @return snapshot of the metrics
+     */
+    MetricsSnapshot getMetrics();
 }
@@ -0,0 +1,118 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.akka;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The {@link ActorDispatcher} runs the actors of an {@link AkkaRuntime} on a shared pool of threads and keeps count
+ * of the messages that were sent to an actor but not processed yet, so the runtime knows when it is idle.
+ * <p/>
+ * The pool has a thread for every actor. Mailboxes are bounded and a sender blocks while the mailbox of the receiver
+ * is full; as long as the actors form a DAG an actor that has messages can therefore always get a thread and the
+ * blocked senders eventually make progress. Idle threads time out.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class ActorDispatcher {
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong pendingMessages = new AtomicLong();
+    private final Object idleMonitor = new Object();
+
+    public ActorDispatcher(String name, int numberOfActors) {
+        checkArgument(name != null, "name cannot be null");
+        checkArgument(numberOfActors > 0, "numberOfActors has to be greater than zero");
+
+        this.executor = new ThreadPoolExecutor(numberOfActors, numberOfActors,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ActorThreadFactory(name));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Schedules an actor to process the messages in its mailbox.
+     *
+     * @param actor to schedule
+     */
+    public void execute(Runnable actor) {
+        executor.execute(actor);
+    }
+
+    /**
+     * Has to be called before a message is put into a mailbox.
+     */
+    public void messageSent() {
+        pendingMessages.incrementAndGet();
+    }
+
+    /**
+     * Has to be called after a message was processed or could not be put into a mailbox.
+     */
+    public void messageProcessed() {
+        if (pendingMessages.decrementAndGet() == 0) {
+            synchronized (idleMonitor) {
+                idleMonitor.notifyAll();
+            }
+        }
+    }
+
+    public long getNumberOfPendingMessages() {
+        return pendingMessages.get();
+    }
+
+    /**
+     * Waits until all the messages sent so far were processed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitIdle() throws InterruptedException {
+        synchronized (idleMonitor) {
+            while (pendingMessages.get() > 0) {
+                idleMonitor.wait(100);
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class ActorThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        ActorThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-actor-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.akka;
+
+import org.lisapark.octopus.core.runtime.direct.DirectRuntime;
+import org.lisapark.octopus.core.runtime.direct.EventRoute;
+import org.lisapark.octopus.core.runtime.ingest.IngestionSettings;
+import org.lisapark.octopus.core.runtime.metrics.MetricsRegistry;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
+import org.lisapark.octopus.core.source.external.CompiledExternalSource;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The {@link AkkaRuntime} is a {@link DirectRuntime} whose routes put the events into the mailboxes of actors
+ * instead of calling the processors and sinks, so the branches of a model run on the threads of an
+ * {@link ActorDispatcher} instead of on the thread of the source.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ * @see org.lisapark.octopus.core.compiler.akka.AkkaCompiler
+ */
+public class AkkaRuntime extends DirectRuntime {
+    private final ActorDispatcher dispatcher;
+
+    public AkkaRuntime(Collection<CompiledExternalSource> externalSources, Map<UUID, EventRoute> routesBySourceId,
+                       Collection<? extends Closeable> resources, IngestionSettings ingestionSettings,
+                       MetricsRegistry metrics, ActorDispatcher dispatcher, PrintStream standardError) {
+        this(externalSources, routesBySourceId, resources, ingestionSettings, metrics, null, dispatcher, standardError);
+    }
+
+    /**
+     * @param tracer the routes of the sources record hops into, null to trace no events
+     */
+    public AkkaRuntime(Collection<CompiledExternalSource> externalSources, Map<UUID, EventRoute> routesBySourceId,
+                       Collection<? extends Closeable> resources, IngestionSettings ingestionSettings,
+                       MetricsRegistry metrics, Tracer tracer, ActorDispatcher dispatcher,
+                       PrintStream standardError) {
+        super(externalSources, routesBySourceId, resources, ingestionSettings, metrics, tracer, standardError);
+        checkArgument(dispatcher != null, "dispatcher cannot be null");
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Waits for the actors to process everything that is left in their mailboxes and then stops the dispatcher.
+     */
+    @Override
+    protected boolean awaitProcessingComplete() {
+        boolean interrupted = false;
+        boolean idle = false;
+
+        while (!idle) {
+            try {
+                dispatcher.awaitIdle();
+                idle = true;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        dispatcher.shutdown();
+
+        return interrupted;
+    }
+}
@@ -0,0 +1,297 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.basic;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.runtime.ProcessingRuntime;
+import org.lisapark.octopus.core.runtime.ingest.IngestionHandler;
+import org.lisapark.octopus.core.runtime.ingest.IngestionQueue;
+import org.lisapark.octopus.core.runtime.ingest.IngestionSettings;
+import org.lisapark.octopus.core.runtime.ingest.SourceIngestion;
+import org.lisapark.octopus.core.runtime.metrics.MetricsRegistry;
+import org.lisapark.octopus.core.runtime.metrics.MetricsSnapshot;
+import org.lisapark.octopus.core.runtime.metrics.NodeMetrics;
+import org.lisapark.octopus.core.runtime.metrics.NodeType;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
+import org.lisapark.octopus.core.sink.external.AsyncExternalSink;
+import org.lisapark.octopus.core.sink.external.BatchedExternalSink;
+import org.lisapark.octopus.core.source.Source;
+import org.lisapark.octopus.core.source.external.CompiledExternalSource;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The {@link BasicRuntime} runs the external sources of a model, queues their events if asked to, keeps the
+ * metrics and shuts everything down again. Subclasses only process the events the sources send.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public abstract class BasicRuntime implements ProcessingRuntime {
+    private final Collection<CompiledExternalSource> externalSources;
+
+    /**
+     * Resources, like off heap memories, that are released once the runtime is shutdown.
+     */
+    private final Collection<? extends Closeable> resources;
+
+    /**
+     * Queues between the sources and the engine, null if the sources send their events straight into the engine
+     */
+    private final SourceIngestion ingestion;
+
+    private final MetricsRegistry metrics;
+
+    /**
+     * Metrics of the sources the compiler registered, resolved once so that sending an event does not look them up
+     */
+    private final Map<UUID, NodeMetrics> sourceMetricsById;
+
+    /**
+     * Traces a sample of the events of the sources, null if no events are traced
+     */
+    private final Tracer tracer;
+
+    /**
+     * This service is used to run external sources in a background thread.
+     */
+    private final ExecutorService executorService;
+    private final PrintStream standardError;
+
+    private final RuntimeLifecycle lifecycle = new RuntimeLifecycle();
+
+    /**
+     * @param ingestionSettings how the events of the sources are queued, null to not queue them
+     * @param tracer            of the sampled events, null to trace no events
+     */
+    protected BasicRuntime(Collection<CompiledExternalSource> externalSources,
+                           Collection<? extends Closeable> resources, IngestionSettings ingestionSettings,
+                           MetricsRegistry metrics, Tracer tracer, PrintStream standardError) {
+        checkArgument(externalSources != null, "externalSources cannot be null");
+        checkArgument(resources != null, "resources cannot be null");
+        checkArgument(metrics != null, "metrics cannot be null");
+        checkArgument(standardError != null, "standardError cannot be null");
+        this.externalSources = externalSources;
+        this.resources = resources;
+        this.metrics = metrics;
+        this.sourceMetricsById = metrics.getNodeMetricsById(NodeType.SOURCE);
+        this.tracer = tracer;
+        this.standardError = standardError;
+        this.executorService = Executors.newFixedThreadPool(externalSources.size());
+
+        if (ingestionSettings != null) {
+            this.ingestion = new SourceIngestion(ingestionSettings, new IngestionHandler() {
+                @Override
+                public void processEvents(List<Event> events, Source source) {
+                    BasicRuntime.this.processEvents(events, source, true);
+                }
+            });
+        } else {
+            this.ingestion = null;
+        }
+    }
+
+    /**
+     * Processes an event the specified source sent.
+     *
+     * @param event  to process
+     * @param source that sent the event
+     * @param queued true if the event went through an ingestion queue
+     */
+    protected abstract void processEvent(Event event, Source source, boolean queued);
+
+    /**
+     * Processes the events the specified source sent, in order.
+     *
+     * @param events to process
+     * @param source that sent the events
+     * @param queued true if the events went through an ingestion queue
+     */
+    protected abstract void processEvents(List<Event> events, Source source, boolean queued);
+
+    /**
+     * Called when the runtime is started, before the external sources are. Runtimes with an engine start it here.
+     */
+    protected void startProcessing() {
+    }
+
+    /**
+     * Called during shutdown after all the external sources have finished, before the resources are released.
+     * Runtimes that process events asynchronously wait here for the processing to finish.
+     *
+     * @return true if the thread was interrupted while waiting
+     */
+    protected boolean awaitProcessingComplete() {
+        return false;
+    }
+
+    protected RuntimeLifecycle.State getCurrentState() {
+        return lifecycle.getCurrentState();
+    }
+
+    /**
+     * Returns the queues between the sources and the engine, which is empty if the events are not queued.
+     *
+     * @return ingestion queues
+     */
+    public Collection<IngestionQueue> getIngestionQueues() {
+        return (ingestion != null) ? ingestion.getQueues() : Collections.<IngestionQueue>emptyList();
+    }
+
+    /**
+     * Returns the sinks that process their events off the engine thread, which is empty if no sink does.
+     *
+     * @return asynchronous sinks
+     */
+    public Collection<AsyncExternalSink> getAsyncSinks() {
+        return ImmutableList.copyOf(Iterables.filter(resources, AsyncExternalSink.class));
+    }
+
+    /**
+     * Returns the sinks that write their events in batches, which is empty if no sink does.
+     *
+     * @return batched sinks
+     */
+    public Collection<BatchedExternalSink> getBatchedSinks() {
+        return ImmutableList.copyOf(Iterables.filter(resources, BatchedExternalSink.class));
+    }
+
+    @Override
+    public MetricsSnapshot getMetrics() {
+        return metrics.snapshot(getIngestionQueues(), getAsyncSinks());
+    }
+
+    /**
+     * Returns the tracer of the sampled events, null if no events are traced.
+     *
+     * @return tracer
+     */
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Shuts the runtime down, waiting for all the external sources to finish sending their events, including sends
+     * from threads the sources started themselves. The resources of the runtime are released afterwards.
+     */
+    @Override
+    public void shutdown() {
+        boolean interrupted = false;
+        boolean shutdownComplete = false;
+
+        lifecycle.shuttingDown();
+
+        while (!shutdownComplete) {
+            executorService.shutdown();
+
+            try {
+                shutdownComplete = executorService.awaitTermination(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        // sources may send from threads of their own, which have to be done before the resources are released
+        if (lifecycle.closing()) {
+            interrupted = true;
+        }
+
+        // whatever the sources queued still gets processed
+        if (ingestion != null && ingestion.shutdown()) {
+            interrupted = true;
+        }
+
+        if (awaitProcessingComplete()) {
+            interrupted = true;
+        }
+
+        lifecycle.shutdown();
+        RuntimeResources.closeAll(resources);
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void start() throws IllegalStateException {
+        // the runtime can only be shutdown once it is running, so the executor cannot reject any of the sources
+        lifecycle.starting();
+
+        startProcessing();
+
+        for (CompiledExternalSource source : externalSources) {
+            executorService.submit(new ExternalSourceDrainer(source, this, standardError));
+        }
+
+        lifecycle.started();
+    }
+
+    @Override
+    public void sendEventFromSource(Event event, Source source) {
+        lifecycle.beginSend();
+        try {
+            metricsOf(source).recordOutput();
+
+            if (ingestion != null) {
+                ingestion.offer((tracer != null) ? tracer.sampleForQueue(event) : event, source);
+            } else {
+                processEvent(event, source, false);
+            }
+        } finally {
+            lifecycle.endSend();
+        }
+    }
+
+    @Override
+    public void sendEventsFromSource(List<Event> events, Source source) {
+        lifecycle.beginSend();
+        try {
+            metricsOf(source).recordOutputs(events.size());
+
+            if (ingestion != null) {
+                ingestion.offer((tracer != null) ? tracer.sampleForQueue(events) : events, source);
+            } else {
+                processEvents(events, source, false);
+            }
+        } finally {
+            lifecycle.endSend();
+        }
+    }
+
+    /**
+     * Returns the metrics of the specified source, registering them if the compiler did not.
+     */
+    private NodeMetrics metricsOf(Source source) {
+        NodeMetrics sourceMetrics = sourceMetricsById.get(source.getId());
+
+        return (sourceMetrics != null) ? sourceMetrics : metrics.register(source.getId(), source.getName(),
+                NodeType.SOURCE);
+    }
+}
@@ -0,0 +1,66 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.basic;
+
+import org.lisapark.octopus.core.ProcessingException;
+import org.lisapark.octopus.core.runtime.ProcessingRuntime;
+import org.lisapark.octopus.core.source.external.CompiledExternalSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The {@link ExternalSourceDrainer} runs a {@link CompiledExternalSource} against a {@link ProcessingRuntime} in the
+ * thread it is executed in, reporting any {@link ProcessingException} to standard error.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class ExternalSourceDrainer implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExternalSourceDrainer.class);
+    private final CompiledExternalSource source;
+    private final ProcessingRuntime runtime;
+    private final PrintStream standardError;
+
+    public ExternalSourceDrainer(CompiledExternalSource source, ProcessingRuntime runtime, PrintStream standardError) {
+        checkArgument(source != null, "source cannot be null");
+        checkArgument(runtime != null, "runtime cannot be null");
+        checkArgument(standardError != null, "standardError cannot be null");
+        this.source = source;
+        this.runtime = runtime;
+        this.standardError = standardError;
+    }
+
+    @Override
+    public void run() {
+        try {
+            source.startProcessingEvents(runtime);
+        } catch (ProcessingException e) {
+            // output it to standard error and the LOG
+            standardError.println(e.getLocalizedMessage());
+            e.printStackTrace(standardError);
+
+            LOG.error(String.format("Processing exception while draining source [%s]", source), e);
+
+        } finally {
+            source.stopProcessingEvents();
+        }
+    }
+}
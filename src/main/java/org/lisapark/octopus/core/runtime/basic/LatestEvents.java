@@ -0,0 +1,125 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.basic;
+
+import com.google.common.collect.Maps;
+import org.lisapark.octopus.core.Input;
+import org.lisapark.octopus.core.event.Event;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The {@link LatestEvents} of the inputs of a processor or sink that is run without an event processing engine. Just
+ * like the {@code win:length(1)} windows of the Esper statements, it keeps the latest event of each input and only
+ * fires once every input has seen an event.
+ * <p/>
+ * Inputs are identified by their index in the list of inputs. This class is not thread safe; callers have to make
+ * sure only one thread updates it at a time.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class LatestEvents {
+    private final int[] inputIds;
+    private final UUID[] sourceIds;
+    private final Event[] latestEvents;
+    private int numberOfInputsWithoutEvent;
+
+    public LatestEvents(List<? extends Input> inputs) {
+        this.inputIds = new int[inputs.size()];
+        this.sourceIds = new UUID[inputs.size()];
+        this.latestEvents = new Event[inputs.size()];
+        this.numberOfInputsWithoutEvent = inputs.size();
+
+        for (int i = 0; i < inputIds.length; ++i) {
+            Input input = inputs.get(i);
+            inputIds[i] = input.getId();
+            sourceIds[i] = (input.getSource() != null) ? input.getSource().getId() : null;
+        }
+    }
+
+    /**
+     * Returns the indexes of the inputs that are connected to the source with the specified id.
+     *
+     * @param sourceId of source
+     * @return input indexes
+     */
+    public int[] getInputIndexesForSource(UUID sourceId) {
+        int count = 0;
+        for (UUID candidate : sourceIds) {
+            if (sourceId.equals(candidate)) {
+                count++;
+            }
+        }
+
+        int[] indexes = new int[count];
+        int index = 0;
+        for (int i = 0; i < sourceIds.length; ++i) {
+            if (sourceId.equals(sourceIds[i])) {
+                indexes[index++] = i;
+            }
+        }
+
+        return indexes;
+    }
+
+    /**
+     * Records the event as the latest event of the specified inputs and returns the latest events of all inputs by
+     * input id, or null if some input has not seen an event yet.
+     *
+     * @param inputIndexes the event arrived on
+     * @param event        that arrived
+     * @return events by input id or null
+     */
+    public Map<Integer, Event> update(int[] inputIndexes, Event event) {
+        for (int inputIndex : inputIndexes) {
+            if (latestEvents[inputIndex] == null) {
+                numberOfInputsWithoutEvent--;
+            }
+            latestEvents[inputIndex] = event;
+        }
+
+        if (numberOfInputsWithoutEvent > 0) {
+            return null;
+        }
+
+        Map<Integer, Event> eventsByInputId = Maps.newHashMapWithExpectedSize(inputIds.length);
+        for (int i = 0; i < inputIds.length; ++i) {
+            eventsByInputId.put(inputIds[i], latestEvents[i]);
+        }
+
+        return eventsByInputId;
+    }
+
+    /**
+     * Returns the event by the ids of the specified inputs only, without waiting for the other inputs, for sinks that
+     * merge their inputs. The latest events are left untouched.
+     *
+     * @param inputIndexes the event arrived on
+     * @param event        that arrived
+     * @return event by input id
+     */
+    public Map<Integer, Event> eventByInputIds(int[] inputIndexes, Event event) {
+        Map<Integer, Event> eventByInputId = Maps.newHashMapWithExpectedSize(inputIndexes.length);
+        for (int inputIndex : inputIndexes) {
+            eventByInputId.put(inputIds[inputIndex], event);
+        }
+
+        return eventByInputId;
+    }
+}
@@ -0,0 +1,140 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.basic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * The {@link RuntimeLifecycle} tracks the {@link State} of a runtime. The state is only ever changed with a compare
+ * and set, so checking whether a runtime accepts events just needs a single volatile read instead of a lock.
+ * <p/>
+ * Sends from the sources are counted while they are in flight. A source may send from a thread of its own, which
+ * the runtime does not wait for, so the shutdown waits for the count to drop to zero before the resources the sends
+ * use are released.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class RuntimeLifecycle {
+
+    public static enum State {
+        NOT_STARTED(false), STARTING(true), RUNNING(true), SHUTTING_DOWN(true), CLOSING(false), SHUTDOWN(false);
+
+        private final boolean acceptingEvents;
+
+        State(boolean acceptingEvents) {
+            this.acceptingEvents = acceptingEvents;
+        }
+
+        /**
+         * Sources are allowed to send events while the runtime is starting since they are started before it is
+         * running, and while it is shutting down since the shutdown waits for them to finish. Once it is closing
+         * the runtime releases its resources and turns sends away.
+         */
+        public boolean isAcceptingEvents() {
+            return acceptingEvents;
+        }
+    }
+
+    private static final long IN_FLIGHT_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final AtomicReference<State> currentState = new AtomicReference<State>(State.NOT_STARTED);
+
+    /**
+     * Number of sends from sources that have started but not finished
+     */
+    private final AtomicInteger sendsInFlight = new AtomicInteger();
+
+    public State getCurrentState() {
+        return currentState.get();
+    }
+
+    /**
+     * Moves the runtime from {@link State#NOT_STARTED} to {@link State#STARTING}. The runtime can only be shutdown
+     * once it is {@link #started()}, so it has to start its sources in between.
+     *
+     * @throws IllegalStateException if the runtime has already been started
+     */
+    public void starting() throws IllegalStateException {
+        if (!currentState.compareAndSet(State.NOT_STARTED, State.STARTING)) {
+            throw new IllegalStateException(String.format("Cannot start runtime unless status is %s", State.NOT_STARTED));
+        }
+    }
+
+    public void started() {
+        currentState.set(State.RUNNING);
+    }
+
+    /**
+     * Moves the runtime from {@link State#RUNNING} to {@link State#SHUTTING_DOWN}.
+     *
+     * @throws IllegalStateException if the runtime is not running
+     */
+    public void shuttingDown() throws IllegalStateException {
+        checkState(currentState.compareAndSet(State.RUNNING, State.SHUTTING_DOWN),
+                "Cannot shutdown if the runtime is not running");
+    }
+
+    /**
+     * Moves the runtime from {@link State#SHUTTING_DOWN} to {@link State#CLOSING} and waits for the sends that are
+     * still in flight to finish. Sends that start afterwards are turned away.
+     *
+     * @return true if the thread was interrupted while waiting
+     */
+    public boolean closing() {
+        checkState(currentState.compareAndSet(State.SHUTTING_DOWN, State.CLOSING),
+                "Cannot close the runtime unless it is shutting down");
+
+        boolean interrupted = false;
+        while (sendsInFlight.get() > 0) {
+            LockSupport.parkNanos(IN_FLIGHT_PARK_NANOS);
+
+            if (Thread.interrupted()) {
+                interrupted = true;
+            }
+        }
+
+        return interrupted;
+    }
+
+    public void shutdown() {
+        currentState.set(State.SHUTDOWN);
+    }
+
+    /**
+     * Starts a send from a source. The send is counted as in flight before the state is checked, so a shutdown
+     * either turns it away or waits for it. Every call that returns has to be followed by {@link #endSend()}.
+     *
+     * @throws IllegalStateException if the runtime does not accept events from its sources
+     */
+    public void beginSend() throws IllegalStateException {
+        sendsInFlight.incrementAndGet();
+
+        if (!currentState.get().isAcceptingEvents()) {
+            sendsInFlight.decrementAndGet();
+            throw new IllegalStateException("Cannot send an event unless the runtime has been started");
+        }
+    }
+
+    public void endSend() {
+        sendsInFlight.decrementAndGet();
+    }
+}
@@ -0,0 +1,52 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.basic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Utilities for the resources, like off heap memories, a runtime holds on to until it is shutdown.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public abstract class RuntimeResources {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RuntimeResources.class);
+
+    /**
+     * Closes every one of the specified resources. A resource that fails to close is logged and does not stop the
+     * others from being closed.
+     *
+     * @param resources to close
+     */
+    public static void closeAll(Collection<? extends Closeable> resources) {
+        for (Closeable resource : resources) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                LOG.error("Problem closing runtime resource " + resource, e);
+            } catch (RuntimeException e) {
+                LOG.error("Problem closing runtime resource " + resource, e);
+            }
+        }
+    }
+}
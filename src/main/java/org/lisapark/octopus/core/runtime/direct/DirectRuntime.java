@@ -0,0 +1,107 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.direct;
+
+import com.google.common.collect.ImmutableMap;
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.runtime.ProcessingRuntime;
+import org.lisapark.octopus.core.runtime.basic.BasicRuntime;
+import org.lisapark.octopus.core.runtime.ingest.IngestionSettings;
+import org.lisapark.octopus.core.runtime.metrics.MetricsRegistry;
+import org.lisapark.octopus.core.runtime.trace.TracedEvent;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
+import org.lisapark.octopus.core.source.Source;
+import org.lisapark.octopus.core.source.external.CompiledExternalSource;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The {@link DirectRuntime} is a {@link ProcessingRuntime} without an event processing engine underneath. Events
+ * sent from a source are handed to the {@link EventRoute} of that source, which calls the consuming processors and
+ * sinks directly in the thread of the source.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ * @see org.lisapark.octopus.core.compiler.direct.DirectCompiler
+ */
+public class DirectRuntime extends BasicRuntime {
+    private final Map<UUID, EventRoute> routesBySourceId;
+
+    public DirectRuntime(Collection<CompiledExternalSource> externalSources, Map<UUID, EventRoute> routesBySourceId,
+                         Collection<? extends Closeable> resources, IngestionSettings ingestionSettings,
+                         MetricsRegistry metrics, PrintStream standardError) {
+        this(externalSources, routesBySourceId, resources, ingestionSettings, metrics, null, standardError);
+    }
+
+    /**
+     * @param tracer the processor and sink nodes record hops into, null to trace no events
+     */
+    public DirectRuntime(Collection<CompiledExternalSource> externalSources, Map<UUID, EventRoute> routesBySourceId,
+                         Collection<? extends Closeable> resources, IngestionSettings ingestionSettings,
+                         MetricsRegistry metrics, Tracer tracer, PrintStream standardError) {
+        super(externalSources, resources, ingestionSettings, metrics, tracer, standardError);
+        checkArgument(routesBySourceId != null, "routesBySourceId cannot be null");
+        this.routesBySourceId = ImmutableMap.copyOf(routesBySourceId);
+    }
+
+    @Override
+    protected void processEvent(Event event, Source source, boolean queued) {
+        EventRoute route = routesBySourceId.get(source.getId());
+        if (route != null) {
+            routeEvent(route, event, source, queued);
+        }
+    }
+
+    @Override
+    protected void processEvents(List<Event> events, Source source, boolean queued) {
+        EventRoute route = routesBySourceId.get(source.getId());
+        if (route != null) {
+            for (int i = 0; i < events.size(); ++i) {
+                routeEvent(route, events.get(i), source, queued);
+            }
+        }
+    }
+
+    private void routeEvent(EventRoute route, Event event, Source source, boolean queued) {
+        Tracer tracer = getTracer();
+        long startNanos = (tracer != null) ? tracer.startNanosOf(event, queued) : Tracer.NOT_SAMPLED;
+
+        if (startNanos == Tracer.NOT_SAMPLED) {
+            route.routeEvent(event);
+            return;
+        }
+
+        Event untracedEvent = (event instanceof TracedEvent) ? ((TracedEvent) event).getEvent() : event;
+        if (!tracer.begin(source, startNanos)) {
+            route.routeEvent(untracedEvent);
+            return;
+        }
+
+        // the route calls every processor and sink on this thread before it returns
+        try {
+            route.routeEvent(untracedEvent);
+        } finally {
+            tracer.end();
+        }
+    }
+}
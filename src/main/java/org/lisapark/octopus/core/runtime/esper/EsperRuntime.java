@@ -16,24 +16,21 @@
  */
 package org.lisapark.octopus.core.runtime.esper;
 
+import com.espertech.esper.client.EPRuntime;
 import com.espertech.esper.client.EPServiceProvider;
-import org.lisapark.octopus.core.ProcessingException;
+import org.lisapark.octopus.core.ProcessingModel;
+import org.lisapark.octopus.core.ValidationException;
 import org.lisapark.octopus.core.event.Event;
-import org.lisapark.octopus.core.runtime.ProcessingRuntime;
+import org.lisapark.octopus.core.runtime.basic.BasicRuntime;
+import org.lisapark.octopus.core.runtime.basic.RuntimeLifecycle;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
 import org.lisapark.octopus.core.source.Source;
 import org.lisapark.octopus.core.source.external.CompiledExternalSource;
-import org.lisapark.octopus.util.esper.EsperUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.lisapark.octopus.util.esper.EventNameRegistry;
 
 import java.io.PrintStream;
 import java.util.Collection;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.List;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -41,145 +38,105 @@ import static com.google.common.base.Preconditions.checkState;
 /**
  * @author dave sinclair(david.sinclair@lisa-park.com)
  */
-public class EsperRuntime implements ProcessingRuntime {
+public class EsperRuntime extends BasicRuntime {
     private final EPServiceProvider epService;
-    private final Collection<CompiledExternalSource> externalSources;
+    private final EPRuntime epRuntime;
+    private final EventNameRegistry eventNames;
 
     /**
-     * This service is used to run external sources in a background thread.
+     * Replaces the statements of changed processors and sinks, null if the runtime cannot be redeployed
      */
-    private final ExecutorService executorService;
+    private final ModelRedeployer redeployer;
+
     private final PrintStream standardOut;
-    private final PrintStream standardError;
 
-    static enum State {
-        NOT_STARTED, RUNNING, SHUTDOWN
+    public EsperRuntime(EPServiceProvider epService, Collection<CompiledExternalSource> externalSources,
+                        PrintStream standardOut, PrintStream standardError) {
+        this(epService, externalSources, new EventNameRegistry(), EsperRuntimeSettings.builder().build(), standardOut,
+                standardError);
     }
 
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-    private final Lock readLock = readWriteLock.readLock();
-    private final Lock writeLock = readWriteLock.writeLock();
-
-    private State currentState = State.NOT_STARTED;
-
+    /**
+     * @param eventNames the statements of the model were created with
+     * @param settings   of the runtime
+     */
     public EsperRuntime(EPServiceProvider epService, Collection<CompiledExternalSource> externalSources,
-                        PrintStream standardOut, PrintStream standardError) {
+                        EventNameRegistry eventNames, EsperRuntimeSettings settings, PrintStream standardOut,
+                        PrintStream standardError) {
+        super(externalSources, checkSettings(settings).getResources(), settings.getIngestionSettings(),
+                settings.getMetrics(), settings.getTracer(), standardError);
         checkArgument(epService != null, "epService cannot be null");
-        checkArgument(externalSources != null, "externalSources cannot be null");
+        checkArgument(eventNames != null, "eventNames cannot be null");
         checkArgument(standardOut != null, "standardOut cannot be null");
-        checkArgument(standardError != null, "standardError cannot be null");
         this.epService = epService;
-        this.externalSources = externalSources;
+        this.epRuntime = epService.getEPRuntime();
+        this.eventNames = eventNames;
+        this.redeployer = settings.getRedeployer();
         this.standardOut = standardOut;
-        this.standardError = standardError;
-        this.executorService = Executors.newFixedThreadPool(externalSources.size());
     }
 
-    protected State getCurrentState() {
-        readLock.lock();
-
-        try {
-            return currentState;
-        } finally {
-            readLock.unlock();
-        }
+    private static EsperRuntimeSettings checkSettings(EsperRuntimeSettings settings) {
+        checkArgument(settings != null, "settings cannot be null");
+        return settings;
     }
 
     /**
+     * Replaces the processors and sinks of the running model with those of the specified version of it while the
+     * sources keep sending events. Processors and sinks that did not change keep running untouched, changed ones get
+     * new statements and processors keep their memory if they ask for the same kind of window as before. The sources
+     * themselves cannot change.
+     * <p/>
+     * Events are held up while the statements are swapped. This must not be called from a processor or sink, nor
+     * while the runtime is being shutdown.
      *
+     * @param model changed version of the running model
+     * @throws ValidationException if the model cannot be deployed, in which case the runtime keeps running the
+     *                             model it had
      */
-    @Override
-    public void shutdown() {
-        boolean interrupted = false;
-        boolean shutdownComplete = false;
-
-        readLock.lock();
-        try {
-            checkState(currentState == State.RUNNING, "Cannot shutdown if the runtime is not running");
+    public void redeploy(ProcessingModel model) throws ValidationException {
+        checkArgument(model != null, "model cannot be null");
+        checkState(redeployer != null, "The runtime was not compiled to be redeployed");
 
-            while (!shutdownComplete) {
-                executorService.shutdown();
+        RuntimeLifecycle.State state = getCurrentState();
+        checkState(state == RuntimeLifecycle.State.NOT_STARTED || state == RuntimeLifecycle.State.RUNNING,
+                "Cannot redeploy unless the runtime is running or has not been started");
 
-                try {
-                    shutdownComplete = executorService.awaitTermination(100, TimeUnit.MILLISECONDS);
-                } catch (InterruptedException e) {
-                    interrupted = true;
-                }
-            }
-        } finally {
-            readLock.unlock();
-        }
-
-        if (interrupted) {
-            Thread.currentThread().interrupt();
-        }
+        redeployer.redeploy(model);
     }
 
     @Override
-    public void start() throws IllegalStateException {
-        writeLock.lock();
-
-        try {
-            if (currentState != State.NOT_STARTED) {
-                throw new IllegalStateException(String.format("Cannot start runtime unless status is %s", State.NOT_STARTED));
-            }
-
-            currentState = State.RUNNING;
-
-            // start all the statements
-            epService.getEPAdministrator().startAllStatements();
-
-            for (CompiledExternalSource source : externalSources) {
-                executorService.submit(new ExternalSourceDrainer(source, this, standardError));
-            }
-        } finally {
-            writeLock.unlock();
-        }
+    protected void startProcessing() {
+        // start all the statements
+        epService.getEPAdministrator().startAllStatements();
     }
 
     @Override
-    public void sendEventFromSource(Event event, Source source) {
-        readLock.lock();
-
-        try {
-            checkState(currentState == State.RUNNING, "Cannot send an event unless the runtime has been started");
+    protected void processEvent(Event event, Source source, boolean queued) {
+        sendToEngine(event, eventNames.getEventName(source), source, queued);
+    }
 
-            epService.getEPRuntime().sendEvent(event.getData(), EsperUtils.getEventNameForSource(source));
-        } finally {
-            readLock.unlock();
+    @Override
+    protected void processEvents(List<Event> events, Source source, boolean queued) {
+        String eventName = eventNames.getEventName(source);
+        for (int i = 0; i < events.size(); ++i) {
+            sendToEngine(events.get(i), eventName, source, queued);
         }
     }
 
-    /**
-     * @author dave sinclair(david.sinclair@lisa-park.com)
-     */
-    static class ExternalSourceDrainer implements Runnable {
-
-        private static final Logger LOG = LoggerFactory.getLogger(ExternalSourceDrainer.class);
-        private final CompiledExternalSource source;
-        private final ProcessingRuntime runtime;
-        private final PrintStream standardError;
+    private void sendToEngine(Event event, String eventName, Source source, boolean queued) {
+        Tracer tracer = getTracer();
+        long startNanos = (tracer != null) ? tracer.startNanosOf(event, queued) : Tracer.NOT_SAMPLED;
 
-        private ExternalSourceDrainer(CompiledExternalSource source, ProcessingRuntime runtime, PrintStream standardError) {
-            this.source = source;
-            this.runtime = runtime;
-            this.standardError = standardError;
+        if (startNanos == Tracer.NOT_SAMPLED || !tracer.begin(source, startNanos)) {
+            epRuntime.sendEvent(event.getData(), eventName);
+            return;
         }
 
-        @Override
-        public void run() {
-            try {
-                source.startProcessingEvents(runtime);
-            } catch (ProcessingException e) {
-                // output it to standard error and the LOG
-                standardError.println(e.getLocalizedMessage());
-                e.printStackTrace(standardError);
-
-                LOG.error(String.format("Processing exception while draining source [%s]", source), e);
-
-            } finally {
-                source.stopProcessingEvents();
-            }
+        // everything the event sets off in the engine happens on this thread before sendEvent returns
+        try {
+            epRuntime.sendEvent(event.getData(), eventName);
+        } finally {
+            tracer.end();
         }
     }
 }
@@ -0,0 +1,158 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.esper;
+
+import org.lisapark.octopus.core.runtime.ingest.IngestionSettings;
+import org.lisapark.octopus.core.runtime.metrics.MetricsRegistry;
+import org.lisapark.octopus.core.runtime.trace.Tracer;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * What an {@link EsperRuntime} needs besides its engine and sources, all of which is optional. The settings are
+ * created with a {@link Builder}; anything that is not set is left out of the runtime.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class EsperRuntimeSettings {
+
+    private final Collection<? extends Closeable> resources;
+    private final IngestionSettings ingestionSettings;
+    private final MetricsRegistry metrics;
+    private final Tracer tracer;
+    private final ModelRedeployer redeployer;
+
+    private EsperRuntimeSettings(Builder builder) {
+        this.resources = builder.resources;
+        this.ingestionSettings = builder.ingestionSettings;
+        this.metrics = (builder.metrics != null) ? builder.metrics : new MetricsRegistry();
+        this.tracer = builder.tracer;
+        this.redeployer = builder.redeployer;
+    }
+
+    /**
+     * Returns the resources that are released at shutdown, which is empty if there are none.
+     *
+     * @return resources
+     */
+    public Collection<? extends Closeable> getResources() {
+        return resources;
+    }
+
+    /**
+     * Returns how the events of the sources are queued, or null if they go straight into the engine.
+     *
+     * @return ingestion settings or null
+     */
+    public IngestionSettings getIngestionSettings() {
+        return ingestionSettings;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the tracer the adaptors record hops into, or null if no events are traced.
+     *
+     * @return tracer or null
+     */
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Returns the redeployer of the model, or null if the runtime cannot be redeployed.
+     *
+     * @return redeployer or null
+     */
+    public ModelRedeployer getRedeployer() {
+        return redeployer;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Collection<? extends Closeable> resources = Collections.emptyList();
+        private IngestionSettings ingestionSettings;
+        private MetricsRegistry metrics;
+        private Tracer tracer;
+        private ModelRedeployer redeployer;
+
+        private Builder() {
+        }
+
+        /**
+         * @param resources released at shutdown; a redeployer adds and removes the resources of the nodes it
+         *                  replaces, so they have to be in a collection that can be iterated while it does
+         * @return this builder
+         */
+        public Builder resources(Collection<? extends Closeable> resources) {
+            checkArgument(resources != null, "resources cannot be null");
+            this.resources = resources;
+            return this;
+        }
+
+        /**
+         * @param ingestionSettings how the events of the sources are queued, null to send them straight into the
+         *                          engine
+         * @return this builder
+         */
+        public Builder ingestionSettings(IngestionSettings ingestionSettings) {
+            this.ingestionSettings = ingestionSettings;
+            return this;
+        }
+
+        /**
+         * @param metrics the adaptors of the processors and sinks record into, a new registry if not set
+         * @return this builder
+         */
+        public Builder metrics(MetricsRegistry metrics) {
+            checkArgument(metrics != null, "metrics cannot be null");
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param tracer the adaptors of the processors and sinks record hops into, null to trace no events
+         * @return this builder
+         */
+        public Builder tracer(Tracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+
+        /**
+         * @param redeployer of the model, null if the runtime cannot be redeployed
+         * @return this builder
+         */
+        public Builder redeployer(ModelRedeployer redeployer) {
+            this.redeployer = redeployer;
+            return this;
+        }
+
+        public EsperRuntimeSettings build() {
+            return new EsperRuntimeSettings(this);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.esper;
+
+import org.lisapark.octopus.core.ProcessingModel;
+import org.lisapark.octopus.core.ValidationException;
+
+/**
+ * A {@link ModelRedeployer} knows which statements the compiler created for every processor and sink of the model an
+ * {@link EsperRuntime} is running, so it can replace the ones that changed without stopping the runtime.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ * @see EsperRuntime#redeploy(ProcessingModel)
+ */
+public interface ModelRedeployer {
+
+    /**
+     * Replaces the processors and sinks that are different in the specified model, adds the new ones and removes the
+     * ones that are gone. Either all of them are replaced or, if one of them fails to compile, none are.
+     *
+     * @param model changed version of the running model
+     * @throws ValidationException if the model cannot be deployed
+     */
+    void redeploy(ProcessingModel model) throws ValidationException;
+}
@@ -0,0 +1,187 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.ingest;
+
+import com.google.common.collect.Lists;
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.source.Source;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An {@link IngestionQueue} backed by a bounded {@link BlockingQueue}. The source puts its events into the
+ * queue and a dedicated engine thread takes them out, in batches, and hands them to an
+ * {@link IngestionHandler}. This way a slow sink slows down the engine thread instead of the source, and when the
+ * queue fills up the {@link OverflowPolicy} decides whether the source waits or events are shed.
+ * <p/>
+ * The queue keeps counts of the events that were queued, processed and dropped and of the deepest the queue has
+ * been.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class BoundedIngestionQueue implements IngestionQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BoundedIngestionQueue.class);
+
+    /**
+     * Maximum number of events that are handed to the handler at a time
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * How long the engine thread waits for an event before checking whether it has been stopped
+     */
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final Source source;
+    private final IngestionHandler handler;
+    private final int capacity;
+    private final BlockingQueue<Event> queue;
+    private final BoundedQueueWriter<Event> writer;
+    private final Thread engineThread;
+
+    private final AtomicLong processedCount = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public BoundedIngestionQueue(Source source, IngestionSettings settings, IngestionHandler handler) {
+        checkArgument(source != null, "source cannot be null");
+        checkArgument(settings != null, "settings cannot be null");
+        checkArgument(handler != null, "handler cannot be null");
+        this.source = source;
+        this.handler = handler;
+        this.capacity = settings.getQueueCapacity();
+        this.queue = new ArrayBlockingQueue<Event>(capacity);
+        this.writer = new BoundedQueueWriter<Event>(settings.getOverflowPolicy(), capacity,
+                settings.getSampleInterval());
+
+        this.engineThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                processQueuedEvents();
+            }
+        }, "octopus-ingest-" + source.getName());
+        this.engineThread.setDaemon(true);
+    }
+
+    @Override
+    public void start() {
+        engineThread.start();
+    }
+
+    /**
+     * Queues the specified event, applying the overflow policy if the queue is full. Called by the source thread.
+     *
+     * @param event to queue
+     */
+    @Override
+    public void offer(Event event) {
+        writer.offer(queue, event);
+    }
+
+    private void processQueuedEvents() {
+        List<Event> batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Event event = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (event != null) {
+                    batch.add(event);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+
+                    processBatch(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                // keep going until stopped, the queue has to be drained
+            }
+        }
+    }
+
+    private void processBatch(List<Event> batch) {
+        try {
+            handler.processEvents(batch, source);
+
+        } catch (RuntimeException e) {
+            LOG.error(String.format("Problem processing events from source [%s]", source.getName()), e);
+
+        } finally {
+            processedCount.addAndGet(batch.size());
+        }
+    }
+
+    /**
+     * Stops taking events off the queue once it is empty and waits for the engine thread to finish. The source has
+     * to be done sending events before this is called.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public void shutdown() throws InterruptedException {
+        running = false;
+        engineThread.join();
+    }
+
+    @Override
+    public Source getSource() {
+        return source;
+    }
+
+    @Override
+    public OverflowPolicy getOverflowPolicy() {
+        return writer.getOverflowPolicy();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public int getMaximumDepth() {
+        return writer.getMaximumDepth();
+    }
+
+    @Override
+    public long getQueuedCount() {
+        return writer.getQueuedCount();
+    }
+
+    @Override
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return writer.getDroppedCount();
+    }
+}
@@ -0,0 +1,140 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.ingest;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Puts elements into bounded queues, applying an {@link OverflowPolicy} when a queue is full. The writer counts the
+ * elements that were queued and dropped and keeps the deepest any of its queues has been, so one writer can serve
+ * several queues of the same capacity.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class BoundedQueueWriter<E> {
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleThreshold;
+    private final int sampleInterval;
+
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private volatile int maximumDepth;
+
+    /**
+     * @param overflowPolicy applied when a queue is full
+     * @param capacity       of the queues
+     * @param sampleInterval one in how many elements is let in once a queue is three quarters full, for
+     *                       {@link OverflowPolicy#SAMPLE}
+     */
+    public BoundedQueueWriter(OverflowPolicy overflowPolicy, int capacity, int sampleInterval) {
+        checkArgument(overflowPolicy != null, "overflowPolicy cannot be null");
+        checkArgument(capacity > 0, "capacity has to be greater than zero");
+        checkArgument(sampleInterval > 0, "sampleInterval has to be greater than zero");
+        this.overflowPolicy = overflowPolicy;
+        this.sampleThreshold = Math.max(1, capacity - capacity / 4);
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Puts the element into the queue unless the overflow policy drops it. If the thread is interrupted while it
+     * waits for room the element is dropped and the thread stays interrupted.
+     *
+     * @param queue   to put the element into
+     * @param element to queue
+     * @return true if the element was queued
+     */
+    public boolean offer(BlockingQueue<E> queue, E element) {
+        boolean queued;
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                queued = put(queue, element);
+                break;
+
+            case DROP_OLDEST:
+                queued = queue.offer(element);
+                while (!queued) {
+                    if (queue.poll() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                    queued = queue.offer(element);
+                }
+                break;
+
+            case SAMPLE:
+                if (queue.size() >= sampleThreshold && sampleCounter.getAndIncrement() % sampleInterval != 0) {
+                    queued = false;
+                } else {
+                    queued = queue.offer(element);
+                }
+                break;
+
+            default:
+                queued = queue.offer(element);
+        }
+
+        if (queued) {
+            queuedCount.incrementAndGet();
+
+            int depth = queue.size();
+            if (depth > maximumDepth) {
+                maximumDepth = depth;
+            }
+        } else {
+            droppedCount.incrementAndGet();
+        }
+
+        return queued;
+    }
+
+    private boolean put(BlockingQueue<E> queue, E element) {
+        try {
+            queue.put(element);
+            return true;
+
+        } catch (InterruptedException e) {
+            // the writer is being stopped, so the element is dropped
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Returns the largest number of elements there have been in one of the queues.
+     *
+     * @return maximum depth of a queue
+     */
+    public int getMaximumDepth() {
+        return maximumDepth;
+    }
+
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+}
@@ -0,0 +1,78 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.ingest;
+
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.source.Source;
+
+/**
+ * An {@link IngestionQueue} sits between an external source and the engine. The source offers its events to the
+ * queue and a dedicated engine thread takes them out, in batches, and hands them to an {@link IngestionHandler}.
+ * This way a slow sink slows down the engine thread instead of the source.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ * @see BoundedIngestionQueue
+ * @see RingBufferIngestionQueue
+ */
+public interface IngestionQueue {
+
+    /**
+     * Starts the engine thread of this queue.
+     */
+    void start();
+
+    /**
+     * Queues the specified event. Called by the source thread.
+     *
+     * @param event to queue
+     */
+    void offer(Event event);
+
+    /**
+     * Stops taking events off the queue once it is empty and waits for the engine thread to finish. The source has
+     * to be done sending events before this is called.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void shutdown() throws InterruptedException;
+
+    Source getSource();
+
+    OverflowPolicy getOverflowPolicy();
+
+    int getCapacity();
+
+    /**
+     * Returns the number of events that are waiting in the queue.
+     *
+     * @return depth of queue
+     */
+    int getDepth();
+
+    /**
+     * Returns the largest number of events there have been in the queue.
+     *
+     * @return maximum depth of queue
+     */
+    int getMaximumDepth();
+
+    long getQueuedCount();
+
+    long getProcessedCount();
+
+    long getDroppedCount();
+}
@@ -0,0 +1,102 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.ingest;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * How the events of the external sources are queued before they go into the engine.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ * @see IngestionQueue
+ */
+public class IngestionSettings {
+
+    private static final int DEFAULT_SAMPLE_INTERVAL = 10;
+
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleInterval;
+    private final WaitStrategy waitStrategy;
+
+    public IngestionSettings(int queueCapacity, OverflowPolicy overflowPolicy) {
+        this(queueCapacity, overflowPolicy, DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    public IngestionSettings(int queueCapacity, OverflowPolicy overflowPolicy, int sampleInterval) {
+        checkArgument(queueCapacity > 0, "queueCapacity has to be greater than zero");
+        checkArgument(overflowPolicy != null, "overflowPolicy cannot be null");
+        checkArgument(sampleInterval > 0, "sampleInterval has to be greater than zero");
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.sampleInterval = sampleInterval;
+        this.waitStrategy = null;
+    }
+
+    /**
+     * Settings for a {@link RingBufferIngestionQueue} per source. The ring never drops events, the source waits for
+     * a free slot.
+     *
+     * @param ringSize     number of slots in the ring, has to be a power of two
+     * @param waitStrategy how the source and engine threads wait on each other
+     */
+    public IngestionSettings(int ringSize, WaitStrategy waitStrategy) {
+        checkArgument(ringSize > 0 && Integer.bitCount(ringSize) == 1, "ringSize has to be a power of two");
+        checkArgument(waitStrategy != null, "waitStrategy cannot be null");
+        this.queueCapacity = ringSize;
+        this.overflowPolicy = OverflowPolicy.BLOCK;
+        this.sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+        this.waitStrategy = waitStrategy;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Only one in this many events is let in by {@link OverflowPolicy#SAMPLE} once the queue is filling up.
+     *
+     * @return sample interval
+     */
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Returns how the threads of a ring buffer wait on each other, or null if the events go through a
+     * {@link BoundedIngestionQueue} instead.
+     *
+     * @return wait strategy or null
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestionSettings{" +
+                "queueCapacity=" + queueCapacity +
+                ", overflowPolicy=" + overflowPolicy +
+                ", sampleInterval=" + sampleInterval +
+                ", waitStrategy=" + waitStrategy +
+                '}';
+    }
+}
@@ -0,0 +1,45 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.ingest;
+
+/**
+ * What an {@link IngestionQueue} does with an event from a source when the queue is full.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public enum OverflowPolicy {
+    /**
+     * The source waits until there is room, which slows the source down to the speed of the engine.
+     */
+    BLOCK,
+
+    /**
+     * The oldest event in the queue is dropped to make room.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new event is dropped.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Once the queue is three quarters full only one in every sample interval events is let in and the others are
+     * dropped. Events are dropped if the queue is full.
+     */
+    SAMPLE
+}
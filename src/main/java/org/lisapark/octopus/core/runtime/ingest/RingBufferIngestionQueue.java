@@ -0,0 +1,302 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.ingest;
+
+import com.google.common.collect.Lists;
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.source.Source;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An {@link IngestionQueue} backed by a ring of pre-allocated slots. The source claims the next sequence, puts its
+ * event into the slot of that sequence and publishes it; the engine thread takes everything that has been published
+ * since it last looked, in one batch. Neither side takes a lock or allocates anything when handing off an event, the
+ * threads only wait on each other's {@link Sequence} using the configured {@link WaitStrategy}.
+ * <p/>
+ * The ring is normally filled by the thread of a single source, but events may be offered from several threads.
+ * When the ring is full the source waits for the engine thread, that is the {@link OverflowPolicy} is always
+ * {@link OverflowPolicy#BLOCK}.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class RingBufferIngestionQueue implements IngestionQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RingBufferIngestionQueue.class);
+
+    /**
+     * Number of times {@link WaitStrategy#YIELDING} spins before it yields
+     */
+    private static final int SPIN_TRIES = 100;
+
+    /**
+     * How long {@link WaitStrategy#BLOCKING} parks before checking again, in case the thread has been stopped
+     */
+    private static final long PARK_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Source source;
+    private final IngestionHandler handler;
+    private final WaitStrategy waitStrategy;
+    private final int capacity;
+    private final int mask;
+    private final Event[] slots;
+
+    /**
+     * Last sequence claimed by the source
+     */
+    private final Sequence claimed = new Sequence(-1);
+
+    /**
+     * Last sequence that can be read by the engine thread
+     */
+    private final Sequence published = new Sequence(-1);
+
+    /**
+     * Last sequence processed by the engine thread, its slot and the ones before it can be reused
+     */
+    private final Sequence consumed = new Sequence(-1);
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition sequenceChanged = lock.newCondition();
+    private final Thread engineThread;
+
+    private volatile int maximumDepth;
+    private volatile boolean running = true;
+
+    public RingBufferIngestionQueue(Source source, IngestionSettings settings, IngestionHandler handler) {
+        checkArgument(source != null, "source cannot be null");
+        checkArgument(settings != null, "settings cannot be null");
+        checkArgument(handler != null, "handler cannot be null");
+        checkArgument(settings.getWaitStrategy() != null, "settings have to have a wait strategy");
+        checkArgument(Integer.bitCount(settings.getQueueCapacity()) == 1, "queueCapacity has to be a power of two");
+        this.source = source;
+        this.handler = handler;
+        this.waitStrategy = settings.getWaitStrategy();
+        this.capacity = settings.getQueueCapacity();
+        this.mask = capacity - 1;
+        this.slots = new Event[capacity];
+
+        this.engineThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                processPublishedEvents();
+            }
+        }, "octopus-ingest-" + source.getName());
+        this.engineThread.setDaemon(true);
+    }
+
+    @Override
+    public void start() {
+        engineThread.start();
+    }
+
+    /**
+     * Puts the specified event into the next slot, waiting for the engine thread if the ring is full. Called by the
+     * source thread.
+     *
+     * @param event to queue
+     */
+    @Override
+    public void offer(Event event) {
+        long sequence = claimed.incrementAndGet();
+        boolean interrupted = false;
+
+        // the slot is only free once the engine thread has processed the event a lap before
+        int counter = 0;
+        long wrapPoint = sequence - capacity;
+        while (consumed.get() < wrapPoint) {
+            try {
+                counter = idle(consumed, wrapPoint, counter);
+            } catch (InterruptedException e) {
+                // the sequence has been claimed, so the event cannot be dropped
+                interrupted = true;
+            }
+        }
+
+        slots[(int) sequence & mask] = event;
+
+        // with more than one source thread the sequences have to be published in order
+        counter = 0;
+        while (published.get() < sequence - 1) {
+            try {
+                counter = idle(published, sequence - 1, counter);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        published.set(sequence);
+        signalWaitingThreads();
+
+        int depth = (int) (sequence - consumed.get());
+        if (depth > maximumDepth) {
+            maximumDepth = depth;
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void processPublishedEvents() {
+        List<Event> batch = Lists.newArrayListWithCapacity(capacity);
+        long next = 0;
+        int counter = 0;
+
+        while (running || published.get() >= next) {
+            long available = published.get();
+
+            if (available < next) {
+                try {
+                    counter = idle(published, next, counter);
+                } catch (InterruptedException e) {
+                    // keep going until stopped, the ring has to be drained
+                }
+
+            } else {
+                for (long sequence = next; sequence <= available; ++sequence) {
+                    int index = (int) sequence & mask;
+                    batch.add(slots[index]);
+                    slots[index] = null;
+                }
+
+                processBatch(batch);
+                batch.clear();
+
+                consumed.set(available);
+                signalWaitingThreads();
+
+                next = available + 1;
+                counter = 0;
+            }
+        }
+    }
+
+    private void processBatch(List<Event> batch) {
+        try {
+            handler.processEvents(batch, source);
+
+        } catch (RuntimeException e) {
+            LOG.error(String.format("Problem processing events from source [%s]", source.getName()), e);
+        }
+    }
+
+    /**
+     * Waits a little, according to the wait strategy, for the specified sequence to reach the value.
+     *
+     * @param sequence to wait on
+     * @param value    the sequence has to reach
+     * @param counter  number of times the caller has waited so far
+     * @return new counter
+     * @throws InterruptedException if interrupted while parked
+     */
+    private int idle(Sequence sequence, long value, int counter) throws InterruptedException {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                return counter;
+
+            case YIELDING:
+                if (counter < SPIN_TRIES) {
+                    return counter + 1;
+                }
+                Thread.yield();
+                return counter;
+
+            default:
+                lock.lock();
+                try {
+                    // checked under the lock so that a signal cannot slip in between the check and the wait
+                    if (running && sequence.get() < value) {
+                        sequenceChanged.awaitNanos(PARK_TIMEOUT_NANOS);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                return counter;
+        }
+    }
+
+    private void signalWaitingThreads() {
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            lock.lock();
+            try {
+                sequenceChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        running = false;
+        signalWaitingThreads();
+        engineThread.join();
+    }
+
+    @Override
+    public Source getSource() {
+        return source;
+    }
+
+    @Override
+    public OverflowPolicy getOverflowPolicy() {
+        return OverflowPolicy.BLOCK;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getDepth() {
+        return (int) (published.get() - consumed.get());
+    }
+
+    @Override
+    public int getMaximumDepth() {
+        return maximumDepth;
+    }
+
+    @Override
+    public long getQueuedCount() {
+        return published.get() + 1;
+    }
+
+    @Override
+    public long getProcessedCount() {
+        return consumed.get() + 1;
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return 0;
+    }
+}
@@ -0,0 +1,58 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.ingest;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A counter of the position of a thread in a {@link RingBufferIngestionQueue}. The value is padded so that the
+ * sequences of the source and engine threads don't share a cache line.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+class Sequence {
+
+    private static final AtomicLongFieldUpdater<Sequence> VALUE_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(Sequence.class, "value");
+
+    @SuppressWarnings("unused")
+    private long p1, p2, p3, p4, p5, p6, p7;
+    private volatile long value;
+    @SuppressWarnings("unused")
+    private long p9, p10, p11, p12, p13, p14, p15;
+
+    Sequence(long initialValue) {
+        this.value = initialValue;
+    }
+
+    long get() {
+        return value;
+    }
+
+    /**
+     * Sets the value without a full fence, the writes before it are still visible to a thread that reads the value.
+     *
+     * @param value new value
+     */
+    void set(long value) {
+        VALUE_UPDATER.lazySet(this, value);
+    }
+
+    long incrementAndGet() {
+        return VALUE_UPDATER.incrementAndGet(this);
+    }
+}
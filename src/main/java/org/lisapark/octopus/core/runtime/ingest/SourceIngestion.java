@@ -0,0 +1,108 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.ingest;
+
+import com.google.common.collect.ImmutableList;
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.source.Source;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The {@link IngestionQueue}s of a runtime, one for every source. The queue of a source is created, and its engine
+ * thread started, when the source sends its first event.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class SourceIngestion {
+
+    private final IngestionSettings settings;
+    private final IngestionHandler handler;
+    private final ConcurrentMap<UUID, IngestionQueue> queuesBySourceId = new ConcurrentHashMap<UUID, IngestionQueue>();
+
+    public SourceIngestion(IngestionSettings settings, IngestionHandler handler) {
+        checkArgument(settings != null, "settings cannot be null");
+        checkArgument(handler != null, "handler cannot be null");
+        this.settings = settings;
+        this.handler = handler;
+    }
+
+    public void offer(Event event, Source source) {
+        getQueueForSource(source).offer(event);
+    }
+
+    public void offer(List<Event> events, Source source) {
+        IngestionQueue queue = getQueueForSource(source);
+
+        for (int i = 0; i < events.size(); ++i) {
+            queue.offer(events.get(i));
+        }
+    }
+
+    private IngestionQueue getQueueForSource(Source source) {
+        IngestionQueue queue = queuesBySourceId.get(source.getId());
+
+        if (queue == null) {
+            IngestionQueue newQueue = (settings.getWaitStrategy() != null) ?
+                    new RingBufferIngestionQueue(source, settings, handler) :
+                    new BoundedIngestionQueue(source, settings, handler);
+            queue = queuesBySourceId.putIfAbsent(source.getId(), newQueue);
+
+            if (queue == null) {
+                queue = newQueue;
+                queue.start();
+            }
+        }
+
+        return queue;
+    }
+
+    /**
+     * Drains all the queues and waits for their engine threads to finish. The sources have to be done sending events
+     * before this is called.
+     *
+     * @return true if the thread was interrupted while waiting
+     */
+    public boolean shutdown() {
+        boolean interrupted = false;
+
+        for (IngestionQueue queue : queuesBySourceId.values()) {
+            boolean stopped = false;
+
+            while (!stopped) {
+                try {
+                    queue.shutdown();
+                    stopped = true;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        return interrupted;
+    }
+
+    public Collection<IngestionQueue> getQueues() {
+        return ImmutableList.copyOf(queuesBySourceId.values());
+    }
+}
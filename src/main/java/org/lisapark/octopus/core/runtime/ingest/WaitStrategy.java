@@ -0,0 +1,41 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.ingest;
+
+/**
+ * How the threads of a {@link RingBufferIngestionQueue} wait, either for the engine thread to free up a slot or for
+ * the source to publish an event. The strategies trade CPU for handoff latency.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public enum WaitStrategy {
+    /**
+     * Spins on the sequence. Lowest latency, but a waiting thread keeps a core busy, so it only pays off when there
+     * is a spare core for both the source and the engine thread.
+     */
+    BUSY_SPIN,
+
+    /**
+     * Spins for a while and then yields the thread to others.
+     */
+    YIELDING,
+
+    /**
+     * Parks the thread until it is signalled. Highest latency, but no CPU is used while waiting.
+     */
+    BLOCKING
+}
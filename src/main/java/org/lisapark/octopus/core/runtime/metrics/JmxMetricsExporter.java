@@ -0,0 +1,145 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.metrics;
+
+import org.lisapark.octopus.core.runtime.ProcessingRuntime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Registers the metrics of a {@link ProcessingRuntime} with the platform MBean server under
+ * {@code org.lisapark.octopus:type=ProcessingRuntime,model=<model name>,instance=<n>} and unregisters them again when
+ * closed. The compilers add the exporter to the resources of the runtime, so it is closed when the runtime is shutdown.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class JmxMetricsExporter implements ProcessingRuntimeMetricsMXBean, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(JmxMetricsExporter.class);
+
+    /**
+     * Models with the same name may run side by side, so every exporter gets a number of its own
+     */
+    private static final AtomicInteger INSTANCE_COUNT = new AtomicInteger();
+
+    private final ProcessingRuntime runtime;
+    private final String modelName;
+    private final MBeanServer server;
+    private ObjectName objectName;
+
+    public JmxMetricsExporter(ProcessingRuntime runtime, String modelName) {
+        this(runtime, modelName, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxMetricsExporter(ProcessingRuntime runtime, String modelName, MBeanServer server) {
+        checkArgument(runtime != null, "runtime cannot be null");
+        checkArgument(modelName != null, "modelName cannot be null");
+        checkArgument(server != null, "server cannot be null");
+        this.runtime = runtime;
+        this.modelName = modelName;
+        this.server = server;
+    }
+
+    /**
+     * Registers the metrics with the MBean server. A failure is logged rather than thrown since the runtime works
+     * just as well without.
+     *
+     * @return this exporter
+     */
+    public synchronized JmxMetricsExporter register() {
+        if (objectName == null) {
+            try {
+                ObjectName name = new ObjectName(String.format(
+                        "org.lisapark.octopus:type=ProcessingRuntime,model=%s,instance=%d",
+                        ObjectName.quote(modelName), INSTANCE_COUNT.incrementAndGet()
+                ));
+                server.registerMBean(this, name);
+                objectName = name;
+
+            } catch (JMException e) {
+                LOG.warn(String.format("Could not register the metrics of model [%s] over JMX", modelName), e);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the name the metrics are registered under, or null if they are not registered.
+     *
+     * @return object name or null
+     */
+    public synchronized ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public String getModelName() {
+        return modelName;
+    }
+
+    @Override
+    public List<NodeMetricsSnapshot> getNodes() {
+        return runtime.getMetrics().getNodes();
+    }
+
+    @Override
+    public List<QueueMetricsSnapshot> getQueues() {
+        return runtime.getMetrics().getQueues();
+    }
+
+    @Override
+    public long getTotalErrors() {
+        return runtime.getMetrics().getTotalErrors();
+    }
+
+    @Override
+    public long getTotalMemoryBytes() {
+        return runtime.getMetrics().getTotalMemoryBytes();
+    }
+
+    @Override
+    public String getBusiestNodeName() {
+        NodeMetricsSnapshot busiestNode = runtime.getMetrics().getBusiestNode();
+
+        return (busiestNode != null) ? busiestNode.getName() : null;
+    }
+
+    /**
+     * Unregisters the metrics from the MBean server.
+     */
+    @Override
+    public synchronized void close() {
+        if (objectName != null) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOG.warn(String.format("Could not unregister the metrics of model [%s] from JMX", modelName), e);
+            }
+            objectName = null;
+        }
+    }
+}
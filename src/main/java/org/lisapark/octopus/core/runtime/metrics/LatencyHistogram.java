@@ -0,0 +1,149 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link LatencyHistogram} counts recorded durations in log-linear buckets, like an HDR histogram: every power of
+ * two range is split into {@link #SUB_BUCKET_COUNT} equal buckets, so a value is known to within about 3% of itself.
+ * Recording never takes a lock, only an atomic increment of the bucket, so the engine thread can record every event.
+ * <p/>
+ * Durations above 2^40 nanoseconds, about 18 minutes, end up in the last bucket.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAXIMUM_EXPONENT = 40;
+    private static final int BUCKET_COUNT =
+            SUB_BUCKET_COUNT + (MAXIMUM_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maximumNanos = new AtomicLong();
+
+    /**
+     * Records the specified duration.
+     *
+     * @param nanos duration in nanoseconds, negative durations count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+
+        counts.incrementAndGet(bucketIndexOf(value));
+        totalNanos.addAndGet(value);
+
+        long maximum = maximumNanos.get();
+        while (value > maximum && !maximumNanos.compareAndSet(maximum, value)) {
+            maximum = maximumNanos.get();
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            count += counts.get(i);
+        }
+
+        return count;
+    }
+
+    public long getMaximumNanos() {
+        return maximumNanos.get();
+    }
+
+    /**
+     * Returns the mean of the recorded durations, or 0 if nothing was recorded.
+     *
+     * @return mean duration in nanoseconds
+     */
+    public long getMeanNanos() {
+        long count = getCount();
+
+        return (count > 0) ? totalNanos.get() / count : 0;
+    }
+
+    /**
+     * Returns the durations at the specified percentiles in a single pass over the buckets. Each value is the highest
+     * duration of the bucket the percentile falls in, but never more than the maximum recorded duration. All values
+     * are 0 if nothing was recorded.
+     *
+     * @param percentiles between 0 and 100, in ascending order
+     * @return durations in nanoseconds, one per percentile
+     */
+    public long[] getNanosAtPercentiles(double... percentiles) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+
+        long[] values = new long[percentiles.length];
+        if (count == 0) {
+            return values;
+        }
+
+        long maximum = maximumNanos.get();
+        long seen = 0;
+        int index = 0;
+        for (int i = 0; i < percentiles.length; ++i) {
+            long target = Math.max(1, (long) Math.ceil(count * percentiles[i] / 100.0));
+
+            while (index < BUCKET_COUNT - 1 && seen + snapshot[index] < target) {
+                seen += snapshot[index++];
+            }
+
+            // the last bucket has no upper bound, so the maximum is the best there is
+            values[i] = (index == BUCKET_COUNT - 1) ? maximum : Math.min(highestValueOf(index), maximum);
+        }
+
+        return values;
+    }
+
+    static int bucketIndexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAXIMUM_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+
+        // the bits right after the leading one pick the bucket within the power of two range
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long highestValueOf(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKET_COUNT) {
+            return bucketIndex;
+        }
+
+        int shift = (bucketIndex - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (bucketIndex - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        long lowestValue = ((long) (SUB_BUCKET_COUNT + subBucket)) << shift;
+
+        return lowestValue + (1L << shift) - 1;
+    }
+}
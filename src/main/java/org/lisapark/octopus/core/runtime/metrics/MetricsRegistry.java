@@ -0,0 +1,175 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.lisapark.octopus.core.memory.budget.BudgetedMemoryProvider;
+import org.lisapark.octopus.core.runtime.ingest.IngestionQueue;
+import org.lisapark.octopus.core.sink.external.AsyncExternalSink;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The {@link NodeMetrics} of all the nodes of a runtime. The compiler registers every node while compiling the model
+ * and hands the metrics to the adaptors of the nodes; the runtimes resolve the metrics of their sources once with
+ * {@link #getNodeMetricsById(NodeType)}. The memory of the processors is read from the provider that accounts for
+ * it, if there is one.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class MetricsRegistry {
+    private final ConcurrentMap<UUID, NodeMetrics> metricsById = new ConcurrentHashMap<UUID, NodeMetrics>();
+
+    /**
+     * Nodes in the order they were registered, which is the order they are reported in
+     */
+    private final List<NodeMetrics> nodes = new CopyOnWriteArrayList<NodeMetrics>();
+
+    /**
+     * Provider that charged the processors for their memory, null if the memory is not accounted for
+     */
+    private final BudgetedMemoryProvider memoryBudget;
+
+    public MetricsRegistry() {
+        this(null);
+    }
+
+    /**
+     * @param memoryBudget provider that charges the processors for their memory, null if there is none
+     */
+    public MetricsRegistry(BudgetedMemoryProvider memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns the metrics of the node with the specified id, registering them if this is the first time.
+     *
+     * @param id   of node
+     * @param name of node
+     * @param type of node
+     * @return metrics of node
+     */
+    public NodeMetrics register(UUID id, String name, NodeType type) {
+        checkArgument(id != null, "id cannot be null");
+
+        NodeMetrics metrics = metricsById.get(id);
+        if (metrics == null) {
+            NodeMetrics newMetrics = new NodeMetrics(id, name, type);
+            metrics = metricsById.putIfAbsent(id, newMetrics);
+
+            if (metrics == null) {
+                metrics = newMetrics;
+                nodes.add(newMetrics);
+            }
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Removes the metrics of the node with the specified id, for nodes that are no longer part of the runtime.
+     *
+     * @param id of node
+     */
+    public void unregister(UUID id) {
+        NodeMetrics metrics = metricsById.remove(id);
+        if (metrics != null) {
+            nodes.remove(metrics);
+        }
+    }
+
+    /**
+     * Returns the metrics of the node with the specified id, or null if the node is not registered.
+     *
+     * @param id of node
+     * @return metrics or null
+     */
+    public NodeMetrics getNodeMetrics(UUID id) {
+        return metricsById.get(id);
+    }
+
+    /**
+     * Returns the metrics of the registered nodes of the specified type by their id, so that the metrics of a node
+     * can be resolved once rather than for every event.
+     *
+     * @param type of nodes
+     * @return metrics by node id
+     */
+    public Map<UUID, NodeMetrics> getNodeMetricsById(NodeType type) {
+        checkArgument(type != null, "type cannot be null");
+
+        ImmutableMap.Builder<UUID, NodeMetrics> metricsByNodeId = ImmutableMap.builder();
+        for (NodeMetrics node : nodes) {
+            if (node.getType() == type) {
+                metricsByNodeId.put(node.getId(), node);
+            }
+        }
+
+        return metricsByNodeId.build();
+    }
+
+    /**
+     * Takes a snapshot of the metrics of all nodes together with the depths of the specified queues.
+     *
+     * @param ingestionQueues of the runtime
+     * @param asyncSinks      of the runtime
+     * @return snapshot
+     */
+    public MetricsSnapshot snapshot(Collection<IngestionQueue> ingestionQueues,
+                                    Collection<AsyncExternalSink> asyncSinks) {
+        List<NodeMetricsSnapshot> nodeSnapshots = Lists.newArrayListWithCapacity(nodes.size());
+        for (NodeMetrics node : nodes) {
+            long memoryBytes = (memoryBudget != null && node.getType() == NodeType.PROCESSOR)
+                    ? memoryBudget.getAllocatedBytes(node.getId()) : 0;
+
+            nodeSnapshots.add(node.snapshot(memoryBytes));
+        }
+
+        List<QueueMetricsSnapshot> queueSnapshots = Lists.newArrayList();
+        for (IngestionQueue queue : ingestionQueues) {
+            queueSnapshots.add(new QueueMetricsSnapshot(
+                    "ingestion:" + nameOf(queue.getSource().getId(), queue.getSource().getName()),
+                    queue.getCapacity(), queue.getDepth(), queue.getMaximumDepth(), queue.getDroppedCount()
+            ));
+        }
+
+        for (AsyncExternalSink sink : asyncSinks) {
+            queueSnapshots.add(new QueueMetricsSnapshot(
+                    "async-sink:" + nameOf(sink.getId(), null),
+                    sink.getCapacity(), sink.getDepth(), sink.getMaximumDepth(), sink.getDroppedCount()
+            ));
+        }
+
+        return new MetricsSnapshot(System.currentTimeMillis(), nodeSnapshots, queueSnapshots);
+    }
+
+    private String nameOf(UUID id, String defaultName) {
+        NodeMetrics metrics = metricsById.get(id);
+        String name = (metrics != null) ? metrics.getName() : defaultName;
+
+        return (name != null) ? name : id.toString();
+    }
+}
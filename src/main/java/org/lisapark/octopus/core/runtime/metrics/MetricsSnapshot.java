@@ -0,0 +1,128 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.metrics;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * The metrics of all nodes and queues of a runtime at one point in time.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ * @see org.lisapark.octopus.core.runtime.ProcessingRuntime#getMetrics()
+ */
+public class MetricsSnapshot {
+    private final long timestamp;
+    private final List<NodeMetricsSnapshot> nodes;
+    private final List<QueueMetricsSnapshot> queues;
+
+    public MetricsSnapshot(long timestamp, List<NodeMetricsSnapshot> nodes, List<QueueMetricsSnapshot> queues) {
+        this.timestamp = timestamp;
+        this.nodes = ImmutableList.copyOf(nodes);
+        this.queues = ImmutableList.copyOf(queues);
+    }
+
+    /**
+     * Returns when the snapshot was taken.
+     *
+     * @return milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the metrics of the sources, processors and sinks, in the order they were compiled.
+     *
+     * @return node metrics
+     */
+    public List<NodeMetricsSnapshot> getNodes() {
+        return nodes;
+    }
+
+    public List<QueueMetricsSnapshot> getQueues() {
+        return queues;
+    }
+
+    /**
+     * Returns the metrics of the node with the specified id, or null if there are none.
+     *
+     * @param id of node
+     * @return node metrics or null
+     */
+    public NodeMetricsSnapshot getNode(String id) {
+        for (NodeMetricsSnapshot node : nodes) {
+            if (node.getId().equals(id)) {
+                return node;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the processor or sink that has spent the most time processing events, or null if no processor or sink
+     * has processed an event yet.
+     *
+     * @return busiest node or null
+     */
+    public NodeMetricsSnapshot getBusiestNode() {
+        NodeMetricsSnapshot busiestNode = null;
+
+        for (NodeMetricsSnapshot node : nodes) {
+            if (node.getType() != NodeType.SOURCE && node.getEventsIn() > 0
+                    && (busiestNode == null || node.getBusyNanos() > busiestNode.getBusyNanos())) {
+                busiestNode = node;
+            }
+        }
+
+        return busiestNode;
+    }
+
+    public long getTotalErrors() {
+        long errors = 0;
+        for (NodeMetricsSnapshot node : nodes) {
+            errors += node.getErrors();
+        }
+
+        return errors;
+    }
+
+    /**
+     * Returns the number of bytes the processors were charged for their memory, or 0 if it is not known.
+     *
+     * @return memory in bytes
+     */
+    public long getTotalMemoryBytes() {
+        long memoryBytes = 0;
+        for (NodeMetricsSnapshot node : nodes) {
+            memoryBytes += node.getMemoryBytes();
+        }
+
+        return memoryBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsSnapshot{" +
+                "timestamp=" + timestamp +
+                ", nodes=" + nodes +
+                ", queues=" + queues +
+                '}';
+    }
+}
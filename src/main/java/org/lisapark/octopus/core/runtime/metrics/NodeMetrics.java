@@ -0,0 +1,122 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.metrics;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The counters and processing time histogram of a single source, processor or sink of a runtime. The adaptors that
+ * call the node record into it; none of the recording methods take a lock.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class NodeMetrics {
+    private final UUID id;
+    private final String name;
+    private final NodeType type;
+
+    private final AtomicLong eventsIn = new AtomicLong();
+    private final AtomicLong eventsOut = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final LatencyHistogram processingTime = new LatencyHistogram();
+
+    public NodeMetrics(UUID id, String name, NodeType type) {
+        checkArgument(id != null, "id cannot be null");
+        checkArgument(type != null, "type cannot be null");
+        this.id = id;
+        this.name = name;
+        this.type = type;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public NodeType getType() {
+        return type;
+    }
+
+    /**
+     * Records an event that the node has processed, whether it succeeded or not.
+     *
+     * @param processingNanos how long the node took
+     */
+    public void recordEvent(long processingNanos) {
+        eventsIn.incrementAndGet();
+        processingTime.record(processingNanos);
+    }
+
+    /**
+     * Records an event the node has passed on.
+     */
+    public void recordOutput() {
+        eventsOut.incrementAndGet();
+    }
+
+    /**
+     * Records events the node has passed on.
+     *
+     * @param numberOfEvents passed on
+     */
+    public void recordOutputs(int numberOfEvents) {
+        eventsOut.addAndGet(numberOfEvents);
+    }
+
+    public void recordError() {
+        errors.incrementAndGet();
+    }
+
+    public long getEventsIn() {
+        return eventsIn.get();
+    }
+
+    public long getEventsOut() {
+        return eventsOut.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public LatencyHistogram getProcessingTime() {
+        return processingTime;
+    }
+
+    /**
+     * @param memoryBytes charged for the memory of the node
+     * @return snapshot of the metrics
+     */
+    public NodeMetricsSnapshot snapshot(long memoryBytes) {
+        long[] percentiles = processingTime.getNanosAtPercentiles(50, 90, 99, 99.9);
+
+        return new NodeMetricsSnapshot(id.toString(), name, type, eventsIn.get(), eventsOut.get(), errors.get(),
+                processingTime.getMeanNanos(), percentiles[0], percentiles[1], percentiles[2], percentiles[3],
+                processingTime.getMaximumNanos(), memoryBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "NodeMetrics{" + type + ' ' + name + '(' + id + ")}";
+    }
+}
@@ -0,0 +1,145 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The metrics of a node at one point in time. Processing times are in nanoseconds. The memory of a processor is only
+ * known if the model was compiled with a {@link org.lisapark.octopus.core.memory.budget.BudgetedMemoryProvider}.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class NodeMetricsSnapshot {
+    private final String id;
+    private final String name;
+    private final NodeType type;
+    private final long eventsIn;
+    private final long eventsOut;
+    private final long errors;
+    private final long meanNanos;
+    private final long medianNanos;
+    private final long percentile90Nanos;
+    private final long percentile99Nanos;
+    private final long percentile999Nanos;
+    private final long maximumNanos;
+    private final long memoryBytes;
+
+    @ConstructorProperties({"id", "name", "type", "eventsIn", "eventsOut", "errors", "meanNanos", "medianNanos",
+            "percentile90Nanos", "percentile99Nanos", "percentile999Nanos", "maximumNanos", "memoryBytes"})
+    public NodeMetricsSnapshot(String id, String name, NodeType type, long eventsIn, long eventsOut, long errors,
+                               long meanNanos, long medianNanos, long percentile90Nanos, long percentile99Nanos,
+                               long percentile999Nanos, long maximumNanos, long memoryBytes) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.eventsIn = eventsIn;
+        this.eventsOut = eventsOut;
+        this.errors = errors;
+        this.meanNanos = meanNanos;
+        this.medianNanos = medianNanos;
+        this.percentile90Nanos = percentile90Nanos;
+        this.percentile99Nanos = percentile99Nanos;
+        this.percentile999Nanos = percentile999Nanos;
+        this.maximumNanos = maximumNanos;
+        this.memoryBytes = memoryBytes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public NodeType getType() {
+        return type;
+    }
+
+    public long getEventsIn() {
+        return eventsIn;
+    }
+
+    public long getEventsOut() {
+        return eventsOut;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getMedianNanos() {
+        return medianNanos;
+    }
+
+    public long getPercentile90Nanos() {
+        return percentile90Nanos;
+    }
+
+    public long getPercentile99Nanos() {
+        return percentile99Nanos;
+    }
+
+    public long getPercentile999Nanos() {
+        return percentile999Nanos;
+    }
+
+    public long getMaximumNanos() {
+        return maximumNanos;
+    }
+
+    /**
+     * Returns the number of bytes the memory of the node was charged, or 0 if it has none or it is not known.
+     *
+     * @return memory in bytes
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Returns the total time the node has spent processing events, which is what makes a node the bottleneck of a
+     * model.
+     *
+     * @return approximate busy time in nanoseconds
+     */
+    public long getBusyNanos() {
+        return meanNanos * eventsIn;
+    }
+
+    @Override
+    public String toString() {
+        return "NodeMetricsSnapshot{" +
+                "type=" + type +
+                ", name='" + name + '\'' +
+                ", id=" + id +
+                ", eventsIn=" + eventsIn +
+                ", eventsOut=" + eventsOut +
+                ", errors=" + errors +
+                ", meanNanos=" + meanNanos +
+                ", medianNanos=" + medianNanos +
+                ", percentile99Nanos=" + percentile99Nanos +
+                ", maximumNanos=" + maximumNanos +
+                ", memoryBytes=" + memoryBytes +
+                '}';
+    }
+}
@@ -0,0 +1,46 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.metrics;
+
+import java.util.List;
+
+/**
+ * The metrics of a {@link org.lisapark.octopus.core.runtime.ProcessingRuntime} as seen over JMX. Every attribute is
+ * read from a fresh {@link MetricsSnapshot}.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ * @see JmxMetricsExporter
+ */
+public interface ProcessingRuntimeMetricsMXBean {
+
+    String getModelName();
+
+    List<NodeMetricsSnapshot> getNodes();
+
+    List<QueueMetricsSnapshot> getQueues();
+
+    long getTotalErrors();
+
+    long getTotalMemoryBytes();
+
+    /**
+     * Returns the name of the processor or sink that has spent the most time processing events.
+     *
+     * @return name of busiest node, or null if nothing has been processed yet
+     */
+    String getBusiestNodeName();
+}
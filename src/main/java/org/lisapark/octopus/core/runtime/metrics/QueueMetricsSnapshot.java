@@ -0,0 +1,72 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The state of a queue of a runtime at one point in time, like an ingestion queue of a source or the queue of an
+ * asynchronous sink.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class QueueMetricsSnapshot {
+    private final String name;
+    private final int capacity;
+    private final int depth;
+    private final int maximumDepth;
+    private final long droppedCount;
+
+    @ConstructorProperties({"name", "capacity", "depth", "maximumDepth", "droppedCount"})
+    public QueueMetricsSnapshot(String name, int capacity, int depth, int maximumDepth, long droppedCount) {
+        this.name = name;
+        this.capacity = capacity;
+        this.depth = depth;
+        this.maximumDepth = maximumDepth;
+        this.droppedCount = droppedCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getMaximumDepth() {
+        return maximumDepth;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "QueueMetricsSnapshot{" +
+                "name='" + name + '\'' +
+                ", depth=" + depth + '/' + capacity +
+                ", maximumDepth=" + maximumDepth +
+                ", droppedCount=" + droppedCount +
+                '}';
+    }
+}
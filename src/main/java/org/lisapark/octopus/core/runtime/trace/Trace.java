@@ -0,0 +1,79 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.trace;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * The hops of a single traced event, in the order the processors and sinks saw it.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class Trace {
+    private final String sourceId;
+    private final String sourceName;
+    private final long timestamp;
+    private final List<TraceHop> hops;
+
+    public Trace(String sourceId, String sourceName, long timestamp, List<TraceHop> hops) {
+        this.sourceId = sourceId;
+        this.sourceName = sourceName;
+        this.timestamp = timestamp;
+        this.hops = ImmutableList.copyOf(hops);
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    /**
+     * Returns when the source sent the event.
+     *
+     * @return milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public List<TraceHop> getHops() {
+        return hops;
+    }
+
+    /**
+     * Returns how long it took until the last processor or sink saw the event.
+     *
+     * @return latency in nanoseconds, 0 if the event did not reach any
+     */
+    public long getLatencyNanos() {
+        return hops.isEmpty() ? 0 : hops.get(hops.size() - 1).getNanosSinceSource();
+    }
+
+    @Override
+    public String toString() {
+        return "Trace{" +
+                "source='" + sourceName + '\'' +
+                ", timestamp=" + timestamp +
+                ", hops=" + hops +
+                '}';
+    }
+}
@@ -0,0 +1,59 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.trace;
+
+import org.lisapark.octopus.core.runtime.metrics.NodeType;
+
+/**
+ * When a traced event reached a processor or sink, relative to when its source sent it.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class TraceHop {
+    private final String nodeId;
+    private final String nodeName;
+    private final NodeType nodeType;
+    private final long nanosSinceSource;
+
+    public TraceHop(String nodeId, String nodeName, NodeType nodeType, long nanosSinceSource) {
+        this.nodeId = nodeId;
+        this.nodeName = nodeName;
+        this.nodeType = nodeType;
+        this.nanosSinceSource = nanosSinceSource;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public NodeType getNodeType() {
+        return nodeType;
+    }
+
+    public long getNanosSinceSource() {
+        return nanosSinceSource;
+    }
+
+    @Override
+    public String toString() {
+        return nodeName + '@' + nanosSinceSource + "ns";
+    }
+}
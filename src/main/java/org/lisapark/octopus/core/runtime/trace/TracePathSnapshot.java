@@ -0,0 +1,92 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.trace;
+
+import org.lisapark.octopus.core.runtime.metrics.NodeType;
+
+/**
+ * The latencies of all traced events from a source to one of the processors or sinks downstream of it. Latencies are
+ * in nanoseconds.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class TracePathSnapshot {
+    private final String sourceName;
+    private final String nodeName;
+    private final NodeType nodeType;
+    private final long count;
+    private final long meanNanos;
+    private final long medianNanos;
+    private final long percentile99Nanos;
+    private final long maximumNanos;
+
+    public TracePathSnapshot(String sourceName, String nodeName, NodeType nodeType, long count, long meanNanos,
+                             long medianNanos, long percentile99Nanos, long maximumNanos) {
+        this.sourceName = sourceName;
+        this.nodeName = nodeName;
+        this.nodeType = nodeType;
+        this.count = count;
+        this.meanNanos = meanNanos;
+        this.medianNanos = medianNanos;
+        this.percentile99Nanos = percentile99Nanos;
+        this.maximumNanos = maximumNanos;
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public NodeType getNodeType() {
+        return nodeType;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getMedianNanos() {
+        return medianNanos;
+    }
+
+    public long getPercentile99Nanos() {
+        return percentile99Nanos;
+    }
+
+    public long getMaximumNanos() {
+        return maximumNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "TracePathSnapshot{" +
+                sourceName + " -> " + nodeName +
+                ", count=" + count +
+                ", meanNanos=" + meanNanos +
+                ", medianNanos=" + medianNanos +
+                ", percentile99Nanos=" + percentile99Nanos +
+                ", maximumNanos=" + maximumNanos +
+                '}';
+    }
+}
@@ -0,0 +1,70 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.trace;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * How many of the events of the sources a {@link Tracer} follows through the model and how many of their traces it
+ * keeps.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class TraceSettings {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private final double sampleFraction;
+    private final int bufferSize;
+
+    /**
+     * Settings that keep the last {@value #DEFAULT_BUFFER_SIZE} traces.
+     *
+     * @param sampleFraction of the source events to trace, greater than 0 and at most 1
+     */
+    public TraceSettings(double sampleFraction) {
+        this(sampleFraction, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param sampleFraction of the source events to trace, greater than 0 and at most 1
+     * @param bufferSize     number of the latest traces that are kept
+     */
+    public TraceSettings(double sampleFraction, int bufferSize) {
+        checkArgument(sampleFraction > 0 && sampleFraction <= 1, "sampleFraction has to be in (0, 1]");
+        checkArgument(bufferSize > 0, "bufferSize has to be greater than zero");
+        this.sampleFraction = sampleFraction;
+        this.bufferSize = bufferSize;
+    }
+
+    public double getSampleFraction() {
+        return sampleFraction;
+    }
+
+    /**
+     * Returns every how many events one is traced.
+     *
+     * @return sample interval
+     */
+    public int getSampleInterval() {
+        return (int) Math.max(1, Math.round(1 / sampleFraction));
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
@@ -0,0 +1,60 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.trace;
+
+import org.lisapark.octopus.core.event.Event;
+
+import java.util.Map;
+
+/**
+ * A sampled event on its way through an ingestion queue. It remembers when the source sent the event so the time
+ * spent in the queue is part of the trace; the runtime unwraps it before the event goes into the engine.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class TracedEvent extends Event {
+    private final Event event;
+    private final long startNanos;
+
+    public TracedEvent(Event event, long startNanos) {
+        this.event = event;
+        this.startNanos = startNanos;
+    }
+
+    public Event getEvent() {
+        return event;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    @Override
+    public Map<String, Object> getData() {
+        return event.getData();
+    }
+
+    @Override
+    protected boolean containsAttribute(String attributeName) {
+        return event.getData().containsKey(attributeName);
+    }
+
+    @Override
+    protected Object getAttribute(String attributeName) {
+        return event.getData().get(attributeName);
+    }
+}
@@ -0,0 +1,279 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.trace;
+
+import com.google.common.collect.Lists;
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.runtime.metrics.LatencyHistogram;
+import org.lisapark.octopus.core.runtime.metrics.NodeMetrics;
+import org.lisapark.octopus.core.runtime.metrics.NodeType;
+import org.lisapark.octopus.core.source.Source;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A {@link Tracer} follows a sample of the events of the sources through a runtime and records when each processor
+ * and sink saw them. The runtime decides which events are traced and brackets their processing with
+ * {@link #begin(Source, long)} and {@link #end()}; in between the adaptors of the nodes call
+ * {@link #hop(NodeMetrics)}, which only works because the engine processes an event and everything derived from it
+ * on the thread that sent it.
+ * <p/>
+ * The latest traces are kept in a ring buffer, and the latencies from every source to every node are aggregated in
+ * histograms. An event that is not traced costs a counter increment when it is sent and a volatile read per hop.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class Tracer {
+    /**
+     * Returned by {@link #startNanosOf(Event, boolean)} for events that are not traced
+     */
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final int sampleInterval;
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private final AtomicReferenceArray<Trace> traces;
+    private final AtomicLong traceCount = new AtomicLong();
+
+    private final ConcurrentMap<String, PathLatency> latenciesByPath = new ConcurrentHashMap<String, PathLatency>();
+    private final List<PathLatency> paths = new CopyOnWriteArrayList<PathLatency>();
+
+    private final ThreadLocal<ActiveTrace> activeTrace = new ThreadLocal<ActiveTrace>();
+
+    /**
+     * Lets the nodes skip the thread local lookup while no trace is active on any thread
+     */
+    private final AtomicInteger numberOfActiveTraces = new AtomicInteger();
+
+    public Tracer(TraceSettings settings) {
+        checkArgument(settings != null, "settings cannot be null");
+        this.sampleInterval = settings.getSampleInterval();
+        this.traces = new AtomicReferenceArray<Trace>(settings.getBufferSize());
+    }
+
+    /**
+     * Returns true if the next event of a source is to be traced.
+     *
+     * @return true to trace the event
+     */
+    public boolean sample() {
+        return sampleInterval == 1 || sampleCounter.getAndIncrement() % sampleInterval == 0;
+    }
+
+    /**
+     * Returns the event to put into an ingestion queue, which is a {@link TracedEvent} if the event is sampled.
+     *
+     * @param event sent by a source
+     * @return event to queue
+     */
+    public Event sampleForQueue(Event event) {
+        return sample() ? new TracedEvent(event, System.nanoTime()) : event;
+    }
+
+    /**
+     * Returns the events to put into an ingestion queue, with the sampled ones wrapped in {@link TracedEvent}s.
+     *
+     * @param events sent by a source
+     * @return events to queue
+     */
+    public List<Event> sampleForQueue(List<Event> events) {
+        List<Event> eventsToQueue = events;
+
+        for (int i = 0; i < events.size(); ++i) {
+            if (sample()) {
+                if (eventsToQueue == events) {
+                    eventsToQueue = Lists.newArrayList(events);
+                }
+                eventsToQueue.set(i, new TracedEvent(events.get(i), System.nanoTime()));
+            }
+        }
+
+        return eventsToQueue;
+    }
+
+    /**
+     * Returns when the source sent the specified event if it is traced, or {@link #NOT_SAMPLED} if it is not. Queued
+     * events were sampled when they were queued, the others are sampled now.
+     *
+     * @param event  about to go into the engine
+     * @param queued true if the event came out of an ingestion queue
+     * @return start of the trace in nanoseconds or {@link #NOT_SAMPLED}
+     */
+    public long startNanosOf(Event event, boolean queued) {
+        if (queued) {
+            return (event instanceof TracedEvent) ? ((TracedEvent) event).getStartNanos() : NOT_SAMPLED;
+        }
+
+        return sample() ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /**
+     * Starts the trace of an event on the current thread. Does nothing if the thread is already tracing an event.
+     *
+     * @param source     of the event
+     * @param startNanos when the source sent the event
+     * @return true if the trace was started and {@link #end()} has to be called
+     */
+    public boolean begin(Source source, long startNanos) {
+        if (activeTrace.get() != null) {
+            return false;
+        }
+
+        activeTrace.set(new ActiveTrace(source, startNanos));
+        numberOfActiveTraces.incrementAndGet();
+
+        return true;
+    }
+
+    /**
+     * Records that the node has seen the event traced on the current thread, if there is one.
+     *
+     * @param node that sees the event
+     */
+    public void hop(NodeMetrics node) {
+        if (numberOfActiveTraces.get() == 0) {
+            return;
+        }
+
+        ActiveTrace trace = activeTrace.get();
+        if (trace != null) {
+            trace.hops.add(new TraceHop(node.getId().toString(), node.getName(), node.getType(),
+                    System.nanoTime() - trace.startNanos));
+        }
+    }
+
+    /**
+     * Ends the trace started on the current thread and records it.
+     */
+    public void end() {
+        ActiveTrace active = activeTrace.get();
+        if (active == null) {
+            return;
+        }
+
+        activeTrace.remove();
+        numberOfActiveTraces.decrementAndGet();
+
+        long ageMillis = (System.nanoTime() - active.startNanos) / 1000000;
+        Trace trace = new Trace(active.sourceId, active.sourceName, System.currentTimeMillis() - ageMillis,
+                active.hops);
+
+        traces.set((int) (traceCount.getAndIncrement() % traces.length()), trace);
+
+        for (TraceHop hop : active.hops) {
+            latencyFor(active, hop).latencies.record(hop.getNanosSinceSource());
+        }
+    }
+
+    /**
+     * Returns the number of events traced so far, including those whose traces are no longer kept.
+     *
+     * @return number of traces
+     */
+    public long getTraceCount() {
+        return traceCount.get();
+    }
+
+    /**
+     * Returns the latest traces, oldest first.
+     *
+     * @return traces
+     */
+    public List<Trace> getTraces() {
+        long count = traceCount.get();
+        long first = Math.max(0, count - traces.length());
+
+        List<Trace> latestTraces = Lists.newArrayListWithCapacity((int) (count - first));
+        for (long i = first; i < count; ++i) {
+            Trace trace = traces.get((int) (i % traces.length()));
+            if (trace != null) {
+                latestTraces.add(trace);
+            }
+        }
+
+        return latestTraces;
+    }
+
+    /**
+     * Returns the latencies of all traced events from each source to each processor and sink they reached.
+     *
+     * @return latencies by path
+     */
+    public List<TracePathSnapshot> getPathLatencies() {
+        List<TracePathSnapshot> snapshots = Lists.newArrayListWithCapacity(paths.size());
+
+        for (PathLatency path : paths) {
+            long[] percentiles = path.latencies.getNanosAtPercentiles(50, 99);
+            snapshots.add(new TracePathSnapshot(path.sourceName, path.nodeName, path.nodeType,
+                    path.latencies.getCount(), path.latencies.getMeanNanos(), percentiles[0], percentiles[1],
+                    path.latencies.getMaximumNanos()));
+        }
+
+        return snapshots;
+    }
+
+    private PathLatency latencyFor(ActiveTrace trace, TraceHop hop) {
+        String key = trace.sourceId + '/' + hop.getNodeId();
+
+        PathLatency path = latenciesByPath.get(key);
+        if (path == null) {
+            PathLatency newPath = new PathLatency(trace.sourceName, hop.getNodeName(), hop.getNodeType());
+            path = latenciesByPath.putIfAbsent(key, newPath);
+
+            if (path == null) {
+                path = newPath;
+                paths.add(newPath);
+            }
+        }
+
+        return path;
+    }
+
+    private static class ActiveTrace {
+        private final String sourceId;
+        private final String sourceName;
+        private final long startNanos;
+        private final List<TraceHop> hops = Lists.newArrayList();
+
+        ActiveTrace(Source source, long startNanos) {
+            this.sourceId = source.getId().toString();
+            this.sourceName = source.getName();
+            this.startNanos = startNanos;
+        }
+    }
+
+    private static class PathLatency {
+        private final String sourceName;
+        private final String nodeName;
+        private final NodeType nodeType;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        PathLatency(String sourceName, String nodeName, NodeType nodeType) {
+            this.sourceName = sourceName;
+            this.nodeName = nodeName;
+            this.nodeType = nodeType;
+        }
+    }
+}
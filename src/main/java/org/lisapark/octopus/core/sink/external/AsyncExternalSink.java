@@ -0,0 +1,295 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.sink.external;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.runtime.SinkContext;
+import org.lisapark.octopus.core.runtime.ingest.BoundedQueueWriter;
+import org.lisapark.octopus.core.runtime.ingest.OverflowPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An {@link AsyncExternalSink} takes the processing of events by another {@link CompiledExternalSink} off the
+ * engine thread. The events are put into a bounded queue and one or more workers hand them to the wrapped sink, so a
+ * sink that blocks on network I/O no longer holds up the processors upstream of it. When a queue fills up the
+ * {@link OverflowPolicy} decides whether the engine thread waits or events are shed.
+ * <p/>
+ * With more than one worker the events are spread over the workers by the value of an ordering attribute. Events with
+ * the same value are processed in the order they arrived, events with different values may be processed in any order.
+ * All the workers call the same wrapped sink, so a pool of workers needs a sink that is thread safe without
+ * synchronizing its {@link CompiledExternalSink#processEvent}, otherwise the workers just take turns.
+ * <p/>
+ * Closing the sink processes the events that are still queued and stops the workers.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class AsyncExternalSink extends CompiledExternalSink implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncExternalSink.class);
+
+    /**
+     * Maximum number of events a worker takes off its queue at a time
+     */
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * How long a worker waits for an event before checking whether it has been stopped
+     */
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final CompiledExternalSink sink;
+    private final String orderingAttributeName;
+    private final int capacity;
+    private final BoundedQueueWriter<QueuedEvents> writer;
+    private final Worker[] workers;
+
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public AsyncExternalSink(CompiledExternalSink sink, AsyncSinkSettings settings) {
+        super(sink);
+        checkArgument(settings != null, "settings cannot be null");
+        this.sink = sink;
+        this.orderingAttributeName = settings.getOrderingAttributeName();
+        this.capacity = settings.getQueueCapacity();
+        this.writer = new BoundedQueueWriter<QueuedEvents>(settings.getOverflowPolicy(), capacity,
+                settings.getSampleInterval());
+
+        this.workers = new Worker[settings.getNumberOfWorkers()];
+        for (int i = 0; i < workers.length; ++i) {
+            workers[i] = new Worker("octopus-sink-" + sink.getId() + "-" + i);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Returns the sink that actually processes the events.
+     *
+     * @return wrapped sink
+     */
+    public CompiledExternalSink getSink() {
+        return sink;
+    }
+
+    @Override
+    public Set<String> getConsumedAttributeNames() {
+        Set<String> attributeNames = sink.getConsumedAttributeNames();
+
+        // the workers need the ordering attribute even if the sink does not read it
+        if (attributeNames != null && orderingAttributeName != null
+                && !attributeNames.contains(orderingAttributeName)) {
+            Set<String> withOrderingAttribute = Sets.newHashSet(attributeNames);
+            withOrderingAttribute.add(orderingAttributeName);
+            attributeNames = withOrderingAttribute;
+        }
+
+        return attributeNames;
+    }
+
+    @Override
+    public SinkInputMode getInputMode() {
+        return sink.getInputMode();
+    }
+
+    /**
+     * Queues the events for one of the workers. Called by the engine thread.
+     *
+     * @param ctx             context to process the events in
+     * @param eventsByInputId events to process
+     */
+    @Override
+    public void processEvent(SinkContext ctx, Map<Integer, Event> eventsByInputId) {
+        writer.offer(workerFor(eventsByInputId).queue, new QueuedEvents(ctx, eventsByInputId));
+    }
+
+    private Worker workerFor(Map<Integer, Event> eventsByInputId) {
+        if (workers.length == 1) {
+            return workers[0];
+        }
+
+        for (Event event : eventsByInputId.values()) {
+            Object key = event.getData().get(orderingAttributeName);
+
+            if (key != null) {
+                return workers[(key.hashCode() & Integer.MAX_VALUE) % workers.length];
+            }
+        }
+
+        return workers[0];
+    }
+
+    /**
+     * Processes the events that are still queued and waits for the workers to finish.
+     */
+    @Override
+    public void close() {
+        running = false;
+        boolean interrupted = false;
+
+        for (Worker worker : workers) {
+            boolean stopped = false;
+
+            while (!stopped) {
+                try {
+                    worker.thread.join();
+                    stopped = true;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return writer.getOverflowPolicy();
+    }
+
+    public int getNumberOfWorkers() {
+        return workers.length;
+    }
+
+    /**
+     * Returns the number of events that fit into the queue of each worker.
+     *
+     * @return capacity of a queue
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of events that are waiting in the queues of all the workers.
+     *
+     * @return depth of queues
+     */
+    public int getDepth() {
+        int depth = 0;
+        for (Worker worker : workers) {
+            depth += worker.queue.size();
+        }
+
+        return depth;
+    }
+
+    /**
+     * Returns the largest number of events there have been in the queue of a worker.
+     *
+     * @return maximum depth of a queue
+     */
+    public int getMaximumDepth() {
+        return writer.getMaximumDepth();
+    }
+
+    public long getQueuedCount() {
+        return writer.getQueuedCount();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return writer.getDroppedCount();
+    }
+
+    /**
+     * Returns the number of events the sink threw an exception for.
+     *
+     * @return failed count
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private static class QueuedEvents {
+        final SinkContext ctx;
+        final Map<Integer, Event> eventsByInputId;
+
+        QueuedEvents(SinkContext ctx, Map<Integer, Event> eventsByInputId) {
+            this.ctx = ctx;
+            this.eventsByInputId = eventsByInputId;
+        }
+    }
+
+    private class Worker implements Runnable {
+        final BlockingQueue<QueuedEvents> queue = new ArrayBlockingQueue<QueuedEvents>(capacity);
+        final Thread thread;
+
+        Worker(String name) {
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<QueuedEvents> batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+
+            while (running || !queue.isEmpty()) {
+                try {
+                    QueuedEvents events = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+                    if (events != null) {
+                        batch.add(events);
+                        queue.drainTo(batch, BATCH_SIZE - 1);
+
+                        for (QueuedEvents queuedEvents : batch) {
+                            process(queuedEvents);
+                        }
+                        batch.clear();
+                    }
+                } catch (InterruptedException e) {
+                    // keep going until stopped, the queue has to be drained
+                }
+            }
+        }
+
+        private void process(QueuedEvents events) {
+            try {
+                sink.processEvent(events.ctx, events.eventsByInputId);
+
+            } catch (RuntimeException e) {
+                failedCount.incrementAndGet();
+                LOG.error(String.format("Problem processing event in sink [%s]", sink.getId()), e);
+
+            } finally {
+                processedCount.incrementAndGet();
+            }
+        }
+    }
+}
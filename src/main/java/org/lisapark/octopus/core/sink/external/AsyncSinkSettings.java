@@ -0,0 +1,107 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.sink.external;
+
+import org.lisapark.octopus.core.runtime.ingest.OverflowPolicy;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * How an {@link AsyncExternalSink} queues the events of a sink and how many workers drain them.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class AsyncSinkSettings {
+
+    private static final int DEFAULT_SAMPLE_INTERVAL = 10;
+
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final int numberOfWorkers;
+    private final String orderingAttributeName;
+    private final int sampleInterval;
+
+    /**
+     * Settings for a single worker per sink, which processes the events of the sink in the order they arrived.
+     *
+     * @param queueCapacity  number of events that fit into the queue of the sink
+     * @param overflowPolicy what happens when the queue is full
+     */
+    public AsyncSinkSettings(int queueCapacity, OverflowPolicy overflowPolicy) {
+        this(queueCapacity, overflowPolicy, 1, null);
+    }
+
+    /**
+     * Settings for a pool of workers per sink. The events with the same value of the ordering attribute always go to
+     * the same worker, so they are processed in the order they arrived. The workers call the sink at the same time,
+     * so the sink has to be thread safe.
+     *
+     * @param queueCapacity         number of events that fit into the queue of each worker
+     * @param overflowPolicy        what happens when a queue is full
+     * @param numberOfWorkers       number of workers per sink
+     * @param orderingAttributeName attribute the events are spread over the workers by, may be null if there is
+     *                              only one worker
+     */
+    public AsyncSinkSettings(int queueCapacity, OverflowPolicy overflowPolicy, int numberOfWorkers,
+                             String orderingAttributeName) {
+        checkArgument(queueCapacity > 0, "queueCapacity has to be greater than zero");
+        checkArgument(overflowPolicy != null, "overflowPolicy cannot be null");
+        checkArgument(numberOfWorkers > 0, "numberOfWorkers has to be greater than zero");
+        checkArgument(numberOfWorkers == 1 || orderingAttributeName != null,
+                "orderingAttributeName is required for more than one worker");
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.numberOfWorkers = numberOfWorkers;
+        this.orderingAttributeName = orderingAttributeName;
+        this.sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getNumberOfWorkers() {
+        return numberOfWorkers;
+    }
+
+    public String getOrderingAttributeName() {
+        return orderingAttributeName;
+    }
+
+    /**
+     * Only one in this many events is let in by {@link OverflowPolicy#SAMPLE} once a queue is filling up.
+     *
+     * @return sample interval
+     */
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncSinkSettings{" +
+                "queueCapacity=" + queueCapacity +
+                ", overflowPolicy=" + overflowPolicy +
+                ", numberOfWorkers=" + numberOfWorkers +
+                ", orderingAttributeName='" + orderingAttributeName + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,245 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.sink.external;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.runtime.SinkContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A {@link BatchedExternalSink} collects the events for a {@link BatchingExternalSink} and writes them in batches.
+ * A batch is written when it is full or when its first event has waited for the maximum delay, whichever comes
+ * first, and whatever is left is written when the sink is closed.
+ * <p/>
+ * The size of a batch adapts to how long the sink takes to write it: a full batch that is written within the target
+ * latency doubles the batch size, up to the maximum, and a batch that takes longer halves it.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class BatchedExternalSink extends CompiledExternalSink implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchedExternalSink.class);
+
+    /**
+     * Size of the first batch, before anything is known about the latency of the sink
+     */
+    private static final int INITIAL_BATCH_SIZE = 16;
+
+    private final CompiledExternalSink sink;
+    private final BatchingExternalSink batchingSink;
+    private final Integer inputId;
+    private final boolean mergingInputs;
+    private final int maximumBatchSize;
+    private final long maximumDelayNanos;
+    private final long targetLatencyNanos;
+    private final ScheduledExecutorService flusher;
+
+    private final List<Event> batch;
+    private SinkContext batchContext;
+    private long batchStartNanos;
+    private int batchSize;
+    private boolean closed;
+
+    private long batchCount;
+    private long eventCount;
+    private long failedBatchCount;
+    private long lastLatencyNanos;
+
+    public BatchedExternalSink(CompiledExternalSink sink, SinkBatchSettings settings) {
+        super(sink);
+        checkArgument(sink instanceof BatchingExternalSink, "sink has to implement BatchingExternalSink");
+        checkArgument(settings != null, "settings cannot be null");
+        checkArgument(!sink.getInputs().isEmpty(), "sink has to have an input");
+        this.sink = sink;
+        this.batchingSink = (BatchingExternalSink) sink;
+        this.inputId = sink.getInputs().get(0).getId();
+        this.mergingInputs = sink.getInputMode() == SinkInputMode.MERGE;
+        this.maximumBatchSize = settings.getMaximumBatchSize();
+        this.maximumDelayNanos = settings.getUnit().toNanos(settings.getMaximumDelay());
+        this.targetLatencyNanos = settings.getUnit().toNanos(settings.getTargetLatency());
+        this.batchSize = Math.min(INITIAL_BATCH_SIZE, maximumBatchSize);
+        this.batch = Lists.newArrayListWithCapacity(maximumBatchSize);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("octopus-batch-" + sink.getId()).build()
+        );
+
+        // checks twice per delay so that no event waits much longer than the delay
+        long checkPeriodNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), maximumDelayNanos / 2);
+        flusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flushIfDue();
+            }
+        }, checkPeriodNanos, checkPeriodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the sink that actually writes the events.
+     *
+     * @return wrapped sink
+     */
+    public CompiledExternalSink getSink() {
+        return sink;
+    }
+
+    @Override
+    public Set<String> getConsumedAttributeNames() {
+        return sink.getConsumedAttributeNames();
+    }
+
+    @Override
+    public SinkInputMode getInputMode() {
+        return sink.getInputMode();
+    }
+
+    @Override
+    public synchronized void processEvent(SinkContext ctx, Map<Integer, Event> eventsByInputId) {
+        // a merging sink gets the events of all of its inputs on their own, so any of them goes into the batch
+        Event event = mergingInputs ? Iterables.getFirst(eventsByInputId.values(), null) : eventsByInputId.get(inputId);
+
+        if (closed || event == null) {
+            // nothing to batch, the sink deals with it as usual
+            sink.processEvent(ctx, eventsByInputId);
+            return;
+        }
+
+        if (batch.isEmpty()) {
+            batchStartNanos = System.nanoTime();
+            batchContext = ctx;
+        }
+
+        batch.add(event);
+
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    private synchronized void flushIfDue() {
+        if (!batch.isEmpty() && System.nanoTime() - batchStartNanos >= maximumDelayNanos) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        int numberOfEvents = batch.size();
+        long start = System.nanoTime();
+
+        try {
+            batchingSink.processBatch(batchContext, batch);
+
+        } catch (RuntimeException e) {
+            ++failedBatchCount;
+            LOG.error(String.format("Problem writing a batch of %d events in sink [%s]", numberOfEvents,
+                    sink.getId()), e);
+
+        } finally {
+            batch.clear();
+            batchContext = null;
+        }
+
+        lastLatencyNanos = System.nanoTime() - start;
+        ++batchCount;
+        eventCount += numberOfEvents;
+
+        if (lastLatencyNanos > targetLatencyNanos) {
+            batchSize = Math.max(1, batchSize / 2);
+        } else if (numberOfEvents >= batchSize) {
+            batchSize = Math.min(maximumBatchSize, batchSize * 2);
+        }
+    }
+
+    /**
+     * Writes the events that are still in the batch. Events that come in afterwards are handed to the sink one at a
+     * time.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+
+        boolean interrupted = false;
+        boolean terminated = false;
+        while (!terminated) {
+            try {
+                terminated = flusher.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        synchronized (this) {
+            if (!batch.isEmpty()) {
+                flush();
+            }
+            closed = true;
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of events the next batch is written at.
+     *
+     * @return current batch size
+     */
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMaximumBatchSize() {
+        return maximumBatchSize;
+    }
+
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    public synchronized long getFailedBatchCount() {
+        return failedBatchCount;
+    }
+
+    /**
+     * Returns how long the sink took to write the last batch.
+     *
+     * @param unit to return the latency in
+     * @return latency of last batch
+     */
+    public synchronized long getLastLatency(TimeUnit unit) {
+        return unit.convert(lastLatencyNanos, TimeUnit.NANOSECONDS);
+    }
+}
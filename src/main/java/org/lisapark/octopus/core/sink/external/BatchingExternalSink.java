@@ -0,0 +1,41 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.sink.external;
+
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.runtime.SinkContext;
+
+import java.util.List;
+
+/**
+ * Implemented by a {@link CompiledExternalSink} that can write many events in one round trip to the system behind
+ * it. When batching is turned on the sink is wrapped in a {@link BatchedExternalSink}, which collects the events of
+ * the first input of the sink and hands them over with {@link #processBatch}.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public interface BatchingExternalSink {
+
+    /**
+     * Processes the specified events in order. The list is reused once this returns, so the sink cannot hold on
+     * to it.
+     *
+     * @param ctx    context to process the events in
+     * @param events of the first input of the sink
+     */
+    void processBatch(SinkContext ctx, List<Event> events);
+}
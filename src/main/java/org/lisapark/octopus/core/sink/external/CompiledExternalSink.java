@@ -24,6 +24,7 @@ import org.lisapark.octopus.core.sink.Sink;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -38,6 +39,16 @@ public abstract class CompiledExternalSink {
         this.inputs = sink.getInputs();
     }
 
+    /**
+     * Creates a sink with the same id and inputs as the specified one, for sinks that wrap another sink.
+     *
+     * @param compiledSink to take the id and inputs from
+     */
+    protected CompiledExternalSink(CompiledExternalSink compiledSink) {
+        this.id = compiledSink.getId();
+        this.inputs = compiledSink.getInputs();
+    }
+
     public UUID getId() {
         return id;
     }
@@ -46,5 +57,26 @@ public abstract class CompiledExternalSink {
         return ImmutableList.copyOf(inputs);
     }
 
+    /**
+     * Returns the names of the event attributes this sink reads, or null if it may read any of them. The
+     * {@link org.lisapark.octopus.core.compiler.Compiler} uses this to avoid carrying attributes along that no one
+     * downstream will look at.
+     *
+     * @return consumed attribute names or null for all attributes
+     */
+    public Set<String> getConsumedAttributeNames() {
+        return null;
+    }
+
+    /**
+     * Returns how the events of the inputs of this sink are combined. Sinks that absorb several streams on their own
+     * return {@link SinkInputMode#MERGE}.
+     *
+     * @return input mode, {@link SinkInputMode#JOIN} by default
+     */
+    public SinkInputMode getInputMode() {
+        return SinkInputMode.JOIN;
+    }
+
     public abstract void processEvent(SinkContext ctx, Map<Integer, Event> eventsByInputId);
 }
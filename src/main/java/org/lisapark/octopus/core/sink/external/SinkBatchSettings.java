@@ -0,0 +1,78 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.sink.external;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * How a {@link BatchedExternalSink} collects events before it writes them.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class SinkBatchSettings {
+
+    private final int maximumBatchSize;
+    private final long maximumDelay;
+    private final long targetLatency;
+    private final TimeUnit unit;
+
+    /**
+     * @param maximumBatchSize largest number of events written at a time
+     * @param maximumDelay     longest an event waits in a batch before the batch is written anyway
+     * @param targetLatency    how long writing a batch may take; the batch size shrinks when it takes longer and
+     *                         grows when it takes less
+     * @param unit             of the delay and latency
+     */
+    public SinkBatchSettings(int maximumBatchSize, long maximumDelay, long targetLatency, TimeUnit unit) {
+        checkArgument(maximumBatchSize > 0, "maximumBatchSize has to be greater than zero");
+        checkArgument(maximumDelay > 0, "maximumDelay has to be greater than zero");
+        checkArgument(targetLatency > 0, "targetLatency has to be greater than zero");
+        checkArgument(unit != null, "unit cannot be null");
+        this.maximumBatchSize = maximumBatchSize;
+        this.maximumDelay = maximumDelay;
+        this.targetLatency = targetLatency;
+        this.unit = unit;
+    }
+
+    public int getMaximumBatchSize() {
+        return maximumBatchSize;
+    }
+
+    public long getMaximumDelay() {
+        return maximumDelay;
+    }
+
+    public long getTargetLatency() {
+        return targetLatency;
+    }
+
+    public TimeUnit getUnit() {
+        return unit;
+    }
+
+    @Override
+    public String toString() {
+        return "SinkBatchSettings{" +
+                "maximumBatchSize=" + maximumBatchSize +
+                ", maximumDelay=" + maximumDelay +
+                ", targetLatency=" + targetLatency +
+                ", unit=" + unit +
+                '}';
+    }
+}
@@ -0,0 +1,36 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.sink.external;
+
+/**
+ * How a {@link CompiledExternalSink} with more than one input gets the events of its inputs.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public enum SinkInputMode {
+    /**
+     * The sink is called with the latest event of every input as soon as all inputs have seen an event, just like a
+     * processor.
+     */
+    JOIN,
+
+    /**
+     * The sink is called for every event of every input on its own, with only the inputs connected to the source of
+     * the event in the map. This lets one sink absorb several unrelated streams.
+     */
+    MERGE
+}
@@ -17,6 +17,7 @@
 package org.lisapark.octopus.core.sink.external.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import java.util.Iterator;
 import org.lisapark.octopus.core.AbstractNode;
@@ -30,6 +31,7 @@ import org.lisapark.octopus.core.source.Source;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
 import org.lisapark.octopus.core.parameter.Parameter;
 import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
@@ -135,6 +137,17 @@ public class ConsoleSink extends AbstractNode implements ExternalSink {
             this.consoleSink = processor;
         }
 
+        @Override
+        public Set<String> getConsumedAttributeNames() {
+            String attributeList = consoleSink.getAttributeList();
+            if (attributeList == null || attributeList.isEmpty() || attributeList.split(",").length == 0) {
+                // everything is printed
+                return null;
+            }
+
+            return ImmutableSet.copyOf(attributeList.split(","));
+        }
+
         @Override
         public synchronized void processEvent(SinkContext ctx, Map<Integer, Event> eventsByInputId) {
             Event event = eventsByInputId.get(1);
@@ -17,6 +17,7 @@
 package org.lisapark.octopus.core.sink.external.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -32,6 +33,7 @@ import org.lisapark.octopus.core.ValidationException;
 import org.lisapark.octopus.core.event.Event;
 import org.lisapark.octopus.core.parameter.Parameter;
 import org.lisapark.octopus.core.runtime.SinkContext;
+import org.lisapark.octopus.core.sink.external.BatchingExternalSink;
 import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
 import org.lisapark.octopus.core.sink.external.ExternalSink;
 import org.lisapark.octopus.core.source.Source;
@@ -195,7 +197,7 @@ public class DatabaseSink extends AbstractNode implements ExternalSink {
         return new CompiledDatabaseSink(copyOf());
     }
 
-    static class CompiledDatabaseSink extends CompiledExternalSink {
+    static class CompiledDatabaseSink extends CompiledExternalSink implements BatchingExternalSink {
         
         private final DatabaseSink databaseSink;
         private Connection connection = null;
@@ -234,6 +236,31 @@ public class DatabaseSink extends AbstractNode implements ExternalSink {
             }
         }
 
+        @Override
+        public synchronized void processBatch(SinkContext ctx, List<Event> events) {
+            String attributeList = databaseSink.getAttributeList();
+            List<String> queries = Lists.newArrayListWithCapacity(events.size());
+
+            for (Event event : events) {
+                Map<String, Object> data = extractDataFromEvent(event, attributeList);
+                queries.add(DaoUtils.insertQueryString(data, databaseSink.getTable(), null));
+            }
+
+            try {
+                connection = getConnection(databaseSink.getDriver(), databaseSink.getUrl(),
+                        databaseSink.getUserName(), databaseSink.getPassword());
+
+                logger.log(Level.INFO, "Batch of {0} queries", queries.size());
+
+                DaoUtils.insertBatch(queries, connection);
+
+            } catch (SQLException ex) {
+                Exceptions.printStackTrace(ex);
+            } catch (ProcessingException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+        }
+
         private Connection getConnection(String className, String url, String userName, String password)  throws ProcessingException {
             
             try {
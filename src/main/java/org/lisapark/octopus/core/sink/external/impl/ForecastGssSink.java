@@ -266,7 +266,7 @@ public class ForecastGssSink extends AbstractNode implements ExternalSink {
                     listFeed = getListFeed();
                     List<ListEntry> list    = listFeed.getEntries();                    
                     String keyList          = gssSink.getOutFieldList();                    
-                    Map<String, Object> map = event.getData();
+                    Map<String, Object> map = Maps.newHashMap(event.getData());
                     
                     String formulaName      = gssSink.getFormulaName().isEmpty() ? null : gssSink.getFormulaName();
                     String forecastName     = gssSink.getForecastName().isEmpty() ? null : gssSink.getForecastName();
@@ -17,6 +17,7 @@
 package org.lisapark.octopus.core.sink.external.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.mongodb.BasicDBObject;
@@ -39,6 +40,7 @@ import org.lisapark.octopus.core.ValidationException;
 import org.lisapark.octopus.core.event.Event;
 import org.lisapark.octopus.core.parameter.Parameter;
 import org.lisapark.octopus.core.runtime.SinkContext;
+import org.lisapark.octopus.core.sink.external.BatchingExternalSink;
 import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
 import org.lisapark.octopus.core.sink.external.ExternalSink;
 import org.lisapark.octopus.core.source.Source;
@@ -219,7 +221,7 @@ public class MongoDbSink extends AbstractNode implements ExternalSink {
         return new CompiledMongoDbSink(copyOf());
     }
 
-    static class CompiledMongoDbSink extends CompiledExternalSink {
+    static class CompiledMongoDbSink extends CompiledExternalSink implements BatchingExternalSink {
 
         private final MongoDbSink mongoDbSink;
         private Mongo mongoDb = null;
@@ -240,32 +242,7 @@ public class MongoDbSink extends AbstractNode implements ExternalSink {
                 Map<String, Object> data = eventsByInputId.get(1).getData();
 
                 try {
-                    String url = mongoDbSink.getUrl();
-                    Integer port = mongoDbSink.getPort();
-                    String dbName = mongoDbSink.getDb();
-                    String collection = mongoDbSink.getCollection();
-                    String indName = mongoDbSink.getIndName();
-                    String uid = mongoDbSink.getUid();
-                    String pwd = mongoDbSink.getPwd();
-
-                    if (mongoDb == null) {
-                        mongoDb = new Mongo(url, port);
-                    }
-
-                    DB db = mongoDb.getDB(dbName);
-
-                    if (!uid.isEmpty() && !db.authenticate(uid, pwd.toCharArray())) {
-                        throw new MongoException("Wrong uid or password.");
-                    }
-
-                    // DBObject to search for duplicate records
-                    if (fnObject == null) {
-                        fnObject = (DBObject) JSON.parse(getIndexJson(indName));
-                    }
-
-                    DBCollection coll = db.getCollection(collection);
-
-                    coll.ensureIndex(fnObject);
+                    DBCollection coll = getCollection();
 //                    String jsonObject = new Gson().toJson(data, Map.class);
                     DBObject dbObject = buidDBObject(data);
 
@@ -282,6 +259,55 @@ public class MongoDbSink extends AbstractNode implements ExternalSink {
             }
         }
 
+        @Override
+        public synchronized void processBatch(SinkContext ctx, List<Event> events) {
+            List<DBObject> dbObjects = Lists.newArrayListWithCapacity(events.size());
+            for (Event event : events) {
+                dbObjects.add(buidDBObject(event.getData()));
+            }
+
+            try {
+                // one insert message for the whole batch
+                getCollection().insert(dbObjects, WriteConcern.NONE);
+
+            } catch (UnknownHostException ex) {
+                Exceptions.printStackTrace(ex);
+            } catch (MongoException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+        }
+
+        private DBCollection getCollection() throws UnknownHostException {
+            String url = mongoDbSink.getUrl();
+            Integer port = mongoDbSink.getPort();
+            String dbName = mongoDbSink.getDb();
+            String collection = mongoDbSink.getCollection();
+            String indName = mongoDbSink.getIndName();
+            String uid = mongoDbSink.getUid();
+            String pwd = mongoDbSink.getPwd();
+
+            if (mongoDb == null) {
+                mongoDb = new Mongo(url, port);
+            }
+
+            DB db = mongoDb.getDB(dbName);
+
+            if (!uid.isEmpty() && !db.authenticate(uid, pwd.toCharArray())) {
+                throw new MongoException("Wrong uid or password.");
+            }
+
+            // DBObject to search for duplicate records
+            if (fnObject == null) {
+                fnObject = (DBObject) JSON.parse(getIndexJson(indName));
+            }
+
+            DBCollection coll = db.getCollection(collection);
+
+            coll.ensureIndex(fnObject);
+
+            return coll;
+        }
+
         private String getIndexJson(String indName) {
             Map<String, Object> map = Maps.newHashMap();
 
@@ -17,6 +17,7 @@
 package org.lisapark.octopus.core.sink.external.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
@@ -42,6 +43,7 @@ import org.json.JSONObject;
 import org.json.JSONStringer;
 import org.json.JSONWriter;
 import org.lisapark.octopus.core.parameter.Parameter;
+import org.lisapark.octopus.core.sink.external.BatchingExternalSink;
 import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
 import org.lisapark.octopus.core.sink.external.ExternalSink;
 import org.lisapark.octopus.util.jdbc.Connections;
@@ -225,7 +227,7 @@ public class RabbitMqSink extends AbstractNode implements ExternalSink {
         return new CompiledRabbitMq(copyOf());
     }
 
-    static class CompiledRabbitMq extends CompiledExternalSink {
+    static class CompiledRabbitMq extends CompiledExternalSink implements BatchingExternalSink {
         
         private RabbitMqSink sink; 
         private RabbitMqClient client;
@@ -240,21 +242,9 @@ public class RabbitMqSink extends AbstractNode implements ExternalSink {
             Event event = eventsByInputId.get(1);
             if (event != null) {
                 
-                if(client == null){
-                    try {
-                        client = new RabbitMqClient(
-                                sink.getUserName(),
-                                sink.getPassword(),
-                                sink.getRabbitMqUrl(),
-                                sink.getRabbitMqPort(),
-                                sink.getExchangeName(),
-                                sink.getQueueName()
-                                ).init();
-                    } catch (Exception ex) {
-                        ctx.getStandardOut().println(ex);
-                        return;
-                    }
-                }                
+                if (!initClient(ctx)) {
+                    return;
+                }
                 String attributeList = sink.getAttributeList();
 
                 // Print out attributes
@@ -275,6 +265,47 @@ public class RabbitMqSink extends AbstractNode implements ExternalSink {
             }
         }
 
+        @Override
+        public synchronized void processBatch(SinkContext ctx, List<Event> events) {
+            if (!initClient(ctx)) {
+                return;
+            }
+            String attributeList = sink.getAttributeList();
+
+            List<String> messages = Lists.newArrayListWithCapacity(events.size());
+            for (Event event : events) {
+                String outputString = formatOutput(event, attributeList, ctx);
+                if (outputString != null) {
+                    messages.add(outputString);
+                }
+            }
+
+            try {
+                client.sendAll(messages);
+            } catch (Exception ex) {
+                ctx.getStandardOut().println(ex);
+            }
+        }
+
+        private boolean initClient(SinkContext ctx) {
+            if (client == null) {
+                try {
+                    client = new RabbitMqClient(
+                            sink.getUserName(),
+                            sink.getPassword(),
+                            sink.getRabbitMqUrl(),
+                            sink.getRabbitMqPort(),
+                            sink.getExchangeName(),
+                            sink.getQueueName()
+                            ).init();
+                } catch (Exception ex) {
+                    ctx.getStandardOut().println(ex);
+                    return false;
+                }
+            }
+            return true;
+        }
+
         private String formatOutput(Event event, String attributeList, SinkContext ctx) {
             
             Map<String, Object> data = event.getData();
@@ -363,6 +394,18 @@ public class RabbitMqSink extends AbstractNode implements ExternalSink {
             return response;
         }
         
+        /**
+         * Publishes the messages one after the other on the open channel. Publishing does not wait for the broker,
+         * so what a batch saves is the per event overhead of the sink rather than round trips.
+         */
+        public void sendAll(List<String> messages) throws Exception {
+            for (String message : messages) {
+                channel.basicPublish(exchangeName, queueName,
+                        MessageProperties.TEXT_PLAIN,
+                        message.getBytes());
+            }
+        }
+
         public void close() throws Exception {
             connection.close();
         }
@@ -18,6 +18,7 @@ package org.lisapark.octopus.core.sink.external.impl;
 
 import com.db4o.ta.ActivatableInstrumented;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import java.util.List;
@@ -31,10 +32,14 @@ import org.lisapark.octopus.core.ValidationException;
 import org.lisapark.octopus.core.event.Event;
 import org.lisapark.octopus.core.parameter.Parameter;
 import org.lisapark.octopus.core.runtime.SinkContext;
+import org.lisapark.octopus.core.sink.external.BatchingExternalSink;
 import org.lisapark.octopus.core.sink.external.CompiledExternalSink;
 import org.lisapark.octopus.core.sink.external.ExternalSink;
 import org.lisapark.octopus.core.source.Source;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -194,7 +199,7 @@ public class RedisPubSink extends AbstractNode
         return new CompiledResinPub(copyOf());
     }
 
-    static class CompiledResinPub extends CompiledExternalSink {
+    static class CompiledResinPub extends CompiledExternalSink implements BatchingExternalSink {
 
         private RedisPubSink sink;
         private JedisConnectionFactory cf = null;
@@ -209,24 +214,7 @@ public class RedisPubSink extends AbstractNode
         public synchronized void processEvent(SinkContext ctx, Map<Integer, Event> eventsByInputId) {
             Event event = (Event) eventsByInputId.get(Integer.valueOf(1));
             if (event != null) {
-                try {
-                    if (this.cf == null) {
-                        this.cf = new JedisConnectionFactory();
-                        this.cf.setHostName(this.sink.getRedisUrl());
-                        this.cf.setPort(this.sink.getRedisPort());
-                        this.cf.afterPropertiesSet();
-
-                        StringRedisSerializer STRING_SERIALIZER = new StringRedisSerializer();
-                        this.tmpl = new RedisTemplate();
-
-                        this.tmpl.setConnectionFactory(this.cf);
-                        this.tmpl.setKeySerializer(STRING_SERIALIZER);
-                        this.tmpl.setValueSerializer(STRING_SERIALIZER);
-                        this.tmpl.afterPropertiesSet();
-                    }
-                } catch (Exception ex) {
-                    ctx.getStandardOut().println(ex);
-                }
+                initTemplate(ctx);
 
                 String attributeList = this.sink.getAttributeList();
 
@@ -246,6 +234,57 @@ public class RedisPubSink extends AbstractNode
             }
         }
 
+        @Override
+        public synchronized void processBatch(SinkContext ctx, List<Event> events) {
+            initTemplate(ctx);
+
+            String attributeList = this.sink.getAttributeList();
+            final List<String> outputStrings = Lists.newArrayListWithCapacity(events.size());
+            for (Event event : events) {
+                String outputString = formatOutput(event, attributeList, ctx);
+                if (outputString != null) {
+                    outputStrings.add(outputString);
+                }
+            }
+
+            final byte[] channel = this.tmpl.getStringSerializer().serialize(
+                    this.sink.getChannelPrefix() + this.sink.getChannelName());
+
+            // the pushes and publishes of the whole batch go to the server in one pipeline
+            this.tmpl.execute(new RedisCallback<Object>() {
+                @Override
+                public Object doInRedis(RedisConnection connection) throws DataAccessException {
+                    for (String outputString : outputStrings) {
+                        byte[] value = tmpl.getStringSerializer().serialize(outputString);
+                        connection.lPush(channel, value);
+                        connection.publish(channel, value);
+                    }
+                    return null;
+                }
+            }, false, true);
+        }
+
+        private void initTemplate(SinkContext ctx) {
+            try {
+                if (this.cf == null) {
+                    this.cf = new JedisConnectionFactory();
+                    this.cf.setHostName(this.sink.getRedisUrl());
+                    this.cf.setPort(this.sink.getRedisPort());
+                    this.cf.afterPropertiesSet();
+
+                    StringRedisSerializer STRING_SERIALIZER = new StringRedisSerializer();
+                    this.tmpl = new RedisTemplate();
+
+                    this.tmpl.setConnectionFactory(this.cf);
+                    this.tmpl.setKeySerializer(STRING_SERIALIZER);
+                    this.tmpl.setValueSerializer(STRING_SERIALIZER);
+                    this.tmpl.afterPropertiesSet();
+                }
+            } catch (Exception ex) {
+                ctx.getStandardOut().println(ex);
+            }
+        }
+
         private String formatOutput(Event event, String attributeList, SinkContext ctx) {
             Map<String, Object> data = event.getData();
             String[] attList = attributeList.split(",");
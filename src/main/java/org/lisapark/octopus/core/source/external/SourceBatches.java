@@ -0,0 +1,31 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.source.external;
+
+import org.lisapark.octopus.core.runtime.ProcessingRuntime;
+import org.lisapark.octopus.core.source.Source;
+
+/**
+ * Holds the number of events that sources reading many events at a time send to
+ * {@link ProcessingRuntime#sendEventsFromSource(java.util.List, Source)} at a time.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public abstract class SourceBatches {
+
+    public static final int BATCH_SIZE = 256;
+}
@@ -17,28 +17,31 @@
 package org.lisapark.octopus.core.source.external.impl;
 
 import static com.google.common.base.Preconditions.checkState;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Enumeration;
+import java.util.List;
 import org.lisapark.octopus.core.Output;
 import org.lisapark.octopus.core.Persistable;
 import org.lisapark.octopus.core.ValidationException;
 import org.lisapark.octopus.core.event.Attribute;
+import org.lisapark.octopus.core.event.CompiledEvent;
+import org.lisapark.octopus.core.event.CompiledEventType;
 import org.lisapark.octopus.core.event.Event;
-import org.lisapark.octopus.core.event.EventType;
 import org.lisapark.octopus.core.parameter.Parameter;
 import org.lisapark.octopus.core.runtime.ProcessingRuntime;
 
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import org.lisapark.octopus.core.source.external.CompiledExternalSource;
 import org.lisapark.octopus.core.source.external.ExternalSource;
+import org.lisapark.octopus.core.source.external.SourceBatches;
 import org.lisapark.octopus.util.Booleans;
 import org.openide.util.Exceptions;
 
@@ -208,13 +211,15 @@ public class GdeltZipSource extends ExternalSource {
                 running = true;
             }
 
-            EventType eventType = source.getOutput().getEventType();
+            // the slot layout of the events is worked out once for all the lines
+            CompiledEventType eventType = source.getOutput().getEventType().compile();
 
             Integer readLimit = source.getReadLimit();
             String fileName = source.getFileName();
             String zipDir = source.getZipDir();
 
             Map<String, Object> attributeData = Maps.newHashMap();
+            List<Event> batch = Lists.newArrayListWithCapacity(SourceBatches.BATCH_SIZE);
             int count = 0;
             String line;
 
@@ -234,14 +239,14 @@ public class GdeltZipSource extends ExternalSource {
                             BufferedReader br = new BufferedReader(new InputStreamReader(input, "UTF-8"));
                             if (readLimit > 0) {
                                 while ((line = br.readLine()) != null && count < readLimit) {
-                                    Event newEvent = createEventFromLine(line, eventType);
-                                    runtime.sendEventFromSource(newEvent, source);
+                                    batch.add(createEventFromLine(line, eventType));
+                                    sendIfFull(batch, runtime);
                                     count++;
                                 }
                             } else {
                                 while ((line = br.readLine()) != null) {
-                                    Event newEvent = createEventFromLine(line, eventType);
-                                    runtime.sendEventFromSource(newEvent, source);
+                                    batch.add(createEventFromLine(line, eventType));
+                                    sendIfFull(batch, runtime);
                                 }
 
                             }
@@ -250,6 +255,11 @@ public class GdeltZipSource extends ExternalSource {
                         } catch (Exception e) {                            
                             System.err.println("Unhandled exception:");
                         } finally {
+                            // send what was read from the entry, even if it could not be read completely
+                            if (!batch.isEmpty()) {
+                                runtime.sendEventsFromSource(batch, source);
+                                batch.clear();
+                            }
                             if (input != null) {
                                 input.close();
                             }
@@ -262,70 +272,63 @@ public class GdeltZipSource extends ExternalSource {
 
         }
 
+        private void sendIfFull(List<Event> batch, ProcessingRuntime runtime) {
+            if (batch.size() == SourceBatches.BATCH_SIZE) {
+                runtime.sendEventsFromSource(batch, source);
+                batch.clear();
+            }
+        }
+
         @Override
         public void stopProcessingEvents() {
             running = false;
         }
 
-        private synchronized Event createEventFromLine(String line, EventType eventType) {
+        private synchronized Event createEventFromLine(String line, CompiledEventType eventType) {
 
             String[] fields = line.split("\\t");
 
-            Map<String, Object> attributeValues = Maps.newHashMap();
+            CompiledEvent event = eventType.newEvent();
 
-            int index = 0;
-            List<Attribute> attributes = eventType.getAttributes();
-            for (Attribute attribute : attributes) {
-                Class type = attribute.getType();
-                String attributeName = attribute.getName();
-                String field = fields[index];
+            int numberOfSlots = Math.min(eventType.getNumberOfSlots(), fields.length);
+            for (int slot = 0; slot < numberOfSlots; ++slot) {
+                Class type = eventType.getAttributeTypeAt(slot);
+                String field = fields[slot];
 
-                if (field.isEmpty()) {
-                    attributeValues.put(attributeName, null);
-                } else {
+                if (!field.isEmpty()) {
                     try {
                         if (type == String.class) {
                             String value = field;
-                            attributeValues.put(attributeName, value);
+                            event.set(slot, value);
 
                         } else if (type == Integer.class) {
-                            int value = Integer.valueOf(field);
-                            attributeValues.put(attributeName, value);
+                            event.setInt(slot, Integer.parseInt(field));
 
                         } else if (type == Short.class) {
-                            short value = Short.valueOf(field);
-                            attributeValues.put(attributeName, value);
+                            event.setInt(slot, Short.parseShort(field));
 
                         } else if (type == Long.class) {
-                            long value = Long.valueOf(field);
-                            attributeValues.put(attributeName, value);
+                            event.setLong(slot, Long.parseLong(field));
 
                         } else if (type == Double.class) {
-                            double value = Double.valueOf(field);
-                            attributeValues.put(attributeName, value);
+                            event.setDouble(slot, Double.parseDouble(field));
 
                         } else if (type == Float.class) {
-                            float value = Float.valueOf(field);
-                            attributeValues.put(attributeName, value);
+                            event.setFloat(slot, Float.parseFloat(field));
 
                         } else if (type == Boolean.class) {
-                            attributeValues.put(attributeName, Booleans.parseBoolean(field));
+                            event.setBoolean(slot, Booleans.parseBoolean(field));
                         } else {
                             throw new IllegalArgumentException(String.format("Unknown attribute type %s", type));
                         }
                     } catch (Exception e) {
                         System.out.println(e.getMessage());
-                        attributeValues.put(attributeName, null);
+                        event.setNull(slot);
                     }
                 }
-
-                index++;
-                if (index >= fields.length) {
-                    break;
-                }
             }
 
-            return new Event(attributeValues);
+            return event;
         }
     }
 }
@@ -16,6 +16,7 @@
  */
 package org.lisapark.octopus.core.source.external.impl;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.gdata.util.ServiceException;
 import java.io.IOException;
@@ -32,6 +33,7 @@ import org.lisapark.octopus.core.parameter.Parameter;
 import org.lisapark.octopus.core.runtime.ProcessingRuntime;
 import org.lisapark.octopus.core.source.external.CompiledExternalSource;
 import org.lisapark.octopus.core.source.external.ExternalSource;
+import org.lisapark.octopus.core.source.external.SourceBatches;
 import org.lisapark.octopus.util.Booleans;
 import org.lisapark.octopus.util.gss.GssListUtils;
 import static com.google.common.base.Preconditions.checkState;
@@ -238,7 +240,6 @@ public class MongoDbSource extends ExternalSource {
     }
 
     private static class CompiledMongoDbSource implements CompiledExternalSource {
-
         private final MongoDbSource source;
 
         private volatile boolean running;
@@ -352,14 +353,23 @@ public class MongoDbSource extends ExternalSource {
             Thread thread = Thread.currentThread();
             EventType eventType = source.getEventType();
 
+            List<Event> batch = Lists.newArrayListWithCapacity(SourceBatches.BATCH_SIZE);
+
             while (dbResult.hasNext() && !thread.isInterrupted() && running) {
                 DBObject item = dbResult.next();
                 Map<String, Object> map = new Gson().fromJson(JSON.serialize(item), Map.class);
 
-                Event newEvent = createEventFromRecord(map, eventType);
-
-                runtime.sendEventFromSource(newEvent, source);
+                batch.add(createEventFromRecord(map, eventType));
                 System.out.println(map);
+
+                if (batch.size() == SourceBatches.BATCH_SIZE) {
+                    runtime.sendEventsFromSource(batch, source);
+                    batch.clear();
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                runtime.sendEventsFromSource(batch, source);
             }
 
         }
@@ -16,6 +16,7 @@
  */
 package org.lisapark.octopus.core.source.external.impl;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import java.util.Collection;
@@ -34,6 +35,7 @@ import org.lisapark.octopus.core.parameter.Parameter;
 import org.lisapark.octopus.core.runtime.ProcessingRuntime;
 import org.lisapark.octopus.core.source.external.CompiledExternalSource;
 import org.lisapark.octopus.core.source.external.ExternalSource;
+import org.lisapark.octopus.core.source.external.SourceBatches;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -164,15 +166,26 @@ public class RedisListSource extends ExternalSource {
             Long size = tmpl.opsForList().size(key);
             Collection<String> messages = tmpl.opsForList().range(key, 0L, size.longValue() - 1L);
 
+            List<Event> batch = Lists.newArrayListWithCapacity(SourceBatches.BATCH_SIZE);
+
             for (String message : messages) {
                 if ((thread.isInterrupted()) || (!this.running) || (message == null)) {
                     break;
                 }
                 Event e = createEvent(message, attributes);
                 if (e != null) {
-                    runtime.sendEventFromSource(e, this.source);
+                    batch.add(e);
+
+                    if (batch.size() == SourceBatches.BATCH_SIZE) {
+                        runtime.sendEventsFromSource(batch, this.source);
+                        batch.clear();
+                    }
                 }
             }
+
+            if (!batch.isEmpty()) {
+                runtime.sendEventsFromSource(batch, this.source);
+            }
         }
 
         private Event createEvent(String message, List<Attribute> attributes) {
@@ -16,12 +16,13 @@
  */
 package org.lisapark.octopus.core.source.external.impl;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.Lists;
 import org.lisapark.octopus.core.Output;
 import org.lisapark.octopus.core.Persistable;
 import org.lisapark.octopus.core.ProcessingException;
 import org.lisapark.octopus.core.ValidationException;
-import org.lisapark.octopus.core.event.Attribute;
+import org.lisapark.octopus.core.event.CompiledEvent;
+import org.lisapark.octopus.core.event.CompiledEventType;
 import org.lisapark.octopus.core.event.Event;
 import org.lisapark.octopus.core.event.EventType;
 import org.lisapark.octopus.core.parameter.Constraints;
@@ -37,11 +38,12 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Map;
+import java.util.List;
 import java.util.UUID;
 
 import org.lisapark.octopus.core.source.external.CompiledExternalSource;
 import org.lisapark.octopus.core.source.external.ExternalSource;
+import org.lisapark.octopus.core.source.external.SourceBatches;
 import static com.google.common.base.Preconditions.checkState;
 
 /**
@@ -197,12 +199,22 @@ public class SqlQuerySource extends ExternalSource {
 
         void processResultSet(ResultSet rs, ProcessingRuntime runtime) throws SQLException {
             Thread thread = Thread.currentThread();
-            EventType eventType = source.getEventType();
+            // the slot layout of the events is worked out once for the whole result set
+            CompiledEventType eventType = source.getEventType().compile();
+
+            List<Event> batch = Lists.newArrayListWithCapacity(SourceBatches.BATCH_SIZE);
 
             while (!thread.isInterrupted() && running && rs.next()) {
-                Event newEvent = createEventFromResultSet(rs, eventType);
+                batch.add(createEventFromResultSet(rs, eventType));
+
+                if (batch.size() == SourceBatches.BATCH_SIZE) {
+                    runtime.sendEventsFromSource(batch, source);
+                    batch.clear();
+                }
+            }
 
-                runtime.sendEventFromSource(newEvent, source);
+            if (!batch.isEmpty()) {
+                runtime.sendEventsFromSource(batch, source);
             }
         }
 
@@ -235,46 +247,41 @@ public class SqlQuerySource extends ExternalSource {
             return connection;
         }
 
-        Event createEventFromResultSet(ResultSet rs, EventType eventType) throws SQLException {
-            Map<String, Object> attributeValues = Maps.newHashMap();
+        Event createEventFromResultSet(ResultSet rs, CompiledEventType eventType) throws SQLException {
+            CompiledEvent event = eventType.newEvent();
 
-            for (Attribute attribute : eventType.getAttributes()) {
-                Class type = attribute.getType();
-                String attributeName = attribute.getName();
+            for (int slot = 0; slot < eventType.getNumberOfSlots(); ++slot) {
+                Class type = eventType.getAttributeTypeAt(slot);
+                String attributeName = eventType.getAttributeNameAt(slot);
 
                 if (type == String.class) {
                     String value = rs.getString(attributeName);
-                    attributeValues.put(attributeName, value);
+                    event.set(slot, value);
 
                 } else if (type == Integer.class) {
-                    int value = rs.getInt(attributeName);
-                    attributeValues.put(attributeName, value);
+                    event.setInt(slot, rs.getInt(attributeName));
 
                 } else if (type == Short.class) {
-                    short value = rs.getShort(attributeName);
-                    attributeValues.put(attributeName, value);
+                    event.setInt(slot, rs.getShort(attributeName));
 
                 } else if (type == Long.class) {
-                    long value = rs.getLong(attributeName);
-                    attributeValues.put(attributeName, value);
+                    event.setLong(slot, rs.getLong(attributeName));
 
                 } else if (type == Double.class) {
-                    double value = rs.getDouble(attributeName);
-                    attributeValues.put(attributeName, value);
+                    event.setDouble(slot, rs.getDouble(attributeName));
 
                 } else if (type == Float.class) {
-                    float value = rs.getFloat(attributeName);
-                    attributeValues.put(attributeName, value);
+                    event.setFloat(slot, rs.getFloat(attributeName));
 
                 } else if (type == Boolean.class) {
                     String value = rs.getString(attributeName);
-                    attributeValues.put(attributeName, Booleans.parseBoolean(value));
+                    event.setBoolean(slot, Booleans.parseBoolean(value));
                 } else {
                     throw new IllegalArgumentException(String.format("Unknown attribute type %s", type));
                 }
             }
 
-            return new Event(attributeValues);
+            return event;
         }
     }
 }
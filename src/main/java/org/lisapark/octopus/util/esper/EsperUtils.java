@@ -48,16 +48,20 @@ public abstract class EsperUtils {
 
     static String getEventNameForUUID(UUID id) {
         // esper doesn't like event name that start with a number, so we always add a prefix of '_'
-        StringBuilder eventName = new StringBuilder("_");
-
-        String idAsString = id.toString();
-        for (int i = 0; i < idAsString.length(); ++i) {
-            // esper also doesn't like '-', so we skip them
-            if (idAsString.charAt(i) != '-') {
-                eventName.append(idAsString.charAt(i));
-            }
-        }
+        char[] eventName = new char[33];
+        eventName[0] = '_';
+
+        // esper also doesn't like '-', so the name is just the hex digits of the id
+        appendHexDigits(eventName, 1, id.getMostSignificantBits());
+        appendHexDigits(eventName, 17, id.getLeastSignificantBits());
 
-        return eventName.toString();
+        return new String(eventName);
+    }
+
+    private static void appendHexDigits(char[] buffer, int offset, long bits) {
+        for (int i = 15; i > -1; --i) {
+            buffer[offset + i] = Character.forDigit((int) (bits & 0xF), 16);
+            bits >>>= 4;
+        }
     }
 }
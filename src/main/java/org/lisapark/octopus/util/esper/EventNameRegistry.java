@@ -0,0 +1,153 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.util.esper;
+
+import com.google.common.collect.Maps;
+import org.lisapark.octopus.core.source.Source;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The {@link EventNameRegistry} assigns every {@link Source} of a model its Esper event name and a small integer id
+ * once, so the runtime does not have to rebuild the name from the source's {@link UUID} for every event.
+ * <p/>
+ * Sources are normally registered by the compiler. Lookups are first done by identity of the source and then by its
+ * id since the runtime often sees copies of the model's sources; a source that was never registered is registered
+ * on its first lookup. Lookups do not lock, registration does.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class EventNameRegistry {
+
+    private volatile Map<Source, Integer> eventIdsBySource = new IdentityHashMap<Source, Integer>();
+    private volatile Map<UUID, Integer> eventIdsByUUID = Maps.newHashMap();
+    private volatile String[] eventNames = new String[0];
+
+    /**
+     * Registers the specified source if it is not already registered.
+     *
+     * @param source to register
+     * @return event id of the source
+     */
+    public int register(Source source) {
+        checkArgument(source != null, "source cannot be null");
+
+        return getEventId(source);
+    }
+
+    /**
+     * Returns the event id of the specified source. Ids are assigned in order of registration starting with 0.
+     *
+     * @param source to get the event id for
+     * @return event id
+     */
+    public int getEventId(Source source) {
+        Integer eventId = eventIdsBySource.get(source);
+
+        if (eventId == null) {
+            eventId = registerInstance(source);
+        }
+
+        return eventId;
+    }
+
+    /**
+     * Returns the event name that is used within Esper for the specified source. The returned name is interned.
+     *
+     * @param source to get event name for
+     * @return event name
+     * @see EsperUtils#getEventNameForSource(Source)
+     */
+    public String getEventName(Source source) {
+        int eventId = getEventId(source);
+
+        return eventNames[eventId];
+    }
+
+    /**
+     * Returns the event name for the specified event id.
+     *
+     * @param eventId of a registered source
+     * @return event name
+     */
+    public String getEventName(int eventId) {
+        String[] names = eventNames;
+        checkArgument(eventId > -1 && eventId < names.length, "eventId is not registered");
+
+        return names[eventId];
+    }
+
+    public int getNumberOfEvents() {
+        return eventNames.length;
+    }
+
+    /**
+     * Returns the event name for the source with the specified id.
+     *
+     * @param id of source
+     * @return event name
+     */
+    public String getEventName(UUID id) {
+        Integer eventId = eventIdsByUUID.get(id);
+
+        if (eventId == null) {
+            eventId = registerId(id);
+        }
+
+        return eventNames[eventId];
+    }
+
+    private synchronized int registerInstance(Source source) {
+        Integer eventId = eventIdsBySource.get(source);
+
+        if (eventId == null) {
+            eventId = registerId(source.getId());
+
+            // copy on write so lookups never see a map that is being modified
+            Map<Source, Integer> idsBySource = new IdentityHashMap<Source, Integer>(eventIdsBySource);
+            idsBySource.put(source, eventId);
+            eventIdsBySource = idsBySource;
+        }
+
+        return eventId;
+    }
+
+    private synchronized int registerId(UUID id) {
+        Integer eventId = eventIdsByUUID.get(id);
+
+        if (eventId == null) {
+            eventId = eventNames.length;
+
+            String[] names = Arrays.copyOf(eventNames, eventId + 1);
+            names[eventId] = EsperUtils.getEventNameForUUID(id).intern();
+
+            Map<UUID, Integer> idsByUUID = Maps.newHashMap(eventIdsByUUID);
+            idsByUUID.put(id, eventId);
+
+            // the name has to be visible before the id is
+            eventNames = names;
+            eventIdsByUUID = idsByUUID;
+        }
+
+        return eventId;
+    }
+}
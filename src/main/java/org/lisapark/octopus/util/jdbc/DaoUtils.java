@@ -23,6 +23,7 @@ import java.sql.Statement;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -68,6 +69,26 @@ public class DaoUtils {
         return key;
     }
     
+    /**
+     * Executes the insert queries as one JDBC batch, which takes a single round trip with most drivers.
+     *
+     * @param queries insert queries
+     * @param conn connection to execute them on
+     * @return update counts of the queries
+     */
+    public static synchronized int[] insertBatch(List<String> queries, Connection conn) throws SQLException {
+        Statement stmt = conn.createStatement();
+
+        try {
+            for (String query : queries) {
+                stmt.addBatch(query);
+            }
+            return stmt.executeBatch();
+        } finally {
+            stmt.close();
+        }
+    }
+
     /**
      * 
      * @param tblMap
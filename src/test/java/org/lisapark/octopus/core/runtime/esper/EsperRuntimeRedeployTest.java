@@ -0,0 +1,203 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.esper;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.lisapark.octopus.core.Output;
+import org.lisapark.octopus.core.ProcessingModel;
+import org.lisapark.octopus.core.ValidationException;
+import org.lisapark.octopus.core.compiler.esper.EsperCompiler;
+import org.lisapark.octopus.core.event.Attribute;
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.memory.budget.BudgetPolicy;
+import org.lisapark.octopus.core.memory.budget.BudgetedMemoryProvider;
+import org.lisapark.octopus.core.memory.heap.HeapMemoryProvider;
+import org.lisapark.octopus.core.processor.impl.Sma;
+import org.lisapark.octopus.core.runtime.ProcessingRuntime;
+import org.lisapark.octopus.core.sink.external.impl.ConsoleSink;
+import org.lisapark.octopus.core.source.Source;
+import org.lisapark.octopus.core.source.external.CompiledExternalSource;
+import org.lisapark.octopus.core.source.external.ExternalSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Redeploys a model of a source, a {@link Sma} and a {@link ConsoleSink} while the runtime is running. The test
+ * sends the events of the source itself, so every average the sink prints is known.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class EsperRuntimeRedeployTest extends TestCase {
+    /**
+     * A window of 3 doubles
+     */
+    private static final long WINDOW_BYTES = 3 * 8;
+
+    private ProcessingModel model;
+    private SilentSource source;
+    private Sma sma;
+
+    private BudgetedMemoryProvider memoryBudget;
+    private ByteArrayOutputStream output;
+    private EsperRuntime runtime;
+
+    public EsperRuntimeRedeployTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(EsperRuntimeRedeployTest.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        // every model gets an Esper engine of its own name
+        model = new ProcessingModel(getClass().getSimpleName() + "-" + getName() + "-" + System.nanoTime());
+
+        source = new SilentSource(UUID.randomUUID());
+        source.getOutput().addAttribute(Attribute.doubleAttribute("x"));
+        model.addExternalEventSource(source);
+
+        sma = Sma.newTemplate();
+        sma.setWindowLength(3);
+        sma.setOutputAttributeName("average");
+        sma.getInput().connectSource(source);
+        sma.getInput().setSourceAttribute("x");
+        model.addProcessor(sma);
+
+        ConsoleSink sink = ConsoleSink.newTemplate();
+        sink.setAttributeList("average,mean");
+        sink.getInput().connectSource(sma);
+        model.addExternalSink(sink);
+
+        memoryBudget = new BudgetedMemoryProvider(new HeapMemoryProvider(), 100, BudgetPolicy.REJECT);
+        output = new ByteArrayOutputStream();
+
+        EsperCompiler compiler = new EsperCompiler();
+        compiler.setMemoryProvider(memoryBudget);
+        compiler.setStandardOut(new PrintStream(output, true));
+        runtime = (EsperRuntime) compiler.compile(model);
+        runtime.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        runtime.shutdown();
+    }
+
+    public void testChangedProcessorKeepsMemoryOfSameWindow() throws Exception {
+        send(1, 2, 3);
+
+        sma.setOutputAttributeName("mean");
+        runtime.redeploy(model);
+        send(4);
+
+        // the window still holds 2 and 3
+        assertPrinted("{average=1.0}", "{average=1.5}", "{average=2.0}", "{mean=3.0}");
+        assertEquals(WINDOW_BYTES, memoryBudget.getAllocatedBytes());
+    }
+
+    public void testChangedWindowIsChargedInsteadOfOldOne() throws Exception {
+        assertEquals(WINDOW_BYTES, memoryBudget.getAllocatedBytes());
+        send(1, 2, 3);
+
+        sma.setWindowLength(5);
+        runtime.redeploy(model);
+        send(4);
+
+        // a window of another size starts out empty
+        assertPrinted("{average=1.0}", "{average=1.5}", "{average=2.0}", "{average=4.0}");
+        assertEquals(5 * 8, memoryBudget.getAllocatedBytes());
+        assertEquals(5 * 8, memoryBudget.getAllocatedBytes(sma.getId()));
+    }
+
+    public void testRejectedRedeployKeepsDeployedModel() throws Exception {
+        send(1, 2);
+
+        // 20 doubles do not fit the budget
+        sma.setWindowLength(20);
+        try {
+            runtime.redeploy(model);
+            fail("redeploy should have been rejected");
+        } catch (ValidationException e) {
+            // expected
+        }
+        send(3);
+
+        assertPrinted("{average=1.0}", "{average=1.5}", "{average=2.0}");
+        assertEquals(WINDOW_BYTES, memoryBudget.getAllocatedBytes());
+    }
+
+    private void send(double... values) {
+        for (double value : values) {
+            runtime.sendEventFromSource(new Event("x", value), source);
+        }
+    }
+
+    private void assertPrinted(String... lines) {
+        String printed = output.toString().trim();
+
+        assertEquals(Arrays.asList(lines), Arrays.asList(printed.split("\\s*\\n\\s*")));
+    }
+
+    /**
+     * Source that sends nothing by itself
+     */
+    private static class SilentSource extends ExternalSource {
+
+        SilentSource(UUID id) {
+            super(id, "source", "source");
+            setOutput(Output.outputWithId(1));
+        }
+
+        SilentSource(UUID id, SilentSource copyFromSource) {
+            super(id, copyFromSource);
+        }
+
+        SilentSource(SilentSource copyFromSource) {
+            super(copyFromSource);
+        }
+
+        @Override
+        public Source newInstance() {
+            return new SilentSource(UUID.randomUUID(), this);
+        }
+
+        @Override
+        public Source copyOf() {
+            return new SilentSource(this);
+        }
+
+        @Override
+        public CompiledExternalSource compile() {
+            return new CompiledExternalSource() {
+                @Override
+                public void startProcessingEvents(ProcessingRuntime runtime) {
+                }
+
+                @Override
+                public void stopProcessingEvents() {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.ingest;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import org.lisapark.octopus.core.source.Source;
+
+/**
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class BoundedIngestionQueueTest extends IngestionQueueTestCase {
+
+    public BoundedIngestionQueueTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(BoundedIngestionQueueTest.class);
+    }
+
+    @Override
+    protected IngestionQueue newQueue(Source source, int capacity, IngestionHandler handler) {
+        return new BoundedIngestionQueue(source, new IngestionSettings(capacity, OverflowPolicy.BLOCK), handler);
+    }
+}
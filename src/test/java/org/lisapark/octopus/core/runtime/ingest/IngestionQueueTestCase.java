@@ -0,0 +1,156 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.ingest;
+
+import junit.framework.TestCase;
+import org.lisapark.octopus.core.event.Event;
+import org.lisapark.octopus.core.source.Source;
+import org.lisapark.octopus.core.source.external.impl.TestSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests every {@link IngestionQueue} has to pass, a subclass supplies the queue.
+ *
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public abstract class IngestionQueueTestCase extends TestCase {
+    private static final String ATTRIBUTE_NAME = "sequence";
+    private static final int CAPACITY = 16;
+
+    protected IngestionQueueTestCase(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Returns a new queue of the specified capacity that hands its events to the handler.
+     */
+    protected abstract IngestionQueue newQueue(Source source, int capacity, IngestionHandler handler);
+
+    public void testEventsOfProducerArriveInOrder() throws Exception {
+        final int eventCount = 10000;
+        RecordingHandler handler = new RecordingHandler(null);
+        final IngestionQueue queue = newQueue(TestSource.newTemplate(), CAPACITY, handler);
+        queue.start();
+
+        // many more events than fit, so the producer has to wait for the engine thread
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < eventCount; ++i) {
+                    queue.offer(new Event(ATTRIBUTE_NAME, i));
+                }
+            }
+        });
+        producer.start();
+        producer.join();
+        queue.shutdown();
+
+        assertInOrder(handler.getEvents(), eventCount);
+        assertEquals(eventCount, queue.getQueuedCount());
+        assertEquals(eventCount, queue.getProcessedCount());
+        assertEquals(0, queue.getDroppedCount());
+        assertEquals(0, queue.getDepth());
+        assertTrue(queue.getMaximumDepth() <= CAPACITY);
+    }
+
+    public void testShutdownDrainsQueuedEvents() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingHandler handler = new RecordingHandler(release);
+        final IngestionQueue queue = newQueue(TestSource.newTemplate(), CAPACITY, handler);
+        queue.start();
+
+        // the engine thread holds on to the first event, so the others stay queued until the queue is shutdown
+        queue.offer(new Event(ATTRIBUTE_NAME, 0));
+        assertTrue(handler.awaitFirstBatch());
+        for (int i = 1; i < CAPACITY; ++i) {
+            queue.offer(new Event(ATTRIBUTE_NAME, i));
+        }
+        assertEquals(CAPACITY, queue.getQueuedCount());
+        assertEquals(0, queue.getProcessedCount());
+
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread shutdown = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    queue.shutdown();
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }
+        });
+        shutdown.start();
+        // gives the shutdown a chance to stop the engine thread before it takes the queued events
+        shutdown.join(100);
+        release.countDown();
+        shutdown.join();
+
+        assertTrue(failures.isEmpty());
+        assertInOrder(handler.getEvents(), CAPACITY);
+        assertEquals(CAPACITY, queue.getProcessedCount());
+        assertEquals(0, queue.getDepth());
+    }
+
+    private static void assertInOrder(List<Event> events, int eventCount) {
+        assertEquals(eventCount, events.size());
+        for (int i = 0; i < eventCount; ++i) {
+            assertEquals(Integer.valueOf(i), events.get(i).getAttributeAsInteger(ATTRIBUTE_NAME));
+        }
+    }
+
+    /**
+     * Keeps every event it is handed, holding up the first batch until released if there is a latch.
+     */
+    private static class RecordingHandler implements IngestionHandler {
+        private final List<Event> events = Collections.synchronizedList(new ArrayList<Event>());
+        private final CountDownLatch firstBatch = new CountDownLatch(1);
+        private final CountDownLatch release;
+
+        RecordingHandler(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void processEvents(List<Event> batch, Source source) {
+            events.addAll(batch);
+            firstBatch.countDown();
+
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        boolean awaitFirstBatch() throws InterruptedException {
+            return firstBatch.await(10, TimeUnit.SECONDS);
+        }
+
+        List<Event> getEvents() {
+            synchronized (events) {
+                return new ArrayList<Event>(events);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/* 
+ * Copyright (C) 2013 Lisa Park, Inc. (www.lisa-park.net)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.lisapark.octopus.core.runtime.metrics;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author dave sinclair(david.sinclair@lisa-park.com)
+ */
+public class LatencyHistogramTest extends TestCase {
+
+    public LatencyHistogramTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(LatencyHistogramTest.class);
+    }
+
+    public void testSmallValuesHaveABucketEach() {
+        for (int value = 0; value < 32; ++value) {
+            assertEquals(value, LatencyHistogram.bucketIndexOf(value));
+            assertEquals(value, LatencyHistogram.highestValueOf(value));
+        }
+    }
+
+    public void testBucketsDoubleInWidthEveryPowerOfTwo() {
+        assertEquals(32, LatencyHistogram.bucketIndexOf(32));
+        assertEquals(63, LatencyHistogram.bucketIndexOf(63));
+
+        // from 64 on a bucket holds two values, from 128 on four
+        assertEquals(64, LatencyHistogram.bucketIndexOf(64));
+        assertEquals(64, LatencyHistogram.bucketIndexOf(65));
+        assertEquals(65, LatencyHistogram.bucketIndexOf(66));
+        assertEquals(65L, LatencyHistogram.highestValueOf(64));
+        assertEquals(96, LatencyHistogram.bucketIndexOf(128));
+        assertEquals(96, LatencyHistogram.bucketIndexOf(131));
+        assertEquals(97, LatencyHistogram.bucketIndexOf(132));
+        assertEquals(131L, LatencyHistogram.highestValueOf(96));
+    }
+
+    public void testHighestValueIsTheUpperBoundOfItsBucket() {
+        int lastBucket = LatencyHistogram.bucketIndexOf(Long.MAX_VALUE);
+
+        for (int bucket = 0; bucket < lastBucket; ++bucket) {
+            long highestValue = LatencyHistogram.highestValueOf(bucket);
+
+            assertEquals(bucket, LatencyHistogram.bucketIndexOf(highestValue));
+            assertEquals(bucket + 1, LatencyHistogram.bucketIndexOf(highestValue + 1));
+        }
+    }
+
+    public void testValuesBeyondTheLargestExponentShareTheLastBucket() {
+        int lastBucket = LatencyHistogram.bucketIndexOf(Long.MAX_VALUE);
+
+        assertEquals(32 + 36 * 32 - 1, lastBucket);
+        assertEquals(lastBucket, LatencyHistogram.bucketIndexOf((1L << 41) - 1));
+        assertEquals(lastBucket, LatencyHistogram.bucketIndexOf(1L << 41));
+        assertEquals(lastBucket, LatencyHistogram.bucketIndexOf(1L << 62));
+    }
+
+    public void testPercentilesAreCappedAtTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int nanos = 1; nanos <= 100; ++nanos) {
+            histogram.record(nanos);
+        }
+        histogram.record(-5);
+
+        assertEquals(101, histogram.getCount());
+        assertEquals(100, histogram.getMaximumNanos());
+        assertEquals(50, histogram.getMeanNanos());
+
+        long[] values = histogram.getNanosAtPercentiles(0, 50, 100);
+        assertEquals(0, values[0]);
+        assertEquals(50, values[1]);
+        // 100 is in the bucket of 100 and 101, but nothing above 100 was recorded
+        assertEquals(100, values[2]);
+    }
+}